@@ -88,6 +88,12 @@ class GlassFishObjectInputStream extends ObjectInputStream
     @Override
     protected Object resolveObject(Object obj)
         throws IOException
+    {
+        return resolveObject(handlers, obj);
+    }
+
+    static Object resolveObject(Collection<GlassFishInputStreamHandler> handlers, Object obj)
+        throws IOException
     {
     	Object result = obj;
         try {
@@ -103,6 +103,11 @@ class GlassFishObjectOutputStream extends java.io.ObjectOutputStream {
 	 * part of a bean's state. See EJB2.0 section 7.4.1.
 	 */
 	protected Object replaceObject(Object obj) throws IOException {
+		return replaceObject(handlers, obj);
+	}
+
+	static Object replaceObject(Collection<GlassFishOutputStreamHandler> handlers, Object obj)
+			throws IOException {
 		Object result = obj;
 
 		if (obj instanceof IndirectlySerializable) {
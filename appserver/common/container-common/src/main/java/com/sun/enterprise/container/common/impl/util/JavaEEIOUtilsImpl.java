@@ -153,6 +153,14 @@ public class JavaEEIOUtilsImpl implements JavaEEIOUtils {
 		return obj;
 	}
 
+	Object replaceObject(Object obj) throws IOException {
+		return GlassFishObjectOutputStream.replaceObject(outputHandlers, obj);
+	}
+
+	Object resolveObject(Object obj) throws IOException {
+		return GlassFishObjectInputStream.resolveObject(inputHandlers, obj);
+	}
+
 	public void addGlassFishOutputStreamHandler(GlassFishOutputStreamHandler handler) {
 		outputHandlers.add(handler);
 
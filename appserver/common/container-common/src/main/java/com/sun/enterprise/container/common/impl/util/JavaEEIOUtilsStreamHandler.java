@@ -0,0 +1,85 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.container.common.impl.util;
+
+import com.sun.enterprise.container.common.spi.util.JavaEEIOUtils;
+import com.sun.enterprise.container.common.spi.util.JavaEEObjectStreamHandler;
+
+import java.io.IOException;
+
+/**
+ * Replaces and resolves objects like the streams of a JavaEEIOUtils, for
+ * object streams that are not created by it, such as the streams of the
+ * compact session serializer of the web container.
+ * <p>
+ * This is not a service: instances are obtained with
+ * {@link #forIOUtils(JavaEEIOUtils)}.
+ */
+public final class JavaEEIOUtilsStreamHandler implements JavaEEObjectStreamHandler {
+
+    private final JavaEEIOUtilsImpl ioUtils;
+
+    private JavaEEIOUtilsStreamHandler(JavaEEIOUtilsImpl ioUtils) {
+        this.ioUtils = ioUtils;
+    }
+
+    /**
+     * @param ioUtils the JavaEEIOUtils whose handlers replace and resolve
+     * the objects
+     * @return a handler using the GlassFishOutputStreamHandlers and
+     * GlassFishInputStreamHandlers of <code>ioUtils</code>, or null if
+     * <code>ioUtils</code> is null or another implementation
+     */
+    public static JavaEEObjectStreamHandler forIOUtils(JavaEEIOUtils ioUtils) {
+        if (ioUtils instanceof JavaEEIOUtilsImpl) {
+            return new JavaEEIOUtilsStreamHandler((JavaEEIOUtilsImpl) ioUtils);
+        }
+        return null;
+    }
+
+    public Object replaceObject(Object obj) throws IOException {
+        return ioUtils.replaceObject(obj);
+    }
+
+    public Object resolveObject(Object obj) throws IOException {
+        return ioUtils.resolveObject(obj);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.resource.pool.benchmark;
+
+import com.sun.appserv.connectors.internal.api.PoolingException;
+import com.sun.enterprise.connectors.ConnectorConnectionPool;
+import com.sun.enterprise.resource.pool.AssocWithThreadResourcePool;
+import com.sun.enterprise.resource.pool.ConnectionPool;
+import org.glassfish.resourcebase.resources.api.PoolInfo;
+
+import java.util.Hashtable;
+
+/**
+ * Creates connection pools outside of the server. The pool configuration is passed
+ * through the environment instead of being looked up in the naming service.
+ */
+final class BenchmarkPools {
+
+    static final String STANDARD_POOL = "ConnectionPool";
+    static final String ASSOC_WITH_THREAD_POOL = "AssocWithThreadResourcePool";
+
+    private static final String POOL_CONFIGURATION = "com.sun.enterprise.resource.pool.benchmark.PoolConfiguration";
+    private static final String DATASTRUCTURE_PACKAGE = "com.sun.enterprise.resource.pool.datastructure.";
+    private static final String WAITQUEUE_PACKAGE = "com.sun.enterprise.resource.pool.waitqueue.";
+
+    private BenchmarkPools() {
+    }
+
+    /**
+     * @param poolType      STANDARD_POOL or ASSOC_WITH_THREAD_POOL
+     * @param dataStructure simple class name of the pool datastructure
+     * @param waitQueue     simple class name of the pool wait queue
+     * @param poolSize      steady and max pool size
+     * @param maxWaitTime   max-wait-time-in-millis of the pool
+     * @return ConnectionPool created pool, resources are created on the first request
+     * @throws PoolingException when the pool cannot be created
+     */
+    static ConnectionPool createPool(String poolType, String dataStructure, String waitQueue,
+                                     int poolSize, long maxWaitTime) throws PoolingException {
+        PoolInfo poolInfo = new PoolInfo("benchmark-" + poolType);
+        ConnectorConnectionPool configuration = new ConnectorConnectionPool(poolInfo);
+        configuration.setSteadyPoolSize(String.valueOf(poolSize));
+        configuration.setMaxPoolSize(String.valueOf(poolSize));
+        configuration.setPoolResizeQuantity("1");
+        configuration.setMaxWaitTimeInMillis(String.valueOf(maxWaitTime));
+        //no idle timeout, no resizer task
+        configuration.setIdleTimeoutInSeconds("0");
+        configuration.setMaxConnectionUsage(ConnectorConnectionPool.DEFAULT_MAX_CONNECTION_USAGE);
+        configuration.setConCreationRetryAttempts(ConnectorConnectionPool.DEFAULT_CON_CREATION_RETRY_ATTEMPTS);
+        configuration.setConCreationRetryInterval(ConnectorConnectionPool.DEFAULT_CON_CREATION_RETRY_INTERVAL);
+        configuration.setValidateAtmostOncePeriod(ConnectorConnectionPool.DEFAULT_VALIDATE_ATMOST_ONCE_PERIOD);
+        configuration.setConnectionLeakTracingTimeout(ConnectorConnectionPool.DEFAULT_LEAK_TIMEOUT);
+        configuration.setPoolDataStructureType(DATASTRUCTURE_PACKAGE + dataStructure);
+        configuration.setPoolWaitQueue(WAITQUEUE_PACKAGE + waitQueue);
+
+        Hashtable env = new Hashtable();
+        env.put(POOL_CONFIGURATION, configuration);
+        if (ASSOC_WITH_THREAD_POOL.equals(poolType)) {
+            return new BenchmarkAssocWithThreadResourcePool(poolInfo, env);
+        }
+        return new BenchmarkConnectionPool(poolInfo, env);
+    }
+
+    static class BenchmarkConnectionPool extends ConnectionPool {
+
+        BenchmarkConnectionPool(PoolInfo poolInfo, Hashtable env) throws PoolingException {
+            super(poolInfo, env);
+        }
+
+        @Override
+        protected ConnectorConnectionPool getPoolConfigurationFromJndi(Hashtable env) {
+            return (ConnectorConnectionPool) env.get(POOL_CONFIGURATION);
+        }
+    }
+
+    static class BenchmarkAssocWithThreadResourcePool extends AssocWithThreadResourcePool {
+
+        BenchmarkAssocWithThreadResourcePool(PoolInfo poolInfo, Hashtable env) throws PoolingException {
+            super(poolInfo, env);
+        }
+
+        @Override
+        protected ConnectorConnectionPool getPoolConfigurationFromJndi(Hashtable env) {
+            return (ConnectorConnectionPool) env.get(POOL_CONFIGURATION);
+        }
+    }
+}
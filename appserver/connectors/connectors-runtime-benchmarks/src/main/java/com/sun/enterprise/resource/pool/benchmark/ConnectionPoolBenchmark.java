@@ -0,0 +1,182 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.resource.pool.benchmark;
+
+import com.sun.enterprise.resource.ResourceHandle;
+import com.sun.enterprise.resource.ResourceSpec;
+import com.sun.enterprise.resource.pool.ConnectionPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures acquire/release of a connection through <code>ConnectionPool</code> and
+ * <code>AssocWithThreadResourcePool</code> (which always uses <code>ListDataStructure</code>).<br>
+ * Scenarios :
+ * <ul>
+ * <li>STEADY_STATE : connections are released as soon as they are acquired</li>
+ * <li>CONTENTION : connections are held for a while, threads wait once they outnumber the pool</li>
+ * <li>EXHAUSTION : all but one connection are held during the whole trial</li>
+ * </ul>
+ * <code>acquireRelease</code> measures the round trip : acquire, hold, release.
+ * <code>acquire</code> measures the acquisition alone, in sample time mode : the
+ * connection is held and released after each invocation, outside of the measured time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConnectionPoolBenchmark {
+
+    private static final long MAX_WAIT_TIME = 60000;
+    private static final long CONTENTION_HOLD_TOKENS = 1000;
+    private static final long EXHAUSTION_HOLD_TOKENS = 100;
+
+    /**
+     * pool type and datastructure as "poolType/dataStructure". Not two independent params,
+     * <code>AssocWithThreadResourcePool</code> replaces any datastructure by <code>ListDataStructure</code>.
+     */
+    @Param({BenchmarkPools.STANDARD_POOL + "/RWLockDataStructure",
+            BenchmarkPools.STANDARD_POOL + "/ListDataStructure",
+            BenchmarkPools.STANDARD_POOL + "/LockFreeDataStructure",
+            BenchmarkPools.ASSOC_WITH_THREAD_POOL + "/ListDataStructure"})
+    public String pool;
+
+    @Param({"DefaultPoolWaitQueue", "HandOffPoolWaitQueue"})
+    public String waitQueue;
+
+    @Param({"8", "32", "128"})
+    public int poolSize;
+
+    @Param({"STEADY_STATE", "CONTENTION", "EXHAUSTION"})
+    public String scenario;
+
+    private ConnectionPool connectionPool;
+    private ResourceSpec spec;
+    private StubResourceAllocator allocator;
+    private long holdTokens;
+    private final List<ResourceHandle> held = new ArrayList<ResourceHandle>();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        int separator = this.pool.indexOf('/');
+        String poolType = this.pool.substring(0, separator);
+        String dataStructure = this.pool.substring(separator + 1);
+        connectionPool = BenchmarkPools.createPool(poolType, dataStructure, waitQueue, poolSize, MAX_WAIT_TIME);
+        spec = new ResourceSpec("jdbc/benchmark", ResourceSpec.JNDI_NAME);
+        allocator = new StubResourceAllocator(spec,
+                BenchmarkPools.ASSOC_WITH_THREAD_POOL.equals(poolType));
+
+        if ("CONTENTION".equals(scenario)) {
+            holdTokens = CONTENTION_HOLD_TOKENS;
+        } else if ("EXHAUSTION".equals(scenario)) {
+            holdTokens = EXHAUSTION_HOLD_TOKENS;
+            for (int i = 0; i < poolSize - 1; i++) {
+                held.add(connectionPool.getResource(spec, allocator, null));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (ResourceHandle h : held) {
+            connectionPool.resourceClosed(h);
+        }
+        held.clear();
+        connectionPool.emptyPool();
+    }
+
+    @Benchmark
+    public ResourceHandle acquireRelease() throws Exception {
+        ResourceHandle h = connectionPool.getResource(spec, allocator, null);
+        holdAndRelease(h);
+        return h;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public ResourceHandle acquire(Acquired acquired) throws Exception {
+        acquired.handle = connectionPool.getResource(spec, allocator, null);
+        return acquired.handle;
+    }
+
+    private void holdAndRelease(ResourceHandle h) {
+        if (holdTokens > 0) {
+            Blackhole.consumeCPU(holdTokens);
+        }
+        connectionPool.resourceClosed(h);
+    }
+
+    /**
+     * The connection acquired by the last <code>acquire</code> invocation of a thread.
+     */
+    @State(Scope.Thread)
+    public static class Acquired {
+
+        private ResourceHandle handle;
+
+        @TearDown(Level.Invocation)
+        public void release(ConnectionPoolBenchmark benchmark) {
+            if (handle != null) {
+                benchmark.holdAndRelease(handle);
+                handle = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.resource.pool.benchmark;
+
+import com.sun.appserv.connectors.internal.api.PoolingException;
+import com.sun.enterprise.resource.ResourceHandle;
+import com.sun.enterprise.resource.ResourceSpec;
+import com.sun.enterprise.resource.ResourceState;
+import com.sun.enterprise.resource.allocator.ResourceAllocator;
+import com.sun.enterprise.resource.pool.ResourceHandler;
+import com.sun.enterprise.resource.pool.datastructure.DataStructure;
+import com.sun.enterprise.resource.pool.datastructure.DataStructureFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures getResource/returnResource on the pool datastructures alone,
+ * without the pool bookkeeping around them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataStructureBenchmark {
+
+    @Param({"RWLockDataStructure", "ListDataStructure", "LockFreeDataStructure"})
+    public String dataStructure;
+
+    @Param({"8", "32", "128"})
+    public int poolSize;
+
+    private DataStructure ds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ResourceSpec spec = new ResourceSpec("jdbc/benchmark", ResourceSpec.JNDI_NAME);
+        ds = DataStructureFactory.getDataStructure(
+                "com.sun.enterprise.resource.pool.datastructure." + dataStructure,
+                null, poolSize, new StubResourceHandler(), null);
+        ds.addResource(new StubResourceAllocator(spec, false), poolSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ds.removeAll();
+    }
+
+    /**
+     * @return the resource obtained, null when all resources were in use
+     */
+    @Benchmark
+    public ResourceHandle getReturn() {
+        ResourceHandle h = ds.getResource();
+        if (h != null) {
+            ds.returnResource(h);
+        }
+        return h;
+    }
+
+    private static class StubResourceHandler implements ResourceHandler {
+
+        public void deleteResource(ResourceHandle resourceHandle) {
+            //nothing to delete
+        }
+
+        public ResourceHandle createResource(ResourceAllocator allocator) throws PoolingException {
+            ResourceHandle h = allocator.createResource();
+            h.setResourceState(new ResourceState());
+            return h;
+        }
+
+        public void createResourceAndAddToPool() throws PoolingException {
+            throw new UnsupportedOperationException();
+        }
+
+        public Set getInvalidConnections(Set connections) {
+            return Collections.EMPTY_SET;
+        }
+
+        public void invalidConnectionDetected(ResourceHandle h) {
+            //stub resources are always valid
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.resource.pool.benchmark;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the pool benchmarks with 1, 2, 4 .. N threads, reporting ops/sec
+ * (throughput) and the latency distribution (sample time, incl. p99) of each run.
+ * The latency of <code>acquireRelease</code> is the round trip latency
+ * (acquire, hold, release), the one of <code>acquire</code> the acquire latency alone;
+ * <code>acquire</code> is left out of the throughput runs.<br>
+ * Usage : <code>java -jar benchmarks.jar [max-threads] [benchmark-regexp]</code><br>
+ * max-threads defaults to twice the number of processors. Regular JMH options
+ * can be used with <code>java -cp benchmarks.jar org.openjdk.jmh.Main</code>.
+ */
+public class PoolBenchmarkRunner {
+
+    private static final String ACQUIRE_ONLY = ".*\\.acquire$";
+
+    public static void main(String[] args) throws RunnerException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0])
+                : Runtime.getRuntime().availableProcessors() * 2;
+        String include = args.length > 1 ? args[1] : PoolBenchmarkRunner.class.getPackage().getName() + ".*";
+
+        int threads = 1;
+        while (true) {
+            new Runner(new OptionsBuilder()
+                    .include(include)
+                    .exclude(ACQUIRE_ONLY)
+                    .threads(threads)
+                    .mode(Mode.Throughput).timeUnit(TimeUnit.SECONDS).build()).run();
+            new Runner(new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .mode(Mode.SampleTime).timeUnit(TimeUnit.MICROSECONDS).build()).run();
+            if (threads >= maxThreads) {
+                break;
+            }
+            threads = Math.min(threads * 2, maxThreads);
+        }
+    }
+}
@@ -51,6 +51,7 @@ import javax.resource.spi.ConnectionEventListener;
 import javax.security.auth.Subject;
 import javax.transaction.xa.XAResource;
 import javax.transaction.Transaction;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
@@ -78,7 +79,11 @@ public class ResourceHandle implements
     private int shareCount;   // sharing within a component (XA only)
     private boolean supportsXAResource = false;
 
-    private volatile boolean busy;
+    private static final AtomicIntegerFieldUpdater<ResourceHandle> busyUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(ResourceHandle.class, "busy");
+
+    //1 when busy, 0 when free. int so that it can be claimed through busyUpdater
+    private volatile int busy;
 
     private Subject subject = null;
 
@@ -383,11 +388,21 @@ public class ResourceHandle implements
     }
 
     public void setBusy(boolean isBusy){
-        busy = isBusy;
+        busy = isBusy ? 1 : 0;
     }
 
     public boolean isBusy(){
-        return busy;
+        return busy == 1;
+    }
+
+    /**
+     * Atomically marks the handle busy, only if it is free.
+     * Used by lock-free pool datastructures to claim a handle.
+     *
+     * @return true if the handle was free and is now owned by the caller
+     */
+    public boolean trySetBusy(){
+        return busyUpdater.compareAndSet(this, 0, 1);
     }
 
     public boolean getDestroyByLeakTimeOut(){
@@ -54,6 +54,8 @@ import com.sun.enterprise.resource.pool.datastructure.DataStructure;
 import com.sun.enterprise.resource.pool.datastructure.DataStructureFactory;
 import com.sun.enterprise.resource.pool.resizer.Resizer;
 import com.sun.enterprise.resource.pool.waitqueue.PoolWaitQueue;
+import com.sun.enterprise.resource.pool.waitqueue.HandOffPoolWaitQueue;
+import com.sun.enterprise.resource.pool.waitqueue.HandOffWaitMonitor;
 import com.sun.enterprise.resource.pool.waitqueue.PoolWaitQueueFactory;
 import com.sun.enterprise.transaction.api.JavaEETransaction;
 import com.sun.enterprise.util.i18n.StringManager;
@@ -367,7 +369,8 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
         long remainingWaitTime = 0;
 
         while (true) {
-            if (gateway.allowed()) {
+            //result is already set when a resource was handed off while waiting
+            if (result == null && gateway.allowed()) {
                 //See comment #1 above
                 JavaEETransaction jtx = ((JavaEETransaction) txn);
                 Set resourcesSet = null;
@@ -422,7 +425,7 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
 
                 if (!blocked) {
                     //add to wait-queue
-                    Object waitMonitor = new Object();
+                    Object waitMonitor = createWaitMonitor(alloc);
                     if (poolLifeCycleListener != null) {
                         poolLifeCycleListener.connectionRequestQueued();
                     }
@@ -435,6 +438,7 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
 
                         } catch (InterruptedException ex) {
                             //Could be system shutdown.
+                            result = getHandedOffResource(waitMonitor, spec, alloc, txn);
                             break;
                         }
 
@@ -450,6 +454,7 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
                             }
                         }
                     }
+                    result = getHandedOffResource(waitMonitor, spec, alloc, txn);
                 } else {
                     //add to reconfig-wait-queue
                     Object reconfigWaitMonitor = new Object();
@@ -1059,13 +1064,17 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
                     resourceHandle.getUsageCount() >= maxConnectionUsage_) {
                  performMaxConnectionUsageOperation(resourceHandle);
             } else {
-                // Put it back to the free collection.
-                ds.returnResource(resourceHandle);
                 //update the monitoring data
                 if (poolLifeCycleListener != null && !resourceHandle.getDestroyByLeakTimeOut()) {
                     poolLifeCycleListener.decrementConnectionUsed(resourceHandle.getId());
                     poolLifeCycleListener.incrementNumConnFree(false, steadyPoolSize);
                 }
+                // Hand it over to a waiting thread, if any, instead of notifying it to retry.
+                if (handOffToWaitingThread(resourceHandle)) {
+                    return;
+                }
+                // Put it back to the free collection.
+                ds.returnResource(resourceHandle);
             }
             //for both the cases of free.add and maxConUsageOperation, a free resource is added.
             // Hence notify waiting threads
@@ -1215,6 +1224,119 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
     }
 
 
+    /**
+     * Creates the object on which a resource request waits in the wait-queue.
+     * With a <code>HandOffPoolWaitQueue</code>, freed resources are handed over to
+     * the waiting request through the monitor.
+     *
+     * @param alloc ResourceAllocator of the waiting request
+     * @return Object wait monitor
+     */
+    private Object createWaitMonitor(ResourceAllocator alloc) {
+        if (waitQueue instanceof HandOffPoolWaitQueue) {
+            return new HandOffWaitMonitor(alloc);
+        }
+        return new Object();
+    }
+
+    /**
+     * Claims the resource handed over to a request that was waiting in the wait-queue.
+     * As in <code>internalGetResource</code>, a resource shared within the current
+     * transaction or prefetched for the request is preferred, the handed over resource
+     * is then released to the next waiting request or to the pool.
+     *
+     * @param waitMonitor monitor on which the request waited
+     * @param spec        ResourceSpec of the request
+     * @param alloc       ResourceAllocator of the request
+     * @param txn         Transaction of the request
+     * @return ResourceHandle valid resource handed over, null if there is none
+     */
+    private ResourceHandle getHandedOffResource(Object waitMonitor, ResourceSpec spec,
+                                                ResourceAllocator alloc, Transaction txn) {
+        if (!(waitMonitor instanceof HandOffWaitMonitor)) {
+            return null;
+        }
+        ResourceHandle h = ((HandOffWaitMonitor) waitMonitor).close();
+        if (h == null) {
+            return null;
+        }
+        ResourceHandle result = getResourceFromTransaction(txn, alloc, spec);
+        if (result == null) {
+            result = prefetch(spec, alloc, txn);
+        }
+        if (result != null) {
+            if (!handOffToWaitingThread(h)) {
+                ds.returnResource(h);
+                notifyWaitingThreads();
+            }
+            return result;
+        }
+        if (h.hasConnectionErrorOccurred() || !isConnectionValid(h, alloc)) {
+            //put it back in the free list marked as failed, the request then retries
+            //through internalGetResource, which removes it from the pool and creates
+            //a replacement the same way as for an invalid free resource.
+            h.setConnectionErrorOccurred();
+            ds.returnResource(h);
+            return null;
+        }
+        setResourceStateToBusy(h);
+        if (maxConnectionUsage_ > 0) {
+            h.incrementUsageCount();
+        }
+        if (poolLifeCycleListener != null) {
+            poolLifeCycleListener.connectionUsed(h.getId());
+            poolLifeCycleListener.decrementNumConnFree();
+        }
+        return h;
+    }
+
+    /**
+     * Hands over a freed resource to the first request waiting in the wait-queue, when
+     * the pool uses a <code>HandOffPoolWaitQueue</code>. The resource stays marked busy
+     * in the datastructure.
+     *
+     * @param resourceHandle freed resource
+     * @return boolean indicating whether the resource was handed over
+     */
+    private boolean handOffToWaitingThread(ResourceHandle resourceHandle) {
+        if (!(waitQueue instanceof HandOffPoolWaitQueue)) {
+            return false;
+        }
+        Object waitMonitor;
+        while ((waitMonitor = ((HandOffPoolWaitQueue) waitQueue).poll()) != null) {
+            if (poolLifeCycleListener != null) {
+                poolLifeCycleListener.connectionRequestDequeued();
+            }
+            if (!(waitMonitor instanceof HandOffWaitMonitor)) {
+                //request queued before the wait-queue changed, let it retry.
+                wakeUp(waitMonitor);
+                return false;
+            }
+            HandOffWaitMonitor monitor = (HandOffWaitMonitor) waitMonitor;
+            ResourceAllocator waitingAlloc = monitor.getAllocator();
+            if (resourceHandle.isShareable() != waitingAlloc.shareableWithinComponent()
+                    || !matchConnection(resourceHandle, waitingAlloc)) {
+                //let the request look for (or create) a matching resource.
+                wakeUp(waitMonitor);
+                return false;
+            }
+            if (monitor.offer(resourceHandle)) {
+                return true;
+            }
+            //request timed out in the meantime, try the next one.
+        }
+        return false;
+    }
+
+    private void wakeUp(Object waitMonitor) {
+        synchronized (waitMonitor) {
+            if (_logger.isLoggable(Level.FINE)) {
+                _logger.log(Level.FINE, "Notifying wait monitor : " + waitMonitor.toString());
+            }
+            waitMonitor.notifyAll();
+        }
+    }
+
     protected void notifyWaitingThreads() {
         // notify the first thread in the waitqueue
         Object waitMonitor = null;
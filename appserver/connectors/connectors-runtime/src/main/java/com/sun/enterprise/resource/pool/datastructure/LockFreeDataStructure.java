@@ -0,0 +1,237 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.resource.pool.datastructure;
+
+import com.sun.enterprise.resource.allocator.ResourceAllocator;
+import com.sun.enterprise.resource.ResourceHandle;
+import com.sun.enterprise.resource.pool.ResourceHandler;
+import com.sun.appserv.connectors.internal.api.PoolingException;
+import com.sun.logging.LogDomains;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Lock-free datastructure for pool.<br>
+ * Free resources are kept in a non-blocking free-list and are claimed by
+ * atomically marking the handle busy (see <code>ResourceHandle.trySetBusy()</code>).
+ * Each thread remembers the resource it returned last and tries to claim it again
+ * on its next request, so that a thread tends to reuse the same connection
+ * without touching the shared free-list.<br>
+ * A resource is present in the free-list at most once, stale entries (resources
+ * claimed through thread affinity or removed from the pool) are discarded when polled.
+ */
+public class LockFreeDataStructure implements DataStructure {
+
+    private ResourceHandler handler;
+    private volatile int maxSize;
+
+    //all resources of the pool, mapped to a flag indicating whether the resource is in the free-list
+    private final Map<ResourceHandle, AtomicBoolean> resources;
+    private final ConcurrentLinkedQueue<ResourceHandle> freeList =
+            new ConcurrentLinkedQueue<ResourceHandle>();
+    //number of resources created or being created, used to honour maxSize without locking
+    private final AtomicInteger size = new AtomicInteger();
+    //number of resources of the pool that are not busy, kept for monitoring
+    private final AtomicInteger free = new AtomicInteger();
+
+    private final ThreadLocal<WeakReference<ResourceHandle>> lastReturned =
+            new ThreadLocal<WeakReference<ResourceHandle>>();
+
+    protected final static Logger _logger =
+            LogDomains.getLogger(LockFreeDataStructure.class, LogDomains.RSR_LOGGER);
+
+    public LockFreeDataStructure(String parameters, int maxSize,
+                                 ResourceHandler handler, String strategyClass) {
+        resources = new ConcurrentHashMap<ResourceHandle, AtomicBoolean>((maxSize > 1000) ? 1000 : maxSize);
+        this.maxSize = maxSize;
+        this.handler = handler;
+        if (_logger.isLoggable(Level.FINEST)) {
+            _logger.log(Level.FINEST, "pool.datastructure.lockfreeds.init");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int addResource(ResourceAllocator allocator, int count) throws PoolingException {
+        int numResAdded = 0;
+        for (int i = 0; i < count; i++) {
+            //reserve a slot before creating the resource so that maxSize is never exceeded
+            int current = size.get();
+            if (current >= maxSize) {
+                break;
+            }
+            if (!size.compareAndSet(current, current + 1)) {
+                i--;
+                continue;
+            }
+            ResourceHandle handle;
+            try {
+                handle = handler.createResource(allocator);
+            } catch (Exception e) {
+                size.decrementAndGet();
+                PoolingException pe = new PoolingException(e.getMessage());
+                pe.initCause(e);
+                throw pe;
+            }
+            resources.put(handle, new AtomicBoolean(true));
+            free.incrementAndGet();
+            freeList.offer(handle);
+            numResAdded++;
+        }
+        return numResAdded;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public ResourceHandle getResource() {
+        WeakReference<ResourceHandle> ref = lastReturned.get();
+        if (ref != null) {
+            ResourceHandle h = ref.get();
+            if (h != null && resources.containsKey(h) && h.trySetBusy()) {
+                free.decrementAndGet();
+                return h;
+            }
+        }
+
+        ResourceHandle h;
+        while ((h = freeList.poll()) != null) {
+            AtomicBoolean inFreeList = resources.get(h);
+            if (inFreeList == null) {
+                //removed from the pool after it was freed
+                continue;
+            }
+            inFreeList.set(false);
+            if (h.trySetBusy()) {
+                free.decrementAndGet();
+                return h;
+            }
+            //claimed through thread affinity, it will be re-added when returned.
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void removeResource(ResourceHandle resource) {
+        if (resources.remove(resource) != null) {
+            size.decrementAndGet();
+            //claim the resource so that it is counted out of the free resources only once
+            if (resource.trySetBusy()) {
+                free.decrementAndGet();
+            }
+            handler.deleteResource(resource);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void returnResource(ResourceHandle resource) {
+        AtomicBoolean inFreeList = resources.get(resource);
+        if (inFreeList == null) {
+            resource.setBusy(false);
+            return;
+        }
+        free.incrementAndGet();
+        resource.setBusy(false);
+        if (!resources.containsKey(resource)) {
+            //removed concurrently, undo the count unless removeResource already did
+            if (resource.trySetBusy()) {
+                free.decrementAndGet();
+            }
+        } else {
+            lastReturned.set(new WeakReference<ResourceHandle>(resource));
+            if (inFreeList.compareAndSet(false, true)) {
+                freeList.offer(resource);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getFreeListSize() {
+        return free.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void removeAll() {
+        for (ResourceHandle rh : resources.keySet()) {
+            removeResource(rh);
+        }
+        freeList.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getResourcesSize() {
+        return resources.size();
+    }
+
+    /**
+     * Set maxSize based on the new max pool size set on the connection pool
+     * during a reconfiguration.
+     *
+     * @param maxSize
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public ArrayList<ResourceHandle> getAllResources() {
+        return new ArrayList<ResourceHandle>(resources.keySet());
+    }
+}
@@ -42,10 +42,10 @@ package com.sun.enterprise.resource.pool.monitor;
 
 import org.glassfish.external.probe.provider.annotations.ProbeListener;
 import org.glassfish.external.probe.provider.annotations.ProbeParam;
+import org.glassfish.admin.monitor.statistics.StripedCountStatisticImpl;
+import org.glassfish.admin.monitor.statistics.StripedRangeStatisticImpl;
 import org.glassfish.external.statistics.CountStatistic;
 import org.glassfish.external.statistics.RangeStatistic;
-import org.glassfish.external.statistics.impl.CountStatisticImpl;
-import org.glassfish.external.statistics.impl.RangeStatisticImpl;
 import org.glassfish.external.statistics.impl.StatisticImpl;
 import org.glassfish.gmbal.AMXMetadata;
 import org.glassfish.gmbal.Description;
@@ -68,17 +68,17 @@ import org.glassfish.resourcebase.resources.api.PoolInfo;
 @ManagedObject
 @Description("Connector Connection Pool Application based Statistics")
 public class ConnectorConnPoolAppStatsProvider {
-    private RangeStatisticImpl numConnUsed = new RangeStatisticImpl(
+    private StripedRangeStatisticImpl numConnUsed = new StripedRangeStatisticImpl(
             0, 0, 0,
             "NumConnUsed", StatisticImpl.UNIT_COUNT, "Provides connection usage " +
             "statistics. The total number of connections that are currently being " +
             "used, as well as information about the maximum number of connections " +
             "that were used (the high water mark).",
             System.currentTimeMillis(), System.currentTimeMillis());
-    private CountStatisticImpl numConnAcquired = new CountStatisticImpl(
+    private StripedCountStatisticImpl numConnAcquired = new StripedCountStatisticImpl(
             "NumConnAcquired", StatisticImpl.UNIT_COUNT, "Number of logical " +
             "connections acquired from the pool.");
-    private CountStatisticImpl numConnReleased = new CountStatisticImpl(
+    private StripedCountStatisticImpl numConnReleased = new StripedCountStatisticImpl(
             "NumConnReleased", StatisticImpl.UNIT_COUNT, "Number of logical " +
             "connections released to the pool.");
     private static final String JCA_APP_PROBE_LISTENER = "glassfish:connector-pool:applications:";
@@ -107,9 +107,7 @@ public class ConnectorConnPoolAppStatsProvider {
         if((poolName != null) && (poolName.equals(this.poolName))) {
             if (appName != null && appName.equals(this.appName)) {
                 //Decrement numConnUsed counter
-                synchronized (numConnUsed) {
-                    numConnUsed.setCurrent(numConnUsed.getCurrent() - 1);
-                }
+                numConnUsed.decrement();
             }
         }
     }
@@ -127,9 +125,7 @@ public class ConnectorConnPoolAppStatsProvider {
         if((poolName != null) && (poolName.equals(this.poolName))) {
             if (appName != null && appName.equals(this.appName)) {
                 //increment numConnUsed
-                synchronized (numConnUsed) {
-                    numConnUsed.setCurrent(numConnUsed.getCurrent() + 1);
-                }
+                numConnUsed.increment();
             }
         }
     }
@@ -45,11 +45,11 @@ import com.sun.enterprise.resource.pool.PoolLifeCycleListenerRegistry;
 import com.sun.enterprise.resource.pool.PoolStatus;
 import org.glassfish.external.probe.provider.annotations.ProbeListener;
 import org.glassfish.external.probe.provider.annotations.ProbeParam;
+import org.glassfish.admin.monitor.statistics.StripedCountStatisticImpl;
+import org.glassfish.admin.monitor.statistics.StripedRangeStatisticImpl;
 import org.glassfish.external.statistics.CountStatistic;
 import org.glassfish.external.statistics.RangeStatistic;
 import org.glassfish.external.statistics.annotations.Reset;
-import org.glassfish.external.statistics.impl.CountStatisticImpl;
-import org.glassfish.external.statistics.impl.RangeStatisticImpl;
 import org.glassfish.external.statistics.impl.StatisticImpl;
 import org.glassfish.gmbal.AMXMetadata;
 import org.glassfish.gmbal.Description;
@@ -83,60 +83,60 @@ public class ConnectorConnPoolStatsProvider {
 
     
     //Objects that are exposed by this telemetry
-    private CountStatisticImpl numConnFailedValidation = new CountStatisticImpl(
+    private StripedCountStatisticImpl numConnFailedValidation = new StripedCountStatisticImpl(
             "NumConnFailedValidation", StatisticImpl.UNIT_COUNT,
             "The total number of connections in the connection pool that failed " +
             "validation from the start time until the last sample time.");
-    private CountStatisticImpl numConnTimedOut = new CountStatisticImpl(
+    private StripedCountStatisticImpl numConnTimedOut = new StripedCountStatisticImpl(
             "NumConnTimedOut", StatisticImpl.UNIT_COUNT, "The total number of " +
             "connections in the pool that timed out between the start time and the last sample time.");
-    private RangeStatisticImpl numConnFree = new RangeStatisticImpl(
+    private StripedRangeStatisticImpl numConnFree = new StripedRangeStatisticImpl(
             0, 0, 0,
             "NumConnFree", StatisticImpl.UNIT_COUNT, "The total number of free " +
             "connections in the pool as of the last sampling.",
             System.currentTimeMillis(), System.currentTimeMillis());
-    private RangeStatisticImpl numConnUsed = new RangeStatisticImpl(
+    private StripedRangeStatisticImpl numConnUsed = new StripedRangeStatisticImpl(
             0, 0, 0, 
             "NumConnUsed", StatisticImpl.UNIT_COUNT, "Provides connection usage " +
             "statistics. The total number of connections that are currently being " +
             "used, as well as information about the maximum number of connections " +
             "that were used (the high water mark).",
             System.currentTimeMillis(), System.currentTimeMillis());
-    private RangeStatisticImpl connRequestWaitTime = new RangeStatisticImpl(
+    private StripedRangeStatisticImpl connRequestWaitTime = new StripedRangeStatisticImpl(
             0, 0, 0, 
             "ConnRequestWaitTime", StatisticImpl.UNIT_MILLISECOND, 
             "The longest and shortest wait times of connection requests. The " +
             "current value indicates the wait time of the last request that was " +
             "serviced by the pool.", 
             System.currentTimeMillis(), System.currentTimeMillis());
-    private CountStatisticImpl numConnDestroyed = new CountStatisticImpl(
+    private StripedCountStatisticImpl numConnDestroyed = new StripedCountStatisticImpl(
             "NumConnDestroyed", StatisticImpl.UNIT_COUNT, 
             "Number of physical connections that were destroyed since the last reset.");
-    private CountStatisticImpl numConnAcquired = new CountStatisticImpl(
+    private StripedCountStatisticImpl numConnAcquired = new StripedCountStatisticImpl(
             "NumConnAcquired", StatisticImpl.UNIT_COUNT, "Number of logical " +
             "connections acquired from the pool.");
-    private CountStatisticImpl numConnReleased = new CountStatisticImpl(
+    private StripedCountStatisticImpl numConnReleased = new StripedCountStatisticImpl(
             "NumConnReleased", StatisticImpl.UNIT_COUNT, "Number of logical " +
             "connections released to the pool.");
-    private CountStatisticImpl numConnCreated = new CountStatisticImpl(
+    private StripedCountStatisticImpl numConnCreated = new StripedCountStatisticImpl(
             "NumConnCreated", StatisticImpl.UNIT_COUNT, 
             "The number of physical connections that were created since the last reset.");
-    private CountStatisticImpl numPotentialConnLeak = new CountStatisticImpl(
+    private StripedCountStatisticImpl numPotentialConnLeak = new StripedCountStatisticImpl(
             "NumPotentialConnLeak", StatisticImpl.UNIT_COUNT, 
             "Number of potential connection leaks");
-    private CountStatisticImpl numConnSuccessfullyMatched = new CountStatisticImpl(
+    private StripedCountStatisticImpl numConnSuccessfullyMatched = new StripedCountStatisticImpl(
             "NumConnSuccessfullyMatched", StatisticImpl.UNIT_COUNT,
             "Number of connections succesfully matched");
-    private CountStatisticImpl numConnNotSuccessfullyMatched = new CountStatisticImpl(
+    private StripedCountStatisticImpl numConnNotSuccessfullyMatched = new StripedCountStatisticImpl(
             "NumConnNotSuccessfullyMatched", StatisticImpl.UNIT_COUNT,
             "Number of connections rejected during matching");    
-    private CountStatisticImpl totalConnRequestWaitTime = new CountStatisticImpl(
+    private StripedCountStatisticImpl totalConnRequestWaitTime = new StripedCountStatisticImpl(
             "TotalConnRequestWaitTime", StatisticImpl.UNIT_MILLISECOND,
             "Total wait time per successful connection request");
-    private CountStatisticImpl averageConnWaitTime = new CountStatisticImpl(
+    private StripedCountStatisticImpl averageConnWaitTime = new StripedCountStatisticImpl(
             "AverageConnWaitTime", StatisticImpl.UNIT_MILLISECOND,
             "Average wait-time-duration per successful connection request");    
-    private CountStatisticImpl waitQueueLength = new CountStatisticImpl(
+    private StripedCountStatisticImpl waitQueueLength = new StripedCountStatisticImpl(
             "WaitQueueLength", StatisticImpl.UNIT_COUNT, 
             "Number of connection requests in the queue waiting to be serviced.");    
     private static final String JCA_PROBE_LISTENER = "glassfish:jca:connection-pool:";
@@ -207,9 +207,7 @@ public class ConnectorConnPoolStatsProvider {
                         poolName);
             } 
             //Decrement counter
-            synchronized(numConnFree) {
-                numConnFree.setCurrent(numConnFree.getCurrent() - 1);
-            }
+            numConnFree.decrement();
         }
     }
     
@@ -234,18 +232,17 @@ public class ConnectorConnPoolStatsProvider {
                              poolName);
             }
             if(beingDestroyed) {
-                //if pruned by resizer thread
-                synchronized(numConnFree) {
-                    synchronized(numConnUsed) {
-                        if(numConnFree.getCurrent() + numConnUsed.getCurrent() < steadyPoolSize) {
-                            numConnFree.setCurrent(numConnFree.getCurrent() + 1);
-                        }
+                //if pruned by resizer thread, count the connection as free
+                //only while the pool is below its steady size
+                for (;;) {
+                    long free = numConnFree.getCurrent();
+                    if(free + numConnUsed.getCurrent() >= steadyPoolSize
+                            || numConnFree.compareAndSetCurrent(free, free + 1)) {
+                        break;
                     }
-                }            
-            } else {
-                synchronized(numConnFree) {
-                    numConnFree.setCurrent(numConnFree.getCurrent() + 1);
                 }
+            } else {
+                numConnFree.increment();
             }
         }
     }
@@ -268,9 +265,7 @@ public class ConnectorConnPoolStatsProvider {
                              poolName);
             }
             //Decrement numConnUsed counter
-            synchronized(numConnUsed) {
-                numConnUsed.setCurrent(numConnUsed.getCurrent() - 1);
-            }
+            numConnUsed.decrement();
         }
     }
     
@@ -296,9 +291,7 @@ public class ConnectorConnPoolStatsProvider {
                     " Number of connections freed =" + count);
             }
             //set numConnFree to the count value
-            synchronized(numConnFree) {
-                numConnFree.setCurrent(count);
-            }
+            numConnFree.setCurrent(count);
         }
     }
 
@@ -320,9 +313,7 @@ public class ConnectorConnPoolStatsProvider {
                              poolName);
             }
             //increment numConnUsed
-            synchronized(numConnUsed) {
-                numConnUsed.setCurrent(numConnUsed.getCurrent() + 1);
-            }
+            numConnUsed.increment();
         }
     }
 
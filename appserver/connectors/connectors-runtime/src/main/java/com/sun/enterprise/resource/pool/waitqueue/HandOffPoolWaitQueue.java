@@ -0,0 +1,119 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.resource.pool.waitqueue;
+
+import com.sun.logging.LogDomains;
+
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Non-blocking wait queue for the connection pool.<br>
+ * When the pool uses this queue, waiting clients are represented by
+ * <code>HandOffWaitMonitor</code>s and a freed resource is handed over directly
+ * to the first waiting client instead of notifying it to retry the pool.
+ */
+public class HandOffPoolWaitQueue implements PoolWaitQueue {
+
+    private final ConcurrentLinkedQueue<Object> queue = new ConcurrentLinkedQueue<Object>();
+    private final AtomicInteger length = new AtomicInteger();
+
+    protected final static Logger _logger = LogDomains.getLogger(HandOffPoolWaitQueue.class, LogDomains.RSR_LOGGER);
+
+    public HandOffPoolWaitQueue() {
+        debug("Initializing hand-off Pool Wait Queue");
+    }
+
+    public int getQueueLength() {
+        return length.get();
+    }
+
+    public void addToQueue(Object waitMonitor) {
+        queue.offer(waitMonitor);
+        length.incrementAndGet();
+    }
+
+    public boolean removeFromQueue(Object o) {
+        if (queue.remove(o)) {
+            length.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    public Object remove() {
+        Object o = poll();
+        if (o == null) {
+            throw new NoSuchElementException();
+        }
+        return o;
+    }
+
+    /**
+     * removes the first object (resource request) from the queue
+     * @return Object first object or null when the queue is empty
+     */
+    public Object poll() {
+        Object o = queue.poll();
+        if (o != null) {
+            length.decrementAndGet();
+        }
+        return o;
+    }
+
+    public Object peek() {
+        return queue.peek();
+    }
+
+    public Collection getQueueContents() {
+        return queue;
+    }
+
+    protected void debug(String debugStatement) {
+        if(_logger.isLoggable(Level.FINE)) {
+            _logger.log(Level.FINE, debugStatement);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.resource.pool.waitqueue;
+
+import com.sun.enterprise.resource.ResourceHandle;
+import com.sun.enterprise.resource.allocator.ResourceAllocator;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Wait monitor of a client waiting in a <code>HandOffPoolWaitQueue</code>.<br>
+ * A freed resource can be offered to the client exactly once. The client,
+ * once woken up or timed out, closes the monitor and gets the offered resource, if any.
+ */
+public class HandOffWaitMonitor {
+
+    private static final Object CLOSED = new Object();
+
+    private final ResourceAllocator allocator;
+    private final AtomicReference<Object> handedOff = new AtomicReference<Object>();
+
+    public HandOffWaitMonitor(ResourceAllocator allocator) {
+        this.allocator = allocator;
+    }
+
+    /**
+     * @return the allocator of the waiting client, used to match the offered resource
+     */
+    public ResourceAllocator getAllocator() {
+        return allocator;
+    }
+
+    /**
+     * hands over the resource to the waiting client and wakes it up.
+     * @param resource ResourceHandle
+     * @return false if the client is no longer waiting
+     */
+    public boolean offer(ResourceHandle resource) {
+        if (handedOff.compareAndSet(null, resource)) {
+            synchronized (this) {
+                notifyAll();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * stops accepting offers.
+     * @return the resource handed over to the client, null if there is none
+     */
+    public ResourceHandle close() {
+        if (handedOff.compareAndSet(null, CLOSED)) {
+            return null;
+        }
+        Object resource = handedOff.get();
+        return resource == CLOSED ? null : (ResourceHandle) resource;
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.resource.pool;
+
+import com.sun.appserv.connectors.internal.api.PoolingException;
+import com.sun.enterprise.connectors.ConnectorConnectionPool;
+import com.sun.enterprise.resource.ResourceHandle;
+import com.sun.enterprise.resource.ResourceSpec;
+import com.sun.enterprise.resource.allocator.ResourceAllocator;
+import org.glassfish.resourcebase.resources.api.PoolInfo;
+
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Hand-off of freed resources to waiting requests, with a
+ * <code>HandOffPoolWaitQueue</code> and a <code>LockFreeDataStructure</code>.
+ */
+public class HandOffConnectionPoolTest {
+
+    private static final String POOL_CONFIGURATION = "test.PoolConfiguration";
+
+    private final ResourceSpec spec = new ResourceSpec("jdbc/test", ResourceSpec.JNDI_NAME);
+    private final TestAllocator allocator = new TestAllocator(spec);
+    private ConnectionPool pool;
+
+    @After
+    public void tearDown() {
+        if (pool != null) {
+            pool.emptyPool();
+        }
+    }
+
+    @Test
+    public void handedOffToWaitingRequest() throws Exception {
+        pool = createPool(1, 5000, false);
+        ResourceHandle h = pool.getResource(spec, allocator, null);
+
+        Waiter waiter = new Waiter();
+        waiter.start();
+        awaitQueued(1);
+        pool.resourceClosed(h);
+        waiter.join();
+
+        assertSame(h, waiter.result.get());
+        assertEquals(0, pool.getWaitQueueLength());
+        pool.resourceClosed(h);
+        assertEquals(1, pool.getPoolStatus().getNumConnFree());
+    }
+
+    @Test
+    public void timedOutWaiterNotHandedResource() throws Exception {
+        pool = createPool(1, 100, false);
+        ResourceHandle h = pool.getResource(spec, allocator, null);
+
+        Waiter waiter = new Waiter();
+        waiter.start();
+        waiter.join();
+        assertNull(waiter.result.get());
+        assertTrue(waiter.failure.get() instanceof PoolingException);
+        assertEquals(0, pool.getWaitQueueLength());
+
+        // the resource goes back to the pool, not to the request that gave up
+        pool.resourceClosed(h);
+        assertEquals(1, pool.getPoolStatus().getNumConnFree());
+        assertSame(h, pool.getResource(spec, allocator, null));
+        pool.resourceClosed(h);
+    }
+
+    /**
+     * releases the resource around the time the waiting request times out:
+     * it is either handed to the request or returned to the pool, never lost
+     */
+    @Test
+    public void releaseRacingWithTimeout() throws Exception {
+        pool = createPool(1, 20, false);
+        for (int i = 0; i < 50; i++) {
+            ResourceHandle h = pool.getResource(spec, allocator, null);
+            Waiter waiter = new Waiter();
+            waiter.start();
+            Thread.sleep(20);
+            pool.resourceClosed(h);
+            waiter.join();
+
+            if (waiter.result.get() != null) {
+                assertSame(h, waiter.result.get());
+                pool.resourceClosed(h);
+            } else {
+                assertTrue(waiter.failure.get() instanceof PoolingException);
+            }
+            assertEquals(1, pool.getPoolStatus().getNumConnFree());
+            assertEquals(0, pool.getWaitQueueLength());
+        }
+    }
+
+    /**
+     * an invalid resource handed off to a waiting request is removed and
+     * replaced as for an invalid free resource
+     */
+    @Test
+    public void invalidHandedOffResourceReplaced() throws Exception {
+        pool = createPool(1, 5000, true);
+        ResourceHandle h = pool.getResource(spec, allocator, null);
+
+        Waiter waiter = new Waiter();
+        waiter.start();
+        awaitQueued(1);
+        allocator.invalid.add(h);
+        pool.resourceClosed(h);
+        waiter.join();
+
+        ResourceHandle replacement = waiter.result.get();
+        assertNotNull(replacement);
+        assertNotSame(h, replacement);
+        assertTrue(allocator.destroyed.contains(h));
+        assertEquals(1, pool.getPoolStatus().getNumConnUsed());
+        pool.resourceClosed(replacement);
+        assertEquals(1, pool.getPoolStatus().getNumConnFree());
+    }
+
+    private void awaitQueued(int length) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pool.getWaitQueueLength() < length) {
+            assertTrue("request not queued", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private ConnectionPool createPool(int poolSize, long maxWaitTime, boolean validation)
+            throws PoolingException {
+        PoolInfo poolInfo = new PoolInfo("test-pool");
+        ConnectorConnectionPool configuration = new ConnectorConnectionPool(poolInfo);
+        configuration.setSteadyPoolSize(String.valueOf(poolSize));
+        configuration.setMaxPoolSize(String.valueOf(poolSize));
+        configuration.setPoolResizeQuantity("1");
+        configuration.setMaxWaitTimeInMillis(String.valueOf(maxWaitTime));
+        //no idle timeout, no resizer task
+        configuration.setIdleTimeoutInSeconds("0");
+        configuration.setConnectionValidationRequired(validation);
+        configuration.setMaxConnectionUsage(ConnectorConnectionPool.DEFAULT_MAX_CONNECTION_USAGE);
+        configuration.setConCreationRetryAttempts(ConnectorConnectionPool.DEFAULT_CON_CREATION_RETRY_ATTEMPTS);
+        configuration.setConCreationRetryInterval(ConnectorConnectionPool.DEFAULT_CON_CREATION_RETRY_INTERVAL);
+        configuration.setValidateAtmostOncePeriod(ConnectorConnectionPool.DEFAULT_VALIDATE_ATMOST_ONCE_PERIOD);
+        configuration.setConnectionLeakTracingTimeout(ConnectorConnectionPool.DEFAULT_LEAK_TIMEOUT);
+        configuration.setPoolDataStructureType(
+                "com.sun.enterprise.resource.pool.datastructure.LockFreeDataStructure");
+        configuration.setPoolWaitQueue(
+                "com.sun.enterprise.resource.pool.waitqueue.HandOffPoolWaitQueue");
+
+        Hashtable env = new Hashtable();
+        env.put(POOL_CONFIGURATION, configuration);
+        return new ConnectionPool(poolInfo, env) {
+            @Override
+            protected ConnectorConnectionPool getPoolConfigurationFromJndi(Hashtable env) {
+                return (ConnectorConnectionPool) env.get(POOL_CONFIGURATION);
+            }
+        };
+    }
+
+    private class Waiter extends Thread {
+
+        final AtomicReference<ResourceHandle> result = new AtomicReference<ResourceHandle>();
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+
+        @Override
+        public void run() {
+            try {
+                result.set(pool.getResource(spec, allocator, null));
+            } catch (Exception e) {
+                failure.set(e);
+            }
+        }
+    }
+
+    private static class TestAllocator implements ResourceAllocator {
+
+        final Set<ResourceHandle> invalid =
+                Collections.newSetFromMap(new ConcurrentHashMap<ResourceHandle, Boolean>());
+        final Set<ResourceHandle> destroyed =
+                Collections.newSetFromMap(new ConcurrentHashMap<ResourceHandle, Boolean>());
+        private final ResourceSpec spec;
+
+        TestAllocator(ResourceSpec spec) {
+            this.spec = spec;
+        }
+
+        public ResourceHandle createResource() {
+            return new ResourceHandle(new Object(), spec, this, null);
+        }
+
+        public void fillInResourceObjects(ResourceHandle resource) {
+        }
+
+        public void closeUserConnection(ResourceHandle resource) {
+        }
+
+        public void destroyResource(ResourceHandle resource) {
+            destroyed.add(resource);
+        }
+
+        public boolean matchConnection(ResourceHandle h) {
+            return true;
+        }
+
+        public boolean supportsReauthentication() {
+            return false;
+        }
+
+        public boolean isTransactional() {
+            return false;
+        }
+
+        public void cleanup(ResourceHandle resource) {
+        }
+
+        public boolean shareableWithinComponent() {
+            return true;
+        }
+
+        public Object getSharedConnection(ResourceHandle h) {
+            return h.getResource();
+        }
+
+        public Set getInvalidConnections(Set connectionSet) {
+            return Collections.EMPTY_SET;
+        }
+
+        public boolean isConnectionValid(ResourceHandle resource) {
+            return !invalid.contains(resource);
+        }
+
+        public boolean hasValidatingMCF() {
+            return false;
+        }
+    }
+}
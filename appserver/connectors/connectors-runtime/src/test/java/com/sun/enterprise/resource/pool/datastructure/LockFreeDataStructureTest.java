@@ -0,0 +1,203 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.resource.pool.datastructure;
+
+import com.sun.appserv.connectors.internal.api.PoolingException;
+import com.sun.enterprise.resource.ResourceHandle;
+import com.sun.enterprise.resource.ResourceSpec;
+import com.sun.enterprise.resource.allocator.ResourceAllocator;
+import com.sun.enterprise.resource.pool.ResourceHandler;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LockFreeDataStructureTest {
+
+    private static final int MAX_SIZE = 8;
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 20000;
+
+    private final ResourceSpec spec = new ResourceSpec("jdbc/test", ResourceSpec.JNDI_NAME);
+    private LockFreeDataStructure ds;
+
+    @Before
+    public void setUp() throws PoolingException {
+        ds = new LockFreeDataStructure(null, MAX_SIZE, new Handler(), null);
+        assertEquals(MAX_SIZE, ds.addResource(null, MAX_SIZE));
+    }
+
+    @Test
+    public void resourcesClaimedOnce() {
+        Set<ResourceHandle> claimed = new HashSet<ResourceHandle>();
+        ResourceHandle h;
+        while ((h = ds.getResource()) != null) {
+            assertTrue(h.isBusy());
+            assertTrue(claimed.add(h));
+        }
+        assertEquals(MAX_SIZE, claimed.size());
+        assertEquals(0, ds.getFreeListSize());
+        assertEquals(0, ds.addResource(null, 1));
+
+        for (ResourceHandle r : claimed) {
+            ds.returnResource(r);
+        }
+        assertEquals(MAX_SIZE, ds.getFreeListSize());
+    }
+
+    @Test
+    public void freeCountExactUnderConcurrentGetAndReturn() throws Exception {
+        runConcurrently(new Worker() {
+            public void iterate() {
+                ResourceHandle h = ds.getResource();
+                if (h != null) {
+                    assertTrue(h.isBusy());
+                    ds.returnResource(h);
+                }
+            }
+        });
+
+        assertEquals(MAX_SIZE, ds.getResourcesSize());
+        assertEquals(MAX_SIZE, ds.getFreeListSize());
+        assertAllClaimable(MAX_SIZE);
+    }
+
+    @Test
+    public void freeCountExactUnderConcurrentRemoval() throws Exception {
+        runConcurrently(new Worker() {
+            public void iterate() throws PoolingException {
+                ResourceHandle h = ds.getResource();
+                if (h == null) {
+                    ds.addResource(null, 1);
+                } else if (ThreadLocalRandom.current().nextInt(10) == 0) {
+                    ds.removeResource(h);
+                    // removing it again must not count it out twice
+                    ds.removeResource(h);
+                } else {
+                    ds.returnResource(h);
+                }
+            }
+        });
+
+        int size = ds.getResourcesSize();
+        assertTrue(size <= MAX_SIZE);
+        assertEquals(size, ds.getFreeListSize());
+        assertAllClaimable(size);
+    }
+
+    /**
+     * runs the worker from THREADS threads, while checking that the free
+     * count stays within the pool bounds
+     */
+    private void runConcurrently(final Worker worker) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[THREADS];
+        for (int i = 0; i < THREADS; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < ITERATIONS; j++) {
+                            worker.iterate();
+                            int free = ds.getFreeListSize();
+                            if (free < 0 || free > MAX_SIZE) {
+                                throw new AssertionError("free count " + free);
+                            }
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+    }
+
+    private void assertAllClaimable(int count) {
+        Set<ResourceHandle> claimed = new HashSet<ResourceHandle>();
+        ResourceHandle h;
+        while ((h = ds.getResource()) != null) {
+            assertTrue(claimed.add(h));
+        }
+        assertEquals(count, claimed.size());
+        assertEquals(0, ds.getFreeListSize());
+    }
+
+    private interface Worker {
+        void iterate() throws Exception;
+    }
+
+    private class Handler implements ResourceHandler {
+
+        public void deleteResource(ResourceHandle resourceHandle) {
+        }
+
+        public ResourceHandle createResource(ResourceAllocator allocator) {
+            return new ResourceHandle(new Object(), spec, allocator, null);
+        }
+
+        public void createResourceAndAddToPool() {
+        }
+
+        public Set getInvalidConnections(Set connections) {
+            return Collections.EMPTY_SET;
+        }
+
+        public void invalidConnectionDetected(ResourceHandle h) {
+        }
+    }
+}
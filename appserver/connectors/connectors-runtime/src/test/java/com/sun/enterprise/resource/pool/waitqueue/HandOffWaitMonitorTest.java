@@ -0,0 +1,125 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.resource.pool.waitqueue;
+
+import com.sun.enterprise.resource.ResourceHandle;
+import com.sun.enterprise.resource.ResourceSpec;
+
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class HandOffWaitMonitorTest {
+
+    private final ResourceSpec spec = new ResourceSpec("jdbc/test", ResourceSpec.JNDI_NAME);
+
+    @Test
+    public void offeredResourceReturnedOnClose() {
+        HandOffWaitMonitor monitor = new HandOffWaitMonitor(null);
+        ResourceHandle h = new ResourceHandle(new Object(), spec, null, null);
+        assertTrue(monitor.offer(h));
+        assertFalse(monitor.offer(new ResourceHandle(new Object(), spec, null, null)));
+        assertSame(h, monitor.close());
+    }
+
+    @Test
+    public void closedMonitorRefusesOffer() {
+        HandOffWaitMonitor monitor = new HandOffWaitMonitor(null);
+        assertNull(monitor.close());
+        assertFalse(monitor.offer(new ResourceHandle(new Object(), spec, null, null)));
+        assertNull(monitor.close());
+    }
+
+    /**
+     * a waiter that times out while a resource is offered either gets the
+     * resource or the offer fails, so that the resource can go elsewhere
+     */
+    @Test
+    public void offerRacingWithClose() throws Exception {
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        for (int i = 0; i < 2000; i++) {
+            final HandOffWaitMonitor monitor = new HandOffWaitMonitor(null);
+            final ResourceHandle h = new ResourceHandle(new Object(), spec, null, null);
+            final AtomicBoolean offered = new AtomicBoolean();
+            Thread releaser = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        barrier.await();
+                        offered.set(monitor.offer(h));
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            };
+            releaser.start();
+            barrier.await();
+            ResourceHandle received = monitor.close();
+            releaser.join();
+
+            if (offered.get()) {
+                assertSame(h, received);
+            } else {
+                assertNull(received);
+            }
+        }
+    }
+
+    @Test
+    public void queueLengthFollowsPollAndRemove() {
+        HandOffPoolWaitQueue queue = new HandOffPoolWaitQueue();
+        HandOffWaitMonitor first = new HandOffWaitMonitor(null);
+        HandOffWaitMonitor second = new HandOffWaitMonitor(null);
+        queue.addToQueue(first);
+        queue.addToQueue(second);
+        assertEquals(2, queue.getQueueLength());
+
+        assertTrue(queue.removeFromQueue(second));
+        assertFalse(queue.removeFromQueue(second));
+        assertEquals(1, queue.getQueueLength());
+
+        assertSame(first, queue.poll());
+        assertNull(queue.poll());
+        assertEquals(0, queue.getQueueLength());
+    }
+}
@@ -300,12 +300,16 @@ public interface EjbContainer extends ConfigBeanProxy, PropertyBag, ConfigExtens
      * nru
      *     policy tries to pick 'not recently used' instances and is a
      *     pseudo-random selection process.
+     * tinylfu
+     *     keeps the instances that are accessed most frequently, picking
+     *     rarely used recent instances and the least recently accessed of
+     *     the frequently used ones.
      *
      * @return possible object is
      *         {@link String }
      */
     @Attribute (defaultValue="nru")
-    @Pattern(regexp="(nru|fifo|lru)")
+    @Pattern(regexp="(nru|fifo|lru|tinylfu)")
     String getVictimSelectionPolicy();
 
     /**
@@ -289,6 +289,10 @@ public abstract class BaseContainer
 
     protected static final String SINGLETON_BEAN_POOL_PROP = "singleton-bean-pool";
 
+    // Selects the bean pool implementation, e.g. "striped". Can be set
+    // for a single bean as bean-pool-type.<ejb-name>
+    protected static final String BEAN_POOL_TYPE_PROP = "bean-pool-type";
+
     protected ClassLoader loader = null;
     protected Class ejbClass = null;
     protected Class sfsbSerializedClass = null;
@@ -872,6 +876,17 @@ public abstract class BaseContainer
     protected ProtocolManager getProtocolManager() {
     	return protocolMgr;
     }
+
+    /**
+     * Returns the bean pool type configured for this bean through the
+     * enterprise-beans properties, or null if none is configured.
+     */
+    protected String getBeanPoolType() {
+        EjbBundleDescriptorImpl bundle = ejbDescriptor.getEjbBundleDescriptor();
+        String val = bundle.getEnterpriseBeansProperty(
+                BEAN_POOL_TYPE_PROP + "." + ejbDescriptor.getName());
+        return (val != null) ? val : bundle.getEnterpriseBeansProperty(BEAN_POOL_TYPE_PROP);
+    }
     
     public ContainerType getContainerType() {
         return containerType;
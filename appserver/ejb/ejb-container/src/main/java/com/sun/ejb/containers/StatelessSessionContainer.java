@@ -59,11 +59,13 @@ import org.glassfish.api.invocation.ComponentInvocation;
 import org.glassfish.ejb.config.EjbContainer;
 import org.glassfish.ejb.deployment.descriptor.EjbDescriptor;
 import org.glassfish.ejb.deployment.descriptor.runtime.IASEjbExtraDescriptors;
+import org.glassfish.logging.annotation.LogMessageInfo;
 
 import com.sun.ejb.ComponentContext;
 import com.sun.ejb.EjbInvocation;
 import com.sun.ejb.containers.util.pool.AbstractPool;
 import com.sun.ejb.containers.util.pool.NonBlockingPool;
+import com.sun.ejb.containers.util.pool.StripedPool;
 import com.sun.ejb.containers.util.pool.ObjectFactory;
 import com.sun.ejb.monitoring.stats.EjbMonitoringStatsProvider;
 import com.sun.ejb.monitoring.stats.EjbPoolStatsProvider;
@@ -97,6 +99,13 @@ import com.sun.enterprise.security.SecurityManager;
 public class StatelessSessionContainer
     extends BaseContainer 
 {
+    @LogMessageInfo(
+        message = "EJB {0} uses the striped bean pool: a bean instance is created whenever "
+                + "none is available instead of waiting for one, and at most {1} idle "
+                + "instances are kept in the pool",
+        level = "INFO")
+    private static final String STRIPED_BEAN_POOL_SELECTED = "AS-EJB-00064";
+
     private static final byte[] statelessInstanceKey = {0, 0, 0, 1};
 
     // All stateless EJBs have the same instanceKey, since all stateless EJBs
@@ -255,10 +264,20 @@ public class StatelessSessionContainer
 
         poolProp = new PoolProperties(ejbContainer, beanPoolDes);
         String val = ejbDescriptor.getEjbBundleDescriptor().getEnterpriseBeansProperty(SINGLETON_BEAN_POOL_PROP);
-        pool= new NonBlockingPool(getContainerId(), ejbDescriptor.getName(),
-           sessionCtxFactory, poolProp.steadyPoolSize,
-           poolProp.poolResizeQuantity, poolProp.maxPoolSize,
-           poolProp.poolIdleTimeoutInSeconds, loader, Boolean.parseBoolean(val));
+        if (!Boolean.parseBoolean(val)
+                && StripedPool.POOL_TYPE.equalsIgnoreCase(getBeanPoolType())) {
+            pool= new StripedPool(getContainerId(), ejbDescriptor.getName(),
+               sessionCtxFactory, poolProp.steadyPoolSize,
+               poolProp.poolResizeQuantity, poolProp.maxPoolSize,
+               poolProp.poolIdleTimeoutInSeconds, loader);
+            _logger.log(Level.INFO, STRIPED_BEAN_POOL_SELECTED,
+                new Object[] {ejbDescriptor.getName(), pool.getMaxPoolSize()});
+        } else {
+            pool= new NonBlockingPool(getContainerId(), ejbDescriptor.getName(),
+               sessionCtxFactory, poolProp.steadyPoolSize,
+               poolProp.poolResizeQuantity, poolProp.maxPoolSize,
+               poolProp.poolIdleTimeoutInSeconds, loader, Boolean.parseBoolean(val));
+        }
     }
 
     protected void registerMonitorableComponents() {
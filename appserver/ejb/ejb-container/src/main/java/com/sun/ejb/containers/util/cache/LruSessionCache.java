@@ -313,8 +313,8 @@ public class LruSessionCache
 	}*/
         try {
             value = getStateFromStore(sessionKey, container);
-            newItem = new LruSessionCacheItem(hashCode, sessionKey,
-                    value, -1, CACHE_ITEM_LOADING); 
+            newItem = createItem(hashCode, sessionKey,
+                    value, -1, CACHE_ITEM_LOADING);
             newItem.setNext( buckets[index] );
             buckets[index] = newItem;
 
@@ -838,6 +838,12 @@ public class LruSessionCache
         return new LruSessionCacheItem(hashCode, sessionKey, value, size);
     }
 
+    protected LruSessionCacheItem createItem(int hashCode, Object sessionKey,
+            Object value, int size, byte state)
+    {
+        return new LruSessionCacheItem(hashCode, sessionKey, value, size, state);
+    }
+
     //*Class for LruSessionCacheItem
     protected static class LruSessionCacheItem
         extends LruCacheItem
@@ -0,0 +1,644 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.ejb.containers.util.cache;
+
+import com.sun.appserv.util.cache.FrequencySketch;
+import com.sun.ejb.spi.container.SFSBContainerCallback;
+import com.sun.ejb.spi.container.StatefulEJBContext;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+
+/**
+ * A stateful session bean cache that picks its victims with the W-TinyLFU
+ * policy instead of a single LRU list.
+ *
+ * New beans enter a small LRU window. Beans falling out of the window are
+ * candidates for the main space, a segmented LRU of a probation and a
+ * protected segment; a candidate is only admitted if a frequency sketch
+ * estimates that it was used more often than the bean it would displace,
+ * otherwise the candidate itself is passivated. A bean used again while on
+ * probation is promoted to the protected segment.
+ *
+ * Cache hits do not take a global lock: they are recorded in lossy striped
+ * buffers which are replayed against the policy by whichever thread gets
+ * the eviction lock next. The victims are handed to the container, which
+ * passivates them, in a batch after the locks are released.
+ *
+ * Selected with the <code>tinylfu</code> victim-selection-policy.
+ */
+public class TinyLfuSessionCache
+    extends LruSessionCache
+{
+    public static final String STAT_EVICTION_COUNT =
+        "cache.TinyLfuSessionCache.stat_evictionCount";
+    public static final String STAT_ADMITTED_COUNT =
+        "cache.TinyLfuSessionCache.stat_admittedCount";
+    public static final String STAT_REJECTED_COUNT =
+        "cache.TinyLfuSessionCache.stat_rejectedCount";
+
+    private static final byte QUEUE_NONE = 0;
+    private static final byte QUEUE_WINDOW = 1;
+    private static final byte QUEUE_PROBATION = 2;
+    private static final byte QUEUE_PROTECTED = 3;
+
+    private static final int READ_BUFFER_SIZE = 16;
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+    // guards the queues, the sketch and the counters below
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final ItemQueue window = new ItemQueue();
+    private final ItemQueue probation = new ItemQueue();
+    private final ItemQueue protectedSegment = new ItemQueue();
+
+    private FrequencySketch sketch;
+    private ReadBuffer[] readBuffers;
+    private int readBufferMask;
+
+    private int maxWindowSize;
+    private int maxProtectedSize;
+
+    // victims not yet handed over to the listeners
+    private final ConcurrentLinkedQueue<CacheItem> pendingVictims =
+        new ConcurrentLinkedQueue<CacheItem>();
+
+    private volatile boolean running = true;
+
+    private volatile int evictionCount;
+    private volatile int admittedCount;
+    private volatile int rejectedCount;
+    private volatile int victimsAccessed;
+
+    public TinyLfuSessionCache(String cacheName,
+        SFSBContainerCallback container, int cacheIdleTime, int removalTime)
+    {
+        super("TinyLFU-" + cacheName, container, cacheIdleTime, removalTime);
+    }
+
+    public void init(int maxEntries, float loadFactor, Properties props) {
+        super.init(maxEntries, loadFactor, props);
+
+        // the window holds 1% of the beans, the protected segment 80% of
+        // the rest
+        maxWindowSize = Math.max(1, threshold / 100);
+        maxProtectedSize = (int) ((threshold - maxWindowSize) * 0.8);
+        sketch = new FrequencySketch(threshold);
+
+        int stripes = 1;
+        while (stripes < Runtime.getRuntime().availableProcessors()
+                && stripes < 64) {
+            stripes <<= 1;
+        }
+        readBuffers = new ReadBuffer[stripes];
+        for (int i = 0; i < stripes; i++) {
+            readBuffers[i] = new ReadBuffer();
+        }
+        readBufferMask = stripes - 1;
+    }
+
+    public StatefulEJBContext lookupEJB(Serializable sessionKey,
+        SFSBContainerCallback container, Object cookie)
+    {
+        StatefulEJBContext ctx = super.lookupEJB(sessionKey, container, cookie);
+        trimPendingVictims();
+        return ctx;
+    }
+
+    protected Object _put(int hashCode, Object key,
+                          Object value, int size, boolean addValue) {
+        Object oldValue = super._put(hashCode, key, value, size, addValue);
+        trimPendingVictims();
+        return oldValue;
+    }
+
+    /**
+     * Cache bucket is already synchronized by the caller. The victims are
+     * trimmed by the caller once it released the bucket lock.
+     */
+    protected CacheItem itemAdded(CacheItem item) {
+        TinyLfuCacheItem lc = (TinyLfuCacheItem) item;
+        evictionLock.lock();
+        try {
+            drainReadBuffers();
+            addToWindow(lc);
+            evict();
+        } finally {
+            evictionLock.unlock();
+        }
+        return null;
+    }
+
+    protected void itemAccessed(CacheItem item) {
+        TinyLfuCacheItem lc = (TinyLfuCacheItem) item;
+        if (lc.isTrimmed()) {
+            // picked as a victim but used again before it was passivated
+            evictionLock.lock();
+            try {
+                if (lc.isTrimmed() && lc.queue == QUEUE_NONE) {
+                    lc.setTrimmed(false);
+                    victimsAccessed++;
+                    addToWindow(lc);
+                    evict();
+                }
+            } finally {
+                evictionLock.unlock();
+            }
+            return;
+        }
+
+        long id = Thread.currentThread().getId();
+        ReadBuffer buffer = readBuffers[(int) (id ^ (id >>> 16)) & readBufferMask];
+        if (buffer.offer(lc) && evictionLock.tryLock()) {
+            try {
+                drainReadBuffers();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    protected void itemRemoved(CacheItem item) {
+        TinyLfuCacheItem lc = (TinyLfuCacheItem) item;
+        evictionLock.lock();
+        try {
+            if (lc.queue != QUEUE_NONE) {
+                unlink(lc);
+                listSize--;
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public void trimTimedoutItems(int maxTrimCount) {
+        long idleThresholdTime = System.currentTimeMillis()
+            - cacheIdleTimeoutInSeconds*1000L;
+        ArrayList victimList = new ArrayList();
+
+        if(_logger.isLoggable(Level.FINE)) {
+            _logger.log(Level.FINE,
+                "[" + cacheName + "]: TrimTimedoutBeans started...");
+        }
+        evictionLock.lock();
+        try {
+            drainReadBuffers();
+            // every queue is in access order, so each one is scanned from
+            // its least recently used bean up to the first bean in use
+            collectIdleItems(window, idleThresholdTime, maxTrimCount, victimList);
+            collectIdleItems(probation, idleThresholdTime, maxTrimCount, victimList);
+            collectIdleItems(protectedSegment, idleThresholdTime, maxTrimCount, victimList);
+            trimCount += victimList.size();
+        } finally {
+            evictionLock.unlock();
+        }
+
+        int count = victimList.size();
+        for (int idx = 0; idx < count; idx++) {
+            trimItem((CacheItem) victimList.get(idx));
+        }
+
+        if(_logger.isLoggable(Level.FINE)) {
+            _logger.log(Level.FINE,
+                        "[" + cacheName + "]: TrimTimedoutBeans "
+                        + " finished after removing " + count + " idle beans");
+        }
+    }
+
+    public Iterator values() {
+        ArrayList valueList = new ArrayList();
+        evictionLock.lock();
+        try {
+            collectValues(window, valueList, false);
+            collectValues(probation, valueList, false);
+            collectValues(protectedSegment, valueList, false);
+        } finally {
+            evictionLock.unlock();
+        }
+        return valueList.iterator();
+    }
+
+    public void shutdown() {
+        ArrayList<StatefulEJBContext> valueList = new ArrayList<StatefulEJBContext>();
+        evictionLock.lock();
+        try {
+            collectValues(window, valueList, true);
+            collectValues(probation, valueList, true);
+            collectValues(protectedSegment, valueList, true);
+        } finally {
+            evictionLock.unlock();
+        }
+
+        for (StatefulEJBContext ctx : valueList) {
+            container.passivateEJB(ctx);
+        }
+    }
+
+    public void setShutdownState() {
+        running = false;
+        super.setShutdownState();
+    }
+
+    public void setUndeployedState() {
+        running = false;
+        super.setUndeployedState();
+    }
+
+    public int getNumVictimsAccessed() {
+        return victimsAccessed;
+    }
+
+    /**
+     * @return the number of beans picked as victims because the cache was
+     *  full
+     */
+    public int getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return the number of beans admitted to the main space in place of a
+     *  less frequently used bean
+     */
+    public int getAdmittedCount() {
+        return admittedCount;
+    }
+
+    /**
+     * @return the number of beans evicted from the window because they were
+     *  used less frequently than the main space victim
+     */
+    public int getRejectedCount() {
+        return rejectedCount;
+    }
+
+    public Object getStatByName(String key) {
+        Object stat = super.getStatByName(key);
+
+        if (stat == null && key != null) {
+            if (key.equals(STAT_EVICTION_COUNT))
+                stat = Integer.valueOf(evictionCount);
+            else if (key.equals(STAT_ADMITTED_COUNT))
+                stat = Integer.valueOf(admittedCount);
+            else if (key.equals(STAT_REJECTED_COUNT))
+                stat = Integer.valueOf(rejectedCount);
+        }
+        return stat;
+    }
+
+    public Map getStats() {
+        Map stats = super.getStats();
+        stats.put(STAT_EVICTION_COUNT, Integer.valueOf(evictionCount));
+        stats.put(STAT_ADMITTED_COUNT, Integer.valueOf(admittedCount));
+        stats.put(STAT_REJECTED_COUNT, Integer.valueOf(rejectedCount));
+        return stats;
+    }
+
+    public void appendStats(StringBuffer sbuf) {
+	sbuf.append("[Cache: ")
+	    .append("Size=").append(entryCount).append("; ")
+	    .append("HitCount=").append(hitCount).append("; ")
+	    .append("MissCount=").append(missCount).append("; ")
+	    .append("Evictions=").append(evictionCount).append("; ")
+	    .append("Admitted=").append(admittedCount).append("; ")
+	    .append("Rejected=").append(rejectedCount).append("; ")
+	    .append("VictimsAccessed=").append(victimsAccessed).append("; ");
+	if (configData != null) {
+	    sbuf.append(configData);
+	}
+	sbuf.append("]");
+    }
+
+    protected CacheItem createItem(int hashCode, Object sessionKey,
+            Object value, int size)
+    {
+        return new TinyLfuCacheItem(hashCode, sessionKey, value, size);
+    }
+
+    protected LruSessionCacheItem createItem(int hashCode, Object sessionKey,
+            Object value, int size, byte state)
+    {
+        return new TinyLfuCacheItem(hashCode, sessionKey, value, size, state);
+    }
+
+    /**
+     * Hands the pending victims over to the listeners, which passivate them.
+     * Must not be called while holding a bucket lock.
+     */
+    private void trimPendingVictims() {
+        if (pendingVictims.isEmpty()) {
+            return;
+        }
+        ArrayList victims = new ArrayList();
+        CacheItem item;
+        while ((item = pendingVictims.poll()) != null) {
+            victims.add(item);
+        }
+        int sz = victims.size();
+        for (int i = 0; i < sz; i++) {
+            trimItem((CacheItem) victims.get(i));
+        }
+    }
+
+    // the methods below require the eviction lock
+
+    private void addToWindow(TinyLfuCacheItem item) {
+        sketch.increment(item.getHashCode());
+        item.queue = QUEUE_WINDOW;
+        window.linkLast(item);
+        listSize++;
+    }
+
+    private void onAccess(TinyLfuCacheItem item) {
+        sketch.increment(item.getHashCode());
+        switch (item.queue) {
+        case QUEUE_WINDOW:
+            window.moveToBack(item);
+            break;
+        case QUEUE_PROBATION:
+            probation.unlink(item);
+            item.queue = QUEUE_PROTECTED;
+            protectedSegment.linkLast(item);
+            // demote the least recently used protected beans
+            while (protectedSegment.size > maxProtectedSize) {
+                TinyLfuCacheItem demoted = protectedSegment.first;
+                protectedSegment.unlink(demoted);
+                demoted.queue = QUEUE_PROBATION;
+                probation.linkLast(demoted);
+            }
+            break;
+        case QUEUE_PROTECTED:
+            protectedSegment.moveToBack(item);
+            break;
+        default:
+            // removed or trimmed since the access was recorded
+            break;
+        }
+    }
+
+    private void evict() {
+        while (listSize > threshold) {
+            TinyLfuCacheItem candidate =
+                (window.size > maxWindowSize) ? window.first : null;
+            TinyLfuCacheItem victim = (probation.first != null)
+                ? probation.first : protectedSegment.first;
+
+            if (candidate == null) {
+                evictItem((victim != null) ? victim : window.first);
+            } else if (victim == null) {
+                evictItem(candidate);
+            } else if (sketch.frequency(candidate.getHashCode())
+                    > sketch.frequency(victim.getHashCode())) {
+                admittedCount++;
+                evictItem(victim);
+                moveToProbation(candidate);
+            } else {
+                rejectedCount++;
+                evictItem(candidate);
+            }
+        }
+
+        // the main space is not full, it takes the window overflow
+        while (window.size > maxWindowSize) {
+            moveToProbation(window.first);
+        }
+    }
+
+    private void moveToProbation(TinyLfuCacheItem item) {
+        window.unlink(item);
+        item.queue = QUEUE_PROBATION;
+        probation.linkLast(item);
+    }
+
+    private void evictItem(TinyLfuCacheItem item) {
+        unlink(item);
+        item.setTrimmed(true);
+        listSize--;
+        trimCount++;
+        evictionCount++;
+        pendingVictims.add(item);
+    }
+
+    private void unlink(TinyLfuCacheItem item) {
+        switch (item.queue) {
+        case QUEUE_WINDOW:
+            window.unlink(item);
+            break;
+        case QUEUE_PROBATION:
+            probation.unlink(item);
+            break;
+        case QUEUE_PROTECTED:
+            protectedSegment.unlink(item);
+            break;
+        default:
+            break;
+        }
+        item.queue = QUEUE_NONE;
+    }
+
+    private void drainReadBuffers() {
+        for (int i = 0; i < readBuffers.length; i++) {
+            readBuffers[i].drain();
+        }
+    }
+
+    private void collectIdleItems(ItemQueue queue, long idleThresholdTime,
+            int maxCount, ArrayList victimList) {
+        TinyLfuCacheItem item = queue.first;
+        while (item != null && victimList.size() < maxCount) {
+            if (!running) {
+                if(_logger.isLoggable(Level.FINE)) {
+                    _logger.log(Level.FINE, "[" + cacheName
+                        + "]: Exiting TrimTimedoutBeans, cache is not running");
+                }
+                return;
+            }
+            TinyLfuCacheItem next = item.qNext;
+            StatefulEJBContext ctx = (StatefulEJBContext) item.getValue();
+            if (ctx != null) {
+                if ((ctx.getLastAccessTime() <= idleThresholdTime) &&
+                    ctx.canBePassivated()) {
+                    unlink(item);
+                    item.setTrimmed(true);
+                    listSize--;
+                    victimList.add(item);
+                } else {
+                    return;
+                }
+            }
+            item = next;
+        }
+    }
+
+    private void collectValues(ItemQueue queue, ArrayList valueList,
+            boolean markTrimmed) {
+        for (TinyLfuCacheItem item = queue.first; item != null; item = item.qNext) {
+            Object ctx = item.getValue();
+            if (ctx != null) {
+                if (markTrimmed) {
+                    item.setTrimmed(true);
+                }
+                valueList.add(ctx);
+            }
+        }
+    }
+
+    /**
+     * An access ordered list of items, least recently used first.
+     */
+    private static final class ItemQueue {
+
+        TinyLfuCacheItem first;
+        TinyLfuCacheItem last;
+        int size;
+
+        void linkLast(TinyLfuCacheItem item) {
+            item.qPrev = last;
+            item.qNext = null;
+            if (last == null) {
+                first = item;
+            } else {
+                last.qNext = item;
+            }
+            last = item;
+            size++;
+        }
+
+        void unlink(TinyLfuCacheItem item) {
+            TinyLfuCacheItem prev = item.qPrev;
+            TinyLfuCacheItem next = item.qNext;
+            if (prev == null) {
+                first = next;
+            } else {
+                prev.qNext = next;
+            }
+            if (next == null) {
+                last = prev;
+            } else {
+                next.qPrev = prev;
+            }
+            item.qPrev = item.qNext = null;
+            size--;
+        }
+
+        void moveToBack(TinyLfuCacheItem item) {
+            if (item != last) {
+                unlink(item);
+                linkLast(item);
+            }
+        }
+    }
+
+    /**
+     * A lossy ring of recently accessed items. Any thread may add to it, only
+     * the holder of the eviction lock drains it. Accesses are dropped while
+     * the buffer is full, which only makes the policy slightly less precise.
+     */
+    private final class ReadBuffer {
+
+        private final AtomicReferenceArray<TinyLfuCacheItem> slots =
+            new AtomicReferenceArray<TinyLfuCacheItem>(READ_BUFFER_SIZE);
+        private final AtomicLong writeCount = new AtomicLong();
+        private volatile long readCount;
+
+        /**
+         * @return true if the buffer is full and should be drained
+         */
+        boolean offer(TinyLfuCacheItem item) {
+            long tail = writeCount.get();
+            long size = tail - readCount;
+            if (size >= READ_BUFFER_SIZE) {
+                return true;
+            }
+            if (writeCount.compareAndSet(tail, tail + 1)) {
+                slots.lazySet((int) (tail & READ_BUFFER_MASK), item);
+                return (size + 1) >= READ_BUFFER_SIZE;
+            }
+            return false;
+        }
+
+        void drain() {
+            long head = readCount;
+            long tail = writeCount.get();
+            for (; head < tail; head++) {
+                int index = (int) (head & READ_BUFFER_MASK);
+                TinyLfuCacheItem item = slots.get(index);
+                if (item == null) {
+                    // not published yet, picked up by the next drain
+                    break;
+                }
+                slots.lazySet(index, null);
+                onAccess(item);
+            }
+            readCount = head;
+        }
+    }
+
+    protected static class TinyLfuCacheItem
+        extends LruSessionCacheItem
+    {
+        // links of the policy queue the item is in, guarded by the
+        // eviction lock
+        TinyLfuCacheItem qPrev;
+        TinyLfuCacheItem qNext;
+        byte queue = QUEUE_NONE;
+
+        protected TinyLfuCacheItem(int hashCode, Object key, Object value,
+                               int size)
+        {
+            super(hashCode, key, value, size);
+        }
+
+        protected TinyLfuCacheItem(int hashCode, Object key, Object value,
+                               int size, byte state)
+        {
+            super(hashCode, key, value, size, state);
+        }
+    }
+}
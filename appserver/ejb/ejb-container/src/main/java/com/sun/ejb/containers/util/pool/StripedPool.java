@@ -0,0 +1,740 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.ejb.containers.util.pool;
+
+import com.sun.ejb.containers.EJBContextImpl;
+import com.sun.ejb.containers.EjbContainerUtilImpl;
+import com.sun.enterprise.util.Utility;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * <p>StripedPool is a drop-in replacement for NonBlockingPool that does not
+ * serialize getObject/returnObject on a single lock. The available objects
+ * are spread over a number of stripes (one per processor, rounded up to a
+ * power of two), each of which is a non-blocking deque. A thread takes and
+ * returns objects on the stripe picked from its thread id, most recently used
+ * first, and steals the least recently used object of another stripe when
+ * its own is empty.
+ * <p>The pool keeps the behavior of NonBlockingPool: an object is created
+ * when none is available, at most maxPoolSize objects are kept in the pool,
+ * the pool is refilled up to steadyPoolSize in the background when it falls
+ * below it, and objects idle for longer than idleTimeoutInSeconds are
+ * removed, resizeQuantity at a time, down to steadyPoolSize. Like
+ * NonBlockingPool, it never makes a thread wait for an object, so the wait
+ * arguments of getObject are ignored. The singleton bean pool variant is
+ * not supported, use NonBlockingPool for it.
+ * <p>It is selected with the <code>bean-pool-type</code> property, see
+ * BaseContainer.
+ */
+public class StripedPool
+    extends AbstractPool
+{
+    /**
+     * Value of the bean-pool-type property that selects this pool.
+     */
+    public static final String POOL_TYPE = "striped";
+
+    private final String poolName;
+    private TimerTask	 poolTimerTask;
+    private boolean	 maintainSteadySize = false;
+
+    private ConcurrentLinkedDeque<Object>[] stripes;
+    private int stripeMask;
+
+    // The number of objects in the stripes. It is incremented before an
+    // object is added, so it may briefly be higher than the actual count.
+    private final AtomicInteger pooledCount = new AtomicInteger();
+
+    private final AtomicInteger createdCounter = new AtomicInteger();
+    private final AtomicInteger destroyedCounter = new AtomicInteger();
+    private final AtomicInteger successCounter = new AtomicInteger();
+
+    private final AtomicBoolean addedResizeTask = new AtomicBoolean();
+    private final AtomicBoolean addedIdleBeanWork = new AtomicBoolean();
+    private final AtomicBoolean inResizing = new AtomicBoolean();
+
+    // Set to true after close().  Prevents race condition
+    // of async resize task kicking in after close().
+    private volatile boolean poolClosed = false;
+
+    public StripedPool(long beanId, String poolName, ObjectFactory factory,
+        int steadyPoolSize, int resizeQuantity,
+        int maxPoolSize, int idleTimeoutInSeconds,
+        ClassLoader loader)
+    {
+        this(beanId, poolName, factory, steadyPoolSize, resizeQuantity,
+             maxPoolSize, idleTimeoutInSeconds, loader,
+             Runtime.getRuntime().availableProcessors());
+    }
+
+    StripedPool(long beanId, String poolName, ObjectFactory factory,
+        int steadyPoolSize, int resizeQuantity,
+        int maxPoolSize, int idleTimeoutInSeconds,
+        ClassLoader loader, int stripeCount)
+    {
+        this.poolName = poolName;
+        this.beanId = beanId;
+        initializePool(factory, steadyPoolSize, resizeQuantity, maxPoolSize,
+                       idleTimeoutInSeconds, loader, stripeCount);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void initializePool(ObjectFactory factory, int steadyPoolSize,
+        int resizeQuantity, int maxPoolSize, int idleTimeoutInSeconds,
+        ClassLoader loader, int stripeCount)
+    {
+        // Only used by the AbstractPool methods which are not overridden.
+        list = new ArrayList();
+
+        int size = 1;
+        while (size < stripeCount && size < (1 << 16)) {
+            size <<= 1;
+        }
+        stripes = new ConcurrentLinkedDeque[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ConcurrentLinkedDeque<Object>();
+        }
+        stripeMask = size - 1;
+
+        this.factory = factory;
+        this.steadyPoolSize = (steadyPoolSize <= 0) ? 0 : steadyPoolSize;
+        this.resizeQuantity = (resizeQuantity <= 0) ? 0 : resizeQuantity;
+        this.maxPoolSize = (maxPoolSize <= 0)
+            ? Integer.MAX_VALUE : maxPoolSize;
+        this.steadyPoolSize = (this.steadyPoolSize > this.maxPoolSize)
+            ? this.maxPoolSize : this.steadyPoolSize;
+        this.idleTimeoutInSeconds =
+            (idleTimeoutInSeconds <= 0) ? 0 : idleTimeoutInSeconds;
+
+        this.containerClassLoader = loader;
+
+        this.maintainSteadySize = (this.steadyPoolSize > 0);
+        if ((this.idleTimeoutInSeconds > 0) && (this.resizeQuantity > 0)) {
+            try {
+                this.poolTimerTask =  new PoolResizeTimerTask();
+                EjbContainerUtilImpl.getInstance().getTimer().scheduleAtFixedRate
+                    (poolTimerTask, idleTimeoutInSeconds*1000L,
+                     idleTimeoutInSeconds*1000L);
+                if(_logger.isLoggable(Level.FINE)) {
+                    _logger.log(Level.FINE,
+                      "[Pool-" + poolName + "]: Added PoolResizeTimerTask...");
+                }
+            } catch (Throwable th) {
+                _logger.log(Level.WARNING,"[Pool-" +
+                            poolName + "]: Could not add"
+                            + " PoolTimerTask. Continuing anyway...", th);
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #getObject(Object)}. As with NonBlockingPool, a
+     * thread never waits for an object: one is created whenever none is
+     * available, so canWait does not apply.
+     */
+    public Object getObject(boolean canWait, Object param)
+        throws PoolException
+    {
+        return getObject(param);
+    }
+
+    /**
+     * Same as {@link #getObject(Object)}. As with NonBlockingPool, a
+     * thread never waits for an object: one is created whenever none is
+     * available, so maxWaitTime does not apply.
+     */
+    public Object getObject(long maxWaitTime, Object param)
+        throws PoolException
+    {
+        return getObject(param);
+    }
+
+    /**
+     * Takes an available object, or creates one if there is none.
+     * maxPoolSize only bounds the number of objects kept in the pool, not
+     * the number of objects in use.
+     */
+    public Object getObject(Object param)
+    {
+        Object obj = take();
+        if (obj != null) {
+            successCounter.incrementAndGet();
+            // the size before the object was taken
+            int size = pooledCount.getAndDecrement();
+            if (size <= steadyPoolSize) {
+                scheduleResize();
+            }
+            return obj;
+        }
+
+        scheduleResize();
+        poolProbeNotifier.ejbObjectAddedEvent(beanId, appName, modName, ejbName);
+        createdCounter.incrementAndGet();	//hope that everything will be OK.
+        try {
+            return factory.create(param);
+        } catch (RuntimeException th) {
+            poolProbeNotifier.ejbObjectAddFailedEvent(beanId, appName, modName, ejbName);
+            createdCounter.decrementAndGet();
+            throw th;
+        }
+    }
+
+    /**
+     * Return an object back to the pool. An object that is obtained through
+     *	getObject() must always be returned back to the pool using either
+     *	returnObject(obj) or through destroyObject(obj).
+     */
+    public void returnObject(Object object) {
+        if (offer(object, true)) {
+            return;
+        }
+        poolProbeNotifier.ejbObjectDestroyedEvent(beanId, appName, modName, ejbName);
+        destroyedCounter.incrementAndGet();
+
+        try {
+            factory.destroy(object);
+        } catch (Exception ex) {
+            _logger.log(Level.FINE, "exception in returnObj", ex);
+        }
+    }
+
+    /**
+     * Destroys an Object. Note that applications should not ignore
+     * the reference to the object that they got from getObject(). An object
+     * that is obtained through getObject() must always be returned back to
+     * the pool using either returnObject(obj) or through destroyObject(obj).
+     * This method tells that the object should be destroyed and cannot
+     * be reused.
+     */
+    public void destroyObject(Object object) {
+        poolProbeNotifier.ejbObjectDestroyedEvent(beanId, appName, modName, ejbName);
+        destroyedCounter.incrementAndGet();
+
+        try {
+            factory.destroy(object);
+        } catch (Exception ex) {
+            _logger.log(Level.FINE, "exception in destroyObject", ex);
+        }
+    }
+
+    /**
+    * Preload the pool with objects.
+    * @param count the number of objects to be added.
+    */
+    protected void preload(int count) {
+        ArrayList instances = new ArrayList(count);
+        try {
+            for (int i=0; i<count; i++) {
+                instances.add(factory.create(null));
+            }
+    	} catch (Exception ex) {
+            //Need not throw this exception up since we are pre-populating
+    	}
+
+        createdCounter.addAndGet(instances.size());
+        // spread the new objects over the stripes, destroying those
+        // which do not fit in the pool
+        for (int i = 0; i < instances.size(); i++) {
+            Object obj = instances.get(i);
+            if (!offer(obj, false)) {
+                destroyObject(obj);
+            }
+        }
+    }
+
+    /**
+    * Prepopulate the pool with objects.
+    * @param count the number of objects to be added.
+    */
+    public void prepopulate(int count) {
+        this.steadyPoolSize = (count <= 0) ? 0 : count;
+        this.steadyPoolSize = (this.steadyPoolSize > this.maxPoolSize)
+            ? this.maxPoolSize : this.steadyPoolSize;
+
+        if (this.steadyPoolSize > 0) {
+            preload(this.steadyPoolSize);
+        }
+    }
+
+    /**
+    * Close the pool
+    */
+    public void close() {
+        poolClosed = true;
+        if (poolTimerTask != null) {
+            try {
+                poolTimerTask.cancel();
+                if(_logger.isLoggable(Level.FINE)) {
+                    _logger.log(Level.FINE,
+                        "[Pool-"+poolName+"]: Cancelled pool timer task "
+                                + " at: " + (new java.util.Date()));
+                }
+            } catch (Throwable th) {
+                //Can safely ignore this!!
+            }
+        }
+
+        if(_logger.isLoggable(Level.FINE)) {
+            _logger.log(Level.FINE,"[Pool-"+poolName+"]: Destroying "
+                        + getSize() + " beans from the pool...");
+        }
+
+        // since we're calling into ejb code, we need to set context
+        // class loader
+        ClassLoader origLoader =
+            Utility.setContextClassLoader(containerClassLoader);
+
+        Object obj;
+        while ((obj = take()) != null) {
+            pooledCount.decrementAndGet();
+            try {
+                poolProbeNotifier.ejbObjectDestroyedEvent(beanId, appName, modName, ejbName);
+                destroyedCounter.incrementAndGet();
+                try {
+                    factory.destroy(obj);
+                } catch (Throwable th) {
+                    _logger.log(Level.FINE, "exception in close", th);
+                }
+            } catch (Throwable th) {
+                _logger.log(Level.WARNING,
+                    "[Pool-"+poolName+"]: Error while destroying", th);
+            }
+        }
+        if(_logger.isLoggable(Level.FINE)) {
+            _logger.log(Level.FINE,"Pool-"+poolName+"]: Pool closed....");
+        }
+        unregisterProbeProvider();
+
+        Utility.setContextClassLoader(origLoader);
+
+        this.poolTimerTask         = null;
+        this.containerClassLoader  = null;
+    }
+
+    protected void remove(int count) {
+        List removeList = removeOldest(count, Long.MAX_VALUE);
+        destroyAll(removeList, "exception in remove");
+    }
+
+    /**
+     * Removes the objects idle for longer than idleTimeoutInSeconds, down
+     * to steadyPoolSize. The PoolResizeTimerTask of this pool removes them
+     * resizeQuantity at a time instead, see doResize.
+     */
+    protected void removeIdleObjects() {
+        if (idleTimeoutInSeconds <= 0) {
+            return;
+        }
+        int victimCount = getSize() - steadyPoolSize;
+        if (victimCount > 0) {
+            long allowedIdleTime = System.currentTimeMillis() -
+                idleTimeoutInSeconds*1000L;
+            destroyAll(removeOldest(victimCount, allowedIdleTime),
+                       "exception in removeIdleObjects");
+        }
+    }
+
+    protected void doResize() {
+
+        if( poolClosed ) {
+            return;
+        }
+
+        //We need to set the context class loader for this (deamon) thread!!
+        final Thread currentThread = Thread.currentThread();
+        final ClassLoader previousClassLoader =
+            currentThread.getContextClassLoader();
+        final ClassLoader ctxClassLoader = containerClassLoader;
+
+        long startTime = 0;
+        boolean enteredResizeBlock = false;
+        try {
+            if (!inResizing.compareAndSet(false, true)) {
+                return;
+            }
+            enteredResizeBlock = true;
+
+            if(System.getSecurityManager() == null) {
+                currentThread.setContextClassLoader(ctxClassLoader);
+            } else {
+                java.security.AccessController.doPrivileged(
+                        new java.security.PrivilegedAction() {
+                    public java.lang.Object run() {
+                        currentThread.setContextClassLoader(ctxClassLoader);
+                        return null;
+                    }
+                });
+            }
+
+            if(_logger.isLoggable(Level.FINE)) {
+                _logger.log(Level.FINE,
+                    "[Pool-"+poolName+"]: Resize started at: "
+                  + (new java.util.Date())+" steadyPoolSize ::"+steadyPoolSize
+                  + " resizeQuantity ::"+resizeQuantity+" maxPoolSize ::" +
+                  maxPoolSize );
+            }
+            startTime = System.currentTimeMillis();
+
+            int curSize = getSize();
+            if (curSize > steadyPoolSize) {
+
+                //possible to reduce pool size....
+                if ((idleTimeoutInSeconds > 0) && (resizeQuantity > 0)) {
+                    int victimCount =
+                        (curSize > (steadyPoolSize + resizeQuantity) )
+                        ? resizeQuantity : (curSize - steadyPoolSize);
+                    long allowedIdleTime = System.currentTimeMillis() -
+                        idleTimeoutInSeconds*1000L;
+                    if(_logger.isLoggable(Level.FINE)) {
+                        _logger.log(Level.FINE,
+                                    "[Pool-"+poolName+"]: Resize:: reducing "
+                                    + " pool size by: " + victimCount);
+                    }
+                    destroyAll(removeOldest(victimCount, allowedIdleTime),
+                               "exception in doResize");
+                }
+            } else if (curSize < steadyPoolSize && maintainSteadySize) {
+
+                //Need to populate....
+                long populateCount = 0;
+                if (resizeQuantity <= 0) {
+                    populateCount = steadyPoolSize - curSize;
+                } else {
+                    while ((curSize + populateCount) < steadyPoolSize) {
+                        populateCount += resizeQuantity;
+                    }
+                    if ((curSize + populateCount) > maxPoolSize) {
+                        populateCount -= (curSize + populateCount) - maxPoolSize;
+                    }
+                }
+
+                if (populateCount > 0) {
+                    if(_logger.isLoggable(Level.FINE)) {
+                        _logger.log(Level.FINE,
+                                "[Pool-"+poolName+"]: Attempting to preload "
+                                + populateCount + " beans. CurSize/MaxPoolSize: "
+                                + curSize + "/" + maxPoolSize);
+                    }
+
+                    preload((int)populateCount);
+
+                    if(_logger.isLoggable(Level.FINE)) {
+                        _logger.log(Level.FINE,
+                                "[Pool-"+poolName+"]: After preload "
+                                + "CurSize/MaxPoolSize: "
+                                + getSize() + "/" + maxPoolSize);
+                    }
+                }
+            }
+
+        } catch (Throwable th) {
+            _logger.log(Level.WARNING,
+                        "[Pool-"+poolName+"]: Exception during reSize", th);
+
+        } finally {
+
+            if (enteredResizeBlock) {
+                inResizing.set(false);
+                if(System.getSecurityManager() == null) {
+                    currentThread.setContextClassLoader(previousClassLoader);
+                } else {
+                    java.security.AccessController.doPrivileged(
+                            new java.security.PrivilegedAction() {
+                        public java.lang.Object run() {
+                            currentThread.setContextClassLoader(previousClassLoader);
+                            return null;
+                        }
+                    });
+                }
+            }
+        }
+
+        long endTime = System.currentTimeMillis();
+        if(_logger.isLoggable(Level.FINE)) {
+            _logger.log(Level.FINE,
+                "[Pool-"+poolName+"]: Resize completed at: "
+                + (new java.util.Date()) + "; after reSize: " +
+                getAllAttrValues());
+            _logger.log(Level.FINE, "[Pool-"+poolName+"]: Resize took: "
+                        + ((endTime-startTime)/1000.0) + " seconds.");
+        }
+    }
+
+    /**
+     * Takes the most recently used object of the stripe of the current
+     * thread, or else steals the least recently used object of another
+     * stripe. Does not update pooledCount.
+     */
+    private Object take() {
+        int home = homeStripe();
+        Object obj = stripes[home].pollFirst();
+        if (obj == null) {
+            for (int i = 1; i <= stripeMask && obj == null; i++) {
+                obj = stripes[(home + i) & stripeMask].pollLast();
+            }
+        }
+        return obj;
+    }
+
+    /**
+     * Adds an object to the stripe of the current thread, unless the pool
+     * already holds maxPoolSize objects.
+     *
+     * @param mostRecent true to add it as the most recently used object,
+     *  false to add it as the least recently used one
+     * @return true if the object was added
+     */
+    private boolean offer(Object obj, boolean mostRecent) {
+        int size;
+        do {
+            size = pooledCount.get();
+            if (size >= maxPoolSize) {
+                return false;
+            }
+        } while (!pooledCount.compareAndSet(size, size + 1));
+
+        if (mostRecent) {
+            stripes[homeStripe()].offerFirst(obj);
+        } else {
+            stripes[homeStripe()].offerLast(obj);
+        }
+        return true;
+    }
+
+    /**
+     * Removes up to count objects that were last used at or before the
+     * given time, taking the least recently used object of each stripe in
+     * turn.
+     */
+    private List removeOldest(int count, long allowedIdleTime) {
+        ArrayList removeList = new ArrayList();
+        boolean found = true;
+        while (removeList.size() < count && found) {
+            found = false;
+            for (int i = 0; i <= stripeMask && removeList.size() < count; i++) {
+                ConcurrentLinkedDeque<Object> stripe = stripes[i];
+                Object obj = stripe.peekLast();
+                if (obj != null && isIdle(obj, allowedIdleTime)
+                        && stripe.removeLastOccurrence(obj)) {
+                    pooledCount.decrementAndGet();
+                    removeList.add(obj);
+                    poolProbeNotifier.ejbObjectDestroyedEvent(beanId, appName, modName, ejbName);
+                    destroyedCounter.incrementAndGet();
+                    found = true;
+                }
+            }
+        }
+        return removeList;
+    }
+
+    private static boolean isIdle(Object obj, long allowedIdleTime) {
+        return !(obj instanceof EJBContextImpl)
+            || ((EJBContextImpl) obj).getLastTimeUsed() <= allowedIdleTime;
+    }
+
+    private void destroyAll(List removeList, String message) {
+        int sz = removeList.size();
+        for (int i=0; i<sz; i++) {
+            try {
+                factory.destroy(removeList.get(i));
+            } catch (Throwable th) {
+                _logger.log(Level.FINE, message, th);
+            }
+        }
+    }
+
+    private int homeStripe() {
+        long id = Thread.currentThread().getId();
+        return (int) (id ^ (id >>> 16)) & stripeMask;
+    }
+
+    private void scheduleResize() {
+        if (!maintainSteadySize || poolClosed
+                || !addedResizeTask.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            EjbContainerUtilImpl.getInstance().addWork(new ReSizeWork());
+            if(_logger.isLoggable(Level.FINE)) {
+                _logger.log(Level.FINE,
+                     "[Pool-" + poolName + "]: Added PoolResizeTimerTask...");
+            }
+        } catch (Exception ex) {
+            addedResizeTask.set(false);
+            if(_logger.isLoggable(Level.WARNING)) {
+            	_logger.log(Level.WARNING,
+                            "[Pool-"+poolName+"]: Cannot perform "
+                            + " pool resize task", ex);
+            }
+        }
+    }
+
+    /**************** For Monitoring ***********************/
+    /*******************************************************/
+
+    public int getCreatedCount() {
+        return createdCounter.get();
+    }
+
+    public int getDestroyedCount() {
+        return destroyedCounter.get();
+    }
+
+    public int getPoolSuccess() {
+        return successCounter.get();
+    }
+
+    public int getSize() {
+        return Math.max(0, pooledCount.get());
+    }
+
+    public int getWaitCount() {
+        return 0;
+    }
+
+    public void appendStats(StringBuffer sbuf) {
+	sbuf.append("[Pool: ")
+	    .append("SZ=").append(getSize()).append("; ")
+	    .append("CC=").append(getCreatedCount()).append("; ")
+	    .append("DC=").append(getDestroyedCount()).append("; ")
+	    .append("WC=0; ")
+	    .append("MSG=0");
+	if (configData != null) {
+	    sbuf.append(configData);
+	}
+	sbuf.append("]");
+    }
+
+    public int getNumBeansInPool() {
+	return getSize();
+    }
+
+    public int getNumThreadsWaiting() {
+	return 0;
+    }
+
+    public int getTotalBeansCreated() {
+	return getCreatedCount();
+    }
+
+    public int getTotalBeansDestroyed() {
+	return getDestroyedCount();
+    }
+
+    public String getAllMonitoredAttrbuteValues() {
+        StringBuffer sbuf = new StringBuffer();
+        sbuf.append("createdCount=").append(getCreatedCount()).append(";")
+            .append("destroyedCount=").append(getDestroyedCount()).append(";")
+            .append("waitCount=0;")
+            .append("size=").append(getSize()).append(";");
+        sbuf.append("maxPoolSize=").append(maxPoolSize).append(";");
+        return sbuf.toString();
+    }
+
+    public String getAllAttrValues() {
+        StringBuffer sbuf = new StringBuffer("[Pool-"+poolName+"] ");
+        sbuf.append("CC=").append(getCreatedCount()).append("; ")
+            .append("DC=").append(getDestroyedCount()).append("; ")
+            .append("CS=").append(getSize()).append("; ")
+            .append("SS=").append(steadyPoolSize).append("; ")
+            .append("MS=").append(maxPoolSize).append(";");
+        return sbuf.toString();
+    }
+
+    private class ReSizeWork
+        implements Runnable
+    {
+        public void run() {
+            try {
+                doResize();
+            } catch (Exception ex) {
+                _logger.log(Level.WARNING,
+                    "[Pool-"+poolName+"]: Exception during reSize", ex);
+            } finally {
+                addedResizeTask.set(false);
+            }
+        }
+    }
+
+    private class IdleBeanWork
+        implements Runnable
+    {
+        public void run() {
+            try {
+                doResize();
+            } catch (Exception ex) {
+            } finally {
+                addedIdleBeanWork.set(false);
+            }
+        }
+    }
+
+    private class PoolResizeTimerTask
+        extends java.util.TimerTask
+    {
+        PoolResizeTimerTask() {}
+
+        public void run() {
+
+            try {
+                if (!addedIdleBeanWork.compareAndSet(false, true)) {
+                    return;
+                }
+                IdleBeanWork work = new IdleBeanWork();
+                EjbContainerUtilImpl.getInstance().addWork(work);
+            } catch (Exception ex) {
+                addedIdleBeanWork.set(false);
+                _logger.log(Level.WARNING,
+                            "[Pool-"+poolName+"]: Cannot perform "
+                            + " pool idle bean cleanup", ex);
+            }
+
+        }
+    } // End of class PoolResizeTimerTask
+
+}
@@ -47,6 +47,8 @@ import com.sun.ejb.containers.EjbContainerUtilImpl;
 
 import org.glassfish.external.probe.provider.StatsProviderManager;
 import org.glassfish.external.probe.provider.annotations.*;
+import org.glassfish.admin.monitor.statistics.StripedBoundedRangeStatisticImpl;
+import org.glassfish.admin.monitor.statistics.StripedCountStatisticImpl;
 import org.glassfish.external.statistics.*;
 import org.glassfish.external.statistics.impl.*;
 import org.glassfish.gmbal.*;
@@ -64,29 +66,29 @@ import org.glassfish.gmbal.*;
 @Description("Bean Cache Statistics")
 public class EjbCacheStatsProvider {
 
-    private CountStatisticImpl expiredSessionsRemovedStat = new CountStatisticImpl(
+    private StripedCountStatisticImpl expiredSessionsRemovedStat = new StripedCountStatisticImpl(
             "NumExpiredSessionsRemoved", "count", 
             "Provides a count value reflecting the number of expired sessions "
                 + "that were removed from the bean cache.");
 
-    private CountStatisticImpl passivations = new CountStatisticImpl(
+    private StripedCountStatisticImpl passivations = new StripedCountStatisticImpl(
             "NumPassivations", "count", 
             "Provides a count value reflecting the number of passivations for a "
                 + "StatefulSessionBean from the bean cache.");
 
-    private CountStatisticImpl passivationErrors = new CountStatisticImpl(
+    private StripedCountStatisticImpl passivationErrors = new StripedCountStatisticImpl(
             "NumPassivationErrors", "count", 
             "Provides a count value reflecting the number of errors that occured "
                 + "while passivating a StatefulSessionBean from the bean cache.");
 
-    private CountStatisticImpl passivationSuccess = new CountStatisticImpl(
+    private StripedCountStatisticImpl passivationSuccess = new StripedCountStatisticImpl(
             "NumPassivationSuccess", "count", 
             "Provides a count value reflecting the number of passivations for a "
                 + "StatefulSessionBean from the bean cache that succeeded");
 
-    private BoundedRangeStatisticImpl cacheHits;
-    private BoundedRangeStatisticImpl cacheMisses;
-    private BoundedRangeStatisticImpl numBeans;
+    private StripedBoundedRangeStatisticImpl cacheHits;
+    private StripedBoundedRangeStatisticImpl cacheMisses;
+    private StripedBoundedRangeStatisticImpl numBeans;
 
     private static final Logger _logger = EjbContainerUtilImpl.getLogger();
 
@@ -108,15 +110,15 @@ public class EjbCacheStatsProvider {
 
         long now = System.currentTimeMillis();
 
-        numBeans = new BoundedRangeStatisticImpl(
+        numBeans = new StripedBoundedRangeStatisticImpl(
             0, 0, 0, delegate.getMaxCacheSize(), 0, "NumBeansInCache", "count", 
             "Provides total number of EJBs in the associated EJB Cache.",
             now, now);
-        cacheHits = new BoundedRangeStatisticImpl(
+        cacheHits = new StripedBoundedRangeStatisticImpl(
             0, 0, 0, Long.MAX_VALUE, 0, "CacheHits", "count", 
             "Provides the number of times a user request hits an EJB in associated EJB cache instance",
             now, now);
-        cacheMisses = new BoundedRangeStatisticImpl(
+        cacheMisses = new StripedBoundedRangeStatisticImpl(
             0, 0, 0, Long.MAX_VALUE, 0, "CacheMisses", "count", 
             "Provides the number of times a user request fails to find an EJB in associated EJB cache instance",
             now, now);
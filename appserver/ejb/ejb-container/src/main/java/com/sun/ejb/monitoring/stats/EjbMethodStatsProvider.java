@@ -46,6 +46,8 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.glassfish.external.probe.provider.annotations.*;
+import org.glassfish.admin.monitor.statistics.StripedCountStatisticImpl;
+import org.glassfish.admin.monitor.statistics.StripedTimeStatisticImpl;
 import org.glassfish.external.statistics.*;
 import org.glassfish.external.statistics.impl.*;
 import org.glassfish.gmbal.*;
@@ -66,25 +68,25 @@ import com.sun.ejb.containers.EjbContainerUtilImpl;
 @Description("Ejb Method Statistics")
 public class EjbMethodStatsProvider {
 
-    private CountStatisticImpl executionStat = new CountStatisticImpl(
+    private StripedCountStatisticImpl executionStat = new StripedCountStatisticImpl(
             "ExecutionTime", "Milliseconds", 
             "Provides the time in milliseconds spent during the last " 
                      + "successful/unsuccessful attempt to execute the operation.");
 
-    private CountStatisticImpl invocationStat = new CountStatisticImpl(
+    private StripedCountStatisticImpl invocationStat = new StripedCountStatisticImpl(
             "TotalNumInvocations", "count", 
             "Provides the total number of invocations of the method.");
 
-    private CountStatisticImpl errorStat = new CountStatisticImpl(
+    private StripedCountStatisticImpl errorStat = new StripedCountStatisticImpl(
             "TotalNumErrors", "count", 
             "Provides the total number of errors that occured during invocation "
                     + "or execution of an operation.");
 
-    private CountStatisticImpl successStat = new CountStatisticImpl(
+    private StripedCountStatisticImpl successStat = new StripedCountStatisticImpl(
                 "TotalNumSuccess", "count", 
                 "Provides the total number of successful invocations of the method.");
 
-    private TimeStatisticImpl methodStat = null;
+    private StripedTimeStatisticImpl methodStat = null;
 
     private static ThreadLocal  execThreadLocal = new ThreadLocal();
     private String mname = null;
@@ -94,7 +96,7 @@ public class EjbMethodStatsProvider {
         this.mname = mname;
 
         long now = System.currentTimeMillis();
-        methodStat = new TimeStatisticImpl(
+        methodStat = new StripedTimeStatisticImpl(
                 0, 0, 0, 0, "MethodStatistic", "", 
                 "Provides the number of times an operation was called, the total time "
                        + "that was spent during the invocation and so on", 
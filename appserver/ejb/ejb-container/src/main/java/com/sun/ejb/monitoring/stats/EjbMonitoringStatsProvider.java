@@ -46,6 +46,7 @@ import java.util.logging.Logger;
 
 import org.glassfish.external.probe.provider.StatsProviderManager;
 import org.glassfish.external.probe.provider.annotations.*;
+import org.glassfish.admin.monitor.statistics.StripedCountStatisticImpl;
 import org.glassfish.external.statistics.*;
 import org.glassfish.external.statistics.impl.*;
 import org.glassfish.gmbal.*;
@@ -71,10 +72,10 @@ public abstract class EjbMonitoringStatsProvider {
     boolean registered = false;
     protected long beanId;
 
-    private CountStatisticImpl createStat = new CountStatisticImpl("CreateCount", 
+    private StripedCountStatisticImpl createStat = new StripedCountStatisticImpl("CreateCount", 
             "count", "Number of times EJB create method is called or 3.x bean is looked up");
 
-    private CountStatisticImpl removeStat = new CountStatisticImpl("RemoveCount", 
+    private StripedCountStatisticImpl removeStat = new StripedCountStatisticImpl("RemoveCount", 
             "count", "Number of times EJB remove method is called");
 
     static final Logger _logger = EjbContainerUtilImpl.getLogger();
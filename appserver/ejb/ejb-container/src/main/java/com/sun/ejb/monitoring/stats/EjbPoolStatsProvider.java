@@ -47,6 +47,8 @@ import com.sun.ejb.containers.util.pool.AbstractPool;
 
 import org.glassfish.external.probe.provider.StatsProviderManager;
 import org.glassfish.external.probe.provider.annotations.*;
+import org.glassfish.admin.monitor.statistics.StripedBoundedRangeStatisticImpl;
+import org.glassfish.admin.monitor.statistics.StripedCountStatisticImpl;
 import org.glassfish.external.statistics.*;
 import org.glassfish.external.statistics.impl.*;
 import org.glassfish.gmbal.*;
@@ -64,18 +66,18 @@ import org.glassfish.gmbal.*;
 @Description("Bean Pool Statistics")
 public class EjbPoolStatsProvider {
 
-    private CountStatisticImpl createdStat = new CountStatisticImpl(
+    private StripedCountStatisticImpl createdStat = new StripedCountStatisticImpl(
             "TotalBeansCreated", "count", "Number of beans created in the associated pool");
 
-    private CountStatisticImpl destroyedStat = new CountStatisticImpl(
+    private StripedCountStatisticImpl destroyedStat = new StripedCountStatisticImpl(
             "TotalBeansDestroyed", "count", "Number of beans destroyed from the associated pool");
 
-    private CountStatisticImpl jmsStat = new CountStatisticImpl(
+    private StripedCountStatisticImpl jmsStat = new StripedCountStatisticImpl(
             "JmsMaxMessagesLoad", "count", 
             "Provides the maximum number of messages to load into a JMS session, at a time.");
 
-    private BoundedRangeStatisticImpl beansInPool;
-    private BoundedRangeStatisticImpl threadsWaiting;
+    private StripedBoundedRangeStatisticImpl beansInPool;
+    private StripedBoundedRangeStatisticImpl threadsWaiting;
 
     private static final Logger _logger = EjbContainerUtilImpl.getLogger();
 
@@ -99,11 +101,11 @@ public class EjbPoolStatsProvider {
 
         long now = System.currentTimeMillis();
 
-        beansInPool = new BoundedRangeStatisticImpl(
+        beansInPool = new StripedBoundedRangeStatisticImpl(
             0, 0, 0, delegate.getMaxPoolSize(), delegate.getSteadyPoolSize(),
             "NumBeansInPool", "count", "Number of EJBs in associated pool",
             now, now);
-        threadsWaiting = new BoundedRangeStatisticImpl(
+        threadsWaiting = new StripedBoundedRangeStatisticImpl(
             0, 0, 0, Long.MAX_VALUE, 0,
             "NumThreadsWaiting", "count", "Number of threads waiting for free beans",
             now, now);
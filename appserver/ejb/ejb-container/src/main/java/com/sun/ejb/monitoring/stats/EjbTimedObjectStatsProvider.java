@@ -47,6 +47,7 @@ import com.sun.ejb.containers.EjbContainerUtilImpl;
 
 import org.glassfish.external.probe.provider.StatsProviderManager;
 import org.glassfish.external.probe.provider.annotations.*;
+import org.glassfish.admin.monitor.statistics.StripedCountStatisticImpl;
 import org.glassfish.external.statistics.*;
 import org.glassfish.external.statistics.impl.*;
 import org.glassfish.gmbal.*;
@@ -61,13 +62,13 @@ import org.glassfish.gmbal.*;
 @Description("Ejb Timed Object Statistics")
 public class EjbTimedObjectStatsProvider {
 
-    private CountStatisticImpl timerCreateStat = new CountStatisticImpl("NumTimersCreated",
+    private StripedCountStatisticImpl timerCreateStat = new StripedCountStatisticImpl("NumTimersCreated",
             "count", "Number of timers created in the system");
 
-    private CountStatisticImpl timerRemoveStat = new CountStatisticImpl("NumTimersRemoved",
+    private StripedCountStatisticImpl timerRemoveStat = new StripedCountStatisticImpl("NumTimersRemoved",
             "count", "Number of timers removed from the system");
 
-    private CountStatisticImpl timerDeliveredStat = new CountStatisticImpl("NumTimersDelivered",
+    private StripedCountStatisticImpl timerDeliveredStat = new StripedCountStatisticImpl("NumTimersDelivered",
             "count", "Number of timers delivered by the system");
 
     private static final Logger _logger = EjbContainerUtilImpl.getLogger();
@@ -44,6 +44,7 @@ import com.sun.ejb.containers.StatefulSessionContainer;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.glassfish.external.probe.provider.annotations.*;
+import org.glassfish.admin.monitor.statistics.StripedBoundedRangeStatisticImpl;
 import org.glassfish.external.statistics.*;
 import org.glassfish.external.statistics.impl.*;
 import org.glassfish.gmbal.*;
@@ -57,8 +58,8 @@ import org.glassfish.gmbal.*;
 @ManagedObject
 public class StatefulSessionBeanStatsProvider extends EjbMonitoringStatsProvider {
 
-    private BoundedRangeStatisticImpl methodReadyStat = null;
-    private BoundedRangeStatisticImpl passiveCount = null;
+    private StripedBoundedRangeStatisticImpl methodReadyStat = null;
+    private StripedBoundedRangeStatisticImpl passiveCount = null;
 
     private AtomicLong methodReadyCount = new AtomicLong();
     private AtomicLong passivations = new AtomicLong();
@@ -70,12 +71,12 @@ public class StatefulSessionBeanStatsProvider extends EjbMonitoringStatsProvider
 
         long now = System.currentTimeMillis();
 
-        methodReadyStat = new BoundedRangeStatisticImpl(
+        methodReadyStat = new StripedBoundedRangeStatisticImpl(
             0, 0, 0, delegate.getMaxCacheSize(), 0,
             "MethodReadyCount", "count", "Number of stateful session beans in MethodReady state",
             now, now);
 
-        passiveCount = new BoundedRangeStatisticImpl(
+        passiveCount = new StripedBoundedRangeStatisticImpl(
             0, 0, 0, Long.MAX_VALUE, 0,
             "PassiveCount", "count", "Number of stateful session beans in Passive state",
             now, now);
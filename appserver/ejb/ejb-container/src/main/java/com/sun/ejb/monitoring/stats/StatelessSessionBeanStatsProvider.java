@@ -47,6 +47,7 @@ import com.sun.ejb.containers.StatelessSessionContainer;
 
 import org.glassfish.external.probe.provider.StatsProviderManager;
 import org.glassfish.external.probe.provider.annotations.*;
+import org.glassfish.admin.monitor.statistics.StripedBoundedRangeStatisticImpl;
 import org.glassfish.external.statistics.*;
 import org.glassfish.external.statistics.impl.*;
 import org.glassfish.gmbal.*;
@@ -60,7 +61,7 @@ import org.glassfish.gmbal.*;
 @ManagedObject
 public class StatelessSessionBeanStatsProvider extends EjbMonitoringStatsProvider {
 
-    private BoundedRangeStatisticImpl methodReadyCount = null;
+    private StripedBoundedRangeStatisticImpl methodReadyCount = null;
 
     private StatelessSessionContainer delegate;
 
@@ -72,7 +73,7 @@ public class StatelessSessionBeanStatsProvider extends EjbMonitoringStatsProvide
 
         long now = System.currentTimeMillis();
 
-        methodReadyCount = new BoundedRangeStatisticImpl(
+        methodReadyCount = new StripedBoundedRangeStatisticImpl(
             0, 0, 0, delegate.getMaxPoolSize(), delegate.getSteadyPoolSize(),
             "MethodReadyCount", "count", "Number of stateless session beans in MethodReady state",
             now, now);
@@ -0,0 +1,229 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.ejb.containers.util.cache;
+
+import com.sun.appserv.util.cache.CacheListener;
+import com.sun.ejb.spi.container.SFSBContainerCallback;
+import com.sun.ejb.spi.container.StatefulEJBContext;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.ejb.SessionContext;
+
+import junit.framework.TestCase;
+
+public class TinyLfuSessionCacheTest extends TestCase {
+
+    private TinyLfuSessionCache cache;
+    private Set<Object> trimmed;
+
+    @Override
+    protected void setUp() {
+        trimmed = new HashSet<Object>();
+        cache = new TinyLfuSessionCache("test", new Callback(), 0, 0);
+        cache.init(100, 1.0f, null);
+        cache.addCacheListener(new CacheListener() {
+            public void trimEvent(Object key, Object value) {
+                trimmed.add(key);
+            }
+        });
+    }
+
+    public void testSizeIsBounded() {
+        for (int i = 0; i < 500; i++) {
+            cache.put(i, new Context(System.currentTimeMillis()));
+        }
+        // the threshold is maxEntries * loadFactor + 1
+        assertEquals(500 - 101, cache.getEvictionCount());
+        assertEquals(500 - 101, trimmed.size());
+        assertEquals(cache.getEvictionCount(),
+                cache.getAdmittedCount() + cache.getRejectedCount());
+    }
+
+    public void testFrequentlyUsedBeansSurviveScan() {
+        for (int i = 0; i < 50; i++) {
+            cache.put(i, new Context(System.currentTimeMillis()));
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                assertNotNull(cache.get(i));
+            }
+        }
+        // a burst of beans that are used once, shorter than the sample
+        // period after which the frequencies are halved
+        for (int i = 1000; i < 1800; i++) {
+            cache.put(i, new Context(System.currentTimeMillis()));
+        }
+
+        int hotTrimmed = 0;
+        for (int i = 0; i < 50; i++) {
+            if (trimmed.contains(i)) {
+                hotTrimmed++;
+            }
+        }
+        assertEquals(0, hotTrimmed);
+        assertTrue(cache.getRejectedCount() > 0);
+    }
+
+    public void testVictimAccessedBeforePassivation() {
+        for (int i = 0; i < 102; i++) {
+            cache.put(i, new Context(System.currentTimeMillis()));
+        }
+        assertEquals(1, trimmed.size());
+        Object victim = trimmed.iterator().next();
+
+        // the victim is still in the cache until it is passivated
+        assertNotNull(cache.get(victim));
+        assertEquals(1, cache.getNumVictimsAccessed());
+        // putting it back in makes room by evicting another bean
+        assertEquals(2, cache.getEvictionCount());
+    }
+
+    public void testTrimTimedoutItems() {
+        long now = System.currentTimeMillis();
+        TinyLfuSessionCache idleCache =
+            new TinyLfuSessionCache("idle", new Callback(), 10, 0);
+        idleCache.init(100, 1.0f, null);
+        idleCache.addCacheListener(new CacheListener() {
+            public void trimEvent(Object key, Object value) {
+                trimmed.add(key);
+            }
+        });
+        for (int i = 0; i < 10; i++) {
+            idleCache.put(i, new Context(now - 60000L));
+        }
+        for (int i = 10; i < 20; i++) {
+            idleCache.put(i, new Context(now));
+        }
+
+        idleCache.trimTimedoutItems(Integer.MAX_VALUE);
+        assertEquals(10, trimmed.size());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(trimmed.contains(i));
+        }
+    }
+
+    public void testValuesAndRemove() {
+        for (int i = 0; i < 20; i++) {
+            cache.put(i, new Context(System.currentTimeMillis()));
+        }
+        cache.remove((Object) 5, false);
+        int count = 0;
+        for (java.util.Iterator it = cache.values(); it.hasNext(); it.next()) {
+            count++;
+        }
+        assertEquals(19, count);
+    }
+
+    private static class Context implements StatefulEJBContext {
+
+        private final long lastAccessTime;
+
+        Context(long lastAccessTime) {
+            this.lastAccessTime = lastAccessTime;
+        }
+
+        public long getLastAccessTime() {
+            return lastAccessTime;
+        }
+
+        public boolean canBePassivated() {
+            return true;
+        }
+
+        public SessionContext getSessionContext() {
+            return null;
+        }
+
+        public boolean existsInStore() {
+            return false;
+        }
+
+        public void setExistsInStore(boolean val) {
+        }
+
+        public long getVersion() {
+            return 0;
+        }
+
+        public long incrementAndGetVersion() {
+            return 0;
+        }
+
+        public void setVersion(long versionInBackingStore) {
+        }
+    }
+
+    private static class Callback implements SFSBContainerCallback {
+
+        public ClassLoader getClassLoader() {
+            return getClass().getClassLoader();
+        }
+
+        public int getPassivationBatchCount() {
+            return 8;
+        }
+
+        public void invokePeriodically(long delay, long periodicity, Runnable target) {
+        }
+
+        public void activateEJB(Object sessionKey, StatefulEJBContext ctx, Object cookie) {
+        }
+
+        public boolean passivateEJB(StatefulEJBContext ctx) {
+            return true;
+        }
+
+        public boolean isPassivationCapable() {
+            return true;
+        }
+
+        public byte[] serializeContext(StatefulEJBContext ctx) throws IOException {
+            return new byte[0];
+        }
+
+        public Object deserializeData(byte[] data) throws Exception {
+            return null;
+        }
+    }
+}
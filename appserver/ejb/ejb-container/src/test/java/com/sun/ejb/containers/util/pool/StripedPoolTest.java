@@ -0,0 +1,244 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.ejb.containers.util.pool;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class StripedPoolTest extends TestCase {
+
+    private CountingFactory factory;
+
+    @Override
+    protected void setUp() {
+        factory = new CountingFactory();
+    }
+
+    private StripedPool createPool(int maxPoolSize, int stripes) {
+        return createPool(0, maxPoolSize, 0, stripes);
+    }
+
+    private StripedPool createPool(int steadyPoolSize, int maxPoolSize,
+            int idleTimeoutInSeconds, int stripes) {
+        StripedPool pool = new StripedPool(1L, "test", factory, steadyPoolSize, 0,
+                maxPoolSize, idleTimeoutInSeconds, getClass().getClassLoader(), stripes);
+        pool.setInfo("app", "mod", "ejb");
+        return pool;
+    }
+
+    public void testReusesReturnedObject() {
+        StripedPool pool = createPool(10, 4);
+        Object first = pool.getObject(null);
+        assertEquals(1, pool.getCreatedCount());
+        pool.returnObject(first);
+        assertEquals(1, pool.getSize());
+
+        assertSame(first, pool.getObject(null));
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(1, pool.getPoolSuccess());
+        assertEquals(0, pool.getSize());
+    }
+
+    public void testStealsFromOtherStripe() throws Exception {
+        final StripedPool pool = createPool(10, 8);
+        final Object[] created = new Object[1];
+        Thread t = new Thread() {
+            public void run() {
+                created[0] = pool.getObject(null);
+                pool.returnObject(created[0]);
+            }
+        };
+        t.start();
+        t.join();
+
+        // whichever stripe the other thread used, the object is found
+        assertSame(created[0], pool.getObject(null));
+        assertEquals(1, pool.getCreatedCount());
+    }
+
+    public void testMaxPoolSize() {
+        StripedPool pool = createPool(2, 4);
+        List<Object> objs = new ArrayList<Object>();
+        for (int i = 0; i < 4; i++) {
+            objs.add(pool.getObject(null));
+        }
+        for (Object obj : objs) {
+            pool.returnObject(obj);
+        }
+        assertEquals(2, pool.getSize());
+        assertEquals(4, pool.getCreatedCount());
+        assertEquals(2, pool.getDestroyedCount());
+        assertEquals(2, factory.destroyed.get());
+    }
+
+    public void testRemoveOldestFirst() {
+        StripedPool pool = createPool(10, 1);
+        Object a = pool.getObject(null);
+        Object b = pool.getObject(null);
+        pool.returnObject(a);
+        pool.returnObject(b);
+        pool.remove(1);
+        assertEquals(1, pool.getSize());
+        assertEquals(1, pool.getDestroyedCount());
+        assertSame(b, pool.getObject(null));
+    }
+
+    public void testGetObjectDoesNotWait() throws Exception {
+        StripedPool pool = createPool(1, 4);
+        Object first = pool.getObject(null);
+
+        // nothing is available and maxPoolSize objects are in use
+        Object second = pool.getObject(true, null);
+        Object third = pool.getObject(1000L, null);
+        assertNotSame(first, second);
+        assertNotSame(second, third);
+        assertEquals(3, pool.getCreatedCount());
+        assertEquals(0, pool.getWaitCount());
+    }
+
+    public void testRemoveIdleObjects() {
+        StripedPool pool = createPool(1, 10, 60, 4);
+        List<Object> objs = new ArrayList<Object>();
+        for (int i = 0; i < 3; i++) {
+            objs.add(pool.getObject(null));
+        }
+        for (Object obj : objs) {
+            pool.returnObject(obj);
+        }
+
+        // objects other than bean contexts are always idle
+        pool.removeIdleObjects();
+        assertEquals(1, pool.getSize());
+        assertEquals(2, pool.getDestroyedCount());
+        assertEquals(2, factory.destroyed.get());
+    }
+
+    public void testRemoveIdleObjectsWithoutIdleTimeout() {
+        StripedPool pool = createPool(0, 10, 0, 4);
+        pool.returnObject(pool.getObject(null));
+
+        pool.removeIdleObjects();
+        assertEquals(1, pool.getSize());
+        assertEquals(0, pool.getDestroyedCount());
+    }
+
+    public void testPreloadAndClose() {
+        StripedPool pool = createPool(3, 4);
+        pool.preload(5);
+        assertEquals(3, pool.getSize());
+        assertEquals(5, pool.getCreatedCount());
+        assertEquals(2, pool.getDestroyedCount());
+
+        pool.close();
+        assertEquals(0, pool.getSize());
+        assertEquals(5, pool.getDestroyedCount());
+        assertEquals(5, factory.destroyed.get());
+    }
+
+    public void testConcurrentGetReturn() throws Exception {
+        final int maxPoolSize = 64;
+        final StripedPool pool = createPool(maxPoolSize, 4);
+        final int threads = 8;
+        final int iterations = 10000;
+        final Set<Object> inUse = Collections.synchronizedSet(new HashSet<Object>());
+        final AtomicInteger duplicates = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                    for (int j = 0; j < iterations; j++) {
+                        Object obj = pool.getObject(null);
+                        if (!inUse.add(obj)) {
+                            duplicates.incrementAndGet();
+                        }
+                        inUse.remove(obj);
+                        pool.returnObject(obj);
+                    }
+                }
+            };
+            workers[i].start();
+        }
+        start.countDown();
+        for (Thread t : workers) {
+            t.join();
+        }
+
+        assertEquals(0, duplicates.get());
+        // A get racing with a return may miss the returned object and create
+        // one, so the number of objects created depends on the scheduling.
+        // Whatever it is, every object is either pooled or destroyed once
+        // all have been returned, and the pool never exceeds its maximum.
+        assertEquals(factory.created.get(), pool.getCreatedCount());
+        assertEquals(pool.getCreatedCount(),
+                pool.getSize() + pool.getDestroyedCount());
+        assertEquals(factory.destroyed.get(), pool.getDestroyedCount());
+        assertTrue(pool.getSize() <= maxPoolSize);
+    }
+
+    private static class CountingFactory implements ObjectFactory {
+
+        final AtomicInteger created = new AtomicInteger();
+
+        final AtomicInteger destroyed = new AtomicInteger();
+
+        public Object create(Object param) {
+            created.incrementAndGet();
+            return new Object();
+        }
+
+        public void destroy(Object obj) {
+            destroyed.incrementAndGet();
+        }
+    }
+}
@@ -42,6 +42,7 @@ package org.glassfish.ejb.mdb.monitoring.stats;
 
 import com.sun.ejb.monitoring.stats.EjbMonitoringStatsProvider;
 import org.glassfish.external.probe.provider.annotations.*;
+import org.glassfish.admin.monitor.statistics.StripedCountStatisticImpl;
 import org.glassfish.external.statistics.*;
 import org.glassfish.external.statistics.impl.*;
 import org.glassfish.gmbal.*;
@@ -55,7 +56,7 @@ import org.glassfish.gmbal.*;
 @ManagedObject
 public class MessageDrivenBeanStatsProvider extends EjbMonitoringStatsProvider {
 
-    private CountStatisticImpl messageCount = new CountStatisticImpl("MessageCount",
+    private StripedCountStatisticImpl messageCount = new StripedCountStatisticImpl("MessageCount",
             "count", "Number of messages received for a message-driven bean");
 
     public MessageDrivenBeanStatsProvider(long beanId, String appName, String moduleName,
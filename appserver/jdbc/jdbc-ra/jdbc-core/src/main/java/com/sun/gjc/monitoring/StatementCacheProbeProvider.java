@@ -83,4 +83,18 @@ public class StatementCacheProbeProvider {
 
     }
 
+    /**
+     * Emits probe event/notification that the given connection pool
+     * <code>poolName</code>has got a statement evicted from a statement cache
+     *
+     * @param poolName for which statement cache eviction occurred
+     */
+    @Probe(name=JdbcRAConstants.STATEMENT_CACHE_EVICTION)
+    public void statementCacheEvictionEvent(@ProbeParam("poolName") String poolName,
+                                            @ProbeParam("appName") String appName,
+                                            @ProbeParam("moduleName") String moduleName
+                                            ) {
+
+    }
+
 }
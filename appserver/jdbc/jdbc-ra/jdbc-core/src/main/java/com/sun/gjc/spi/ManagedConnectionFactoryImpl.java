@@ -41,6 +41,7 @@
 package com.sun.gjc.spi;
 
 import com.sun.appserv.connectors.internal.spi.MCFLifecycleListener;
+import com.sun.appserv.util.cache.FrequencySketch;
 import com.sun.enterprise.util.i18n.StringManager;
 import com.sun.gjc.common.DataSourceObjectBuilder;
 import com.sun.gjc.common.DataSourceSpec;
@@ -108,6 +109,8 @@ public abstract class ManagedConnectionFactoryImpl implements javax.resource.spi
     private String statementCacheType = null;
     private long statementLeakTimeout = 0;
     private boolean statementLeakReclaim = false;
+    //statement access frequencies shared by the connections (CONCURRENT_SHARED cache)
+    private transient FrequencySketch statementFrequencies = null;
 
     //Jdbc Stats provider that is created
     private JdbcStatsProvider jdbcStatsProvider = null;
@@ -1275,6 +1278,21 @@ public abstract class ManagedConnectionFactoryImpl implements javax.resource.spi
         return spec.getDetail(DataSourceSpec.DRIVERPROPERTIES);
     }
 
+    /**
+     * Statement access frequencies shared by the statement caches of all the
+     * connections created by this factory, created on first use.
+     *
+     * @return FrequencySketch or null when the statement cache type does not
+     * share frequencies
+     */
+    synchronized FrequencySketch getStatementFrequencies() {
+        if (statementFrequencies == null && "CONCURRENT_SHARED".equals(statementCacheType)
+                && statementCacheSize > 0) {
+            statementFrequencies = new FrequencySketch(statementCacheSize);
+        }
+        return statementFrequencies;
+    }
+
     protected PoolInfo getPoolInfo(){
         return new PoolInfo(getPoolName(), getApplicationName(), getModuleName());
     }
@@ -1445,6 +1463,9 @@ public abstract class ManagedConnectionFactoryImpl implements javax.resource.spi
                 _logger.finest("Unregistered JDBCRA Stats Provider");
             }
         }
+        synchronized (this) {
+            statementFrequencies = null;
+        }
     }
 
     private void detectStatementLeakSupport() {
@@ -248,7 +248,8 @@ public class ManagedConnectionImpl implements javax.resource.spi.ManagedConnecti
         cacheType = statementCacheType;
         if (cacheSize > 0) {
             try {
-                statementCache = CacheFactory.getDataStructure(poolInfo, cacheType, cacheSize);
+                statementCache = CacheFactory.getDataStructure(poolInfo, cacheType, cacheSize,
+                        ((ManagedConnectionFactoryImpl) mcf).getStatementFrequencies());
                 statementCaching = true;
             } catch (ResourceException ex) {
                 _logger.severe(ex.getMessage());
@@ -1028,8 +1029,8 @@ public class ManagedConnectionImpl implements javax.resource.spi.ManagedConnecti
                 ps = conWrapper.prepareCachedStatement(sql, resultSetType, 
                         resultSetConcurrency, resultSetHoldability, true);
 
-                statementCache.addToCache(key, ps, false);
                 ps.setBusy(true);
+                statementCache.addToCache(key, ps, false);
             }
             return ps;
         } else
@@ -1069,8 +1070,8 @@ public class ManagedConnectionImpl implements javax.resource.spi.ManagedConnecti
             } else {
                 ps = conWrapper.prepareCachedStatement(sql, columnNames, true);
 
-                statementCache.addToCache(key, ps, false);
                 ps.setBusy(true);
+                statementCache.addToCache(key, ps, false);
             }
             return ps;
         } else
@@ -1109,8 +1110,8 @@ public class ManagedConnectionImpl implements javax.resource.spi.ManagedConnecti
             } else {
                 ps = conWrapper.prepareCachedStatement(sql, columnIndexes, true);
 
-                statementCache.addToCache(key, ps, false);
                 ps.setBusy(true);
+                statementCache.addToCache(key, ps, false);
             }
             return ps;
         } else
@@ -1149,8 +1150,8 @@ public class ManagedConnectionImpl implements javax.resource.spi.ManagedConnecti
             } else {
                 ps = conWrapper.prepareCachedStatement(sql, autoGeneratedKeys, true);
 
-                statementCache.addToCache(key, ps, false);
                 ps.setBusy(true);
+                statementCache.addToCache(key, ps, false);
             }
             return ps;
         } else
@@ -1192,8 +1193,8 @@ public class ManagedConnectionImpl implements javax.resource.spi.ManagedConnecti
                 cs = conWrapper.callableCachedStatement(sql, resultSetType, 
                         resultSetConcurrency, true);
 
-                statementCache.addToCache(key, cs, false);
                 cs.setBusy(true);
+                statementCache.addToCache(key, cs, false);
             }
             return cs;
         } else
@@ -1238,8 +1239,8 @@ public class ManagedConnectionImpl implements javax.resource.spi.ManagedConnecti
                 cs = conWrapper.callableCachedStatement(sql, resultSetType, 
                         resultSetConcurrency, resultSetHoldability, true);
 
-                statementCache.addToCache(key, cs, false);
                 cs.setBusy(true);
+                statementCache.addToCache(key, cs, false);
             }
             return cs;
         } else
@@ -40,6 +40,7 @@
 
 package com.sun.gjc.spi.base.datastructure;
 
+import com.sun.appserv.util.cache.FrequencySketch;
 import com.sun.enterprise.util.i18n.StringManager;
 import com.sun.gjc.common.DataSourceObjectBuilder;
 import com.sun.logging.LogDomains;
@@ -67,6 +68,15 @@ public class CacheFactory {
 
     public static Cache getDataStructure(PoolInfo poolInfo, String cacheType,
             int maxSize) throws ResourceException {
+        return getDataStructure(poolInfo, cacheType, maxSize, null);
+    }
+
+    /**
+     * @param sharedFrequencies statement access frequencies of the pool, used by
+     * the CONCURRENT_SHARED cache type (a cache of its own when null)
+     */
+    public static Cache getDataStructure(PoolInfo poolInfo, String cacheType,
+            int maxSize, FrequencySketch sharedFrequencies) throws ResourceException {
         Cache stmtCacheStructure;
 
         if(cacheType == null || cacheType.trim().equals("")) {
@@ -75,6 +85,12 @@ public class CacheFactory {
         } else if(cacheType.equals("FIXED")) {
             debug("Initializing FIXED Cache Implementation");
             stmtCacheStructure = new FIXEDCacheImpl(poolInfo, maxSize);
+        } else if(cacheType.equals("CONCURRENT")) {
+            debug("Initializing CONCURRENT Cache Implementation");
+            stmtCacheStructure = new ConcurrentCacheImpl(poolInfo, maxSize, null);
+        } else if(cacheType.equals("CONCURRENT_SHARED")) {
+            debug("Initializing CONCURRENT Cache Implementation with pool-wide statement frequencies");
+            stmtCacheStructure = new ConcurrentCacheImpl(poolInfo, maxSize, sharedFrequencies);
         } else { // consider the value of cacheType as a className
             stmtCacheStructure = initCustomCacheStructurePrivileged(cacheType,
                     maxSize);
@@ -0,0 +1,409 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.gjc.spi.base.datastructure;
+
+import com.sun.appserv.util.cache.FrequencySketch;
+import com.sun.gjc.monitoring.StatementCacheProbeProvider;
+import com.sun.gjc.spi.base.CacheObjectKey;
+import com.sun.gjc.spi.base.PreparedStatementWrapper;
+import com.sun.logging.LogDomains;
+import org.glassfish.resourcebase.resources.api.PoolInfo;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Statement cache that does not serialize the statement preparation of a connection.<br>
+ * Entries are spread over lock-striped segments, each one evicting in LRU order.
+ * A new statement replaces the least recently used one only if it was accessed
+ * (looked up) at least as often recently, as estimated by a <code>FrequencySketch</code>,
+ * so that one-off SQL does not evict hot statements (TinyLFU admission).
+ * The access frequencies can be shared by all the connections of a pool, they are
+ * then held by the <code>ManagedConnectionFactory</code> of the pool.<br>
+ * Besides the number of entries, the cache is bounded by the total length of the
+ * cached SQL, so that a few very large statements cannot take up the whole cache.
+ *
+ * Evicted statements that are in use, and statements that are not admitted, are
+ * only marked as not cached and closed by the application, others are closed by the cache.
+ */
+public class ConcurrentCacheImpl implements Cache {
+
+    /**
+     * Average SQL length (in characters) budgeted per entry
+     */
+    static final int AVERAGE_ENTRY_WEIGHT = 1024;
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_ENTRIES_PER_SEGMENT = 4;
+
+    protected final static Logger _logger =
+            LogDomains.getLogger(ConcurrentCacheImpl.class, LogDomains.RSR_LOGGER);
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final FrequencySketch sketch;
+    private final AtomicInteger size = new AtomicInteger();
+    private final int maxSize;
+    private final PoolInfo poolInfo;
+    private StatementCacheProbeProvider probeProvider = null;
+
+    /**
+     * @param poolInfo pool of the connection
+     * @param maxSize maximum number of cached statements
+     * @param sharedFrequencies access frequencies shared with the other connections
+     * of the pool, null to keep them per connection
+     */
+    public ConcurrentCacheImpl(PoolInfo poolInfo, int maxSize, FrequencySketch sharedFrequencies) {
+        this.poolInfo = poolInfo;
+        this.maxSize = maxSize;
+
+        int numSegments = 1;
+        while (numSegments < MAX_SEGMENTS && numSegments * 2 * MIN_ENTRIES_PER_SEGMENT <= maxSize) {
+            numSegments *= 2;
+        }
+        segments = new Segment[numSegments];
+        segmentMask = numSegments - 1;
+        int entriesPerSegment = (maxSize + numSegments - 1) / numSegments;
+        for (int i = 0; i < numSegments; i++) {
+            segments[i] = new Segment(entriesPerSegment, (long) entriesPerSegment * AVERAGE_ENTRY_WEIGHT);
+        }
+
+        sketch = sharedFrequencies != null ? sharedFrequencies : new FrequencySketch(maxSize);
+
+        try {
+            probeProvider = new StatementCacheProbeProvider();
+        } catch (Exception ex) {
+            _logger.log(Level.FINE, "Unable to create the statement cache probe provider", ex);
+        }
+    }
+
+    /**
+     * Check if an entry is found for this key object.
+     *
+     * @param key key whose mapping entry is to be checked.
+     * @return the cached statement or null when not found in cache
+     */
+    public Object checkAndUpdateCache(CacheObjectKey key) {
+        int hash = key.hashCode();
+        sketch.increment(hash);
+        Object result = segmentFor(hash).get(key);
+        if (result != null) {
+            if (_logger.isLoggable(Level.FINEST)) {
+                _logger.finest("Cache Hit");
+            }
+            if (probeProvider != null) {
+                probeProvider.statementCacheHitEvent(poolInfo.getName(), poolInfo.getApplicationName(),
+                        poolInfo.getModuleName());
+            }
+        } else {
+            if (_logger.isLoggable(Level.FINEST)) {
+                _logger.finest("Cache Miss");
+            }
+            if (probeProvider != null) {
+                probeProvider.statementCacheMissEvent(poolInfo.getName(), poolInfo.getApplicationName(),
+                        poolInfo.getModuleName());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Add the key and entry value into the cache, evicting the least recently used
+     * entries of the segment if needed. If the new entry is less frequently used than
+     * the entries it would evict, it is not cached.
+     *
+     * @param key   key that contains the sql string and its type (PS/CS)
+     * @param o     entry that is the wrapper of PreparedStatement or CallableStatement
+     * @param force If the already existing key is to be overwritten
+     */
+    public void addToCache(CacheObjectKey key, Object o, boolean force) {
+        int hash = key.hashCode();
+        List<Object> evicted = new ArrayList<Object>();
+        if (!segmentFor(hash).add(key, hash, o, force, evicted)) {
+            //the caller is about to use the statement, it is only marked as not cached
+            ((PreparedStatementWrapper) o).setCached(false);
+        }
+        for (Object entry : evicted) {
+            if (probeProvider != null) {
+                probeProvider.statementCacheEvictionEvent(poolInfo.getName(), poolInfo.getApplicationName(),
+                        poolInfo.getModuleName());
+            }
+            release(entry);
+        }
+    }
+
+    /**
+     * Clears the statement cache
+     */
+    public void clearCache() {
+        if (_logger.isLoggable(Level.FINE)) {
+            _logger.fine("clearing objects in cache");
+        }
+        for (Segment segment : segments) {
+            segment.removeAll();
+        }
+    }
+
+    public void flushCache() {
+        for (Segment segment : segments) {
+            for (Object entry : segment.removeAll()) {
+                release(entry);
+            }
+        }
+    }
+
+    /**
+     * Removes the least recently used entry of the first non-empty segment.
+     */
+    public void purge() {
+        for (Segment segment : segments) {
+            Object entry = segment.removeEldest();
+            if (entry != null) {
+                release(entry);
+                return;
+            }
+        }
+    }
+
+    // Used only for purging the bad statements.
+    public void purge(Object obj) {
+        for (Segment segment : segments) {
+            if (segment.removeValue(obj)) {
+                if (_logger.isLoggable(Level.FINEST)) {
+                    _logger.log(Level.FINEST, "Purging an entry from cache");
+                }
+                release(obj);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of entries in the statement cache
+     * @return has integer value
+     */
+    public int getSize() {
+        return size.get();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public boolean isSynchronized() {
+        return true;
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[(hash ^ (hash >>> 16)) & segmentMask];
+    }
+
+    /**
+     * Closes a statement that is no longer cached. A statement in use is only
+     * marked as not cached, it will be closed when the application closes it.
+     */
+    private void release(Object entry) {
+        PreparedStatementWrapper ps = (PreparedStatementWrapper) entry;
+        ps.setCached(false);
+        if (!ps.isBusy()) {
+            try {
+                ps.close();
+            } catch (SQLException e) {
+                //ignore
+            }
+        }
+    }
+
+    private static int weightOf(CacheObjectKey key) {
+        String sql = key.getSql();
+        return sql == null ? 1 : Math.max(1, sql.length());
+    }
+
+    /**
+     * A LRU ordered part of the cache, guarded by its own lock.
+     */
+    private final class Segment extends ReentrantLock {
+
+        private final Map<CacheObjectKey, CacheEntry> map =
+                new LinkedHashMap<CacheObjectKey, CacheEntry>(16, 0.75f, true);
+        private final int maxEntries;
+        private final long maxWeight;
+        private long weight;
+
+        Segment(int maxEntries, long maxWeight) {
+            this.maxEntries = maxEntries;
+            this.maxWeight = maxWeight;
+        }
+
+        Object get(CacheObjectKey key) {
+            lock();
+            try {
+                CacheEntry entry = map.get(key);
+                return entry == null ? null : entry.entryObj;
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * @param evicted collects the entries removed from the cache
+         * @return false if the entry was not admitted in the cache
+         */
+        boolean add(CacheObjectKey key, int hash, Object o, boolean force, List<Object> evicted) {
+            int entryWeight = weightOf(key);
+            if (entryWeight > maxWeight) {
+                return false;
+            }
+            lock();
+            try {
+                CacheEntry existing = map.get(key);
+                if (existing != null) {
+                    if (!force) {
+                        return existing.entryObj == o;
+                    }
+                    remove(key, existing);
+                    evicted.add(existing.entryObj);
+                }
+                int candidateFrequency = sketch.frequency(hash);
+                Iterator<Map.Entry<CacheObjectKey, CacheEntry>> eldest = map.entrySet().iterator();
+                List<Map.Entry<CacheObjectKey, CacheEntry>> victims =
+                        new ArrayList<Map.Entry<CacheObjectKey, CacheEntry>>();
+                int entries = map.size();
+                long newWeight = weight;
+                while (entries >= maxEntries || newWeight + entryWeight > maxWeight) {
+                    Map.Entry<CacheObjectKey, CacheEntry> victim = eldest.next();
+                    if (sketch.frequency(victim.getKey().hashCode()) > candidateFrequency) {
+                        //the victims are hotter than the new statement, do not cache it.
+                        return false;
+                    }
+                    victims.add(victim);
+                    entries--;
+                    newWeight -= victim.getValue().weight;
+                }
+                for (Map.Entry<CacheObjectKey, CacheEntry> victim : victims) {
+                    evicted.add(victim.getValue().entryObj);
+                }
+                for (Map.Entry<CacheObjectKey, CacheEntry> victim : victims) {
+                    remove(victim.getKey(), victim.getValue());
+                }
+                map.put(key, new CacheEntry(o, entryWeight));
+                weight += entryWeight;
+                size.incrementAndGet();
+                return true;
+            } finally {
+                unlock();
+            }
+        }
+
+        Object removeEldest() {
+            lock();
+            try {
+                Iterator<Map.Entry<CacheObjectKey, CacheEntry>> it = map.entrySet().iterator();
+                if (!it.hasNext()) {
+                    return null;
+                }
+                Map.Entry<CacheObjectKey, CacheEntry> eldest = it.next();
+                remove(eldest.getKey(), eldest.getValue());
+                return eldest.getValue().entryObj;
+            } finally {
+                unlock();
+            }
+        }
+
+        boolean removeValue(Object o) {
+            lock();
+            try {
+                for (Map.Entry<CacheObjectKey, CacheEntry> entry : map.entrySet()) {
+                    if (entry.getValue().entryObj == o) {
+                        remove(entry.getKey(), entry.getValue());
+                        return true;
+                    }
+                }
+                return false;
+            } finally {
+                unlock();
+            }
+        }
+
+        List<Object> removeAll() {
+            lock();
+            try {
+                List<Object> removed = new ArrayList<Object>(map.size());
+                for (CacheEntry entry : map.values()) {
+                    removed.add(entry.entryObj);
+                }
+                size.addAndGet(-map.size());
+                map.clear();
+                weight = 0;
+                return removed;
+            } finally {
+                unlock();
+            }
+        }
+
+        private void remove(CacheObjectKey key, CacheEntry entry) {
+            map.remove(key);
+            weight -= entry.weight;
+            size.decrementAndGet();
+        }
+    }
+
+    /**
+     * Cache object that has an entry and its weight.
+     */
+    private static final class CacheEntry {
+        private final Object entryObj;
+        private final int weight;
+
+        CacheEntry(Object o, int weight) {
+            this.entryObj = o;
+            this.weight = weight;
+        }
+    }
+}
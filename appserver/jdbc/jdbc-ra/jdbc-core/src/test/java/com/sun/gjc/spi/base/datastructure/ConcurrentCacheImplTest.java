@@ -0,0 +1,201 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.gjc.spi.base.datastructure;
+
+import com.sun.appserv.util.cache.FrequencySketch;
+import com.sun.gjc.spi.base.CacheObjectKey;
+import com.sun.gjc.spi.base.PreparedStatementWrapper;
+import org.glassfish.resourcebase.resources.api.PoolInfo;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.ResultSet;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.*;
+
+public class ConcurrentCacheImplTest {
+
+    private static final int MAX_SIZE = 4;
+
+    private ConcurrentCacheImpl cache;
+    private CacheObjectKey[] keys;
+    private PreparedStatementWrapper[] statements;
+
+    @Before
+    public void before() {
+        //a wide sketch, so that the few keys of the tests do not collide
+        cache = new ConcurrentCacheImpl(new PoolInfo("test-pool"), MAX_SIZE, new FrequencySketch(1024));
+        keys = new CacheObjectKey[MAX_SIZE];
+        statements = new PreparedStatementWrapper[MAX_SIZE];
+        for (int i = 0; i < MAX_SIZE; i++) {
+            keys[i] = key("select * from t" + i);
+            statements[i] = createMock(PreparedStatementWrapper.class);
+        }
+    }
+
+    @Test
+    public void testAdmission() throws Exception {
+        PreparedStatementWrapper hot = createMock(PreparedStatementWrapper.class);
+        replay(hot);
+        //the least recently used statement makes room for the more frequent one
+        statements[0].setCached(false);
+        expect(statements[0].isBusy()).andReturn(false);
+        statements[0].close();
+        replay((Object[]) statements);
+
+        fill(1);
+        CacheObjectKey hotKey = key("select * from hot");
+        lookup(hotKey, 2);
+        cache.addToCache(hotKey, hot, false);
+
+        assertEquals(MAX_SIZE, cache.getSize());
+        assertSame(hot, cache.checkAndUpdateCache(hotKey));
+        assertNull(cache.checkAndUpdateCache(keys[0]));
+        verify(hot);
+        verify((Object[]) statements);
+    }
+
+    @Test
+    public void testRejectedByFrequency() {
+        PreparedStatementWrapper rare = createMock(PreparedStatementWrapper.class);
+        //marked as not cached, never closed : the application is about to use it
+        rare.setCached(false);
+        replay(rare);
+        replay((Object[]) statements);
+
+        fill(3);
+        CacheObjectKey rareKey = key("select * from rare");
+        lookup(rareKey, 1);
+        cache.addToCache(rareKey, rare, false);
+
+        assertEquals(MAX_SIZE, cache.getSize());
+        assertNull(cache.checkAndUpdateCache(rareKey));
+        for (int i = 0; i < MAX_SIZE; i++) {
+            assertSame(statements[i], cache.checkAndUpdateCache(keys[i]));
+        }
+        verify(rare);
+        verify((Object[]) statements);
+    }
+
+    @Test
+    public void testRejectedByWeight() {
+        StringBuilder sql = new StringBuilder("select ");
+        while (sql.length() <= MAX_SIZE * ConcurrentCacheImpl.AVERAGE_ENTRY_WEIGHT) {
+            sql.append("column, ");
+        }
+        PreparedStatementWrapper large = createMock(PreparedStatementWrapper.class);
+        large.setCached(false);
+        replay(large);
+
+        CacheObjectKey largeKey = key(sql.toString());
+        lookup(largeKey, 1);
+        cache.addToCache(largeKey, large, false);
+
+        assertEquals(0, cache.getSize());
+        verify(large);
+    }
+
+    @Test
+    public void testRejectedDuplicateKey() {
+        PreparedStatementWrapper duplicate = createMock(PreparedStatementWrapper.class);
+        duplicate.setCached(false);
+        replay(duplicate);
+        replay((Object[]) statements);
+
+        fill(1);
+        cache.addToCache(keys[0], duplicate, false);
+
+        assertEquals(MAX_SIZE, cache.getSize());
+        assertSame(statements[0], cache.checkAndUpdateCache(keys[0]));
+        verify(duplicate);
+        verify((Object[]) statements);
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        //the least recently used statement is idle and closed by the cache
+        statements[0].setCached(false);
+        expect(statements[0].isBusy()).andReturn(false);
+        statements[0].close();
+        //the next one is in use, only marked as not cached
+        statements[1].setCached(false);
+        expect(statements[1].isBusy()).andReturn(true);
+        replay((Object[]) statements);
+
+        fill(1);
+        for (int i = 0; i < 2; i++) {
+            PreparedStatementWrapper added = createMock(PreparedStatementWrapper.class);
+            replay(added);
+            CacheObjectKey addedKey = key("select * from added" + i);
+            lookup(addedKey, 2);
+            cache.addToCache(addedKey, added, false);
+            verify(added);
+        }
+
+        assertEquals(MAX_SIZE, cache.getSize());
+        assertNull(cache.checkAndUpdateCache(keys[0]));
+        assertNull(cache.checkAndUpdateCache(keys[1]));
+        verify((Object[]) statements);
+    }
+
+    private void fill(int lookups) {
+        for (int i = 0; i < MAX_SIZE; i++) {
+            lookup(keys[i], lookups);
+            cache.addToCache(keys[i], statements[i], false);
+        }
+        assertEquals(MAX_SIZE, cache.getSize());
+    }
+
+    private void lookup(CacheObjectKey key, int times) {
+        for (int i = 0; i < times; i++) {
+            assertNull(cache.checkAndUpdateCache(key));
+        }
+    }
+
+    private static CacheObjectKey key(String sql) {
+        return new CacheObjectKey(sql, CacheObjectKey.PREPARED_STATEMENT,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    }
+}
@@ -42,10 +42,10 @@ package org.glassfish.jdbc.pool.monitor;
 
 import org.glassfish.external.probe.provider.annotations.ProbeListener;
 import org.glassfish.external.probe.provider.annotations.ProbeParam;
+import org.glassfish.admin.monitor.statistics.StripedCountStatisticImpl;
+import org.glassfish.admin.monitor.statistics.StripedRangeStatisticImpl;
 import org.glassfish.external.statistics.CountStatistic;
 import org.glassfish.external.statistics.RangeStatistic;
-import org.glassfish.external.statistics.impl.CountStatisticImpl;
-import org.glassfish.external.statistics.impl.RangeStatisticImpl;
 import org.glassfish.external.statistics.impl.StatisticImpl;
 import org.glassfish.gmbal.AMXMetadata;
 import org.glassfish.gmbal.Description;
@@ -66,17 +66,17 @@ import org.glassfish.resourcebase.resources.api.PoolInfo;
 @Description("JDBC Connection pool Application based Statistics")
 public class JdbcConnPoolAppStatsProvider {
 
-    private RangeStatisticImpl numConnUsed = new RangeStatisticImpl(
+    private StripedRangeStatisticImpl numConnUsed = new StripedRangeStatisticImpl(
             0, 0, 0,
             "NumConnUsed", StatisticImpl.UNIT_COUNT, "Provides connection usage " +
             "statistics. The total number of connections that are currently being " +
             "used, as well as information about the maximum number of connections " +
             "that were used (the high water mark).",
             System.currentTimeMillis(), System.currentTimeMillis());
-    private CountStatisticImpl numConnAcquired = new CountStatisticImpl(
+    private StripedCountStatisticImpl numConnAcquired = new StripedCountStatisticImpl(
             "NumConnAcquired", StatisticImpl.UNIT_COUNT, "Number of logical " +
             "connections acquired from the pool.");
-    private CountStatisticImpl numConnReleased = new CountStatisticImpl(
+    private StripedCountStatisticImpl numConnReleased = new StripedCountStatisticImpl(
             "NumConnReleased", StatisticImpl.UNIT_COUNT, "Number of logical " +
             "connections released to the pool.");
     private static final String JDBC_APP_PROBE_LISTENER = "glassfish:jdbc-pool:applications:";
@@ -104,9 +104,7 @@ public class JdbcConnPoolAppStatsProvider {
         if((poolName != null) && (poolName.equals(this.poolName))) {
             if (appName != null && appName.equals(this.appName)) {
                 //Decrement numConnUsed counter
-                synchronized (numConnUsed) {
-                    numConnUsed.setCurrent(numConnUsed.getCurrent() - 1);
-                }
+                numConnUsed.decrement();
             }
         }
     }
@@ -124,9 +122,7 @@ public class JdbcConnPoolAppStatsProvider {
         if((poolName != null) && (poolName.equals(this.poolName))) {
             if (appName != null && appName.equals(this.appName)) {
                 //increment numConnUsed
-                synchronized (numConnUsed) {
-                    numConnUsed.setCurrent(numConnUsed.getCurrent() + 1);
-                }
+                numConnUsed.increment();
             }
         }
     }
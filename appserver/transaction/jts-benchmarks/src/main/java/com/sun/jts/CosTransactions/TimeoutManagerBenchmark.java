@@ -0,0 +1,224 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jts.CosTransactions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the timeout bookkeeping of a transaction begin/commit with
+ * timeouts enabled: setting the active timeout, looking up the time left
+ * (as done when the transaction context is propagated) and cancelling it.
+ * <p>
+ * The TimeoutManager is compared with <code>table</code>, the Hashtable scan
+ * it used before the timeout wheel, while a number of other transactions are
+ * in flight and a checker thread looks for expired timeouts every
+ * <code>checkMillis</code> (a shorter interval than the default of ten
+ * seconds, so that the cost of the checks shows up in a short run).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class TimeoutManagerBenchmark {
+
+    // Long enough for no transaction to time out during a run.
+    private static final int TIMEOUT_SECONDS = 600;
+
+    @Param({"wheel", "table"})
+    public String timeouts;
+
+    @Param({"0", "10000", "50000"})
+    public int inFlight;
+
+    @Param({"10"})
+    public int checkMillis;
+
+    private final AtomicLong nextTID = new AtomicLong();
+
+    private Timeouts impl;
+
+    private Thread checker;
+
+    private volatile boolean running;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("table".equals(timeouts)) {
+            impl = new TableTimeouts();
+        } else {
+            TimeoutManager.initialise();
+            impl = new WheelTimeouts();
+        }
+        for (int i = 0; i < inFlight; i++) {
+            impl.begin(nextTID.incrementAndGet());
+        }
+
+        running = true;
+        checker = new Thread("Timeout Checker") {
+            public void run() {
+                while (running) {
+                    impl.check();
+                    try {
+                        Thread.sleep(checkMillis);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        };
+        checker.setDaemon(true);
+        checker.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        running = false;
+        checker.interrupt();
+        checker.join();
+        for (long tid = 1; tid <= nextTID.get(); tid++) {
+            impl.commit(tid);
+        }
+    }
+
+    @Benchmark
+    public long beginCommit() {
+        long tid = nextTID.incrementAndGet();
+        impl.begin(tid);
+        long timeLeft = impl.timeLeft(tid);
+        impl.commit(tid);
+        return timeLeft;
+    }
+
+    interface Timeouts {
+
+        void begin(long tid);
+
+        long timeLeft(long tid);
+
+        void commit(long tid);
+
+        Enumeration check();
+    }
+
+    static class WheelTimeouts implements Timeouts {
+
+        public void begin(long tid) {
+            TimeoutManager.setTimeout(Long.valueOf(tid), TimeoutManager.ACTIVE_TIMEOUT, TIMEOUT_SECONDS);
+        }
+
+        public long timeLeft(long tid) {
+            return TimeoutManager.timeLeft(Long.valueOf(tid));
+        }
+
+        public void commit(long tid) {
+            TimeoutManager.setTimeout(Long.valueOf(tid), TimeoutManager.CANCEL_TIMEOUT, 0);
+        }
+
+        public Enumeration check() {
+            return TimeoutManager.checkTimeouts();
+        }
+    }
+
+    /**
+     * The timeout table of the TimeoutManager before the timeout wheel,
+     * with the checks scanning all timeouts under the table lock.
+     */
+    static class TableTimeouts implements Timeouts {
+
+        private final Hashtable pendingTimeouts = new Hashtable();
+
+        public void begin(long tid) {
+            TimeoutInfo timeoutInfo = new TimeoutInfo();
+            timeoutInfo.expireTime = System.currentTimeMillis() + TIMEOUT_SECONDS * 1000L;
+            timeoutInfo.localTID = Long.valueOf(tid);
+            timeoutInfo.timeoutType = TimeoutManager.ACTIVE_TIMEOUT;
+            pendingTimeouts.put(timeoutInfo.localTID, timeoutInfo);
+        }
+
+        public long timeLeft(long tid) {
+            TimeoutInfo timeoutInfo = (TimeoutInfo) pendingTimeouts.get(Long.valueOf(tid));
+            return timeoutInfo == null ? -1 : Math.max(0, timeoutInfo.expireTime - System.currentTimeMillis());
+        }
+
+        public void commit(long tid) {
+            pendingTimeouts.remove(Long.valueOf(tid));
+        }
+
+        public Enumeration check() {
+            Vector timedOut = null;
+            synchronized (pendingTimeouts) {
+                Enumeration timeouts = pendingTimeouts.elements();
+                while (timeouts.hasMoreElements()) {
+                    TimeoutInfo timeoutInfo = (TimeoutInfo) timeouts.nextElement();
+                    if (System.currentTimeMillis() > timeoutInfo.expireTime) {
+                        if (timedOut == null) {
+                            timedOut = new Vector();
+                        }
+                        timedOut.addElement(timeoutInfo);
+                    }
+                }
+            }
+            return timedOut == null ? null : timedOut.elements();
+        }
+    }
+}
@@ -222,6 +222,27 @@ public class Configuration extends Object {
      */
     public final static String TIMEOUT_INTERVAL = "com.sun.jts.timeoutInterval" ;
 
+    /**The property key used to enable group commit of the transaction log. When
+     * enabled, the syncs of the log file requested by concurrent transactions are
+     * coalesced into a single force of the file, done outside of the log lock.
+     * <p>
+     * The value is <em><b>com.sun.jts.groupCommit</b></em>.
+     * <p>
+     * The default value for this property is false.
+     */
+    public final static String GROUP_COMMIT = "com.sun.jts.groupCommit"/*#Frozen*/;
+
+    /**The property key used to specify the time in microseconds for which a group
+     * commit waits for more transactions to join the batch before forcing the log.
+     * A higher value means fewer forces, but adds up to this delay to each commit.
+     * <p>
+     * The value is <em><b>com.sun.jts.groupCommitMaxDelay</b></em>.
+     * <p>
+     * The default value for this property is 0, in which case only the transactions
+     * which log while a force is in progress are batched.
+     */
+    public final static String GROUP_COMMIT_MAX_DELAY = "com.sun.jts.groupCommitMaxDelay"/*#Frozen*/;
+
     /**The default subdirectory in which log and repository files are stored.
      */
     public final static String JTS_SUBDIRECTORY = "jts"/*#Frozen*/;
@@ -143,6 +143,7 @@ class LogFileHandle {
     int bufferUpdateStart = -1;
     int bufferUpdateEnd   = -1;
     int buffPos = 0;
+    private LogGroupCommit groupCommit = null;
 
     static {
         dsyncProp = System.getProperty(DSYNC_PROPERTY);
@@ -199,6 +200,12 @@ class LogFileHandle {
                 if( (openOptions & OPEN_CREAT) != 0 )
                     fileOpen(file,MODE_READWRITENEW);
             }
+
+        // In group commit mode, the syncs of buffered files are coalesced.
+
+        if( buffered && fhandle != null && LogGroupCommit.isEnabled() )
+            groupCommit = new LogGroupCommit(fhandle.getChannel(),
+                                             LogGroupCommit.getMaxDelayMicros());
     }
 
     /**Destroys the FileHandle, closing the file, if open.
@@ -402,7 +409,7 @@ class LogFileHandle {
             // If buffered, then ensure that the buffer is stored and synced with the
             // file system.
 
-            if( bufferUpdateStart != -1 )
+            if( bufferUpdateStart != -1 || groupCommit != null )
                 fileSync();
 
             // Close the file.
@@ -478,16 +485,22 @@ class LogFileHandle {
 
         // Synchronization is only done for buffered files which have been updated.
         // Non-buffered files have every write synchronized with the file system.
+        // In group commit mode, writes which have not been forced yet are forced too.
 
-        if( bufferUpdateStart != -1 )
+        if( bufferUpdateStart != -1 || groupCommit != null )
             try {
-                fhandle.seek(bufferUpdateStart);
-                fhandle.write(bufferData,bufferUpdateStart,bufferUpdateEnd-bufferUpdateStart);
-                if (dsyncProp == null)
-                    fd.sync();
+                if( groupCommit != null )
+                    groupCommit.force(bufferUpdateStart != -1 ? fileWriteBuffer()
+                                                              : groupCommit.lastWritten());
+                else {
+                    fhandle.seek(bufferUpdateStart);
+                    fhandle.write(bufferData,bufferUpdateStart,bufferUpdateEnd-bufferUpdateStart);
+                    if (dsyncProp == null)
+                        fd.sync();
 
-                bufferUpdateStart = -1;
-                bufferUpdateEnd   = -1;
+                    bufferUpdateStart = -1;
+                    bufferUpdateEnd   = -1;
+                }
             } catch (Throwable e) {
                 throw new LogException(LogException.LOG_READ_FAILURE,1,
                         sm.getString("jts.log_file_sync_failed"), e);
@@ -495,6 +508,72 @@ class LogFileHandle {
 
     }
 
+    /**Writes the updated part of the buffer to the file without forcing it to disk.
+     * <p>
+     * This is the first half of a sync in group commit mode; the second half,
+     * {@link #fileForce}, can then be done without holding the log lock.
+     * Without group commit, this is the same as {@link #fileSync}.
+     *
+     * @param
+     *
+     * @return  The sequence number to pass to fileForce, or -1 if the file has
+     *          already been synced.
+     *
+     * @exception LogException The write failed
+     *
+     * @see
+     */
+    long fileWriteThrough() throws LogException {
+
+        if( groupCommit == null ) {
+            fileSync();
+            return -1;
+        }
+
+        try {
+            return bufferUpdateStart != -1 ? fileWriteBuffer() : groupCommit.lastUnforced();
+        } catch (Throwable e) {
+            throw new LogException(LogException.LOG_WRITE_FAILURE,1,
+                    sm.getString("jts.log_write_failed"), e);
+        }
+    }
+
+    /**Forces the writes up to the given one to disk, together with those of
+     * any other threads that are waiting for a force of the file.
+     *
+     * @param sequence  The value returned by fileWriteThrough.
+     *
+     * @return
+     *
+     * @exception LogException The force failed
+     *
+     * @see
+     */
+    void fileForce( long sequence ) throws LogException {
+
+        if( groupCommit != null && sequence > 0 )
+            try {
+                groupCommit.force(sequence);
+            } catch (Throwable e) {
+                throw new LogException(LogException.LOG_ERROR_FORCING_LOG,1,
+                        sm.getString("jts.log_file_sync_failed"), e);
+            }
+    }
+
+    /**Writes the updated part of the buffer to the file, in group commit mode.
+     *
+     * @return  The group commit sequence number of the write.
+     */
+    private long fileWriteBuffer() throws IOException {
+        fhandle.seek(bufferUpdateStart);
+        fhandle.write(bufferData,bufferUpdateStart,bufferUpdateEnd-bufferUpdateStart);
+
+        bufferUpdateStart = -1;
+        bufferUpdateEnd   = -1;
+
+        return groupCommit.written();
+    }
+
     /**Reads a vector of records from the file.
      *
      * @param vector  The vector to contain the records to be read.
@@ -0,0 +1,296 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jts.CosTransactions;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.sun.logging.LogDomains;
+
+/**
+ * Coalesces the forces of a transaction log file.
+ * <p>
+ * When group commit is enabled, the log records are written to the file
+ * under the log lock as before, but the sync is done after the lock has been
+ * released. Each write is numbered, and a thread that needs its write to be
+ * on disk either becomes the leader and forces the file once for all writes
+ * done so far, or waits for the force of the current leader to cover it. The
+ * leader may wait for up to the configured maximum batch delay before
+ * forcing, to let more transactions join the batch.
+ * <p>
+ * The number of writes covered by each force and the time spent in the
+ * forces are collected for all log files, see the static getters. When the
+ * transaction logger is at FINE, they are logged at most once a minute
+ * while forces are done.
+ *
+ * @see Configuration#GROUP_COMMIT
+ * @see Configuration#GROUP_COMMIT_MAX_DELAY
+ */
+public final class LogGroupCommit {
+
+    private static final AtomicLong forceCount = new AtomicLong();
+    private static final AtomicLong forcedWriteCount = new AtomicLong();
+    private static final AtomicLong forceTimeNanos = new AtomicLong();
+    private static final AtomicLong maxBatchSize = new AtomicLong();
+    private static final AtomicLong maxForceTimeNanos = new AtomicLong();
+
+    private static final long LOG_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final AtomicLong lastLogged = new AtomicLong(System.nanoTime());
+
+    private static Logger _logger = LogDomains.getLogger(LogGroupCommit.class, LogDomains.TRANSACTION_LOGGER);
+
+    private final FileChannel channel;
+    private final long maxDelayNanos;
+
+    private final Object lock = new Object();
+    // All guarded by lock.
+    private long written;
+    private long forced;
+    private boolean forcing;
+
+    LogGroupCommit(FileChannel channel, long maxDelayMicros) {
+        this.channel = channel;
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0L, maxDelayMicros));
+    }
+
+    /**Returns whether group commit is enabled for the transaction log.
+     *
+     * @return true if the {@link Configuration#GROUP_COMMIT} property is true.
+     */
+    static boolean isEnabled() {
+        return Boolean.parseBoolean(Configuration.getPropertyValue(Configuration.GROUP_COMMIT));
+    }
+
+    /**Returns the configured maximum batch delay, 0 if it is not set or invalid.
+     *
+     * @return the delay in microseconds.
+     */
+    static long getMaxDelayMicros() {
+        String value = Configuration.getPropertyValue(Configuration.GROUP_COMMIT_MAX_DELAY);
+        if (value != null) {
+            try {
+                return Math.max(0L, Long.parseLong(value.trim()));
+            } catch (NumberFormatException e) {
+                // use the default
+            }
+        }
+        return 0L;
+    }
+
+    /**Records that data has been written to the file, but not forced.
+     *
+     * @return the sequence number of the write, to be passed to {@link #force}.
+     */
+    long written() {
+        synchronized (lock) {
+            return ++written;
+        }
+    }
+
+    /**Returns the sequence number of the last write.
+     *
+     * @return the sequence number.
+     */
+    long lastWritten() {
+        synchronized (lock) {
+            return written;
+        }
+    }
+
+    /**Returns the sequence number of the last write if it has not been forced.
+     *
+     * @return the sequence number, or -1 if all writes have been forced.
+     */
+    long lastUnforced() {
+        synchronized (lock) {
+            return written > forced ? written : -1;
+        }
+    }
+
+    /**Makes sure that the given write, and all writes before it, are on disk.
+     *
+     * @param sequence  The sequence number returned by {@link #written}.
+     *
+     * @exception IOException  The force failed.
+     */
+    void force(long sequence) throws IOException {
+        long alreadyForced;
+        synchronized (lock) {
+            boolean interrupted = false;
+            while (forced < sequence && forcing) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (forced >= sequence) {
+                return;
+            }
+            forcing = true;
+            alreadyForced = forced;
+        }
+
+        long target = sequence;
+        boolean done = false;
+        try {
+            if (maxDelayNanos > 0) {
+                LockSupport.parkNanos(maxDelayNanos);
+            }
+            synchronized (lock) {
+                target = written;
+            }
+            long start = System.nanoTime();
+            channel.force(false);
+            recordForce(target - alreadyForced, System.nanoTime() - start);
+            done = true;
+        } finally {
+            synchronized (lock) {
+                if (done && target > forced) {
+                    forced = target;
+                }
+                forcing = false;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private static void recordForce(long batchSize, long nanos) {
+        forceCount.incrementAndGet();
+        forcedWriteCount.addAndGet(batchSize);
+        forceTimeNanos.addAndGet(nanos);
+        updateMax(maxBatchSize, batchSize);
+        updateMax(maxForceTimeNanos, nanos);
+        if (_logger.isLoggable(Level.FINE)) {
+            long now = System.nanoTime();
+            long last = lastLogged.get();
+            if (now - last >= LOG_INTERVAL_NANOS && lastLogged.compareAndSet(last, now)) {
+                logStatistics();
+            }
+        }
+    }
+
+    private static void logStatistics() {
+        _logger.logp(Level.FINE, "LogGroupCommit", "logStatistics()",
+                "Transaction log group commit: {0} forces of {1} writes, batch size"
+                + " average {2} max {3}, force time average {4} max {5} microseconds",
+                new Object[] { getForceCount(), getForcedWriteCount(),
+                        String.format("%.1f", getAverageBatchSize()), getMaxBatchSize(),
+                        getAverageForceTimeMicros(), getMaxForceTimeMicros() });
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+
+    /**Returns the number of forces done in group commit mode.
+     *
+     * @return the number of forces.
+     */
+    public static long getForceCount() {
+        return forceCount.get();
+    }
+
+    /**Returns the number of log writes made durable by those forces.
+     *
+     * @return the number of writes.
+     */
+    public static long getForcedWriteCount() {
+        return forcedWriteCount.get();
+    }
+
+    /**Returns the average number of log writes covered by a force.
+     *
+     * @return the average batch size, 0 if there was no force yet.
+     */
+    public static double getAverageBatchSize() {
+        long forces = forceCount.get();
+        return forces == 0 ? 0 : (double) forcedWriteCount.get() / forces;
+    }
+
+    /**Returns the largest number of log writes covered by a single force.
+     *
+     * @return the largest batch size.
+     */
+    public static long getMaxBatchSize() {
+        return maxBatchSize.get();
+    }
+
+    /**Returns the average time spent in a force.
+     *
+     * @return the average time in microseconds, 0 if there was no force yet.
+     */
+    public static long getAverageForceTimeMicros() {
+        long forces = forceCount.get();
+        return forces == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(forceTimeNanos.get() / forces);
+    }
+
+    /**Returns the longest time spent in a single force.
+     *
+     * @return the time in microseconds.
+     */
+    public static long getMaxForceTimeMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxForceTimeNanos.get());
+    }
+
+    /**Resets the statistics.
+     */
+    public static void resetStatistics() {
+        forceCount.set(0);
+        forcedWriteCount.set(0);
+        forceTimeNanos.set(0);
+        maxBatchSize.set(0);
+        maxForceTimeNanos.set(0);
+    }
+}
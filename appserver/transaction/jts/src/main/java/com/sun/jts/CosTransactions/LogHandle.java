@@ -281,9 +281,51 @@ class LogHandle {
      *
      * @see
      */
-    synchronized LogLSN writeRecord( byte[] record,
-                                     int    recordType,
-                                     int    writeMode )
+    LogLSN writeRecord( byte[] record,
+                        int    recordType,
+                        int    writeMode )
+        throws LogException {
+
+        // In group commit mode, a forced write is only written through to the
+        // extent files under the lock, and the files are then forced outside of
+        // it, together with the writes of the other threads forcing the log.
+
+        List<PendingForce> pendingForces = null;
+        if( writeMode == FORCE )
+            pendingForces = new ArrayList<PendingForce>(1);
+
+        LogLSN result = writeRecord(record,recordType,writeMode,pendingForces);
+
+        if( pendingForces != null )
+            for( PendingForce pending : pendingForces )
+                try {
+                    pending.fileHandle.fileForce(pending.sequence);
+                } catch (LogException le) {
+                    throw new LogException(LogException.LOG_ERROR_FORCING_LOG, 14,
+                            sm.getString("jts.log_file_sync_failed"), le);
+                }
+
+        return result;
+    }
+
+    /**Writes a record to the log, under the log lock.
+     *
+     * @param record         The log record.
+     * @param recordType     The log record type.
+     * @param writeMode      The write mode.
+     * @param pendingForces  The list to which to add the extent files that
+     *                       still have to be forced, when the mode is FORCE.
+     *
+     * @return  The LSN of the written record
+     *
+     * @exception LogException The write failed.
+     *
+     * @see
+     */
+    private synchronized LogLSN writeRecord( byte[]             record,
+                                             int                recordType,
+                                             int                writeMode,
+                                             List<PendingForce> pendingForces )
         throws LogException {
 
         // Check BlockValid field in Log_FileDescriptor block pointed to
@@ -568,8 +610,14 @@ class LogHandle {
                 LogExtent nextEDP = (LogExtent)extents.nextElement();
                 if( nextEDP.writtenSinceLastForce )
                     try {
-                        nextEDP.fileHandle.fileSync();
-                        nextEDP.writtenSinceLastForce = false;
+                        // The flag stays set until a force of the extent has completed,
+                        // so that the forces in between also wait for this write.
+
+                        long sequence = nextEDP.fileHandle.fileWriteThrough();
+                        if( sequence > 0 )
+                            pendingForces.add(new PendingForce(nextEDP.fileHandle,sequence));
+                        else
+                            nextEDP.writtenSinceLastForce = false;
                     } catch (LogException le) {
                         throw new LogException(LogException.LOG_ERROR_FORCING_LOG, 14,
                                 sm.getString("jts.log_file_sync_failed"), le);
@@ -2011,4 +2059,16 @@ class LogHandle {
     final String logFileName() {
         return logFileName;
     }
+
+    /**An extent file that has been written through and still has to be forced.
+     */
+    private static final class PendingForce {
+        final LogFileHandle fileHandle;
+        final long sequence;
+
+        PendingForce( LogFileHandle fileHandle, long sequence ) {
+            this.fileHandle = fileHandle;
+            this.sequence = sequence;
+        }
+    }
 }
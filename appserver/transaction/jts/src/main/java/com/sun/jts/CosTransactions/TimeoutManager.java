@@ -63,6 +63,8 @@
 package com.sun.jts.CosTransactions;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import org.omg.CosTransactions.*;
 import com.sun.jts.jtsxa.XID;
@@ -77,6 +79,10 @@ import com.sun.jts.utils.LogFormatter;
 /**
  * This class records state for timing out transactions, and runs a thread
  * which performs occasional checks to time out transactions.
+ * <p>
+ * The timeouts are kept on a {@link TimeoutWheel}, so that setting and
+ * cancelling a timeout does not lock or scan the timeouts of the other
+ * transactions.
  *
  * @version 0.01
  *
@@ -106,12 +112,21 @@ class TimeoutManager {
      */
     private static boolean initialised = false;
 
-    private static Hashtable     pendingTimeouts = new Hashtable();
-    private static Hashtable     indoubtTimeouts = new Hashtable();
+    /**
+     * The number of buckets of the timeout wheel. With the default interval
+     * of ten seconds, one turn of the wheel covers about 85 minutes.
+     */
+    private static final int WHEEL_SIZE = 512;
+
+    private static final ConcurrentHashMap<Long, TimeoutInfo> pendingTimeouts =
+        new ConcurrentHashMap<Long, TimeoutInfo>();
+    private static final ConcurrentHashMap<Long, TimeoutInfo> indoubtTimeouts =
+        new ConcurrentHashMap<Long, TimeoutInfo>();
+    private static volatile TimeoutWheel timeoutWheel = null;
     private static TimeoutThread timeoutThread = null;
-    private static boolean       timeoutActive = false;
+    private static volatile boolean timeoutActive = false;
     private static boolean       quiescing = false;
-    private static boolean       isSetTimeout = false;
+    private static volatile boolean isSetTimeout = false;
 
 	/*
 		Logger to log transaction messages
@@ -149,8 +164,9 @@ class TimeoutManager {
     static synchronized void initSetTimeout() {
 	if (isSetTimeout)
 	   return;
-        isSetTimeout = true;
         timeoutThread = new TimeoutThread();
+        timeoutWheel = new TimeoutWheel(timeoutThread.getTimeoutInterval(), WHEEL_SIZE);
+        isSetTimeout = true;
         timeoutThread.start();
     }
 
@@ -180,6 +196,7 @@ class TimeoutManager {
         if (timeoutActive) {
 
             TimeoutInfo timeoutInfo = null;
+            TimeoutInfo replaced = null;
 
             switch (timeoutType) {
 
@@ -192,10 +209,14 @@ class TimeoutManager {
                  }
                  timeoutInfo = new TimeoutInfo();
                  timeoutInfo.expireTime  =
-                    new Date().getTime() + seconds * 1000L;
+                    System.currentTimeMillis() + seconds * 1000L;
                  timeoutInfo.localTID    = localTID;
                  timeoutInfo.timeoutType = timeoutType;
-                 pendingTimeouts.put(localTID,timeoutInfo);
+                 replaced = pendingTimeouts.put(localTID,timeoutInfo);
+                 if (replaced != null) {
+                     timeoutWheel.cancel(replaced);
+                 }
+                 timeoutWheel.schedule(timeoutInfo);
                  break;
             case TimeoutManager.IN_DOUBT_TIMEOUT :
 		 if (!isSetTimeout) {
@@ -204,10 +225,14 @@ class TimeoutManager {
                  }
                 timeoutInfo = new TimeoutInfo();
                 timeoutInfo.expireTime  =
-                    new Date().getTime() + seconds * 1000L;
+                    System.currentTimeMillis() + seconds * 1000L;
                 timeoutInfo.localTID    = localTID;
                 timeoutInfo.timeoutType = timeoutType;
-                indoubtTimeouts.put(localTID,timeoutInfo);
+                replaced = indoubtTimeouts.put(localTID,timeoutInfo);
+                if (replaced != null) {
+                    timeoutWheel.cancel(replaced);
+                }
+                timeoutWheel.schedule(timeoutInfo);
                 break;
 
             // For any other type, remove the timeout if there is one.
@@ -215,9 +240,13 @@ class TimeoutManager {
             default:
 		if (!isSetTimeout)
 		  break;
-                   result = (pendingTimeouts.remove(localTID) != null);
-		   if (!result)
-                      result = (indoubtTimeouts.remove(localTID) != null);
+                   timeoutInfo = pendingTimeouts.remove(localTID);
+		   if (timeoutInfo == null)
+                      timeoutInfo = indoubtTimeouts.remove(localTID);
+                   result = (timeoutInfo != null);
+                   if (result) {
+                       timeoutWheel.cancel(timeoutInfo);
+                   }
 
                     // If the transaction service is quiescing and
                     // there are no more pending timeouts,
@@ -363,7 +392,9 @@ class TimeoutManager {
      * Periodically checks the existing timeouts.
      * <p>
      * This is done to discover if any transactions have overrun their allotted
-     * time.  Those which have are returned as an Enumeration.
+     * time.  Those which have are returned as an Enumeration. Only the
+     * buckets of the timeout wheel for the time elapsed since the last check
+     * are looked at.
      * <p>
      * Note that this method should not do anything that will cause a
      * synchronized method in the RecoveryManager to be called, as this could
@@ -382,69 +413,19 @@ class TimeoutManager {
 
         Enumeration result = null;
 
-        // When woken up, go through all current timeouts and identify those
-        // which have expired.
-
-        if (timeoutActive && ((pendingTimeouts.size() != 0) || (indoubtTimeouts.size() != 0))) {
-            Vector timedOut = null;
-
-            Enumeration timeouts = null;
-          
-            synchronized (pendingTimeouts) {
-                timeouts = pendingTimeouts.elements();
-
-                while (timeouts.hasMoreElements()) {
-
-                    TimeoutInfo timeoutInfo = (TimeoutInfo)timeouts.nextElement();
-
-                    // For each timeout in the list, check whether it has expired.
-                    // If so, look up the Coordinator and roll it back.
-
-                    if (new Date().getTime() > timeoutInfo.expireTime) {
-
-                       // Add the TimeoutInfo to the queue of
-                       //those that have timed out.
-
-                       if (timedOut == null) {
-                           timedOut = new Vector();
-                       }
-
-                       timedOut.addElement(timeoutInfo);
-                    }
-               }
-            }
-
-	    synchronized (indoubtTimeouts) {
-
-                timeouts = indoubtTimeouts.elements();
-
-                while (timeouts.hasMoreElements()) {
-
-                    TimeoutInfo timeoutInfo = (TimeoutInfo)timeouts.nextElement();
-
-                    // For each timeout in the list, check whether it has expired.
-                    // If so, look up the Coordinator and roll it back.
-
-                    if (new Date().getTime() > timeoutInfo.expireTime) {
+        // When woken up, advance the timeout wheel to the current time,
+        // collecting the timeouts which have expired.
 
-                       // Add the TimeoutInfo to the queue of
-                       //those that have timed out.
-
-                       if (timedOut == null) {
-                           timedOut = new Vector();
-                       }
-
-                       timedOut.addElement(timeoutInfo);
-                    }
-                }
+        if (timeoutActive) {
+            List<TimeoutInfo> timedOut =
+                timeoutWheel.expire(System.currentTimeMillis());
 
-            }
             // Enumerate the transactions which have timed out.
 
             if (timedOut != null) {
-                result = timedOut.elements();
+                result = Collections.enumeration(timedOut);
             }
-           }
+        }
 
         // The remainder of the timeout processing is not carried out here
         // because we would get deadlocked with addCoordinator or
@@ -460,14 +441,9 @@ class TimeoutManager {
      */
     static XID[] getInDoubtXids() {
         
-       synchronized (indoubtTimeouts) {
         Vector inDoubtList = new Vector();
-        
-        Enumeration timeouts = indoubtTimeouts.elements();
-
-        while (timeouts.hasMoreElements()) {
 
-            TimeoutInfo timeoutInfo = (TimeoutInfo) timeouts.nextElement();
+        for (TimeoutInfo timeoutInfo : indoubtTimeouts.values()) {
 
             // Look up the Coordinator for the transaction.
             // If there is none, then the transaction has already gone.
@@ -484,7 +460,6 @@ class TimeoutManager {
         }
         
         return (XID[]) inDoubtList.toArray(new XID[] {});
-       }
     }
 
     /**
@@ -500,12 +475,12 @@ class TimeoutManager {
      */
     static long timeLeft(Long localTID) {
 
-        TimeoutInfo timeoutInfo = (TimeoutInfo) pendingTimeouts.get(localTID);
+        TimeoutInfo timeoutInfo = pendingTimeouts.get(localTID);
         if (timeoutInfo == null)
-            timeoutInfo = (TimeoutInfo) indoubtTimeouts.get(localTID);
+            timeoutInfo = indoubtTimeouts.get(localTID);
         long result = -1;
         if (timeoutInfo != null) {
-            result = timeoutInfo.expireTime - new Date().getTime();
+            result = timeoutInfo.expireTime - System.currentTimeMillis();
             if (result < 0) {
                 result = 0;
             }
@@ -535,17 +510,16 @@ class TimeoutManager {
         // timeouts, there is nothing to quiesce so
         // shutdown immediately regardless.
 
-        if (immediate ||
-                pendingTimeouts == null || pendingTimeouts.isEmpty()) {
+        if (immediate || pendingTimeouts.isEmpty()) {
             if (timeoutThread != null) {
                 timeoutThread.stop();
             }
 
-            if (pendingTimeouts != null) {
-                pendingTimeouts.clear();
+            pendingTimeouts.clear();
+            if (timeoutWheel != null) {
+                timeoutWheel.clear();
             }
 
-            pendingTimeouts = null;
             timeoutThread = null;
             timeoutActive = false;
         } else {
@@ -618,6 +592,31 @@ class TimeoutInfo extends Object {
     Long localTID = null;
     long expireTime = 0;
     int  timeoutType = TimeoutManager.NO_TIMEOUT;
+
+    private static final AtomicIntegerFieldUpdater<TimeoutInfo> cancelledUpdater =
+        AtomicIntegerFieldUpdater.newUpdater(TimeoutInfo.class, "cancelled");
+
+    // 1 once the timeout has been cancelled.
+    private volatile int cancelled;
+
+    // The position on the TimeoutWheel, only accessed by the timeout thread.
+    TimeoutInfo next;
+    TimeoutInfo prev;
+    int  bucket = -1;
+    long remainingRounds;
+
+    /**
+     * Marks the timeout cancelled.
+     *
+     * @return true if it was not cancelled before.
+     */
+    boolean cancel() {
+        return cancelledUpdater.compareAndSet(this, 0, 1);
+    }
+
+    boolean isCancelled() {
+        return cancelled != 0;
+    }
 }
 
 /**
@@ -674,6 +673,16 @@ class TimeoutThread extends Thread {
         }
     }
 
+    /**
+     * Returns the interval between two timeout checks, which is also the
+     * length of a tick of the timeout wheel.
+     *
+     * @return the interval in milliseconds.
+     */
+    int getTimeoutInterval() {
+        return TIMEOUT_INTERVAL;
+    }
+
     /**
      * Performs timeout checking on a regular basis (every ten seconds or so).
      *
@@ -0,0 +1,256 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jts.CosTransactions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A hashed timing wheel holding the transaction timeouts of the
+ * TimeoutManager.
+ * <p>
+ * Each bucket of the wheel covers one tick, and a timeout is kept in the
+ * bucket of the tick in which it expires, together with the number of
+ * complete turns of the wheel still to go. Scheduling and cancelling only
+ * put the TimeoutInfo on a non-blocking queue, so neither takes a lock nor
+ * depends on the number of pending timeouts. The buckets themselves are only
+ * touched by the thread calling {@link #expire}, which moves the queued
+ * timeouts into, or out of, their bucket before looking at the buckets of
+ * the ticks that have elapsed.
+ * <p>
+ * As with the table scan this replaces, a timeout that has expired stays on
+ * the wheel and is reported again on each following tick until it is
+ * cancelled.
+ */
+class TimeoutWheel {
+
+    private final long tickMillis;
+
+    private final long startTime;
+
+    private final int mask;
+
+    // Bucket heads, only accessed by the expiring thread.
+    private final TimeoutInfo[] buckets;
+
+    // The next tick to be expired, only accessed by the expiring thread.
+    private long currentTick;
+
+    private final ConcurrentLinkedQueue<TimeoutInfo> additions =
+            new ConcurrentLinkedQueue<TimeoutInfo>();
+
+    private final ConcurrentLinkedQueue<TimeoutInfo> cancellations =
+            new ConcurrentLinkedQueue<TimeoutInfo>();
+
+    /**
+     * Creates a wheel.
+     *
+     * @param tickMillis  The length of a tick, i.e. the resolution of the timeouts.
+     * @param wheelSize   The number of buckets, rounded up to a power of two.
+     */
+    TimeoutWheel(long tickMillis, int wheelSize) {
+        this(tickMillis, wheelSize, System.currentTimeMillis());
+    }
+
+    TimeoutWheel(long tickMillis, int wheelSize, long startTime) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis: " + tickMillis);
+        }
+        if (wheelSize <= 0 || wheelSize > (1 << 30)) {
+            throw new IllegalArgumentException("wheelSize: " + wheelSize);
+        }
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.tickMillis = tickMillis;
+        this.startTime = startTime;
+        this.mask = size - 1;
+        this.buckets = new TimeoutInfo[size];
+    }
+
+    /**
+     * Adds the timeout to the wheel.
+     * <p>
+     * The timeout becomes visible to {@link #expire} the next time it runs.
+     *
+     * @param timeoutInfo  The timeout, which must not have been scheduled before.
+     */
+    void schedule(TimeoutInfo timeoutInfo) {
+        additions.offer(timeoutInfo);
+    }
+
+    /**
+     * Removes the timeout from the wheel. It is never reported as expired
+     * once this method returns.
+     *
+     * @param timeoutInfo  The timeout.
+     */
+    void cancel(TimeoutInfo timeoutInfo) {
+        if (timeoutInfo.cancel()) {
+            cancellations.offer(timeoutInfo);
+        }
+    }
+
+    /**
+     * Processes the ticks that have elapsed up to the given time.
+     * <p>
+     * Must not be called concurrently, normally it is only called from
+     * the timeout thread.
+     *
+     * @param now  The current time in milliseconds.
+     *
+     * @return  The timeouts that have expired, or null if there are none.
+     */
+    synchronized List<TimeoutInfo> expire(long now) {
+        transferAdditions();
+        processCancellations();
+
+        List<TimeoutInfo> expired = null;
+        List<TimeoutInfo> deferred = null;
+        long lastTick = (now - startTime) / tickMillis;
+        for (; currentTick <= lastTick; currentTick++) {
+            int index = (int) (currentTick & mask);
+            TimeoutInfo timeoutInfo = buckets[index];
+            while (timeoutInfo != null) {
+                TimeoutInfo next = timeoutInfo.next;
+                if (timeoutInfo.isCancelled()) {
+                    unlink(timeoutInfo);
+                } else if (timeoutInfo.remainingRounds > 0) {
+                    timeoutInfo.remainingRounds--;
+                } else {
+                    // Report the timeout if it has expired, and look at it
+                    // again on the next tick in any case.
+                    unlink(timeoutInfo);
+                    if (now > timeoutInfo.expireTime) {
+                        if (expired == null) {
+                            expired = new ArrayList<TimeoutInfo>();
+                        }
+                        expired.add(timeoutInfo);
+                    }
+                    if (deferred == null) {
+                        deferred = new ArrayList<TimeoutInfo>();
+                    }
+                    deferred.add(timeoutInfo);
+                }
+                timeoutInfo = next;
+            }
+        }
+        if (deferred != null) {
+            for (TimeoutInfo timeoutInfo : deferred) {
+                if (!timeoutInfo.isCancelled()) {
+                    link(timeoutInfo);
+                }
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Discards all timeouts.
+     */
+    synchronized void clear() {
+        additions.clear();
+        cancellations.clear();
+        for (int i = 0; i < buckets.length; i++) {
+            TimeoutInfo timeoutInfo = buckets[i];
+            while (timeoutInfo != null) {
+                TimeoutInfo next = timeoutInfo.next;
+                timeoutInfo.cancel();
+                timeoutInfo.next = timeoutInfo.prev = null;
+                timeoutInfo.bucket = -1;
+                timeoutInfo = next;
+            }
+            buckets[i] = null;
+        }
+    }
+
+    private void transferAdditions() {
+        TimeoutInfo timeoutInfo;
+        while ((timeoutInfo = additions.poll()) != null) {
+            // A timeout cancelled before it got here has nothing to unlink
+            // and is simply dropped.
+            if (!timeoutInfo.isCancelled() && timeoutInfo.bucket < 0) {
+                link(timeoutInfo);
+            }
+        }
+    }
+
+    private void processCancellations() {
+        TimeoutInfo timeoutInfo;
+        while ((timeoutInfo = cancellations.poll()) != null) {
+            if (timeoutInfo.bucket >= 0) {
+                unlink(timeoutInfo);
+            }
+        }
+    }
+
+    private void link(TimeoutInfo timeoutInfo) {
+        long tick = (timeoutInfo.expireTime - startTime + tickMillis - 1) / tickMillis;
+        if (tick < currentTick) {
+            tick = currentTick;
+        }
+        int index = (int) (tick & mask);
+        timeoutInfo.remainingRounds = (tick - currentTick) / buckets.length;
+        timeoutInfo.bucket = index;
+        timeoutInfo.prev = null;
+        timeoutInfo.next = buckets[index];
+        if (buckets[index] != null) {
+            buckets[index].prev = timeoutInfo;
+        }
+        buckets[index] = timeoutInfo;
+    }
+
+    private void unlink(TimeoutInfo timeoutInfo) {
+        int index = timeoutInfo.bucket;
+        if (timeoutInfo.prev != null) {
+            timeoutInfo.prev.next = timeoutInfo.next;
+        } else {
+            buckets[index] = timeoutInfo.next;
+        }
+        if (timeoutInfo.next != null) {
+            timeoutInfo.next.prev = timeoutInfo.prev;
+        }
+        timeoutInfo.next = timeoutInfo.prev = null;
+        timeoutInfo.bucket = -1;
+    }
+}
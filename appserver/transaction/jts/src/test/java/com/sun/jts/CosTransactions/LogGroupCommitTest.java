@@ -0,0 +1,139 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jts.CosTransactions;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for LogGroupCommit.
+ */
+public class LogGroupCommitTest extends TestCase {
+
+    private static final int THREADS = 8;
+
+    private static final int WRITES_PER_THREAD = 200;
+
+    private static final int RECORD_SIZE = 64;
+
+    public void testConcurrentForcesAreCoalesced() throws Exception {
+        File file = File.createTempFile("jts-group-commit", ".log");
+        file.deleteOnExit();
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            final FileChannel channel = raf.getChannel();
+            final LogGroupCommit groupCommit = new LogGroupCommit(channel, 100L);
+            final Object logLock = new Object();
+            final CountDownLatch start = new CountDownLatch(1);
+            final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+            LogGroupCommit.resetStatistics();
+
+            Thread[] threads = new Thread[THREADS];
+            for (int i = 0; i < THREADS; i++) {
+                threads[i] = new Thread() {
+                    public void run() {
+                        try {
+                            start.await();
+                            for (int j = 0; j < WRITES_PER_THREAD; j++) {
+                                long sequence;
+                                synchronized (logLock) {
+                                    channel.write(ByteBuffer.allocate(RECORD_SIZE));
+                                    sequence = groupCommit.written();
+                                }
+                                groupCommit.force(sequence);
+                            }
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, t);
+                        }
+                    }
+                };
+                threads[i].start();
+            }
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertNull(failure.get());
+            int writes = THREADS * WRITES_PER_THREAD;
+            assertEquals((long) writes * RECORD_SIZE, file.length());
+            assertEquals(writes, groupCommit.lastWritten());
+            // every write is covered by exactly one force
+            assertEquals(writes, LogGroupCommit.getForcedWriteCount());
+            assertTrue(LogGroupCommit.getForceCount() <= writes);
+            assertTrue(LogGroupCommit.getMaxBatchSize() >= 1);
+            assertTrue(LogGroupCommit.getAverageBatchSize() >= 1.0);
+        } finally {
+            raf.close();
+        }
+    }
+
+    public void testForceOfForcedWriteReturns() throws Exception {
+        File file = File.createTempFile("jts-group-commit", ".log");
+        file.deleteOnExit();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            LogGroupCommit groupCommit = new LogGroupCommit(raf.getChannel(), 0L);
+            LogGroupCommit.resetStatistics();
+            long first = groupCommit.written();
+            long second = groupCommit.written();
+            groupCommit.force(second);
+            assertEquals(1, LogGroupCommit.getForceCount());
+            assertEquals(2, LogGroupCommit.getForcedWriteCount());
+            // already covered by the previous force
+            groupCommit.force(first);
+            assertEquals(1, LogGroupCommit.getForceCount());
+            assertEquals(-1, groupCommit.lastUnforced());
+            long third = groupCommit.written();
+            assertEquals(third, groupCommit.lastUnforced());
+            groupCommit.force(third);
+            assertEquals(-1, groupCommit.lastUnforced());
+        } finally {
+            raf.close();
+        }
+    }
+}
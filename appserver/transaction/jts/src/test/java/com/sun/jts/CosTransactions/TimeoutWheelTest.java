@@ -0,0 +1,135 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jts.CosTransactions;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for TimeoutWheel.
+ */
+public class TimeoutWheelTest extends TestCase {
+
+    private static final long TICK = 1000L;
+
+    private static final long START = 1000000L;
+
+    public void testExpiresAfterDeadline() {
+        TimeoutWheel wheel = new TimeoutWheel(TICK, 8, START);
+        TimeoutInfo timeoutInfo = timeout(1L, START + 2500L);
+        wheel.schedule(timeoutInfo);
+
+        assertNull(wheel.expire(START + 1000L));
+        assertNull(wheel.expire(START + 2000L));
+        List<TimeoutInfo> expired = wheel.expire(START + 3000L);
+        assertNotNull(expired);
+        assertEquals(1, expired.size());
+        assertSame(timeoutInfo, expired.get(0));
+    }
+
+    public void testExpiredTimeoutIsReportedUntilCancelled() {
+        TimeoutWheel wheel = new TimeoutWheel(TICK, 8, START);
+        TimeoutInfo timeoutInfo = timeout(1L, START + 500L);
+        wheel.schedule(timeoutInfo);
+
+        assertEquals(1, wheel.expire(START + 1000L).size());
+        assertEquals(1, wheel.expire(START + 2000L).size());
+        // after catching up on several ticks it is reported once
+        assertEquals(1, wheel.expire(START + 9000L).size());
+
+        wheel.cancel(timeoutInfo);
+        assertTrue(timeoutInfo.isCancelled());
+        assertNull(wheel.expire(START + 10000L));
+    }
+
+    public void testCancelledTimeoutNeverExpires() {
+        TimeoutWheel wheel = new TimeoutWheel(TICK, 8, START);
+        TimeoutInfo scheduled = timeout(1L, START + 1500L);
+        TimeoutInfo queued = timeout(2L, START + 1500L);
+        wheel.schedule(scheduled);
+        assertNull(wheel.expire(START));
+
+        // one is already in its bucket, the other one is still queued
+        wheel.schedule(queued);
+        wheel.cancel(scheduled);
+        wheel.cancel(queued);
+        assertNull(wheel.expire(START + 5000L));
+    }
+
+    public void testTimeoutsBeyondOneTurn() {
+        TimeoutWheel wheel = new TimeoutWheel(TICK, 8, START);
+        TimeoutInfo near = timeout(1L, START + 3000L);
+        // lands in the same bucket, two turns later
+        TimeoutInfo far = timeout(2L, START + 3000L + 16 * TICK);
+        wheel.schedule(near);
+        wheel.schedule(far);
+
+        List<TimeoutInfo> expired = wheel.expire(START + 3001L);
+        assertEquals(1, expired.size());
+        assertSame(near, expired.get(0));
+        wheel.cancel(near);
+
+        for (long now = START + 4000L; now < far.expireTime; now += TICK) {
+            assertNull(wheel.expire(now));
+        }
+        expired = wheel.expire(far.expireTime + 1L);
+        assertEquals(1, expired.size());
+        assertSame(far, expired.get(0));
+    }
+
+    public void testClear() {
+        TimeoutWheel wheel = new TimeoutWheel(TICK, 8, START);
+        wheel.schedule(timeout(1L, START + 500L));
+        assertNull(wheel.expire(START));
+        wheel.schedule(timeout(2L, START + 500L));
+        wheel.clear();
+        assertNull(wheel.expire(START + 2000L));
+    }
+
+    private static TimeoutInfo timeout(long localTID, long expireTime) {
+        TimeoutInfo timeoutInfo = new TimeoutInfo();
+        timeoutInfo.localTID = Long.valueOf(localTID);
+        timeoutInfo.expireTime = expireTime;
+        timeoutInfo.timeoutType = TimeoutManager.ACTIVE_TIMEOUT;
+        return timeoutInfo;
+    }
+}
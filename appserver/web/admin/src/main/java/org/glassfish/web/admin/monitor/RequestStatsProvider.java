@@ -42,11 +42,11 @@ package org.glassfish.web.admin.monitor;
 
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.glassfish.admin.monitor.statistics.StripedCountStatisticImpl;
+import org.glassfish.admin.monitor.statistics.StripedTimeStatisticImpl;
 import org.glassfish.external.statistics.CountStatistic;
 import org.glassfish.external.statistics.annotations.Reset;
-import org.glassfish.external.statistics.impl.CountStatisticImpl;
 import org.glassfish.external.statistics.impl.StatisticImpl;
-import org.glassfish.external.statistics.impl.TimeStatisticImpl;
 import org.glassfish.external.probe.provider.annotations.*;
 import org.glassfish.gmbal.AMXMetadata;
 import org.glassfish.gmbal.Description;
@@ -75,33 +75,24 @@ public class RequestStatsProvider {
     private static final String PROCESSING_TIME_DESCRIPTION = 
         "Average request processing time";
 
-    private CountStatisticImpl errorCount = new CountStatisticImpl("ErrorCount",
+    private StripedCountStatisticImpl errorCount = new StripedCountStatisticImpl("ErrorCount",
             StatisticImpl.UNIT_COUNT, ERROR_COUNT_DESCRIPTION);
-    private CountStatisticImpl requestCount = new CountStatisticImpl("RequestCount",
+    private StripedCountStatisticImpl requestCount = new StripedCountStatisticImpl("RequestCount",
             StatisticImpl.UNIT_COUNT, REQUEST_COUNT_DESCRIPTION);
-    private CountStatisticImpl maxTime = new CountStatisticImpl("MaxTime",
+    private StripedCountStatisticImpl maxTime = new StripedCountStatisticImpl("MaxTime",
             StatisticImpl.UNIT_MILLISECOND, MAX_TIME_DESCRIPTION);
-    private CountStatisticImpl processingTime = new CountStatisticImpl("ProcessingTime",
+    private StripedCountStatisticImpl processingTime = new StripedCountStatisticImpl("ProcessingTime",
             StatisticImpl.UNIT_MILLISECOND, PROCESSING_TIME_DESCRIPTION);
 
-    private TimeStatisticImpl requestProcessTime = new TimeStatisticImpl(0L, 0L, 0L, 0L,
+    private StripedTimeStatisticImpl requestProcessTime = new StripedTimeStatisticImpl(0L, 0L, 0L, 0L,
             "", "", "", System.currentTimeMillis(), -1L);
     
     private String virtualServerName = null;
     private String moduleName = null;
 
     private ThreadLocal<TimeStatData> timeStatDataLocal = new ThreadLocal<TimeStatData> (){
-        TimeStatData tsd;
-
         protected TimeStatData initialValue (){
-            tsd = new TimeStatData ();
-            return tsd;
-        }
-        public TimeStatData get (){
-            if (tsd == null) {
-                tsd = new TimeStatData();
-            }
-            return tsd;
+            return new TimeStatData ();
         }
     };
 
@@ -0,0 +1,164 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.web.admin.monitor;
+
+import org.apache.naming.resources.ResourceCache;
+import org.glassfish.external.statistics.CountStatistic;
+import org.glassfish.external.statistics.impl.CountStatisticImpl;
+import org.glassfish.external.statistics.impl.StatisticImpl;
+import org.glassfish.gmbal.AMXMetadata;
+import org.glassfish.gmbal.Description;
+import org.glassfish.gmbal.ManagedAttribute;
+import org.glassfish.gmbal.ManagedObject;
+
+/**
+ * Provides the monitoring data of the static resource cache of a web module.
+ * <p>
+ * The statistics are read from the cache when they are queried, so that
+ * lookups in the cache do not fire any probe.
+ */
+@AMXMetadata(type="resource-cache-mon", group="monitoring")
+@ManagedObject
+@Description("Web Container Static Resource Cache Statistics")
+public class ResourceCacheStatsProvider {
+
+    private static final String LOOKUP_COUNT_DESCRIPTION =
+        "Number of lookups in the resource cache";
+
+    private static final String HIT_COUNT_DESCRIPTION =
+        "Number of lookups which found the resource, or its absence, cached";
+
+    private static final String HIT_RATIO_DESCRIPTION =
+        "Percentage of the lookups which were hits";
+
+    private static final String SIZE_DESCRIPTION =
+        "Current size of the resource cache in KB";
+
+    private static final String MAX_SIZE_DESCRIPTION =
+        "Maximum size of the resource cache in KB";
+
+    private String moduleName;
+    private String vsName;
+    private volatile ResourceCache resourceCache;
+
+    private CountStatisticImpl lookupCount = new CountStatisticImpl(
+        "LookupCount", StatisticImpl.UNIT_COUNT, LOOKUP_COUNT_DESCRIPTION);
+
+    private CountStatisticImpl hitCount = new CountStatisticImpl(
+        "HitCount", StatisticImpl.UNIT_COUNT, HIT_COUNT_DESCRIPTION);
+
+    private CountStatisticImpl hitRatio = new CountStatisticImpl(
+        "HitRatio", "Percent", HIT_RATIO_DESCRIPTION);
+
+    private CountStatisticImpl size = new CountStatisticImpl(
+        "Size", "KB", SIZE_DESCRIPTION);
+
+    private CountStatisticImpl maxSize = new CountStatisticImpl(
+        "MaxSize", "KB", MAX_SIZE_DESCRIPTION);
+
+    public ResourceCacheStatsProvider(String moduleName, String vsName) {
+        this.moduleName = moduleName;
+        this.vsName = vsName;
+    }
+
+    public String getModuleName() {
+        return moduleName;
+    }
+
+    public String getVSName() {
+        return vsName;
+    }
+
+    /**
+     * Sets the cache to report on, which changes when the web module is
+     * restarted.
+     */
+    public void setResourceCache(ResourceCache resourceCache) {
+        this.resourceCache = resourceCache;
+    }
+
+    @ManagedAttribute(id="lookupcount")
+    @Description(LOOKUP_COUNT_DESCRIPTION)
+    public CountStatistic getLookupCount() {
+        ResourceCache cache = resourceCache;
+        lookupCount.setCount((cache == null) ? 0L : cache.getAccessCount());
+        return lookupCount;
+    }
+
+    @ManagedAttribute(id="hitcount")
+    @Description(HIT_COUNT_DESCRIPTION)
+    public CountStatistic getHitCount() {
+        ResourceCache cache = resourceCache;
+        hitCount.setCount((cache == null) ? 0L : cache.getHitsCount());
+        return hitCount;
+    }
+
+    @ManagedAttribute(id="hitratio")
+    @Description(HIT_RATIO_DESCRIPTION)
+    public CountStatistic getHitRatio() {
+        ResourceCache cache = resourceCache;
+        long ratio = 0L;
+        if (cache != null) {
+            long lookups = cache.getAccessCount();
+            if (lookups > 0) {
+                ratio = (cache.getHitsCount() * 100) / lookups;
+            }
+        }
+        hitRatio.setCount(ratio);
+        return hitRatio;
+    }
+
+    @ManagedAttribute(id="size")
+    @Description(SIZE_DESCRIPTION)
+    public CountStatistic getSize() {
+        ResourceCache cache = resourceCache;
+        size.setCount((cache == null) ? 0L : cache.getCacheSize());
+        return size;
+    }
+
+    @ManagedAttribute(id="maxsize")
+    @Description(MAX_SIZE_DESCRIPTION)
+    public CountStatistic getMaxSize() {
+        ResourceCache cache = resourceCache;
+        maxSize.setCount((cache == null) ? 0L : cache.getCacheMaxSize());
+        return maxSize;
+    }
+}
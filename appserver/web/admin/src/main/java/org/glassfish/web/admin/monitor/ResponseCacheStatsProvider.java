@@ -0,0 +1,178 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.web.admin.monitor;
+
+import com.sun.appserv.util.cache.Cache;
+import com.sun.appserv.util.cache.Constants;
+import org.glassfish.external.statistics.CountStatistic;
+import org.glassfish.external.statistics.impl.CountStatisticImpl;
+import org.glassfish.external.statistics.impl.StatisticImpl;
+import org.glassfish.gmbal.AMXMetadata;
+import org.glassfish.gmbal.Description;
+import org.glassfish.gmbal.ManagedAttribute;
+import org.glassfish.gmbal.ManagedObject;
+
+/**
+ * Provides the monitoring data of the response cache of a web module.
+ * <p>
+ * Like with the static resource cache, the statistics are read from the
+ * cache when they are queried. The sizes are only known for caches bounded
+ * by size, such as the OffHeapResponseCache.
+ */
+@AMXMetadata(type="response-cache-mon", group="monitoring")
+@ManagedObject
+@Description("Web Container Response Cache Statistics")
+public class ResponseCacheStatsProvider {
+
+    private static final String HIT_COUNT_DESCRIPTION =
+        "Number of lookups which found the response cached";
+
+    private static final String MISS_COUNT_DESCRIPTION =
+        "Number of lookups which did not find the response cached";
+
+    private static final String HIT_RATIO_DESCRIPTION =
+        "Percentage of the lookups which were hits";
+
+    private static final String ENTRY_COUNT_DESCRIPTION =
+        "Number of responses in the response cache";
+
+    private static final String SIZE_DESCRIPTION =
+        "Current size of the cached responses in KB";
+
+    private static final String MAX_SIZE_DESCRIPTION =
+        "Maximum size of the cached responses in KB";
+
+    private String moduleName;
+    private String vsName;
+    private volatile Cache responseCache;
+
+    private CountStatisticImpl hitCount = new CountStatisticImpl(
+        "HitCount", StatisticImpl.UNIT_COUNT, HIT_COUNT_DESCRIPTION);
+
+    private CountStatisticImpl missCount = new CountStatisticImpl(
+        "MissCount", StatisticImpl.UNIT_COUNT, MISS_COUNT_DESCRIPTION);
+
+    private CountStatisticImpl hitRatio = new CountStatisticImpl(
+        "HitRatio", "Percent", HIT_RATIO_DESCRIPTION);
+
+    private CountStatisticImpl entryCount = new CountStatisticImpl(
+        "EntryCount", StatisticImpl.UNIT_COUNT, ENTRY_COUNT_DESCRIPTION);
+
+    private CountStatisticImpl size = new CountStatisticImpl(
+        "Size", "KB", SIZE_DESCRIPTION);
+
+    private CountStatisticImpl maxSize = new CountStatisticImpl(
+        "MaxSize", "KB", MAX_SIZE_DESCRIPTION);
+
+    public ResponseCacheStatsProvider(String moduleName, String vsName) {
+        this.moduleName = moduleName;
+        this.vsName = vsName;
+    }
+
+    public String getModuleName() {
+        return moduleName;
+    }
+
+    public String getVSName() {
+        return vsName;
+    }
+
+    /**
+     * Sets the cache to report on, null when the response cache of the web
+     * module is stopped.
+     */
+    public void setResponseCache(Cache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    @ManagedAttribute(id="hitcount")
+    @Description(HIT_COUNT_DESCRIPTION)
+    public CountStatistic getHitCount() {
+        hitCount.setCount(getStat(Constants.STAT_BASECACHE_HIT_COUNT));
+        return hitCount;
+    }
+
+    @ManagedAttribute(id="misscount")
+    @Description(MISS_COUNT_DESCRIPTION)
+    public CountStatistic getMissCount() {
+        missCount.setCount(getStat(Constants.STAT_BASECACHE_MISS_COUNT));
+        return missCount;
+    }
+
+    @ManagedAttribute(id="hitratio")
+    @Description(HIT_RATIO_DESCRIPTION)
+    public CountStatistic getHitRatio() {
+        long hits = getStat(Constants.STAT_BASECACHE_HIT_COUNT);
+        long lookups = hits + getStat(Constants.STAT_BASECACHE_MISS_COUNT);
+        hitRatio.setCount((lookups > 0) ? (hits * 100) / lookups : 0L);
+        return hitRatio;
+    }
+
+    @ManagedAttribute(id="entrycount")
+    @Description(ENTRY_COUNT_DESCRIPTION)
+    public CountStatistic getEntryCount() {
+        Cache cache = responseCache;
+        entryCount.setCount((cache == null) ? 0L : cache.getEntryCount());
+        return entryCount;
+    }
+
+    @ManagedAttribute(id="size")
+    @Description(SIZE_DESCRIPTION)
+    public CountStatistic getSize() {
+        size.setCount(getStat(Constants.STAT_BOUNDEDMULTILRUCACHE_CURRENT_SIZE)
+                      / Constants.KB);
+        return size;
+    }
+
+    @ManagedAttribute(id="maxsize")
+    @Description(MAX_SIZE_DESCRIPTION)
+    public CountStatistic getMaxSize() {
+        maxSize.setCount(getStat(Constants.STAT_BOUNDEDMULTILRUCACHE_MAX_SIZE)
+                         / Constants.KB);
+        return maxSize;
+    }
+
+    private long getStat(String name) {
+        Cache cache = responseCache;
+        Object value = (cache == null) ? null : cache.getStatByName(name);
+        return (value instanceof Number) ? ((Number) value).longValue() : 0L;
+    }
+}
@@ -42,11 +42,11 @@ package org.glassfish.web.admin.monitor;
 
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.glassfish.admin.monitor.statistics.StripedCountStatisticImpl;
+import org.glassfish.admin.monitor.statistics.StripedTimeStatisticImpl;
 import org.glassfish.external.statistics.CountStatistic;
 import org.glassfish.external.statistics.annotations.Reset;
-import org.glassfish.external.statistics.impl.CountStatisticImpl;
 import org.glassfish.external.statistics.impl.StatisticImpl;
-import org.glassfish.external.statistics.impl.TimeStatisticImpl;
 import org.glassfish.external.probe.provider.annotations.*;
 import org.glassfish.gmbal.AMXMetadata;
 import org.glassfish.gmbal.Description;
@@ -76,23 +76,23 @@ public class ServletInstanceStatsProvider {
 
     private static final String REQUEST_COUNT_DESCRIPTION = "Number of requests processed";
 
-    private CountStatisticImpl errorCount = new CountStatisticImpl(
+    private StripedCountStatisticImpl errorCount = new StripedCountStatisticImpl(
         "ErrorCount", StatisticImpl.UNIT_COUNT, ERROR_COUNT_DESCRIPTION);
 
-    private CountStatisticImpl requestCount = new CountStatisticImpl(
+    private StripedCountStatisticImpl requestCount = new StripedCountStatisticImpl(
         "RequestCount", StatisticImpl.UNIT_COUNT, REQUEST_COUNT_DESCRIPTION);
 
-    private CountStatisticImpl maxTime = new CountStatisticImpl("MaxTime",
+    private StripedCountStatisticImpl maxTime = new StripedCountStatisticImpl("MaxTime",
             StatisticImpl.UNIT_MILLISECOND, MAX_TIME_DESCRIPTION);
 
-    private CountStatisticImpl processingTime = new CountStatisticImpl(
+    private StripedCountStatisticImpl processingTime = new StripedCountStatisticImpl(
         "ProcessingTime", StatisticImpl.UNIT_MILLISECOND,
         PROCESSING_TIME_DESCRIPTION);
 
-    private TimeStatisticImpl requestProcessTime = new TimeStatisticImpl(
+    private StripedTimeStatisticImpl requestProcessTime = new StripedTimeStatisticImpl(
         0L, 0L, 0L, 0L, "", "", "", System.currentTimeMillis(), -1L);
 
-    private CountStatisticImpl serviceTime = new CountStatisticImpl(
+    private StripedCountStatisticImpl serviceTime = new StripedCountStatisticImpl(
         "ServiceTime", StatisticImpl.UNIT_MILLISECOND,
         SERVICE_TIME_DESCRIPTION);
 
@@ -102,17 +102,8 @@ public class ServletInstanceStatsProvider {
     private ServletStatsProvider servletStatsProvider;
 
     private ThreadLocal<TimeStatData> timeStatDataLocal = new ThreadLocal<TimeStatData> (){
-        TimeStatData tsd;
-
         protected TimeStatData initialValue (){
-            tsd = new TimeStatData ();
-            return tsd;
-        }
-        public TimeStatData get (){
-            if (tsd == null) {
-                tsd = new TimeStatData();
-            }
-            return tsd;
+            return new TimeStatData ();
         }
     };
     
@@ -42,10 +42,10 @@ package org.glassfish.web.admin.monitor;
 
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.glassfish.admin.monitor.statistics.StripedCountStatisticImpl;
+import org.glassfish.admin.monitor.statistics.StripedRangeStatisticImpl;
 import org.glassfish.external.statistics.CountStatistic;
 import org.glassfish.external.statistics.RangeStatistic;
-import org.glassfish.external.statistics.impl.CountStatisticImpl;
-import org.glassfish.external.statistics.impl.RangeStatisticImpl;
 import org.glassfish.external.statistics.impl.StatisticImpl;
 import org.glassfish.external.probe.provider.annotations.*;
 import org.glassfish.gmbal.AMXMetadata;
@@ -77,21 +77,21 @@ public class ServletStatsProvider {
 
     private String moduleName;
     private String vsName;
-    private RangeStatisticImpl activeServletsLoadedCount;
-    private CountStatisticImpl totalServletsLoadedCount;
-    private CountStatisticImpl servletProcessingTimes;
+    private StripedRangeStatisticImpl activeServletsLoadedCount;
+    private StripedCountStatisticImpl totalServletsLoadedCount;
+    private StripedCountStatisticImpl servletProcessingTimes;
     
     public ServletStatsProvider(String moduleName, String vsName) {
         this.moduleName = moduleName;
         this.vsName = vsName;
         long curTime = System.currentTimeMillis();
-        activeServletsLoadedCount = new RangeStatisticImpl(
+        activeServletsLoadedCount = new StripedRangeStatisticImpl(
             0L, 0L, 0L, "ActiveServletsLoaded", StatisticImpl.UNIT_COUNT,
             ACTIVE_SERVLETS_LOADED_DESCRIPTION, curTime, curTime);
-        totalServletsLoadedCount = new CountStatisticImpl(
+        totalServletsLoadedCount = new StripedCountStatisticImpl(
             "TotalServletsLoaded", StatisticImpl.UNIT_COUNT,
             TOTAL_SERVLETS_LOADED_DESCRIPTION);
-        servletProcessingTimes = new CountStatisticImpl(
+        servletProcessingTimes = new StripedCountStatisticImpl(
             "ServletProcessingTimes", StatisticImpl.UNIT_MILLISECOND,
             SERVLET_PROCESSING_TIMES_DESCRIPTION);
     }
@@ -126,10 +126,7 @@ public class ServletStatsProvider {
                           hostName);
         }
         if (isValidEvent(appName, hostName)) {
-            synchronized (activeServletsLoadedCount) {
-                activeServletsLoadedCount.setCurrent(
-                    activeServletsLoadedCount.getCurrent() + 1);
-            }
+            activeServletsLoadedCount.increment();
             totalServletsLoadedCount.increment();
         }   
     }
@@ -146,10 +143,7 @@ public class ServletStatsProvider {
                           hostName);
         }
         if (isValidEvent(appName, hostName)) {
-            synchronized (activeServletsLoadedCount) {
-                activeServletsLoadedCount.setCurrent(
-                    activeServletsLoadedCount.getCurrent() - 1);
-            }
+            activeServletsLoadedCount.decrement();
         }
     }
     
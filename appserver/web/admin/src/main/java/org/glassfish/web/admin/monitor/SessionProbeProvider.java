@@ -74,6 +74,19 @@ public class SessionProbeProvider {
         @ProbeParam("appName") String appName,
         @ProbeParam("hostName") String hostName) {}
 
+    @Probe(name="sessionExpirationProcessedEvent")
+    public void sessionExpirationProcessedEvent(
+        @ProbeParam("processingTime") long processingTime,
+        @ProbeParam("appName") String appName,
+        @ProbeParam("hostName") String hostName) {}
+
+    @Probe(name="sessionsReplicatedEvent")
+    public void sessionsReplicatedEvent(
+        @ProbeParam("replicatedBytes") long replicatedBytes,
+        @ProbeParam("requestCount") long requestCount,
+        @ProbeParam("appName") String appName,
+        @ProbeParam("hostName") String hostName) {}
+
     @Probe(name="sessionPersistedStartEvent")
     public void sessionPersistedStartEvent(
         @ProbeParam("sessionId") String sessionId,
@@ -44,9 +44,11 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.glassfish.external.statistics.CountStatistic;
 import org.glassfish.external.statistics.RangeStatistic;
+import org.glassfish.external.statistics.TimeStatistic;
 import org.glassfish.external.statistics.impl.CountStatisticImpl;
 import org.glassfish.external.statistics.impl.RangeStatisticImpl;
 import org.glassfish.external.statistics.impl.StatisticImpl;
+import org.glassfish.external.statistics.impl.TimeStatisticImpl;
 import org.glassfish.external.probe.provider.annotations.*;
 import org.glassfish.gmbal.AMXMetadata;
 import org.glassfish.gmbal.Description;
@@ -80,6 +82,12 @@ public class SessionStatsProvider{
         "Total number of sessions ever passivated";
     private static final String ACTIVATED_SESSIONS_DESCRIPTION =
         "Total number of sessions ever activated";
+    private static final String EXPIRATION_PROCESSING_TIME_DESCRIPTION =
+        "Duration of the passes of the background expiration of sessions";
+    private static final String REPLICATED_BYTES_DESCRIPTION =
+        "Total number of bytes of session state replicated";
+    private static final String REPLICATED_BYTES_PER_REQUEST_DESCRIPTION =
+        "Number of bytes of session state replicated per request";
 
     private String moduleName;
     private String vsName;
@@ -91,6 +99,9 @@ public class SessionStatsProvider{
     private CountStatisticImpl persistedSessionsTotal;
     private CountStatisticImpl passivatedSessionsTotal;
     private CountStatisticImpl activatedSessionsTotal;
+    private TimeStatisticImpl expirationProcessingTime;
+    private CountStatisticImpl replicatedBytesTotal;
+    private RangeStatisticImpl replicatedBytesPerRequest;
 
     public SessionStatsProvider(String moduleName, String vsName) {
         this.moduleName = moduleName;
@@ -116,6 +127,15 @@ public class SessionStatsProvider{
         activatedSessionsTotal = new CountStatisticImpl(
             "ActivatedSessionsTotal", StatisticImpl.UNIT_COUNT,
             ACTIVATED_SESSIONS_DESCRIPTION);
+        expirationProcessingTime = new TimeStatisticImpl(0L, 0L, 0L, 0L,
+            "ExpirationProcessingTime", StatisticImpl.UNIT_MILLISECOND,
+            EXPIRATION_PROCESSING_TIME_DESCRIPTION, curTime, curTime);
+        replicatedBytesTotal = new CountStatisticImpl(
+            "ReplicatedBytesTotal", StatisticImpl.UNIT_COUNT,
+            REPLICATED_BYTES_DESCRIPTION);
+        replicatedBytesPerRequest = new RangeStatisticImpl(
+            0L, 0L, 0L, "ReplicatedBytesPerRequest", StatisticImpl.UNIT_COUNT,
+            REPLICATED_BYTES_PER_REQUEST_DESCRIPTION, curTime, curTime);
     }
     
     @ManagedAttribute(id="activesessionscurrent")
@@ -142,6 +162,24 @@ public class SessionStatsProvider{
         return expiredSessionsTotal;
     }
 
+    @ManagedAttribute(id="expirationprocessingtime")
+    @Description(EXPIRATION_PROCESSING_TIME_DESCRIPTION)
+    public TimeStatistic getExpirationProcessingTime() {
+        return expirationProcessingTime;
+    }
+
+    @ManagedAttribute(id="replicatedbytestotal")
+    @Description(REPLICATED_BYTES_DESCRIPTION)
+    public CountStatistic getReplicatedBytesTotal() {
+        return replicatedBytesTotal;
+    }
+
+    @ManagedAttribute(id="replicatedbytesperrequest")
+    @Description(REPLICATED_BYTES_PER_REQUEST_DESCRIPTION)
+    public RangeStatistic getReplicatedBytesPerRequest() {
+        return replicatedBytesPerRequest;
+    }
+
     @ManagedAttribute(id="persistedsessionstotal")
     @Description(PERSISTED_SESSIONS_DESCRIPTION)
     public CountStatistic getPersistedSessionsTotal() {
@@ -225,6 +263,42 @@ public class SessionStatsProvider{
         }
     }
 
+    @ProbeListener("glassfish:web:session:sessionExpirationProcessedEvent")
+    public void sessionExpirationProcessedEvent(
+        @ProbeParam("processingTime") long processingTime,
+        @ProbeParam("appName") String appName,
+        @ProbeParam("hostName") String hostName){
+
+        if (logger.isLoggable(Level.FINEST)) {
+            logger.finest("[TM]sessionExpirationProcessedEvent received - processingTime = " +
+                          processingTime + ": appname = " + appName +
+                          ": hostName = " + hostName);
+        }
+        if (isValidEvent(appName, hostName)) {
+            expirationProcessingTime.incrementCount(processingTime);
+        }
+    }
+
+    @ProbeListener("glassfish:web:session:sessionsReplicatedEvent")
+    public void sessionsReplicatedEvent(
+        @ProbeParam("replicatedBytes") long replicatedBytes,
+        @ProbeParam("requestCount") long requestCount,
+        @ProbeParam("appName") String appName,
+        @ProbeParam("hostName") String hostName){
+
+        if (logger.isLoggable(Level.FINEST)) {
+            logger.finest("[TM]sessionsReplicatedEvent received - replicatedBytes = " +
+                          replicatedBytes + ": requestCount = " + requestCount +
+                          ": appname = " + appName + ": hostName = " + hostName);
+        }
+        if (isValidEvent(appName, hostName)) {
+            replicatedBytesTotal.increment(replicatedBytes);
+            if (requestCount > 0) {
+                replicatedBytesPerRequest.setCurrent(replicatedBytes / requestCount);
+            }
+        }
+    }
+
     @ProbeListener("glassfish:web:session:sessionPersistedStartEvent")
     public void sessionPersistedStartEvent(
         @ProbeParam("sessionId") String sessionId,
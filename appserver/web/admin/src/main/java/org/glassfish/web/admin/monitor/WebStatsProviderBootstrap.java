@@ -51,6 +51,8 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import com.sun.appserv.util.cache.Cache;
+import org.apache.naming.resources.ResourceCache;
 import org.glassfish.external.probe.provider.PluginPoint;
 import org.glassfish.external.probe.provider.StatsProviderManager;
 import javax.inject.Inject;
@@ -163,6 +165,20 @@ public class WebStatsProviderBootstrap implements PostConstruct {
                 "web-container", PluginPoint.APPLICATIONS, node,
                 websp);
 
+        ResourceCacheStatsProvider resourceCacheStatsProvider =
+                new ResourceCacheStatsProvider(monitoringName, vsName);
+        StatsProviderManager.register(
+                "web-container", PluginPoint.APPLICATIONS, node,
+                resourceCacheStatsProvider);
+        statspList.add(resourceCacheStatsProvider);
+
+        ResponseCacheStatsProvider responseCacheStatsProvider =
+                new ResponseCacheStatsProvider(monitoringName, vsName);
+        StatsProviderManager.register(
+                "web-container", PluginPoint.APPLICATIONS, node,
+                responseCacheStatsProvider);
+        statspList.add(responseCacheStatsProvider);
+
         for (String servletName : servletNames) {
              ServletInstanceStatsProvider servletInstanceStatsProvider = 
                  new ServletInstanceStatsProvider(servletName,
@@ -177,6 +193,46 @@ public class WebStatsProviderBootstrap implements PostConstruct {
         statspList.add(websp);
     }
 
+    /**
+     * Sets the static resource cache reported for the given web module,
+     * once its resources are started.
+     */
+    public void setResourceCache(String monitoringName, String vsName,
+            ResourceCache resourceCache) {
+
+        Map<String, Queue<Object>> statsProviderMap = vsNameToStatsProviderMap.get(vsName);
+        Queue<Object> statsProviders = (statsProviderMap == null) ?
+                null : statsProviderMap.get(monitoringName);
+        if (statsProviders == null) {
+            return;
+        }
+        for (Object statsProvider : statsProviders) {
+            if (statsProvider instanceof ResourceCacheStatsProvider) {
+                ((ResourceCacheStatsProvider) statsProvider).setResourceCache(resourceCache);
+            }
+        }
+    }
+
+    /**
+     * Sets the response cache reported for the given web module, null once
+     * it is stopped.
+     */
+    public void setResponseCache(String monitoringName, String vsName,
+            Cache responseCache) {
+
+        Map<String, Queue<Object>> statsProviderMap = vsNameToStatsProviderMap.get(vsName);
+        Queue<Object> statsProviders = (statsProviderMap == null) ?
+                null : statsProviderMap.get(monitoringName);
+        if (statsProviders == null) {
+            return;
+        }
+        for (Object statsProvider : statsProviders) {
+            if (statsProvider instanceof ResponseCacheStatsProvider) {
+                ((ResponseCacheStatsProvider) statsProvider).setResponseCache(responseCache);
+            }
+        }
+    }
+
     public void unregisterApplicationStatsProviders(String monitoringName,
             String vsName) {
 
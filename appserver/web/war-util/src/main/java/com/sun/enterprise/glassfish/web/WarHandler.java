@@ -322,6 +322,7 @@ public class WarHandler extends AbstractArchiveHandler {
                     // is empty.
                 }
             }
+            cloader.indexJars();
         }
     }
 
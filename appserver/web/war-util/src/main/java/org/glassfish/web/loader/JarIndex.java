@@ -0,0 +1,211 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.web.loader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Index of the packages contained in the JAR files of a web application
+ * class loader, used to probe only the JARs that may contain a resource
+ * instead of every JAR in turn.
+ * <p>
+ * A package is the part of a resource path up to and including its last
+ * <code>'/'</code>, so <code>org/foo/Bar.class</code> and
+ * <code>org/foo/bar/</code> both belong to <code>org/foo/</code>. For each
+ * package the index keeps the positions of the JARs holding an entry in
+ * it, in search order.
+ * <p>
+ * The index can be stored in a file and loaded again as long as the JARs
+ * are the same, so that restarts do not need to scan them again.
+ */
+final class JarIndex {
+
+    private static final int VERSION = 1;
+
+    private static final int[] NO_JARS = new int[0];
+
+    private final Map<String, int[]> packages;
+
+    private JarIndex(Map<String, int[]> packages) {
+        this.packages = packages;
+    }
+
+    /**
+     * Returns the positions of the JARs which may contain the given
+     * resource path, in search order.
+     */
+    int[] getJars(String path) {
+        int[] jars = packages.get(getPackage(path));
+        return (jars == null) ? NO_JARS : jars;
+    }
+
+    /**
+     * Scans the entries of the given JAR files.
+     */
+    static JarIndex build(JarFile[] jarFiles) {
+        Map<String, int[]> packages = new HashMap<String, int[]>();
+        for (int i = 0; i < jarFiles.length; i++) {
+            Enumeration<JarEntry> entries = jarFiles[i].entries();
+            while (entries.hasMoreElements()) {
+                String pkg = getPackage(entries.nextElement().getName());
+                int[] jars = packages.get(pkg);
+                if (jars == null) {
+                    packages.put(pkg, new int[] { i });
+                } else if (jars[jars.length - 1] != i) {
+                    int[] result = new int[jars.length + 1];
+                    System.arraycopy(jars, 0, result, 0, jars.length);
+                    result[jars.length] = i;
+                    packages.put(pkg, result);
+                }
+            }
+        }
+        return new JarIndex(packages);
+    }
+
+    /**
+     * Loads an index stored by {@link #store}.
+     *
+     * @return the index, or <code>null</code> if there is no index file or
+     * if it was stored for JARs other than the given ones
+     */
+    static JarIndex load(File indexFile, File[] jars) throws IOException {
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(indexFile)));
+        try {
+            if (in.readInt() != VERSION || in.readInt() != jars.length) {
+                return null;
+            }
+            for (File jar : jars) {
+                if (!jar.getAbsolutePath().equals(in.readUTF())
+                        || jar.length() != in.readLong()
+                        || jar.lastModified() != in.readLong()) {
+                    return null;
+                }
+            }
+            int size = in.readInt();
+            Map<String, int[]> packages = new HashMap<String, int[]>(
+                    Math.max(16, (int) (size / .75f) + 1));
+            for (int i = 0; i < size; i++) {
+                String pkg = in.readUTF();
+                int[] positions = new int[in.readInt()];
+                for (int j = 0; j < positions.length; j++) {
+                    positions[j] = in.readInt();
+                    if (positions[j] < 0 || positions[j] >= jars.length) {
+                        return null;
+                    }
+                }
+                packages.put(pkg, positions);
+            }
+            return new JarIndex(packages);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Stores this index for the given JARs, replacing any previous index
+     * file.
+     */
+    void store(File indexFile, File[] jars) throws IOException {
+        File dir = indexFile.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Unable to create directory " + dir);
+        }
+        File tmpFile = new File(dir, indexFile.getName() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(tmpFile)));
+        try {
+            out.writeInt(VERSION);
+            out.writeInt(jars.length);
+            for (File jar : jars) {
+                out.writeUTF(jar.getAbsolutePath());
+                out.writeLong(jar.length());
+                out.writeLong(jar.lastModified());
+            }
+            out.writeInt(packages.size());
+            for (Map.Entry<String, int[]> entry : packages.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().length);
+                for (int position : entry.getValue()) {
+                    out.writeInt(position);
+                }
+            }
+        } finally {
+            out.close();
+        }
+        if (!tmpFile.renameTo(indexFile)) {
+            // renameTo does not replace an existing file on all platforms
+            if (!indexFile.delete() || !tmpFile.renameTo(indexFile)) {
+                tmpFile.delete();
+                throw new IOException("Unable to write " + indexFile);
+            }
+        }
+    }
+
+    /**
+     * Returns the package of the given JAR entry name or resource path.
+     * A directory belongs to the package of its parent, since
+     * <code>JarFile.getJarEntry("org/foo")</code> also finds the entry of
+     * the directory <code>org/foo/</code>.
+     */
+    static String getPackage(String name) {
+        int end = name.length();
+        if (end > 0 && name.charAt(end - 1) == '/') {
+            end--;
+        }
+        return name.substring(0, name.lastIndexOf('/', end - 1) + 1);
+    }
+}
@@ -301,4 +301,11 @@ public class LogFacade {
             message = "Unable to determine TLD resources for [{0}] tag library, because class loader [{1}] for [{2}] is not an instance of java.net.URLClassLoader",
             level = "WARNING")
     public static final String UNABLE_TO_DETERMINE_TLD_RESOURCES = prefix + "00039";
+
+    @LogMessageInfo(
+            message = "Unable to store the JAR index {0}: {1}",
+            level = "WARNING",
+            cause = "An IOException is encountered",
+            action = "Check that the work directory of the application is writable")
+    public static final String UNABLE_TO_STORE_JAR_INDEX = prefix + "00040";
 }
@@ -176,6 +176,20 @@ public class WebappClassLoader
     private static final Permission ALL_PERMISSION = new AllPermission();
 
 
+    /**
+     * Name of the file in the work directory where the index of the
+     * packages in the JAR files is stored.
+     */
+    private static final String JAR_INDEX_FILE = "webapp-jars.index";
+
+
+    static {
+        // Classes are loaded under a lock per class name instead of the
+        // class loader lock
+        registerAsParallelCapable();
+    }
+
+
     // ----------------------------------------------------- Instance Variables
 
     // START PE 4989455
@@ -261,6 +275,18 @@ public class WebappClassLoader
      */
     protected File[] jarRealFiles = new File[0];
 
+    /**
+     * Index of the packages in the JARs, null while the JARs have not been
+     * indexed.
+     */
+    private volatile JarIndex jarIndex = null;
+
+    /**
+     * File where the JAR index is stored, null if there is no work
+     * directory.
+     */
+    private File jarIndexFile = null;
+
     /**
      * The path which will be monitored for added Jar files.
      */
@@ -680,6 +706,7 @@ public class WebappClassLoader
      */
     public void setWorkDir(File workDir) {
         this.loaderDir = new File(workDir, "loader_" + this.hashCode());
+        this.jarIndexFile = new File(workDir, JAR_INDEX_FILE);
         try {
             canonicalLoaderDir = this.loaderDir.getCanonicalPath();
             if (!canonicalLoaderDir.endsWith(File.separator)) {
@@ -865,6 +892,55 @@ public class WebappClassLoader
         }
         result4[jarRealFiles.length] = file;
         jarRealFiles = result4;
+
+        // The index no longer covers all the JARs
+        jarIndex = null;
+    }
+
+
+    /**
+     * Index the packages in the JARs added so far, so that resources are
+     * only looked up in the JARs which contain their package. The index is
+     * loaded from the work directory when it was stored there for the same
+     * JARs, and built and stored otherwise.
+     * This is to be called once all the JARs have been added.
+     */
+    public synchronized void indexJars() {
+        if (jarFiles.length == 0) {
+            return;
+        }
+
+        JarIndex index = null;
+        if (jarIndexFile != null) {
+            try {
+                index = JarIndex.load(jarIndexFile, jarRealFiles);
+            } catch (IOException e) {
+                if (logger.isLoggable(Level.FINE)) {
+                    logger.log(Level.FINE, "Ignoring JAR index " + jarIndexFile, e);
+                }
+            }
+        }
+
+        if (index == null) {
+            synchronized (jarFilesLock) {
+                for (JarFile jarFile : jarFiles) {
+                    if (jarFile == null) {
+                        // JARs are closed, the lookups scan them all
+                        return;
+                    }
+                }
+                index = JarIndex.build(jarFiles);
+            }
+            if (jarIndexFile != null) {
+                try {
+                    index.store(jarIndexFile, jarRealFiles);
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, LogFacade.UNABLE_TO_STORE_JAR_INDEX,
+                               new Object[] {jarIndexFile, e.toString()});
+                }
+            }
+        }
+        jarIndex = index;
     }
 
 
@@ -1034,7 +1110,7 @@ public class WebappClassLoader
                 // Create the code source object
                 CodeSource codeSource =
                     new CodeSource(entry.codeBase, entry.certificates);
-                synchronized (this) {
+                synchronized (getClassLoadingLock(name)) {
                     if (entry.loadedClass == null) {
                         /* START GlassFish [680]
                         clazz = defineClass(name, entry.binaryContent, 0,
@@ -1498,77 +1574,98 @@ public class WebappClassLoader
      * @exception ClassNotFoundException if the class was not found
      */
     @Override
-    protected synchronized Class<?> loadClass(String name, boolean resolve)
+    protected Class<?> loadClass(String name, boolean resolve)
         throws ClassNotFoundException {
 
-        if (logger.isLoggable(Level.FINER)) {
-            logger.log(Level.FINER, "loadClass(" + name + ")");
-        }
+        synchronized (getClassLoadingLock(name)) {
+            if (logger.isLoggable(Level.FINER)) {
+                logger.log(Level.FINER, "loadClass(" + name + ")");
+            }
 
-        Class<?> clazz = null;
+            Class<?> clazz = null;
 
-        // Don't load classes if class loader is stopped
-        if (!started) {
-            throw new IllegalStateException(
-                getString(LogFacade.NOT_STARTED, name));
-        }
+            // Don't load classes if class loader is stopped
+            if (!started) {
+                throw new IllegalStateException(
+                    getString(LogFacade.NOT_STARTED, name));
+            }
 
-        // (0) Check our previously loaded local class cache
-        clazz = findLoadedClass0(name);
-        if (clazz != null) {
-            if (logger.isLoggable(Level.FINER)) {
-                logger.log(Level.FINER, "  Returning class from cache");
+            // (0) Check our previously loaded local class cache
+            clazz = findLoadedClass0(name);
+            if (clazz != null) {
+                if (logger.isLoggable(Level.FINER)) {
+                    logger.log(Level.FINER, "  Returning class from cache");
+                }
+                if (resolve)
+                    resolveClass(clazz);
+                return (clazz);
             }
-            if (resolve)
-                resolveClass(clazz);
-            return (clazz);
-        }
 
-        // (0.1) Check our previously loaded class cache
-        clazz = findLoadedClass(name);
-        if (clazz != null) {
-            if (logger.isLoggable(Level.FINER)) {
-                logger.log(Level.FINER, "  Returning class from cache");
+            // (0.1) Check our previously loaded class cache
+            clazz = findLoadedClass(name);
+            if (clazz != null) {
+                if (logger.isLoggable(Level.FINER)) {
+                    logger.log(Level.FINER, "  Returning class from cache");
+                }
+                if (resolve)
+                    resolveClass(clazz);
+                return (clazz);
             }
-            if (resolve)
-                resolveClass(clazz);
-            return (clazz);
-        }
 
-        // (0.5) Permission to access this class when using a SecurityManager
-        if ( securityManager != null && packageDefinitionEnabled){
-            int i = name.lastIndexOf('.');
-            if (i >= 0) {
-                try {
-                    securityManager.checkPackageAccess(name.substring(0,i));
-                } catch (SecurityException se) {
-                    String error = getString(LogFacade.SECURITY_EXCEPTION, name);
-                    if (logger.isLoggable(Level.INFO)) {
-                        logger.log(Level.INFO, error, se);
+            // (0.5) Permission to access this class when using a SecurityManager
+            if ( securityManager != null && packageDefinitionEnabled){
+                int i = name.lastIndexOf('.');
+                if (i >= 0) {
+                    try {
+                        securityManager.checkPackageAccess(name.substring(0,i));
+                    } catch (SecurityException se) {
+                        String error = getString(LogFacade.SECURITY_EXCEPTION, name);
+                        if (logger.isLoggable(Level.INFO)) {
+                            logger.log(Level.INFO, error, se);
+                        }
+                        throw new ClassNotFoundException(error, se);
                     }
-                    throw new ClassNotFoundException(error, se);
                 }
             }
-        }
 
-        ClassLoader delegateLoader = parent;
-        if (delegateLoader == null) {
-            delegateLoader = system;
-        }
+            ClassLoader delegateLoader = parent;
+            if (delegateLoader == null) {
+                delegateLoader = system;
+            }
 
-        boolean delegateLoad = delegate || filter(name);
+            boolean delegateLoad = delegate || filter(name);
 
-        // (1) Delegate to our parent if requested
-        if (delegateLoad) {
-            // Check delegate first
+            // (1) Delegate to our parent if requested
+            if (delegateLoad) {
+                // Check delegate first
+                if (logger.isLoggable(Level.FINER)) {
+                    logger.log(Level.FINER, "  Delegating to classloader1 " + delegateLoader);
+                }
+                try {
+                    clazz = delegateLoader.loadClass(name);
+                    if (clazz != null) {
+                        if (logger.isLoggable(Level.FINER)) {
+                            logger.log(Level.FINER, "  Loading class from delegate");
+                        }
+                        if (resolve)
+                            resolveClass(clazz);
+                        return clazz;
+                    }
+                } catch (ClassNotFoundException e) {
+                    // Ignore
+                }
+            }
+
+
+            // (2) Search local repositories
             if (logger.isLoggable(Level.FINER)) {
-                logger.log(Level.FINER, "  Delegating to classloader1 " + delegateLoader);
+                logger.log(Level.FINER, "  Searching local repositories");
             }
             try {
-                clazz = delegateLoader.loadClass(name);
+                clazz = findClass(name);
                 if (clazz != null) {
                     if (logger.isLoggable(Level.FINER)) {
-                        logger.log(Level.FINER, "  Loading class from delegate");
+                        logger.log(Level.FINER, "  Loading class from local repository");
                     }
                     if (resolve)
                         resolveClass(clazz);
@@ -1577,48 +1674,29 @@ public class WebappClassLoader
             } catch (ClassNotFoundException e) {
                 // Ignore
             }
-        }
 
-
-        // (2) Search local repositories
-        if (logger.isLoggable(Level.FINER)) {
-            logger.log(Level.FINER, "  Searching local repositories");
-        }
-        try {
-            clazz = findClass(name);
-            if (clazz != null) {
+            // (3) Delegate if class was not found locally
+            if (!delegateLoad) {
                 if (logger.isLoggable(Level.FINER)) {
-                    logger.log(Level.FINER, "  Loading class from local repository");
+                    logger.log(Level.FINER, "  Delegating to classloader " + delegateLoader);
                 }
-                if (resolve)
-                    resolveClass(clazz);
-                return clazz;
-            }
-        } catch (ClassNotFoundException e) {
-            // Ignore
-        }
-
-        // (3) Delegate if class was not found locally
-        if (!delegateLoad) {
-            if (logger.isLoggable(Level.FINER)) {
-                logger.log(Level.FINER, "  Delegating to classloader " + delegateLoader);
-            }
-            try {
-                clazz = delegateLoader.loadClass(name);
-                if (clazz != null) {
-                    if (logger.isLoggable(Level.FINER)) {
-                        logger.log(Level.FINER, "  Loading class from delegate");
+                try {
+                    clazz = delegateLoader.loadClass(name);
+                    if (clazz != null) {
+                        if (logger.isLoggable(Level.FINER)) {
+                            logger.log(Level.FINER, "  Loading class from delegate");
+                        }
+                        if (resolve)
+                            resolveClass(clazz);
+                        return clazz;
                     }
-                    if (resolve)
-                        resolveClass(clazz);
-                    return clazz;
+                } catch (ClassNotFoundException e) {
+                    // Ignore
                 }
-            } catch (ClassNotFoundException e) {
-                // Ignore
             }
-        }
 
-        throw new ClassNotFoundException(name);
+            throw new ClassNotFoundException(name);
+        }
     }
 
 
@@ -1998,10 +2076,7 @@ public class WebappClassLoader
          */
         while(loadedClasses.hasNext()) {
             ResourceEntry entry = loadedClasses.next();
-            Class<?> clazz = null;
-            synchronized(this) {
-                clazz = entry.loadedClass;
-            }
+            Class<?> clazz = entry.loadedClass;
             if (clazz != null) {
                 try {
                     Field[] fields = clazz.getDeclaredFields();
@@ -2023,10 +2098,7 @@ public class WebappClassLoader
         loadedClasses = values.iterator();
         while (loadedClasses.hasNext()) {
             ResourceEntry entry = loadedClasses.next();
-            Class<?> clazz = null;
-            synchronized(this) {
-                clazz = entry.loadedClass;
-            }
+            Class<?> clazz = entry.loadedClass;
             if (clazz != null) {
                 try {
                     Field[] fields = clazz.getDeclaredFields();
@@ -2583,7 +2655,7 @@ public class WebappClassLoader
         if (entry == null)
                throw new ClassNotFoundException(name);
 
-        synchronized (this) {
+        synchronized (getClassLoadingLock(name)) {
             Class<?> clazz = entry.loadedClass;
             if (clazz != null)
                 return entry;
@@ -2686,10 +2758,10 @@ public class WebappClassLoader
 
         entry = findResourceInternalFromRepositories(name, path);
 
+        // JarFile lookups are thread safe, and the JARs are only opened
+        // and closed under jarFilesLock
         if (entry == null) {
-            synchronized (jarFiles) {
-                entry = findResourceInternalFromJars(name, path);
-            }
+            entry = findResourceInternalFromJars(name, path);
         }
 
         if (entry == null) {
@@ -2817,7 +2889,17 @@ public class WebappClassLoader
 
         int jarFilesLength = jarFiles.length;
 
-        for (int i=0; (entry == null) && (i < jarFilesLength); i++) {
+        // Only probe the JARs containing the package of the resource
+        JarIndex index = jarIndex;
+        int[] indexedJars = (index == null) ? null : index.getJars(path);
+        int searchLength =
+            (indexedJars == null) ? jarFilesLength : indexedJars.length;
+
+        for (int k=0; (entry == null) && (k < searchLength); k++) {
+            int i = (indexedJars == null) ? k : indexedJars[k];
+            if (i >= jarFilesLength) {
+                break;
+            }
             jarEntry = jarFiles[i].getJarEntry(path);
 
             if (jarEntry != null) {
@@ -3041,9 +3123,7 @@ public class WebappClassLoader
 
         ResourceEntry entry = resourceEntries.get(name);
         if (entry != null) {
-            synchronized(this) {
-                return entry.loadedClass;
-            }
+            return entry.loadedClass;
         }
         return (null);  // FIXME - findLoadedResource()
 
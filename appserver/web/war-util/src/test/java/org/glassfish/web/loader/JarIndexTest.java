@@ -0,0 +1,193 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.web.loader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JarIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File[] jars;
+
+    private File indexFile;
+
+    @Before
+    public void setUp() throws IOException {
+        jars = new File[] {
+            createJar("a.jar", "org/foo/A.class", "org/foo/bar/", "META-INF/MANIFEST.MF"),
+            createJar("b.jar", "org/foo/B.class", "org/baz/C.class", "root.properties")
+        };
+        indexFile = new File(folder.newFolder("work"), "webapp-jars.index");
+    }
+
+    @Test
+    public void testGetPackage() {
+        assertEquals("org/foo/", JarIndex.getPackage("org/foo/Bar.class"));
+        assertEquals("org/foo/", JarIndex.getPackage("org/foo/bar/"));
+        assertEquals("org/foo/", JarIndex.getPackage("org/foo/bar"));
+        assertEquals("", JarIndex.getPackage("root.properties"));
+        assertEquals("", JarIndex.getPackage("org/"));
+    }
+
+    @Test
+    public void testBuild() throws IOException {
+        JarIndex index = build(jars);
+
+        assertArrayEquals(new int[] { 0, 1 }, index.getJars("org/foo/X.class"));
+        // the directory entry is in the package of its parent
+        assertArrayEquals(new int[] { 0, 1 }, index.getJars("org/foo/bar"));
+        assertArrayEquals(new int[] { 1 }, index.getJars("org/baz/C.class"));
+        assertArrayEquals(new int[] { 1 }, index.getJars("root.properties"));
+        assertArrayEquals(new int[] { 0 }, index.getJars("META-INF/MANIFEST.MF"));
+        assertEquals(0, index.getJars("com/other/D.class").length);
+    }
+
+    @Test
+    public void testStoreAndLoad() throws IOException {
+        build(jars).store(indexFile, jars);
+        assertTrue(indexFile.isFile());
+        assertFalse(new File(indexFile.getPath() + ".tmp").exists());
+
+        JarIndex index = JarIndex.load(indexFile, jars);
+
+        assertNotNull(index);
+        assertArrayEquals(new int[] { 0, 1 }, index.getJars("org/foo/X.class"));
+        assertArrayEquals(new int[] { 1 }, index.getJars("org/baz/C.class"));
+        assertArrayEquals(new int[] { 0 }, index.getJars("META-INF/MANIFEST.MF"));
+        assertEquals(0, index.getJars("com/other/D.class").length);
+    }
+
+    @Test
+    public void testStoreReplacesIndex() throws IOException {
+        build(jars).store(indexFile, jars);
+        File[] reversed = { jars[1], jars[0] };
+        build(reversed).store(indexFile, reversed);
+
+        assertNull(JarIndex.load(indexFile, jars));
+        JarIndex index = JarIndex.load(indexFile, reversed);
+        assertNotNull(index);
+        assertArrayEquals(new int[] { 0 }, index.getJars("org/baz/C.class"));
+    }
+
+    @Test
+    public void testNoIndexFile() throws IOException {
+        assertNull(JarIndex.load(indexFile, jars));
+    }
+
+    @Test
+    public void testInvalidatedByPath() throws IOException {
+        build(jars).store(indexFile, jars);
+        File moved = new File(folder.getRoot(), "moved.jar");
+        assertTrue(jars[1].renameTo(moved));
+
+        assertNull(JarIndex.load(indexFile, new File[] { jars[0], moved }));
+        assertNull(JarIndex.load(indexFile, new File[] { jars[0] }));
+    }
+
+    @Test
+    public void testInvalidatedBySize() throws IOException {
+        build(jars).store(indexFile, jars);
+        long lastModified = jars[1].lastModified();
+        createJar("b.jar", "org/foo/B.class", "org/baz/C.class", "root.properties",
+                  "org/added/D.class");
+        assertTrue(jars[1].setLastModified(lastModified));
+
+        assertNull(JarIndex.load(indexFile, jars));
+    }
+
+    @Test
+    public void testInvalidatedByLastModified() throws IOException {
+        build(jars).store(indexFile, jars);
+        assertTrue(jars[0].setLastModified(jars[0].lastModified() + 10000));
+
+        assertNull(JarIndex.load(indexFile, jars));
+    }
+
+    private static JarIndex build(File[] jars) throws IOException {
+        JarFile[] jarFiles = new JarFile[jars.length];
+        for (int i = 0; i < jars.length; i++) {
+            jarFiles[i] = new JarFile(jars[i]);
+        }
+        try {
+            return JarIndex.build(jarFiles);
+        } finally {
+            for (JarFile jarFile : jarFiles) {
+                jarFile.close();
+            }
+        }
+    }
+
+    private File createJar(String name, String... entries) throws IOException {
+        File jar = new File(folder.getRoot(), name);
+        JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+        try {
+            for (String entry : entries) {
+                out.putNextEntry(new JarEntry(entry));
+                if (!entry.endsWith("/")) {
+                    out.write(entry.getBytes("UTF-8"));
+                }
+                out.closeEntry();
+            }
+        } finally {
+            out.close();
+        }
+        return jar;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.apache.catalina.connector;
+
+import org.apache.catalina.core.StandardContext;
+import org.apache.catalina.core.StandardEngine;
+import org.apache.catalina.core.StandardHost;
+import org.apache.catalina.core.StandardWrapper;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.http.HttpResponsePacket;
+import org.glassfish.grizzly.http.Protocol;
+import org.glassfish.grizzly.http.server.util.MappingData;
+import org.glassfish.grizzly.nio.transport.TCPNIOConnection;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a trivial servlet request through the StandardEngineValve,
+ * StandardHostValve, StandardContextValve and StandardWrapperValve, with
+ * the Catalina request and response set up and recycled the way the
+ * CoyoteAdapter does it. Run with <code>-prof gc</code> to see the bytes
+ * allocated per request.
+ * <p>
+ * With <code>pooled</code> objects the request and response are reused
+ * across requests, as they are while they stay attached to the Grizzly
+ * request; with <code>fresh</code> objects they are created for every
+ * request, as they are for the first request on a Grizzly request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestAllocationBenchmark {
+
+    @Param({"pooled", "fresh"})
+    public String objects;
+
+    private StandardEngine engine;
+
+    private StandardHost host;
+
+    private StandardContext context;
+
+    private StandardWrapper wrapper;
+
+    private org.glassfish.grizzly.http.server.Request grizzlyRequest;
+
+    private org.glassfish.grizzly.http.server.Response grizzlyResponse;
+
+    private MappingData mappingData;
+
+    private Request request;
+
+    private Response response;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        engine = new StandardEngine();
+        engine.setName("benchmark");
+        engine.setDefaultHost("localhost");
+        host = new StandardHost();
+        host.setName("localhost");
+        engine.addChild(host);
+        context = new StandardContext();
+        context.setName("/app");
+        context.setPath("/app");
+        host.addChild(context);
+        wrapper = new StandardWrapper();
+        wrapper.setName("hello");
+        wrapper.setServlet(new HelloServlet());
+        context.addChild(wrapper);
+        context.setAvailable(true);
+
+        HttpRequestPacket requestPacket = HttpRequestPacket.builder()
+                .method("GET").uri("/app/hello").protocol(Protocol.HTTP_1_1)
+                .host("localhost").build();
+        HttpResponsePacket responsePacket =
+                HttpResponsePacket.builder(requestPacket).build();
+        // Not attached to a channel, the servlet does not read or write
+        FilterChainContext ctx = FilterChainContext.create(new TCPNIOConnection(
+                TCPNIOTransportBuilder.newInstance().build(), null));
+        grizzlyRequest = org.glassfish.grizzly.http.server.Request.create();
+        grizzlyRequest.initialize(requestPacket, ctx, null);
+        grizzlyResponse = grizzlyRequest.getResponse();
+        grizzlyResponse.initialize(grizzlyRequest, responsePacket, ctx, null, null);
+        mappingData = new MappingData();
+
+        request = new Request();
+        response = new Response();
+        request.setResponse(response);
+        response.setRequest(request);
+    }
+
+    @Benchmark
+    public int service() throws Exception {
+        Request request;
+        Response response;
+        if ("fresh".equals(objects)) {
+            request = new Request();
+            response = new Response();
+            request.setResponse(response);
+            response.setRequest(request);
+        } else {
+            request = this.request;
+            response = this.response;
+        }
+
+        request.setCoyoteRequest(grizzlyRequest);
+        response.setCoyoteResponse(grizzlyResponse);
+        try {
+            // Done by the Grizzly mapper and CoyoteAdapter#postParseRequest
+            mappingData.host = host;
+            mappingData.context = context;
+            mappingData.wrapper = wrapper;
+            mappingData.requestPath.setString("/hello");
+            mappingData.wrapperPath.setString("/hello");
+            request.setMappingData(mappingData);
+            request.setContext(context);
+            request.setWrapper(wrapper);
+
+            engine.getPipeline().getBasic().invoke(request, response);
+            return response.getStatus();
+        } finally {
+            request.recycle();
+            response.recycle();
+        }
+    }
+
+    /**
+     * A servlet that neither reads the request nor writes a body.
+     */
+    public static class HelloServlet extends HttpServlet {
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) {
+            resp.setStatus(HttpServletResponse.SC_NO_CONTENT);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.apache.catalina.session;
+
+import org.apache.catalina.SessionSerializer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing and reading the attributes of a session with the
+ * standard Java serialization (<code>java</code>) and the
+ * CompactSessionSerializer (<code>compact</code>), the way StandardManager
+ * and the session stores persist them: the attribute count, then the name
+ * and value of each attribute.
+ * <p>
+ * The <code>cart</code> session holds a shopping cart of small objects of
+ * a few application classes that declare their serialVersionUID, whose
+ * descriptors the compact codec writes in full, the <code>plainCart</code>
+ * session the same cart of classes that do not, the <code>strings</code>
+ * session a map of strings, and the <code>mixed</code> session the cart
+ * and the strings along with a few boxed values.
+ * <p>
+ * The <code>bytes</code> counter of <code>write</code> is the number of
+ * bytes written per second; divided by the score it is the size of the
+ * serialized session.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionSerializerBenchmark {
+
+    @Param({"java", "compact"})
+    public String serializer;
+
+    @Param({"cart", "plainCart", "strings", "mixed"})
+    public String session;
+
+    @Param({"20"})
+    public int entries;
+
+    private SessionSerializer impl;
+
+    private Map<String, Object> attributes;
+
+    private byte[] serialized;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        if ("compact".equals(serializer)) {
+            impl = new CompactSessionSerializer();
+        } else {
+            impl = new JavaSessionSerializer();
+        }
+
+        attributes = new HashMap<String, Object>();
+        if ("cart".equals(session) || "mixed".equals(session)) {
+            attributes.put("cart", createCart(entries));
+        }
+        if ("plainCart".equals(session)) {
+            attributes.put("cart", createPlainCart(entries));
+        }
+        if ("strings".equals(session) || "mixed".equals(session)) {
+            Map<String, String> preferences = new HashMap<String, String>();
+            for (int i = 0; i < entries; i++) {
+                preferences.put("preference." + i, "value of preference " + i);
+            }
+            attributes.put("preferences", preferences);
+        }
+        if ("mixed".equals(session)) {
+            attributes.put("userId", Long.valueOf(4711));
+            attributes.put("locale", "en_US");
+            attributes.put("lastVisit", new Date());
+            attributes.put("visits", Integer.valueOf(42));
+        }
+
+        serialized = serialize();
+    }
+
+    /**
+     * Counts the bytes written by <code>write</code>.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class WrittenBytes {
+
+        public long bytes;
+    }
+
+    @Benchmark
+    public byte[] write(WrittenBytes written) throws IOException {
+        byte[] bytes = serialize();
+        written.bytes += bytes.length;
+        return bytes;
+    }
+
+    private byte[] serialize() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(1024);
+        ObjectOutputStream oos = impl.createObjectOutputStream(bos);
+        try {
+            oos.writeObject(Integer.valueOf(attributes.size()));
+            for (Map.Entry<String, Object> e : attributes.entrySet()) {
+                oos.writeObject(e.getKey());
+                oos.writeObject(e.getValue());
+            }
+        } finally {
+            oos.close();
+        }
+        return bos.toByteArray();
+    }
+
+    @Benchmark
+    public Map<String, Object> read() throws IOException, ClassNotFoundException {
+        ObjectInputStream ois = impl.createObjectInputStream(
+                new ByteArrayInputStream(serialized), getClass().getClassLoader());
+        try {
+            int n = ((Integer) ois.readObject()).intValue();
+            Map<String, Object> result = new HashMap<String, Object>(n * 2);
+            for (int i = 0; i < n; i++) {
+                result.put((String) ois.readObject(), ois.readObject());
+            }
+            return result;
+        } finally {
+            ois.close();
+        }
+    }
+
+    private static Cart createCart(int items) {
+        Cart cart = new Cart();
+        cart.customer = new Customer("customer", "customer@example.com");
+        for (int i = 0; i < items; i++) {
+            Product product = new Product("SKU-" + i, "Product " + i,
+                    BigDecimal.valueOf(100 + i, 2));
+            cart.items.add(new CartItem(product, 1 + i % 3));
+        }
+        return cart;
+    }
+
+    private static PlainCart createPlainCart(int items) {
+        PlainCart cart = new PlainCart();
+        cart.customer = new PlainCustomer("customer", "customer@example.com");
+        for (int i = 0; i < items; i++) {
+            PlainProduct product = new PlainProduct("SKU-" + i, "Product " + i,
+                    BigDecimal.valueOf(100 + i, 2));
+            cart.items.add(new PlainCartItem(product, 1 + i % 3));
+        }
+        return cart;
+    }
+
+    /**
+     * Standard Java serialization, as used by StandardContext when no
+     * serializer is configured.
+     */
+    static class JavaSessionSerializer implements SessionSerializer {
+
+        public ObjectOutputStream createObjectOutputStream(OutputStream os)
+                throws IOException {
+            return new ObjectOutputStream(os);
+        }
+
+        public ObjectInputStream createObjectInputStream(InputStream is,
+                ClassLoader classLoader) throws IOException {
+            return new ObjectInputStream(is);
+        }
+    }
+
+    static class Cart implements Serializable {
+        private static final long serialVersionUID = 1L;
+        Customer customer;
+        List<CartItem> items = new ArrayList<CartItem>();
+    }
+
+    static class CartItem implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final Product product;
+        final int quantity;
+
+        CartItem(Product product, int quantity) {
+            this.product = product;
+            this.quantity = quantity;
+        }
+    }
+
+    static class Product implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final String sku;
+        final String name;
+        final BigDecimal price;
+
+        Product(String sku, String name, BigDecimal price) {
+            this.sku = sku;
+            this.name = name;
+            this.price = price;
+        }
+    }
+
+    static class Customer implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final String name;
+        final String email;
+
+        Customer(String name, String email) {
+            this.name = name;
+            this.email = email;
+        }
+    }
+
+    // The same cart, of classes whose serialVersionUID is computed
+
+    static class PlainCart implements Serializable {
+        PlainCustomer customer;
+        List<PlainCartItem> items = new ArrayList<PlainCartItem>();
+    }
+
+    static class PlainCartItem implements Serializable {
+        final PlainProduct product;
+        final int quantity;
+
+        PlainCartItem(PlainProduct product, int quantity) {
+            this.product = product;
+            this.quantity = quantity;
+        }
+    }
+
+    static class PlainProduct implements Serializable {
+        final String sku;
+        final String name;
+        final BigDecimal price;
+
+        PlainProduct(String sku, String name, BigDecimal price) {
+            this.sku = sku;
+            this.name = name;
+            this.price = price;
+        }
+    }
+
+    static class PlainCustomer implements Serializable {
+        final String name;
+        final String email;
+
+        PlainCustomer(String name, String email) {
+            this.name = name;
+            this.email = email;
+        }
+    }
+}
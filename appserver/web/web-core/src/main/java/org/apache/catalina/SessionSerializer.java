@@ -0,0 +1,80 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.apache.catalina;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * Creates the object streams the sessions of a Context are persisted with,
+ * by the session stores and by the Manager when it unloads its sessions.
+ * <p>
+ * A Context without a SessionSerializer uses standard Java serialization.
+ * An implementation is selected for a web module with the
+ * <code>sessionSerializer</code> session property, and must have a public
+ * no-argument constructor.
+ */
+public interface SessionSerializer {
+
+    /**
+     * Creates a stream that serializes objects onto <code>os</code>.
+     * Closing the returned stream closes <code>os</code>.
+     *
+     * @param os the stream to write the serialized objects to
+     */
+    public ObjectOutputStream createObjectOutputStream(OutputStream os)
+        throws IOException;
+
+    /**
+     * Creates a stream that deserializes objects written by a stream of
+     * {@link #createObjectOutputStream}.
+     *
+     * @param is the stream to read the serialized objects from
+     * @param classLoader the class loader to resolve the classes of the
+     * objects with, or null if the Context has none
+     */
+    public ObjectInputStream createObjectInputStream(InputStream is,
+            ClassLoader classLoader) throws IOException;
+
+}
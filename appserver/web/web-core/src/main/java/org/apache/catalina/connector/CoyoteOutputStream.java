@@ -62,7 +62,9 @@ import org.apache.catalina.LogFacade;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.WriteListener;
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ResourceBundle;
 
 /**
@@ -215,4 +217,62 @@ public class CoyoteOutputStream
 
         ob.setWriteListener(writeListener);
     }
+
+
+    // ---------------------------------------------------- Zero Copy Methods
+
+
+    /**
+     * Write the remaining content of the given buffer without copying it
+     * into the response buffer. The buffer must not be modified afterwards.
+     */
+    public void write(ByteBuffer buffer)
+        throws IOException {
+        // Disallow operation if the object has gone out of scope
+        if (ob == null) {
+            throw new IllegalStateException(rb.getString(LogFacade.OBJECT_INVALID_SCOPE_EXCEPTION));
+        }
+
+        ob.write(buffer);
+    }
+
+
+    /**
+     * Can a file be sent as the whole body of the response with
+     * {@link #sendfile}?
+     */
+    public boolean isSendfileAvailable() {
+        // Disallow operation if the object has gone out of scope
+        if (ob == null) {
+            throw new IllegalStateException(rb.getString(LogFacade.OBJECT_INVALID_SCOPE_EXCEPTION));
+        }
+
+        return ob.isSendfileAvailable();
+    }
+
+
+    /**
+     * Send a region of a file as the whole body of the response, without
+     * copying it through the response buffer. This commits the response.
+     *
+     * @param file The file to send
+     * @param offset Offset of the region in the file
+     * @param length Length of the region
+     */
+    public void sendfile(File file, long offset, long length)
+        throws IOException {
+        // Disallow operation if the object has gone out of scope
+        if (ob == null) {
+            throw new IllegalStateException(rb.getString(LogFacade.OBJECT_INVALID_SCOPE_EXCEPTION));
+        }
+
+        // The file is read in the container's security context, check that
+        // the caller may read it
+        SecurityManager sm = System.getSecurityManager();
+        if (sm != null) {
+            sm.checkRead(file.getPath());
+        }
+
+        ob.sendfile(file, offset, length);
+    }
 }
@@ -58,13 +58,19 @@
 
 package org.apache.catalina.connector;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.nio.channels.InterruptedByTimeoutException;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.servlet.WriteListener;
@@ -80,7 +86,10 @@ import org.apache.catalina.core.StandardContext;
 import org.apache.catalina.core.StandardHost;
 import org.apache.catalina.util.RequestUtil;
 import org.glassfish.grizzly.WriteHandler;
+import org.glassfish.grizzly.WriteResult;
 import org.glassfish.grizzly.http.util.ByteChunk;
+import org.glassfish.grizzly.impl.FutureImpl;
+import org.glassfish.grizzly.utils.Futures;
 
 /**
  * The buffer used by Tomcat response. This is a derivative of the Tomcat 3.3
@@ -339,6 +348,31 @@ public class OutputBuffer extends Writer
     }
 
 
+    /**
+     * Write the remaining content of the given buffer, without copying it
+     * when the buffer can be handed to the network layer as is. The buffer
+     * (including its position) must not be modified afterwards, so callers
+     * sharing a buffer should pass a duplicate.
+     *
+     * @param buffer Buffer to be written to the response
+     *
+     * @throws IOException An underlying IOException occurred
+     */
+    public void write(ByteBuffer buffer) throws IOException {
+
+        if (suspended)
+            return;
+
+        if (grizzlyOutputBuffer.isClosed())
+            return;
+
+        int len = buffer.remaining();
+        grizzlyOutputBuffer.writeByteBuffer(buffer);
+        bytesWritten += len;
+
+    }
+
+
     // XXX Char or byte ?
     public void writeByte(int b)
         throws IOException {
@@ -424,6 +458,70 @@ public class OutputBuffer extends Writer
     }
 
     
+    // ------------------------------------------------- File Transfer Methods
+
+
+    /**
+     * Can a file be sent with {@link #sendfile}? This requires sendfile
+     * support on the listener, a connection that is not secure, and a
+     * response to which nothing has been written yet.
+     */
+    public boolean isSendfileAvailable() {
+        return !suspended
+                && grizzlyResponse != null
+                && grizzlyResponse.isSendFileEnabled()
+                && !grizzlyResponse.getRequest().isSecure()
+                && !grizzlyResponse.isCommitted()
+                && !grizzlyOutputBuffer.isClosed()
+                && writeHandler == null
+                && isNew();
+    }
+
+
+    /**
+     * Send a region of a file as the whole body of the response, letting
+     * the network layer transfer it from the file system cache to the socket
+     * (FileChannel.transferTo) instead of copying it through the buffer.
+     * The response is committed with the length of the region as its
+     * content length, and this method blocks until the transfer completes.
+     *
+     * @param file The file to send
+     * @param offset Offset of the region in the file
+     * @param length Length of the region
+     *
+     * @throws IOException An underlying IOException occurred
+     */
+    public void sendfile(File file, long offset, long length)
+        throws IOException {
+
+        if (log.isLoggable(Level.FINE))
+            log.log(Level.FINE, "sendfile(" + file + ", " + offset + ", " + length + ")");
+
+        FutureImpl<WriteResult> future = Futures.createSafeFuture();
+        grizzlyOutputBuffer.sendfile(file, offset, length,
+                Futures.toCompletionHandler(future));
+        long timeout = grizzlyResponse.getRequest().getContext()
+                .getConnection().getWriteTimeout(TimeUnit.MILLISECONDS);
+        try {
+            if (timeout < 0) {
+                future.get();
+            } else {
+                future.get(timeout, TimeUnit.MILLISECONDS);
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw new ClientAbortException(cause != null ? cause : e);
+        } catch (TimeoutException e) {
+            throw new ClientAbortException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        bytesWritten += (int) Math.min(length, Integer.MAX_VALUE);
+
+    }
+
+
     // --------------------  BufferedOutputStream compatibility
 
 
@@ -129,7 +129,6 @@ import org.apache.catalina.session.StandardSession;
 import org.apache.catalina.util.Enumerator;
 import org.apache.catalina.util.ParameterMap;
 import org.apache.catalina.util.RequestUtil;
-import org.apache.catalina.util.StringParser;
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.CompletionHandler;
 import org.glassfish.grizzly.EmptyCompletionHandler;
@@ -238,26 +237,33 @@ public class Request
 
 
     /**
-     * The set of cookies associated with this Request.
+     * The set of cookies associated with this Request, or <code>null</code>
+     * until the first cookie is parsed or added. Once created, it is cleared
+     * on recycle and kept, so subclasses must test it for <code>null</code>
+     * and emptiness alike.
      */
-    protected ArrayList<Cookie> cookies = new ArrayList<Cookie>();
+    protected ArrayList<Cookie> cookies = null;
     /**
      * The default Locale if none are specified.
      */
     protected static final Locale defaultLocale = Locale.getDefault();
     /**
-     * The attributes associated with this Request, keyed by attribute name.
+     * The attributes associated with this Request, keyed by attribute name,
+     * or <code>null</code> until the first attribute is set. Subclasses must
+     * test it for <code>null</code> before reading it, and add attributes
+     * through <code>setAttribute</code>.
      */
-    protected Map<String, Object> attributes = new HashMap<String, Object>();
+    protected Map<String, Object> attributes = null;
     /**
-     * The preferred Locales associated with this Request.
+     * The preferred Locales associated with this Request, or
+     * <code>null</code> until the first Locale is added.
      */
-    protected ArrayList<Locale> locales = new ArrayList<Locale>();
+    protected ArrayList<Locale> locales = null;
     /**
      * Internal notes associated with this request by Catalina components
-     * and event listeners.
+     * and event listeners, or <code>null</code> until the first note is set.
      */
-    private Map<String, Object> notes = new HashMap<String, Object>();
+    private Map<String, Object> notes = null;
     /**
      * Authentication type.
      */
@@ -315,9 +321,11 @@ public class Request
     protected static final int CACHED_POST_LEN = 8192;
     protected byte[] postData = null;
     /**
-     * Hash map used in the getParametersMap method.
+     * Hash map used in the getParametersMap method, or <code>null</code>
+     * until the first call to it. Subclasses should read it through
+     * <code>getParameterMap</code>.
      */
-    protected ParameterMap<String, String[]> parameterMap = new ParameterMap<String, String[]>();
+    protected ParameterMap<String, String[]> parameterMap = null;
     /**
      * The currently active session for this request.
      */
@@ -359,10 +367,6 @@ public class Request
      * Parse locales.
      */
     protected boolean localesParsed = false;
-    /**
-     * The string parser we will use for parsing request lines.
-     */
-    private StringParser parser = new StringParser();
     /**
      * Local port
      */
@@ -455,9 +459,12 @@ public class Request
      */
     protected org.apache.catalina.Connector connector;
     /**
-     * Mapping data.
+     * Mapping data, usually the one the request was mapped with by Grizzly,
+     * or <code>null</code> until either that one is set or
+     * <code>getMappingData</code> creates one. Subclasses should read it
+     * through <code>getMappingData</code>.
      */
-    protected MappingData mappingData = new MappingData();
+    protected MappingData mappingData = null;
     /**
      * Associated wrapper.
      */
@@ -588,7 +595,9 @@ public class Request
         sessionParsed = false;
         parametersProcessed = false;
         cookiesParsed = false;
-        locales.clear();
+        if (locales != null) {
+            locales.clear();
+        }
         localesParsed = false;
         secure = false;
         remoteAddr = null;
@@ -603,9 +612,15 @@ public class Request
         afterService = false;
         resume = false;
 
-        attributes.clear();
-        notes.clear();
-        cookies.clear();
+        if (attributes != null) {
+            attributes.clear();
+        }
+        if (notes != null) {
+            notes.clear();
+        }
+        if (cookies != null) {
+            cookies.clear();
+        }
 
         unsuccessfulSessionFind = false;
 
@@ -628,10 +643,14 @@ public class Request
          */
         dispatchDepth = 0; // S1AS 4703023
 
-        parameterMap.setLocked(false);
-        parameterMap.clear();
+        if (parameterMap != null) {
+            parameterMap.setLocked(false);
+            parameterMap.clear();
+        }
 
-        mappingData.recycle();
+        if (mappingData != null) {
+            mappingData.recycle();
+        }
 
         initRequestFacadeHelper = false;
         if (enforceScope) {
@@ -797,7 +816,7 @@ public class Request
      */
     @Override
     public Host getHost() {
-        return (Host) mappingData.host;
+        return (Host) getMappingData().host;
     }
 
     /**
@@ -809,7 +828,7 @@ public class Request
      */
     @Override
     public void setHost(Host host) {
-        mappingData.host = host;
+        getMappingData().host = host;
     }
 
     /**
@@ -826,13 +845,16 @@ public class Request
     public HttpServletMapping getHttpServletMapping() {
         HttpServletMapping result;
         
-        result = new MappingImpl(mappingData);
+        result = new MappingImpl(getMappingData());
         return result;
     }
     /**
      * Return mapping data.
      */
     public MappingData getMappingData() {
+        if (mappingData == null) {
+            mappingData = new MappingData();
+        }
         return mappingData;
     }
 
@@ -887,7 +909,7 @@ public class Request
             }
 
             if (!initRequestFacadeHelper) {
-                attributes.put(Globals.REQUEST_FACADE_HELPER,
+                getAttributesMap().put(Globals.REQUEST_FACADE_HELPER,
                         facade.getRequestFacadeHelper());
                 initRequestFacadeHelper = true;
             }
@@ -898,7 +920,7 @@ public class Request
             }
 
             if (!initRequestFacadeHelper) {
-                attributes.put(Globals.REQUEST_FACADE_HELPER,
+                getAttributesMap().put(Globals.REQUEST_FACADE_HELPER,
                         defaultContextMaskingFacade.getRequestFacadeHelper());
                 initRequestFacadeHelper = true;
             }
@@ -1050,7 +1072,7 @@ public class Request
      */
     @Override
     public Object getNote(String name) {
-        return notes.get(name);
+        return notes == null ? null : notes.get(name);
     }
 
     /**
@@ -1058,6 +1080,9 @@ public class Request
      * that exist for this request.
      */
     public Iterator<String> getNoteNames() {
+        if (notes == null) {
+            return Collections.<String>emptyIterator();
+        }
         return notes.keySet().iterator();
     }
 
@@ -1069,7 +1094,9 @@ public class Request
      */
     @Override
     public void removeNote(String name) {
-        notes.remove(name);
+        if (notes != null) {
+            notes.remove(name);
+        }
     }
 
     /**
@@ -1081,6 +1108,9 @@ public class Request
      */
     @Override
     public void setNote(String name, Object value) {
+        if (notes == null) {
+            notes = new HashMap<String, Object>();
+        }
         notes.put(name, value);
     }
 
@@ -1210,7 +1240,7 @@ public class Request
                     ? getRequestPathMB().toString() : null;
         }
 
-        Object attr = attributes.get(name);
+        Object attr = (attributes == null ? null : attributes.get(name));
 
         if (attr != null) {
             return attr;
@@ -1225,7 +1255,7 @@ public class Request
             RequestUtils.populateCertificateAttribute(coyoteRequest);
             attr = getAttribute(Globals.CERTIFICATES_ATTR);
             if (attr != null) {
-                attributes.put(name, attr);
+                getAttributesMap().put(name, attr);
             }
         } else if (isSSLAttribute(name)) {
             /* SJSAS 6419950
@@ -1247,7 +1277,7 @@ public class Request
             // START SJSAS 6419950
             RequestUtils.populateSSLAttributes(coyoteRequest);
             // END SJSAS 6419950
-            attr = attributes.get(name);
+            attr = (attributes == null ? null : attributes.get(name));
         }
         return attr;
     }
@@ -1271,6 +1301,9 @@ public class Request
         if (isSecure()) {
             populateSSLAttributes();
         }
+        if (attributes == null) {
+            return Collections.<String>emptyEnumeration();
+        }
         return new Enumerator<String>(attributes.keySet(), true);
     }
 
@@ -1419,7 +1452,9 @@ public class Request
     @Override
     public Map<String, String[]> getParameterMap() {
 
-        if (parameterMap.isLocked()) {
+        if (parameterMap == null) {
+            parameterMap = new ParameterMap<String, String[]>();
+        } else if (parameterMap.isLocked()) {
             return parameterMap;
         }
 
@@ -1776,7 +1811,7 @@ public class Request
     @Override
     public void removeAttribute(String name) {
         Object value = null;
-        boolean found = attributes.containsKey(name);
+        boolean found = (attributes != null && attributes.containsKey(name));
         if (found) {
             value = attributes.get(name);
             attributes.remove(name);
@@ -1805,7 +1840,7 @@ public class Request
             } catch (Throwable t) {
                 log(rb.getString(LogFacade.ATTRIBUTE_EVENT_LISTENER_EXCEPTION), t);
                 // Error valve will pick this exception up and display it to user
-                attributes.put(RequestDispatcher.ERROR_EXCEPTION, t);
+                getAttributesMap().put(RequestDispatcher.ERROR_EXCEPTION, t);
             }
         }
     }
@@ -1860,7 +1895,7 @@ public class Request
             value = canonicalPath;
         }
 
-        Object oldValue = attributes.put(name, value);
+        Object oldValue = getAttributesMap().put(name, value);
         if (oldValue != null) {
             replaced = true;
         }
@@ -1905,7 +1940,7 @@ public class Request
             } catch (Throwable t) {
                 log(rb.getString(LogFacade.ATTRIBUTE_EVENT_LISTENER_EXCEPTION), t);
                 // Error valve will pick this exception up and display it to user
-                attributes.put(RequestDispatcher.ERROR_EXCEPTION, t);
+                getAttributesMap().put(RequestDispatcher.ERROR_EXCEPTION, t);
             }
         }
     }
@@ -2135,6 +2170,9 @@ public class Request
             parseCookies();
         }
 
+        if (cookies == null) {
+            cookies = new ArrayList<Cookie>();
+        }
         cookies.add(cookie);
     }
 
@@ -2157,6 +2195,9 @@ public class Request
      */
     @Override
     public void addLocale(Locale locale) {
+        if (locales == null) {
+            locales = new ArrayList<Locale>();
+        }
         locales.add(locale);
     }
 
@@ -2179,7 +2220,9 @@ public class Request
     @Override
     public void clearCookies() {
         cookiesParsed = true;
-        cookies.clear();
+        if (cookies != null) {
+            cookies.clear();
+        }
     }
 
     /**
@@ -2195,7 +2238,9 @@ public class Request
      */
     @Override
     public void clearLocales() {
-        locales.clear();
+        if (locales != null) {
+            locales.clear();
+        }
     }
 
     /**
@@ -2264,7 +2309,7 @@ public class Request
      */
     @Override
     public void setPathInfo(String pathInfo) {
-        mappingData.pathInfo.setString(pathInfo);
+        getMappingData().pathInfo.setString(pathInfo);
         this.pathInfo = pathInfo;
     }
 
@@ -2381,7 +2426,7 @@ public class Request
      */
     @Override
     public void setServletPath(String servletPath) {
-        mappingData.wrapperPath.setString(servletPath);
+        getMappingData().wrapperPath.setString(servletPath);
         this.servletPath = servletPath;
     }
 
@@ -2457,7 +2502,7 @@ public class Request
             parseCookies();
         }
 
-        if (cookies.size() == 0) {
+        if (cookies == null || cookies.isEmpty()) {
             return null;
         }
 
@@ -2469,8 +2514,13 @@ public class Request
      */
     public void setCookies(Cookie[] cookies) {
 
-        this.cookies.clear();
-        if (cookies != null) {
+        if (this.cookies != null) {
+            this.cookies.clear();
+        }
+        if (cookies != null && cookies.length > 0) {
+            if (this.cookies == null) {
+                this.cookies = new ArrayList<Cookie>(cookies.length);
+            }
             for (int i = 0; i < cookies.length; i++) {
                 this.cookies.add(cookies[i]);
             }
@@ -2646,7 +2696,7 @@ public class Request
      */
     @Override
     public DataChunk getRequestPathMB() {
-        return mappingData.requestPath;
+        return getMappingData().requestPath;
     }
 
     /**
@@ -3274,7 +3324,11 @@ public class Request
             return;
         }
 
-        cookies.clear();
+        if (cookies == null) {
+            cookies = new ArrayList<Cookie>(count);
+        } else {
+            cookies.clear();
+        }
 
         for (int i = 0; i < count; i++) {
             org.glassfish.grizzly.http.Cookie scookie = serverCookies[i];
@@ -3880,7 +3934,7 @@ public class Request
         HashMap<String, String> sessionVersions =
             RequestUtil.parseSessionVersionString(sessionVersionString);
         if (sessionVersions != null) {
-            attributes.put(Globals.SESSION_VERSIONS_REQUEST_ATTRIBUTE,
+            getAttributesMap().put(Globals.SESSION_VERSIONS_REQUEST_ATTRIBUTE,
                            sessionVersions);
             if (context != null) {
                 String path = context.getPath();
@@ -4443,29 +4497,40 @@ public class Request
         RequestUtils.populateSSLAttributes(coyoteRequest);
         Object attr = coyoteRequest.getAttribute(Globals.CERTIFICATES_ATTR);
         if (attr != null) {
-            attributes.put(Globals.CERTIFICATES_ATTR, attr);
+            getAttributesMap().put(Globals.CERTIFICATES_ATTR, attr);
         }
         attr = coyoteRequest.getAttribute(Globals.CIPHER_SUITE_ATTR);
         if (attr != null) {
-            attributes.put(Globals.CIPHER_SUITE_ATTR, attr);
+            getAttributesMap().put(Globals.CIPHER_SUITE_ATTR, attr);
         }
         attr = coyoteRequest.getAttribute(Globals.KEY_SIZE_ATTR);
         if (attr != null) {
-            attributes.put(Globals.KEY_SIZE_ATTR, attr);
+            getAttributesMap().put(Globals.KEY_SIZE_ATTR, attr);
         }
         attr = coyoteRequest.getAttribute(Globals.SSL_SESSION_ID_ATTR);
         if (attr != null) {
-            attributes.put(Globals.SSL_SESSION_ID_ATTR, attr);
+            getAttributesMap().put(Globals.SSL_SESSION_ID_ATTR, attr);
         }
     }
     // END SJSAS 6419950
 
     // START GlassFish 896
     private void initSessionTracker() {
-        notes.put(Globals.SESSION_TRACKER, sessionTracker);
+        setNote(Globals.SESSION_TRACKER, sessionTracker);
     }
     // END GlassFish 896
 
+    /**
+     * Returns the attributes of this request, creating the map when the
+     * first attribute is set.
+     */
+    private Map<String, Object> getAttributesMap() {
+        if (attributes == null) {
+            attributes = new HashMap<String, Object>();
+        }
+        return attributes;
+    }
+
     /** 
      * lock the session associated with this request
      * this will be a foreground lock
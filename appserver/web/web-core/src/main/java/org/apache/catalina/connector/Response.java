@@ -139,7 +139,6 @@ public class Response
         outputStream = new CoyoteOutputStream(outputBuffer);
         writer = createWriter(outputBuffer);
         // END OF SJSAS 6231069
-        urlEncoder.addSafeCharacter('/');
     }
     
     // START OF SJSAS 6231069
@@ -147,7 +146,6 @@ public class Response
         outputBuffer = new OutputBuffer();
         outputStream = new CoyoteOutputStream(outputBuffer);
         writer = createWriter(outputBuffer);
-        urlEncoder.addSafeCharacter('/');
     }
     // END OF SJSAS 6231069
 
@@ -323,15 +321,18 @@ public class Response
 
 
     /**
-     * URL encoder.
+     * URL encoder, or <code>null</code> until the first relative URL is
+     * converted to an absolute one.
      */
-    protected UEncoder urlEncoder = new UEncoder();
+    protected UEncoder urlEncoder = null;
 
 
     /**
-     * Recyclable buffer to hold the redirect URL.
+     * Recyclable buffer to hold the redirect URL, or <code>null</code> until
+     * the first relative URL is converted to an absolute one. It is not
+     * cleared on recycle, but before each conversion.
      */
-    protected CharChunk redirectURLCC = new CharChunk();
+    protected CharChunk redirectURLCC = null;
 
 
     // --------------------------------------------------------- Public Methods
@@ -1317,7 +1318,7 @@ public class Response
      * @param url URL to be encoded
      */
     public String encode(String url) {
-        return urlEncoder.encodeURL(url);
+        return getURLEncoder().encodeURL(url);
     }
 
 
@@ -1708,6 +1709,31 @@ public class Response
     }
 
 
+    /**
+     * Return the URL encoder of this response, creating it on first use.
+     */
+    private UEncoder getURLEncoder() {
+        if (urlEncoder == null) {
+            urlEncoder = new UEncoder();
+            urlEncoder.addSafeCharacter('/');
+        }
+        return urlEncoder;
+    }
+
+
+    /**
+     * Prepare the redirect URL buffer for a new URL, creating it on first
+     * use.
+     */
+    private void resetRedirectURLCC() {
+        if (redirectURLCC == null) {
+            redirectURLCC = new CharChunk();
+        } else {
+            redirectURLCC.recycle();
+        }
+    }
+
+
     /**
      * Convert (if necessary) and return the absolute URL that represents the
      * resource referenced by this possibly relative URL.  If this URL is
@@ -1727,7 +1753,7 @@ public class Response
 
         if (location.startsWith("//")) {
             // Scheme relative, network-path reference in RFC 3986
-            redirectURLCC.recycle();
+            resetRedirectURLCC();
             // Add the scheme
             String scheme = getRedirectScheme();
             try {
@@ -1744,7 +1770,7 @@ public class Response
 
         } else if (leadingSlash || (location.indexOf("://") == -1)) {
 
-            redirectURLCC.recycle();
+            resetRedirectURLCC();
 
             String scheme = getRedirectScheme();
 
@@ -1774,7 +1800,7 @@ public class Response
                             encodedURI = AccessController.doPrivileged( 
                                 new PrivilegedExceptionAction<String>(){                                
                                     public String run() throws IOException{
-                                        return urlEncoder.encodeURL(frelativePath);
+                                        return getURLEncoder().encodeURL(frelativePath);
                                     }
                            });   
                         } catch (PrivilegedActionException pae){
@@ -1784,7 +1810,7 @@ public class Response
                             throw iae;
                         }
                     } else {
-                        encodedURI = urlEncoder.encodeURL(relativePath);
+                        encodedURI = getURLEncoder().encodeURL(relativePath);
                     }
                           
                     redirectURLCC.append(encodedURI, 0, encodedURI.length());
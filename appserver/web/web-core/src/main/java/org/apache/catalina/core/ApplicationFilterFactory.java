@@ -63,11 +63,8 @@ import org.apache.catalina.Request;
 import org.apache.catalina.Wrapper;
 import org.apache.catalina.deploy.FilterMap;
 
-import javax.servlet.DispatcherType;
 import javax.servlet.Servlet;
 import javax.servlet.ServletRequest;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Locale;
 
 /**
@@ -144,85 +141,26 @@ public final class ApplicationFilterFactory {
             (((StandardWrapper)wrapper).getInstanceSupport());
         */
 
-        // Acquire the filter mappings for this Context
+        // Acquire the filters mapped to this servlet and request
         StandardContext context = (StandardContext) wrapper.getParent();
-        List<FilterMap> filterMaps = context.findFilterMaps();
-
-        // If there are no filter mappings, we are done
-        if (filterMaps.isEmpty()) {
-            return (filterChain);
-        }
-
-        // get the dispatcher type
-        DispatcherType dispatcher = request.getDispatcherType();
         String requestPath = null;
         Object attribute = request.getAttribute(
             Globals.DISPATCHER_REQUEST_PATH_ATTR);
         if (attribute != null){
             requestPath = attribute.toString();
         }
-
-        // Acquire the information we will need to match filter mappings
-        String servletName = wrapper.getName();
-
-        int n = 0;
-
-        // Add the relevant path-mapped filters to this filter chain
-        Iterator<FilterMap> i = filterMaps.iterator(); 
-        while (i.hasNext()) {
-            FilterMap filterMap = i.next();
-            if (!filterMap.getDispatcherTypes().contains(dispatcher)) {
-                continue;
-            }
-            /* SJSWS 6324431
-            if (!matchFiltersURL(filterMaps[i], requestPath))
-                continue;
-            */
-            // START SJSWS 6324431
-            if (!matchFiltersURL(filterMap, requestPath, 
-                                 context.isCaseSensitiveMapping()))
-                continue;
-            // END SJSWS 6324431
-            ApplicationFilterConfig filterConfig = (ApplicationFilterConfig)
-                context.findFilterConfig(filterMap.getFilterName());
-            if (filterConfig == null) {
-                // FIXME - log configuration problem
-                continue;
-            }
-            // START IASRI 4665318
-            // Create a filter chain only when there are filters to add
-            if (filterChain == null)
-                filterChain = internalCreateFilterChain(request, wrapper,
-                                                        servlet);
-            // END IASRI 4665318
-            filterChain.addFilter(filterConfig);
-            n++;
-        }
-
-        // Add filters that match on servlet name second
-        i = filterMaps.iterator(); 
-        while (i.hasNext()) {
-            FilterMap filterMap = i.next();
-            if (!filterMap.getDispatcherTypes().contains(dispatcher)) {
-                continue;
-            }
-            if (!matchFiltersServlet(filterMap, servletName))
-                continue;
-            ApplicationFilterConfig filterConfig = (ApplicationFilterConfig)
-                context.findFilterConfig(filterMap.getFilterName());
-            if (filterConfig == null) {
-                // FIXME - log configuration problem
-                continue;
-            }
-            // START IASRI 4665318
-            // Create a filter chain only when there are filters to add
-            if (filterChain == null)
-                filterChain = internalCreateFilterChain(request, wrapper,
-                                                        servlet);
-            // END IASRI 4665318
-            filterChain.addFilter(filterConfig);
-            n++;
+        ApplicationFilterConfig[] filters =
+            context.getFilterChainCache().getFilters(
+                wrapper, request.getDispatcherType(), requestPath);
+
+        // START IASRI 4665318
+        // Create a filter chain only when there are filters to add
+        if (filters.length > 0) {
+            filterChain = internalCreateFilterChain(request, wrapper,
+                                                    servlet);
+            filterChain.setFilters(filters);
         }
+        // END IASRI 4665318
 
         // Return the completed filter chain
         return (filterChain);
@@ -230,7 +168,7 @@ public final class ApplicationFilterFactory {
     }
 
 
-    // -------------------------------------------------------- Private Methods
+    // -------------------------------------------------------- Package Methods
 
 
     /**
@@ -245,8 +183,8 @@ public final class ApplicationFilterFactory {
     private boolean matchFiltersURL(FilterMap filterMap, String requestPath) {
     */
     // START SJSWS 6324431
-    private boolean matchFiltersURL(FilterMap filterMap, String requestPath,
-                                    boolean caseSensitiveMapping) {
+    static boolean matchFiltersURL(FilterMap filterMap, String requestPath,
+                                   boolean caseSensitiveMapping) {
     // END SJSWS 6324431
 
         if (requestPath == null)
@@ -310,8 +248,8 @@ public final class ApplicationFilterFactory {
      * @param filterMap Filter mapping being checked
      * @param servletName Servlet name being checked
      */
-    private boolean matchFiltersServlet(FilterMap filterMap, 
-                                        String servletName) {
+    static boolean matchFiltersServlet(FilterMap filterMap, 
+                                       String servletName) {
 
         if (servletName == null) {
             return (false);
@@ -327,6 +265,9 @@ public final class ApplicationFilterFactory {
     }
 
 
+    // -------------------------------------------------------- Private Methods
+
+
     // START IASRI 4665318
     private ApplicationFilterChain internalCreateFilterChain(ServletRequest request, Wrapper wrapper, Servlet servlet) {
         ApplicationFilterChain filterChain = null;
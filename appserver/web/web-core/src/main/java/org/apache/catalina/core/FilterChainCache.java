@@ -0,0 +1,258 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.apache.catalina.core;
+
+import org.apache.catalina.LogFacade;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.deploy.FilterMap;
+
+import javax.servlet.DispatcherType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The filters to be applied to the requests for the servlets of a context,
+ * resolved from the filter mappings of the context once and shared by the
+ * filter chains of all requests.
+ * <p>
+ * The filters mapped by servlet name are resolved per servlet and
+ * dispatcher type. The filters mapped by URL pattern also depend on the
+ * request path, and are resolved per request path for up to
+ * {@link #MAX_PATHS} paths of each servlet and dispatcher type; further
+ * paths are matched on each request, against the URL mappings of the
+ * dispatcher type only.
+ * <p>
+ * A cache reflects the filter mappings and filter configurations of the
+ * context at the time it was created: the context replaces its cache when
+ * these change.
+ */
+final class FilterChainCache {
+
+
+    // -------------------------------------------------------------- Constants
+
+
+    private static final Logger log = LogFacade.getLogger();
+
+
+    /**
+     * The maximum number of request paths for which the filters of a
+     * servlet and dispatcher type are kept.
+     */
+    static final int MAX_PATHS = 1024;
+
+
+    private static final ApplicationFilterConfig[] NO_FILTERS =
+        new ApplicationFilterConfig[0];
+
+
+    private static final DispatcherType[] DISPATCHER_TYPES =
+        DispatcherType.values();
+
+
+    // ----------------------------------------------------- Instance Variables
+
+
+    private final StandardContext context;
+
+
+    private final ConcurrentHashMap<Wrapper, DispatcherFilters[]> servlets =
+        new ConcurrentHashMap<Wrapper, DispatcherFilters[]>();
+
+
+    // ----------------------------------------------------------- Constructors
+
+
+    FilterChainCache(StandardContext context) {
+        this.context = context;
+    }
+
+
+    // -------------------------------------------------------- Package Methods
+
+
+    /**
+     * Return the filters to be applied, in order, to a request for the
+     * given servlet. The returned array is shared and must not be modified.
+     *
+     * @param wrapper The wrapper of the servlet
+     * @param dispatcher The dispatcher type of the request
+     * @param requestPath The context-relative request path, or null
+     * @return The filters, or an empty array if there are none
+     */
+    ApplicationFilterConfig[] getFilters(Wrapper wrapper,
+                                         DispatcherType dispatcher,
+                                         String requestPath) {
+        DispatcherFilters[] filters = servlets.get(wrapper);
+        if (filters == null) {
+            filters = resolve(wrapper.getName());
+            DispatcherFilters[] existing = servlets.putIfAbsent(wrapper, filters);
+            if (existing != null) {
+                filters = existing;
+            }
+        }
+        return filters[dispatcher.ordinal()].getFilters(requestPath);
+    }
+
+
+    // -------------------------------------------------------- Private Methods
+
+
+    /**
+     * Resolve the filter mappings applying to the given servlet, for each
+     * dispatcher type.
+     */
+    private DispatcherFilters[] resolve(String servletName) {
+        DispatcherFilters[] filters =
+            new DispatcherFilters[DISPATCHER_TYPES.length];
+        List<FilterMap> filterMaps = context.findFilterMaps();
+        for (DispatcherType dispatcher : DISPATCHER_TYPES) {
+            List<FilterMap> urlMaps = new ArrayList<FilterMap>();
+            List<ApplicationFilterConfig> urlFilters =
+                new ArrayList<ApplicationFilterConfig>();
+            List<ApplicationFilterConfig> servletFilters =
+                new ArrayList<ApplicationFilterConfig>();
+            for (FilterMap filterMap : filterMaps) {
+                if (!filterMap.getDispatcherTypes().contains(dispatcher)) {
+                    continue;
+                }
+                ApplicationFilterConfig filterConfig = (ApplicationFilterConfig)
+                    context.findFilterConfig(filterMap.getFilterName());
+                if (filterConfig == null) {
+                    // The filter failed to start, which has been logged
+                    // already, or its mapping names an unknown filter
+                    if (log.isLoggable(Level.FINE)) {
+                        log.log(Level.FINE, LogFacade.FILTER_MAPPING_NAME_EXCEPTION,
+                                filterMap.getFilterName());
+                    }
+                    continue;
+                }
+                if (filterMap.getURLPattern() != null) {
+                    urlMaps.add(filterMap);
+                    urlFilters.add(filterConfig);
+                }
+                if (ApplicationFilterFactory.matchFiltersServlet(
+                        filterMap, servletName)) {
+                    servletFilters.add(filterConfig);
+                }
+            }
+            filters[dispatcher.ordinal()] = new DispatcherFilters(
+                urlMaps.toArray(new FilterMap[urlMaps.size()]),
+                urlFilters.toArray(NO_FILTERS),
+                servletFilters.toArray(NO_FILTERS),
+                context.isCaseSensitiveMapping());
+        }
+        return filters;
+    }
+
+
+    // --------------------------------------------- DispatcherFilters Class
+
+
+    /**
+     * The filters applying to a servlet for a dispatcher type.
+     */
+    private static final class DispatcherFilters {
+
+        /**
+         * The URL pattern mappings for the dispatcher type, and the
+         * filters they map.
+         */
+        private final FilterMap[] urlMaps;
+        private final ApplicationFilterConfig[] urlFilters;
+
+        /**
+         * The filters mapped to the servlet by name, which follow the
+         * filters mapped by URL pattern.
+         */
+        private final ApplicationFilterConfig[] servletFilters;
+
+        private final boolean caseSensitiveMapping;
+
+        private final ConcurrentHashMap<String, ApplicationFilterConfig[]> paths =
+            new ConcurrentHashMap<String, ApplicationFilterConfig[]>();
+
+        DispatcherFilters(FilterMap[] urlMaps,
+                          ApplicationFilterConfig[] urlFilters,
+                          ApplicationFilterConfig[] servletFilters,
+                          boolean caseSensitiveMapping) {
+            this.urlMaps = urlMaps;
+            this.urlFilters = urlFilters;
+            this.servletFilters = servletFilters;
+            this.caseSensitiveMapping = caseSensitiveMapping;
+        }
+
+        ApplicationFilterConfig[] getFilters(String requestPath) {
+            if (requestPath == null || urlMaps.length == 0) {
+                return servletFilters;
+            }
+            ApplicationFilterConfig[] filters = paths.get(requestPath);
+            if (filters == null) {
+                filters = match(requestPath);
+                if (paths.size() < MAX_PATHS) {
+                    paths.putIfAbsent(requestPath, filters);
+                }
+            }
+            return filters;
+        }
+
+        private ApplicationFilterConfig[] match(String requestPath) {
+            List<ApplicationFilterConfig> filters =
+                new ArrayList<ApplicationFilterConfig>();
+            for (int i = 0; i < urlMaps.length; i++) {
+                if (ApplicationFilterFactory.matchFiltersURL(
+                        urlMaps[i], requestPath, caseSensitiveMapping)) {
+                    filters.add(urlFilters[i]);
+                }
+            }
+            if (filters.isEmpty()) {
+                return servletFilters;
+            }
+            for (ApplicationFilterConfig filter : servletFilters) {
+                filters.add(filter);
+            }
+            return filters.toArray(NO_FILTERS);
+        }
+    }
+}
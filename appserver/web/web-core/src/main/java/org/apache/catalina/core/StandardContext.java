@@ -64,6 +64,7 @@ import org.glassfish.grizzly.http.server.util.MappingData;
 import org.apache.catalina.*;
 import org.apache.catalina.deploy.*;
 import org.apache.catalina.loader.WebappLoader;
+import org.apache.catalina.session.CompactSessionSerializer;
 import org.apache.catalina.session.ManagerBase;
 import org.apache.catalina.session.PersistentManagerBase;
 import org.apache.catalina.session.StandardManager;
@@ -367,6 +368,13 @@ public class StandardContext
      */
     private List<FilterMap> filterMaps = new ArrayList<FilterMap>();
 
+    /**
+     * The filters resolved from the filter mappings, replaced whenever the
+     * filter mappings or the filter configurations change.
+     */
+    private volatile FilterChainCache filterChainCache =
+        new FilterChainCache(this);
+
     /**
      * The list of classnames of InstanceListeners that will be added
      * to each newly created Wrapper by <code>createWrapper()</code>.
@@ -597,6 +605,30 @@ public class StandardContext
      */
     protected int cacheTTL = 5000;
 
+    /**
+     * Class name of the resource cache, null for the default one.
+     */
+    protected String resourceCacheClassName = null;
+
+    /**
+     * Max size in KB of the resources kept off the heap by the resource
+     * cache, 0 to keep them on the heap.
+     */
+    protected int resourceCacheOffHeapObjectMaxSize = 0;
+
+    /**
+     * The serializer of the sessions of this context, null for standard
+     * Java serialization.
+     */
+    private SessionSerializer sessionSerializer = null;
+
+    /**
+     * The serializer to read compact session data with when
+     * sessionSerializer is not a CompactSessionSerializer, created the
+     * first time such data is read.
+     */
+    private volatile CompactSessionSerializer compactSessionReader = null;
+
     /**
      * Non proxied resources.
      */
@@ -811,6 +843,7 @@ public class StandardContext
      */
     public void setCaseSensitiveMapping(boolean caseSensitiveMap) {
         caseSensitiveMapping = caseSensitiveMap;
+        invalidateFilterChains();
     }
 
     /**
@@ -863,6 +896,52 @@ public class StandardContext
         this.cacheMaxSize = cacheMaxSize;
     }
 
+    /**
+     * Return the class name of the resource cache.
+     */
+    public String getResourceCacheClassName() {
+        return resourceCacheClassName;
+    }
+
+    /**
+     * Set the class name of the resource cache.
+     */
+    public void setResourceCacheClassName(String resourceCacheClassName) {
+        this.resourceCacheClassName = resourceCacheClassName;
+    }
+
+    /**
+     * Return the max size in KB of the resources kept off the heap by the
+     * resource cache.
+     */
+    public int getResourceCacheOffHeapObjectMaxSize() {
+        return resourceCacheOffHeapObjectMaxSize;
+    }
+
+    /**
+     * Set the max size in KB of the resources kept off the heap by the
+     * resource cache, 0 to keep them on the heap.
+     */
+    public void setResourceCacheOffHeapObjectMaxSize(int size) {
+        this.resourceCacheOffHeapObjectMaxSize = size;
+    }
+
+    /**
+     * Return the serializer of the sessions of this context, or null if
+     * they use standard Java serialization.
+     */
+    public SessionSerializer getSessionSerializer() {
+        return sessionSerializer;
+    }
+
+    /**
+     * Set the serializer of the sessions of this context, null for
+     * standard Java serialization.
+     */
+    public void setSessionSerializer(SessionSerializer sessionSerializer) {
+        this.sessionSerializer = sessionSerializer;
+    }
+
     /**
      * Return the "follow standard delegation model" flag used to configure
      * our ClassLoader.
@@ -2519,6 +2598,7 @@ public class StandardContext
         } else {
             filterMaps.add(0, filterMap);
         }
+        invalidateFilterChains();
 
         if (notifyContainerListeners) {
             fireContainerEvent("addFilterMap", filterMap);
@@ -4516,6 +4596,7 @@ public class StandardContext
             throw new IllegalArgumentException(rb.getString(LogFacade.NO_WRAPPER_EXCEPTION));
 
         super.removeChild(child);
+        invalidateFilterChains();
     }
 
     /**
@@ -4624,6 +4705,7 @@ public class StandardContext
             }
         }
         filterMaps.clear();
+        invalidateFilterChains();
     }
 
     /**
@@ -4985,6 +5067,7 @@ public class StandardContext
                 }
             }
         }
+        invalidateFilterChains();
 
         return (ok);
 
@@ -5011,6 +5094,7 @@ public class StandardContext
             }
             filterConfigs.clear();
         }
+        invalidateFilterChains();
         return (true);
     }
 
@@ -5024,6 +5108,22 @@ public class StandardContext
         return filterConfigs.get(name);
     }
 
+    /**
+     * Return the filters resolved from the filter mappings of this
+     * Context, for the creation of filter chains.
+     */
+    FilterChainCache getFilterChainCache() {
+        return filterChainCache;
+    }
+
+    /**
+     * Discard the filters resolved from the filter mappings, after a change
+     * of the filter mappings or filter configurations of this Context.
+     */
+    void invalidateFilterChains() {
+        filterChainCache = new FilterChainCache(this);
+    }
+
     /**
      * Notifies all ServletContextListeners at their contextInitialized
      * method.
@@ -5219,6 +5319,7 @@ public class StandardContext
             env.put(ProxyDirContext.HOST, getParent().getName());
         }
         env.put(ProxyDirContext.CONTEXT, getName());
+        putResourceCacheProperties(env);
         try {
             ProxyDirContext proxyDirContext = new ProxyDirContext(env, webappResources);
             if(webappResources instanceof BaseDirContext) {
@@ -5240,6 +5341,20 @@ public class StandardContext
         return ok;
     }
 
+    /**
+     * Adds the resource cache settings to the environment of a
+     * ProxyDirContext.
+     */
+    private void putResourceCacheProperties(Hashtable<String, String> env) {
+        if (resourceCacheClassName != null) {
+            env.put(ProxyDirContext.CACHE_CLASS, resourceCacheClassName);
+        }
+        if (resourceCacheOffHeapObjectMaxSize > 0) {
+            env.put(ProxyDirContext.CACHE_OFF_HEAP_OBJECT_MAX_SIZE,
+                    String.valueOf(resourceCacheOffHeapObjectMaxSize));
+        }
+    }
+
     /**
      * Starts this context's alternate doc base resources.
      */
@@ -5254,6 +5369,7 @@ public class StandardContext
             env.put(ProxyDirContext.HOST, getParent().getName());
         }
         env.put(ProxyDirContext.CONTEXT, getName());
+        putResourceCacheProperties(env);
         for(AlternateDocBase alternateDocBase : alternateDocBases) {
             String basePath = alternateDocBase.getBasePath();
             DirContext alternateWebappResources = ContextsAdapterUtility.unwrap(
@@ -7556,6 +7672,13 @@ public class StandardContext
 
         ObjectInputStream ois = null;
 
+        SessionSerializer serializer = getSessionSerializer(is);
+        if (serializer != null) {
+            Loader loader = getLoader();
+            return serializer.createObjectInputStream(is,
+                (loader != null) ? loader.getClassLoader() : null);
+        }
+
         Loader loader = getLoader();
         if (loader != null) {
             ClassLoader classLoader = loader.getClassLoader();
@@ -7582,9 +7705,46 @@ public class StandardContext
      */
     public ObjectOutputStream createObjectOutputStream(OutputStream os)
             throws IOException {
+        if (sessionSerializer != null) {
+            return sessionSerializer.createObjectOutputStream(os);
+        }
         return new ObjectOutputStream(os);
     }
 
+    /**
+     * Returns the serializer to read the session data at the start of
+     * <code>is</code> with, or null for standard Java serialization.
+     * Data written by a CompactSessionSerializer is recognised whatever
+     * the current serializer, so that sessions persisted before the
+     * serializer of the context was changed can still be read, provided
+     * <code>is</code> supports mark and reset.
+     */
+    public SessionSerializer getSessionSerializer(InputStream is)
+            throws IOException {
+        SessionSerializer serializer = sessionSerializer;
+        if (CompactSessionSerializer.isCompactStream(is)) {
+            if (!(serializer instanceof CompactSessionSerializer)) {
+                CompactSessionSerializer reader = compactSessionReader;
+                if (reader == null) {
+                    reader = createCompactSessionSerializer();
+                    compactSessionReader = reader;
+                }
+                serializer = reader;
+            }
+        } else if (serializer instanceof CompactSessionSerializer
+                && is.markSupported()) {
+            serializer = null;
+        }
+        return serializer;
+    }
+
+    /**
+     * Creates the CompactSessionSerializer of this context.
+     */
+    public CompactSessionSerializer createCompactSessionSerializer() {
+        return new CompactSessionSerializer();
+    }
+
     /**
      * Gets the time this context was started.
      *
@@ -7622,6 +7782,14 @@ public class StandardContext
         // Deliberate noop
     }
 
+    public void sessionExpirationProcessedEvent(long processingTime) {
+        // Deliberate noop
+    }
+
+    public void sessionsReplicatedEvent(long replicatedBytes, long requestCount) {
+        // Deliberate noop
+    }
+
     public void sessionPersistedStartEvent(HttpSession session) {
         // Deliberate noop
     }
@@ -74,6 +74,7 @@ import java.io.RandomAccessFile;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.nio.ByteBuffer;
 import java.security.AccessController;
 import java.text.MessageFormat;
 import java.util.*;
@@ -102,10 +103,12 @@ import javax.xml.transform.stream.StreamSource;
 
 import org.apache.catalina.Globals;
 import org.apache.catalina.LogFacade;
+import org.apache.catalina.connector.CoyoteOutputStream;
 import org.apache.catalina.core.ContextsAdapterUtility;
 import org.apache.catalina.util.ServerInfo;
 import org.apache.catalina.util.URLEncoder;
 import org.apache.naming.resources.CacheEntry;
+import org.apache.naming.resources.DirectResource;
 import org.apache.naming.resources.ProxyDirContext;
 import org.apache.naming.resources.Resource;
 import org.apache.naming.resources.ResourceAttributes;
@@ -271,6 +274,13 @@ public class DefaultServlet
     protected boolean useAcceptRanges = true;
 
 
+    /**
+     * Should precompressed variants of static resources (the same path with
+     * a .br or .gz extension) be served to clients accepting their encoding?
+     */
+    protected boolean precompressed = false;
+
+
     /**
      * Full range marker.
      */
@@ -327,6 +337,16 @@ public class DefaultServlet
     protected static final int BUFFER_SIZE = 4096;
 
 
+    /**
+     * Content codings of precompressed variants, in order of preference,
+     * and the extension of the corresponding files.
+     */
+    protected static final String[][] PRECOMPRESSED_VARIANTS = {
+        { "br", ".br" },
+        { "gzip", ".gz" }
+    };
+
+
     // --------------------------------------------------------- Public Methods
 
 
@@ -381,6 +401,8 @@ public class DefaultServlet
         if (sc.getInitParameter("useAcceptRanges") != null)
             useAcceptRanges = Boolean.parseBoolean(sc.getInitParameter("useAcceptRanges"));
 
+        precompressed = Boolean.parseBoolean(sc.getInitParameter("precompressed"));
+
         // Sanity check on the specified buffer sizes
         if (input < 256)
             input = 256;
@@ -820,19 +842,17 @@ public class DefaultServlet
 
         CacheEntry cacheEntry = null;
         ProxyDirContext proxyDirContext = resources;
-        if (alternateDocBases == null
-                || alternateDocBases.size() == 0) {
-            cacheEntry = proxyDirContext.lookupCache(path);
-        } else {
+        ProxyDirContext lookupContext = proxyDirContext;
+        if (alternateDocBases != null
+                && alternateDocBases.size() != 0) {
             AlternateDocBase match = AlternateDocBase.findMatch(
                                             path, alternateDocBases);
             if (match != null) {
-                cacheEntry = ((ProxyDirContext) ContextsAdapterUtility.unwrap(match.getResources())).lookupCache(path);
-            } else {
-                // None of the url patterns for alternate docbases matched
-                cacheEntry = proxyDirContext.lookupCache(path);
+                lookupContext = (ProxyDirContext) ContextsAdapterUtility.unwrap(match.getResources());
             }
+            // else none of the url patterns for alternate docbases matched
         }
+        cacheEntry = lookupContext.lookupCache(path);
 
         if (!cacheEntry.exists) {
             // Check if we're included so we can return the appropriate 
@@ -888,13 +908,45 @@ public class DefaultServlet
             }
         }
 
+        // Find content type.
+        String contentType = cacheEntry.attributes.getMimeType();
+        if (contentType == null && !cacheEntry.attributes.isMimeTypeInitialized()) {
+            contentType = getServletContext().getMimeType(cacheEntry.name);
+            cacheEntry.attributes.setMimeType(contentType);
+        }
+
+        boolean included =
+            (request.getAttribute(RequestDispatcher.INCLUDE_CONTEXT_PATH) != null);
+
+        // Serve a precompressed variant of the file instead, if there is one
+        // the client accepts. Its content type is the one of the file.
+        String contentEncoding = null;
+        if (precompressed && (cacheEntry.context == null) && !included) {
+            boolean varies = false;
+            for (String[] variant : PRECOMPRESSED_VARIANTS) {
+                CacheEntry variantEntry =
+                    lookupContext.lookupCache(path + variant[1]);
+                if (!variantEntry.exists || (variantEntry.context != null)) {
+                    continue;
+                }
+                varies = true;
+                if (acceptsEncoding(request, variant[0])
+                        && canWriteBytes(response, content)) {
+                    cacheEntry = variantEntry;
+                    contentEncoding = variant[0];
+                    break;
+                }
+            }
+            if (varies) {
+                response.addHeader("Vary", "Accept-Encoding");
+            }
+        }
+
         // Check if the conditions specified in the optional If headers are
         // satisfied.
         if (cacheEntry.context == null) {
 
             // Checking If headers
-            boolean included =
-                (request.getAttribute(RequestDispatcher.INCLUDE_CONTEXT_PATH) != null);
             if (!included
                 && !checkIfHeaders(request, response, cacheEntry.attributes)) {
                 return;
@@ -902,13 +954,6 @@ public class DefaultServlet
 
         }
 
-        // Find content type.
-        String contentType = cacheEntry.attributes.getMimeType();
-        if (contentType == null && !cacheEntry.attributes.isMimeTypeInitialized()) {
-            contentType = getServletContext().getMimeType(cacheEntry.name);
-            cacheEntry.attributes.setMimeType(contentType);
-        }
-
         ArrayList<Range> ranges = null;
         long contentLength = -1L;
 
@@ -944,6 +989,10 @@ public class DefaultServlet
             response.setHeader("Last-Modified",
                     cacheEntry.attributes.getLastModifiedHttp());
 
+            if (contentEncoding != null) {
+                response.setHeader("Content-Encoding", contentEncoding);
+            }
+
             // Get content length
             contentLength = cacheEntry.attributes.getContentLength();
             // Special case for zero length files, which would cause a
@@ -1020,7 +1069,7 @@ public class DefaultServlet
                     // Silent catch
                 }
                 if (ostream != null) {
-                    if (!checkSendfile(request, response, cacheEntry, contentLength, null))
+                    if (!sendZeroCopy(response, ostream, cacheEntry, contentLength, null))
                         copy(cacheEntry, renderResult, ostream);
                 } else {
                     copy(cacheEntry, renderResult, writer);
@@ -1070,7 +1119,7 @@ public class DefaultServlet
                         // Silent catch
                     }
                     if (ostream != null) {
-                        if (!checkSendfile(request, response, cacheEntry, range.end - range.start + 1, range))
+                        if (!sendZeroCopy(response, ostream, cacheEntry, length, range))
                             copy(cacheEntry, ostream, range);
                     } else {
                         copy(cacheEntry, writer, range);
@@ -1908,30 +1957,112 @@ public class DefaultServlet
 
 
     /**
-     * Check if sendfile can be used.
+     * Send the content of the resource, or a range of it, without copying
+     * it through the response buffer: content held in a direct buffer is
+     * handed to the connector as is, and files larger than sendfileSize are
+     * transferred by the connector with sendfile.
+     *
+     * @param response The servlet response we are creating
+     * @param ostream The output stream to write to
+     * @param entry The cache entry of the resource
+     * @param length The length of the content to send
+     * @param range The range to send, null for the whole content
+     * @return true if the content has been sent
+     *
+     * @exception IOException if an input/output error occurs
      */
-    protected boolean checkSendfile(HttpServletRequest request,
-                                  HttpServletResponse response,
-                                  CacheEntry entry,
-                                  long length, Range range) {
+    protected boolean sendZeroCopy(HttpServletResponse response,
+                                   ServletOutputStream ostream,
+                                   CacheEntry entry,
+                                   long length, Range range)
+        throws IOException {
+        if ((entry.resource == null)
+                || !(ostream instanceof CoyoteOutputStream)) {
+            return false;
+        }
+        CoyoteOutputStream coyoteStream = (CoyoteOutputStream) ostream;
+        if (entry.resource instanceof DirectResource) {
+            ByteBuffer buffer = ((DirectResource) entry.resource).getBuffer();
+            if (range != null) {
+                buffer.position((int) range.start);
+                buffer.limit((int) range.end + 1);
+            }
+            coyoteStream.write(buffer);
+            return true;
+        }
+        // The connector sends files with an identity Content-Encoding
+        String canonicalPath = entry.attributes.getCanonicalPath();
         if ((sendfileSize > 0)
-            && (entry.resource != null)
-            && ((length > sendfileSize) || (entry.resource.getContent() == null))
-            && (entry.attributes.getCanonicalPath() != null)
-            && (Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support")))
-            && (request.getClass().getName().equals("org.apache.catalina.connector.RequestFacade"))
-            && (response.getClass().getName().equals("org.apache.catalina.connector.ResponseFacade"))) {
-            request.setAttribute("org.apache.tomcat.sendfile.filename", entry.attributes.getCanonicalPath());
-            if (range == null) {
-                request.setAttribute("org.apache.tomcat.sendfile.start", Long.valueOf(0L));
-                request.setAttribute("org.apache.tomcat.sendfile.end", Long.valueOf(length));
-            } else {
-                request.setAttribute("org.apache.tomcat.sendfile.start", Long.valueOf(range.start));
-                request.setAttribute("org.apache.tomcat.sendfile.end", Long.valueOf(range.end + 1));
+                && ((length > sendfileSize) || (entry.resource.getContent() == null))
+                && (canonicalPath != null)
+                && !response.containsHeader("Content-Encoding")
+                && coyoteStream.isSendfileAvailable()) {
+            coyoteStream.sendfile(new File(canonicalPath),
+                    (range == null) ? 0L : range.start, length);
+            return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * Check if the client accepts the given content coding, according to
+     * the Accept-Encoding headers of the request.
+     *
+     * @param request The servlet request we are processing
+     * @param encoding The content coding
+     * @return true if the client accepts the content coding
+     */
+    protected boolean acceptsEncoding(HttpServletRequest request,
+                                      String encoding) {
+        boolean anyAccepted = false;
+        Enumeration<String> headers = request.getHeaders("Accept-Encoding");
+        while (headers.hasMoreElements()) {
+            StringTokenizer codings =
+                new StringTokenizer(headers.nextElement(), ",");
+            while (codings.hasMoreTokens()) {
+                String coding = codings.nextToken();
+                double quality = 1.0;
+                int semicolon = coding.indexOf(';');
+                if (semicolon >= 0) {
+                    String param = coding.substring(semicolon + 1).trim();
+                    coding = coding.substring(0, semicolon);
+                    if (param.startsWith("q=")) {
+                        try {
+                            quality = Double.parseDouble(param.substring(2));
+                        } catch (NumberFormatException e) {
+                            quality = 0.0;
+                        }
+                    }
+                }
+                coding = coding.trim();
+                if (coding.equalsIgnoreCase(encoding)) {
+                    // An explicit coding overrides the wildcard
+                    return quality > 0.0;
+                }
+                if (coding.equals("*")) {
+                    anyAccepted = quality > 0.0;
+                }
             }
-            request.setAttribute("org.apache.tomcat.sendfile.token", this);
+        }
+        return anyAccepted;
+    }
+
+
+    /**
+     * A precompressed variant can only be copied to the output stream, check
+     * that the response is not already using a writer.
+     */
+    private boolean canWriteBytes(HttpServletResponse response,
+                                  boolean content)
+        throws IOException {
+        if (!content) {
             return true;
-        } else {
+        }
+        try {
+            response.getOutputStream();
+            return true;
+        } catch (IllegalStateException e) {
             return false;
         }
     }
@@ -0,0 +1,469 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.apache.catalina.session;
+
+import java.io.Externalizable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamConstants;
+import java.io.ObjectStreamField;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.sun.enterprise.container.common.spi.util.JavaEEObjectStreamHandler;
+import org.apache.catalina.SessionSerializer;
+
+/**
+ * A SessionSerializer that writes the class descriptors of the serialized
+ * objects in a compact form wherever that is safe.
+ * <p>
+ * Standard Java serialization writes the descriptor of each class once per
+ * stream, with the names and types of all its serializable fields. For
+ * classes whose layout cannot change without changing their
+ * serialVersionUID, this codec writes only the class name, the
+ * serialVersionUID and a hash of the serialized layout, and the reading
+ * side uses the layout of its local class once both match. These are the
+ * classes that do not declare a serialVersionUID (it is then computed from
+ * the fields of the class), the classes of the Java platform, enums and
+ * arrays.
+ * <p>
+ * The descriptors of the other classes, application classes that declare
+ * a serialVersionUID and may evolve while keeping it, are written in full,
+ * so that they are read with the usual field matching after a redeployment
+ * or by an instance running another version of the application.
+ * Resolved classes are cached for the class loader of the application.
+ * <p>
+ * When created with a JavaEEObjectStreamHandler, the streams replace and
+ * resolve the objects that are not serializable themselves, such as EJB
+ * local references or naming contexts, like the default serialization of
+ * a web module does.
+ * <p>
+ * The streams buffer their output in buffers taken from a pool, and start
+ * with their own stream header, so that
+ * {@link #isCompactStream(InputStream)} can tell them apart from sessions
+ * written with standard Java serialization.
+ */
+public class CompactSessionSerializer implements SessionSerializer {
+
+    /**
+     * The version written after the standard stream magic number,
+     * distinct from ObjectStreamConstants.STREAM_VERSION.
+     */
+    static final short COMPACT_STREAM_VERSION = 0x4355;
+
+    // Written before each class descriptor
+    private static final byte FULL_DESCRIPTOR = 0;
+
+    private static final byte COMPACT_DESCRIPTOR = 1;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final int MAX_POOLED_BUFFERS = 32;
+
+    private static final Map<String, Class<?>> primitiveClasses =
+        new HashMap<String, Class<?>>(16);
+
+    static {
+        Class<?>[] primitives = { boolean.class, byte.class, char.class,
+            short.class, int.class, long.class, float.class, double.class,
+            void.class };
+        for (Class<?> primitive : primitives) {
+            primitiveClasses.put(primitive.getName(), primitive);
+        }
+    }
+
+    private static final ClassValue<Layout> layouts = new ClassValue<Layout>() {
+        @Override
+        protected Layout computeValue(Class<?> cl) {
+            return new Layout(cl);
+        }
+    };
+
+    private final JavaEEObjectStreamHandler streamHandler;
+
+    private final BlockingQueue<byte[]> buffers =
+        new ArrayBlockingQueue<byte[]>(MAX_POOLED_BUFFERS);
+
+    // The classes resolved with the class loader of the cache
+    private volatile ClassCache classCache = new ClassCache(null);
+
+    public CompactSessionSerializer() {
+        this(null);
+    }
+
+    /**
+     * @param streamHandler replaces and resolves the objects that are not
+     * serializable themselves, or null
+     */
+    public CompactSessionSerializer(JavaEEObjectStreamHandler streamHandler) {
+        this.streamHandler = streamHandler;
+    }
+
+    public ObjectOutputStream createObjectOutputStream(OutputStream os)
+            throws IOException {
+        return new CompactObjectOutputStream(new PooledBufferOutputStream(os));
+    }
+
+    public ObjectInputStream createObjectInputStream(InputStream is,
+            ClassLoader classLoader) throws IOException {
+        return new CompactObjectInputStream(is, classLoader);
+    }
+
+    /**
+     * Returns true if the next bytes of <code>is</code> are the header of a
+     * stream written by this codec, without consuming them. Always returns
+     * false if <code>is</code> does not support mark and reset.
+     */
+    public static boolean isCompactStream(InputStream is) throws IOException {
+        if (!is.markSupported()) {
+            return false;
+        }
+        byte[] header = new byte[4];
+        int n = 0;
+        is.mark(header.length);
+        try {
+            while (n < header.length) {
+                int read = is.read(header, n, header.length - n);
+                if (read < 0) {
+                    break;
+                }
+                n += read;
+            }
+        } finally {
+            is.reset();
+        }
+        return n == header.length
+            && (short) (((header[0] & 0xff) << 8) | (header[1] & 0xff))
+                == ObjectStreamConstants.STREAM_MAGIC
+            && (short) (((header[2] & 0xff) << 8) | (header[3] & 0xff))
+                == COMPACT_STREAM_VERSION;
+    }
+
+    private Class<?> resolve(String name, ClassLoader classLoader)
+            throws ClassNotFoundException {
+        Class<?> cl = primitiveClasses.get(name);
+        if (cl != null) {
+            return cl;
+        }
+        ClassCache cache = classCache;
+        if (cache.classLoader != classLoader) {
+            // The application was reloaded
+            cache = new ClassCache(classLoader);
+            classCache = cache;
+        }
+        cl = cache.classes.get(name);
+        if (cl == null) {
+            cl = Class.forName(name, false, classLoader);
+            cache.classes.put(name, cl);
+        }
+        return cl;
+    }
+
+    private static final class ClassCache {
+
+        final ClassLoader classLoader;
+
+        final ConcurrentMap<String, Class<?>> classes =
+            new ConcurrentHashMap<String, Class<?>>();
+
+        ClassCache(ClassLoader classLoader) {
+            this.classLoader = classLoader;
+        }
+    }
+
+    /**
+     * The serialized layout of a class: whether its descriptor can be
+     * written in compact form, and a hash of its serialization flags and
+     * serializable fields.
+     */
+    private static final class Layout {
+
+        final boolean compact;
+
+        final int hash;
+
+        Layout(Class<?> cl) {
+            ObjectStreamClass desc = ObjectStreamClass.lookup(cl);
+            compact = (desc != null)
+                && (cl.isArray() || Enum.class.isAssignableFrom(cl)
+                    || cl.getClassLoader() == null
+                    || !declaresSerialVersionUID(cl));
+
+            int h = 0;
+            if (Externalizable.class.isAssignableFrom(cl)) {
+                h |= ObjectStreamConstants.SC_EXTERNALIZABLE;
+            } else if (hasWriteObject(cl)) {
+                h |= ObjectStreamConstants.SC_WRITE_METHOD;
+            }
+            if (desc != null) {
+                // the fields are in their canonical order
+                for (ObjectStreamField field : desc.getFields()) {
+                    h = 31 * h + field.getName().hashCode();
+                    h = 31 * h + (field.isPrimitive()
+                        ? field.getTypeCode() : field.getTypeString().hashCode());
+                }
+            }
+            hash = h;
+        }
+
+        private static boolean declaresSerialVersionUID(Class<?> cl) {
+            try {
+                Field field = cl.getDeclaredField("serialVersionUID");
+                int modifiers = field.getModifiers();
+                return Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers)
+                    && field.getType() == long.class;
+            } catch (NoSuchFieldException e) {
+                return false;
+            } catch (SecurityException e) {
+                // write the full descriptor
+                return true;
+            }
+        }
+
+        private static boolean hasWriteObject(Class<?> cl) {
+            try {
+                Method method = cl.getDeclaredMethod("writeObject",
+                    ObjectOutputStream.class);
+                int modifiers = method.getModifiers();
+                return Modifier.isPrivate(modifiers) && !Modifier.isStatic(modifiers)
+                    && method.getReturnType() == void.class;
+            } catch (NoSuchMethodException e) {
+                return false;
+            } catch (SecurityException e) {
+                return false;
+            }
+        }
+    }
+
+    private final class CompactObjectOutputStream extends ObjectOutputStream {
+
+        CompactObjectOutputStream(OutputStream os) throws IOException {
+            super(os);
+            if (streamHandler != null) {
+                enableReplaceObject(true);
+            }
+        }
+
+        @Override
+        protected void writeStreamHeader() throws IOException {
+            writeShort(ObjectStreamConstants.STREAM_MAGIC);
+            writeShort(COMPACT_STREAM_VERSION);
+        }
+
+        @Override
+        protected void writeClassDescriptor(ObjectStreamClass desc)
+                throws IOException {
+            Class<?> cl = desc.forClass();
+            Layout layout = (cl != null) ? layouts.get(cl) : null;
+            if (layout != null && layout.compact) {
+                writeByte(COMPACT_DESCRIPTOR);
+                writeUTF(desc.getName());
+                writeLong(desc.getSerialVersionUID());
+                writeInt(layout.hash);
+            } else {
+                writeByte(FULL_DESCRIPTOR);
+                super.writeClassDescriptor(desc);
+            }
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) throws IOException {
+            return streamHandler.replaceObject(obj);
+        }
+    }
+
+    private final class CompactObjectInputStream extends ObjectInputStream {
+
+        private final ClassLoader classLoader;
+
+        CompactObjectInputStream(InputStream is, ClassLoader classLoader)
+                throws IOException {
+            super(is);
+            if (classLoader == null) {
+                classLoader = Thread.currentThread().getContextClassLoader();
+            }
+            this.classLoader = classLoader;
+            if (streamHandler != null) {
+                enableResolveObject(true);
+            }
+        }
+
+        @Override
+        protected void readStreamHeader() throws IOException {
+            short magic = readShort();
+            short version = readShort();
+            if (magic != ObjectStreamConstants.STREAM_MAGIC
+                    || version != COMPACT_STREAM_VERSION) {
+                throw new StreamCorruptedException(String.format(
+                    "invalid stream header: %04X%04X", magic, version));
+            }
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor()
+                throws IOException, ClassNotFoundException {
+            byte type = readByte();
+            if (type == FULL_DESCRIPTOR) {
+                return super.readClassDescriptor();
+            }
+            if (type != COMPACT_DESCRIPTOR) {
+                throw new StreamCorruptedException(String.format(
+                    "invalid class descriptor type: %02X", type));
+            }
+            String name = readUTF();
+            long suid = readLong();
+            int hash = readInt();
+            Class<?> cl = resolve(name, classLoader);
+            ObjectStreamClass desc = ObjectStreamClass.lookup(cl);
+            if (desc == null) {
+                throw new InvalidClassException(name, "class not serializable");
+            }
+            if (desc.getSerialVersionUID() != suid) {
+                throw new InvalidClassException(name,
+                    "local class incompatible: stream classdesc serialVersionUID = "
+                    + suid + ", local class serialVersionUID = "
+                    + desc.getSerialVersionUID());
+            }
+            if (layouts.get(cl).hash != hash) {
+                throw new InvalidClassException(name,
+                    "local class incompatible: serialized fields differ");
+            }
+            return desc;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc)
+                throws IOException, ClassNotFoundException {
+            try {
+                return resolve(desc.getName(), classLoader);
+            } catch (ClassNotFoundException e) {
+                return super.resolveClass(desc);
+            }
+        }
+
+        @Override
+        protected Object resolveObject(Object obj) throws IOException {
+            return streamHandler.resolveObject(obj);
+        }
+    }
+
+    /**
+     * Buffers the output of a CompactObjectOutputStream in a buffer that is
+     * returned to the pool when the stream is closed.
+     */
+    private final class PooledBufferOutputStream extends FilterOutputStream {
+
+        private byte[] buf;
+
+        private int count;
+
+        PooledBufferOutputStream(OutputStream os) {
+            super(os);
+            buf = buffers.poll();
+            if (buf == null) {
+                buf = new byte[BUFFER_SIZE];
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buf.length) {
+                flushBuffer();
+            }
+            buf[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len >= buf.length) {
+                flushBuffer();
+                out.write(b, off, len);
+                return;
+            }
+            if (len > buf.length - count) {
+                flushBuffer();
+            }
+            System.arraycopy(b, off, buf, count, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushBuffer();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (buf == null) {
+                return;
+            }
+            try {
+                flush();
+            } finally {
+                buffers.offer(buf);
+                buf = null;
+                out.close();
+            }
+        }
+
+        private void flushBuffer() throws IOException {
+            if (count > 0) {
+                out.write(buf, 0, count);
+                count = 0;
+            }
+        }
+    }
+}
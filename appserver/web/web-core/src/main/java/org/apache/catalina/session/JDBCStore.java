@@ -63,6 +63,7 @@ import org.apache.catalina.LifecycleException;
 import org.apache.catalina.Loader;
 import org.apache.catalina.LogFacade;
 import org.apache.catalina.Session;
+import org.apache.catalina.core.StandardContext;
 import org.apache.catalina.util.CustomObjectInputStream;
 
 import java.io.*;
@@ -561,17 +562,21 @@ public class JDBCStore extends StoreBase {
                 if (rst.next()) {
                     bis = new BufferedInputStream(rst.getBinaryStream(2));
 
-                    if (container != null) {
-                        loader = container.getLoader();
-                    }
-                    if (loader != null) {
-                        classLoader = loader.getClassLoader();
-                    }
-                    if (classLoader != null) {
-                        ois = new CustomObjectInputStream(bis,
-                                                          classLoader);
+                    if (container instanceof StandardContext) {
+                        ois = ((StandardContext) container).createObjectInputStream(bis);
                     } else {
-                        ois = new ObjectInputStream(bis);
+                        if (container != null) {
+                            loader = container.getLoader();
+                        }
+                        if (loader != null) {
+                            classLoader = loader.getClassLoader();
+                        }
+                        if (classLoader != null) {
+                            ois = new CustomObjectInputStream(bis,
+                                                              classLoader);
+                        } else {
+                            ois = new ObjectInputStream(bis);
+                        }
                     }
 
                     if (debug > 0) {
@@ -721,7 +726,13 @@ public class JDBCStore extends StoreBase {
 
             try {
                 bos = new ByteArrayOutputStream();
-                oos = new ObjectOutputStream(new BufferedOutputStream(bos));
+                Container container = manager.getContainer();
+                if (container instanceof StandardContext) {
+                    oos = ((StandardContext) container).createObjectOutputStream(
+                            new BufferedOutputStream(bos));
+                } else {
+                    oos = new ObjectOutputStream(new BufferedOutputStream(bos));
+                }
 
                 oos.writeObject(session);
                 oos.close();
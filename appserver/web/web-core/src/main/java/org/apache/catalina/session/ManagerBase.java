@@ -206,6 +206,18 @@ public abstract class ManagerBase implements Manager {
      * session identifier.
      */
     protected Map<String, Session> sessions = new ConcurrentHashMap<String, Session>();
+
+    /**
+     * The active sessions, indexed by expiration time.
+     */
+    private final SessionExpirationIndex expirationIndex =
+        new SessionExpirationIndex();
+
+    /**
+     * The time (in milliseconds) taken by the last pass of the background
+     * expiration of sessions.
+     */
+    protected volatile long expiresProcessingTime = 0L;
     
     // Number of sessions created by this manager
     protected int sessionCounter=0;
@@ -620,6 +632,17 @@ public abstract class ManagerBase implements Manager {
         this.expiredSessions = expiredSessions;
     }
 
+
+    /**
+     * Gets the time taken by the last pass of the background expiration of
+     * sessions.
+     *
+     * @return Duration of the last expiration pass, in milliseconds
+     */
+    public long getExpiresProcessingTime() {
+        return expiresProcessingTime;
+    }
+
     //START OF 6364900
     /**
      * set the pluggable sessionLocker for this manager
@@ -679,6 +702,9 @@ public abstract class ManagerBase implements Manager {
      */
     public void add(Session session) {
         sessions.put(session.getIdInternal(), session);
+        if (session instanceof StandardSession) {
+            expirationIndex.schedule((StandardSession) session);
+        }
         int size = sessions.size();
         if (size > maxActive) {
             synchronized(maxActiveUpdateLock) {
@@ -859,6 +885,7 @@ public abstract class ManagerBase implements Manager {
      */
     public void clearSessions() {
         sessions.clear();
+        expirationIndex.clear();
     }    
 
 
@@ -884,6 +911,75 @@ public abstract class ManagerBase implements Manager {
      */
     public void remove(Session session) {
         sessions.remove(session.getIdInternal());
+        unscheduleExpiration(session);
+    }
+
+
+    /**
+     * Update the position of an active session in the expiration index,
+     * after a change of its expiration time.
+     *
+     * @param session The session
+     */
+    void scheduleExpiration(StandardSession session) {
+        String id = session.getIdInternal();
+        if (id != null && sessions.get(id) == session) {
+            expirationIndex.schedule(session);
+        }
+    }
+
+
+    /**
+     * Remove a session from the expiration index, when it is removed from
+     * the active sessions of this manager without going through
+     * {@link #remove(Session)}.
+     *
+     * @param session The session
+     */
+    protected void unscheduleExpiration(Session session) {
+        if (session instanceof StandardSession) {
+            expirationIndex.unschedule((StandardSession) session);
+        }
+    }
+
+
+    /**
+     * Expire the active sessions whose expiration time has been reached,
+     * according to the expiration index. Only these sessions are checked:
+     * the ones which turn out to be still valid, because they are in use,
+     * are indexed again.
+     *
+     * @return The number of sessions expired
+     */
+    protected int expireDueSessions() {
+        long timeNow = System.currentTimeMillis();
+        int expired = 0;
+        for (StandardSession session : expirationIndex.pollDue(timeNow)) {
+            String id = session.getIdInternal();
+            if (id == null || sessions.get(id) != session) {
+                // No longer active in this manager
+                continue;
+            }
+            if (session.lockBackground()) {
+                try {
+                    if (!session.getIsValid() || session.hasExpired()) {
+                        session.expire();
+                        expired++;
+                    }
+                } finally {
+                    session.unlockBackground();
+                }
+            }
+            if (sessions.get(id) == session) {
+                expirationIndex.schedule(session);
+            }
+        }
+        expiresProcessingTime = System.currentTimeMillis() - timeNow;
+        if (container instanceof StandardContext) {
+            ((StandardContext) container).sessionExpirationProcessedEvent(
+                expiresProcessingTime);
+        }
+        return expired;
     }
 
     @Override
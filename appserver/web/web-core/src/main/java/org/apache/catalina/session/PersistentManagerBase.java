@@ -593,25 +593,7 @@ public abstract class PersistentManagerBase
         if (!started)
             return;
 
-        Session sessions[] = findSessions();
-
-        for (int i = 0; i < sessions.length; i++) {
-            StandardSession session = (StandardSession) sessions[i];
-            /* START CR 6363689
-            if (!session.isValid()) {
-            */
-            // START CR 6363689
-            if(!session.getIsValid() || session.hasExpired()) {
-            // END CR 6363689            
-                if(session.lockBackground()) { 
-                    try {
-                        session.expire();
-                    } finally {
-                        session.unlockBackground();
-                    }
-                }                                
-	    }            
-        }
+        expireDueSessions();
     }        
 
 
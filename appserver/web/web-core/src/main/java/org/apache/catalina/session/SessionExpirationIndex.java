@@ -0,0 +1,220 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.apache.catalina.session;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Index of the sessions of a manager by expiration time, so that the
+ * background expiration of sessions only looks at the sessions which are
+ * due to expire instead of checking all of them.
+ * <p>
+ * Sessions are kept in buckets of {@link #GRANULARITY} milliseconds, ordered
+ * by time. The bucket of a session is recorded in the session itself, and
+ * a session is moved to another bucket only when its expiration time
+ * crosses a bucket boundary, so that most requests for a session do not
+ * touch the index. An entry in a bucket which no longer matches the bucket
+ * recorded in its session is stale and ignored.
+ * <p>
+ * Sessions which never expire are not indexed.
+ */
+final class SessionExpirationIndex {
+
+
+    // -------------------------------------------------------------- Constants
+
+
+    /**
+     * The width of a bucket, in milliseconds.
+     */
+    static final long GRANULARITY = 1000L;
+
+
+    /**
+     * The bucket of sessions which are not indexed.
+     */
+    static final long UNSCHEDULED = Long.MIN_VALUE;
+
+
+    private static final AtomicLongFieldUpdater<StandardSession> BUCKET =
+        AtomicLongFieldUpdater.newUpdater(StandardSession.class,
+                                          "expirationBucket");
+
+
+    // ----------------------------------------------------- Instance Variables
+
+
+    private final ConcurrentSkipListMap<Long, Set<StandardSession>> buckets =
+        new ConcurrentSkipListMap<Long, Set<StandardSession>>();
+
+
+    // -------------------------------------------------------- Package Methods
+
+
+    /**
+     * Index the session by its current expiration time, or remove it from
+     * the index if it never expires.
+     *
+     * @param session The session
+     */
+    void schedule(StandardSession session) {
+        long expirationTime = session.getExpirationTime();
+        long bucket = (expirationTime == Long.MAX_VALUE)
+            ? UNSCHEDULED
+            // The first bucket starting at or after the expiration time,
+            // which is due only once all of its sessions have expired
+            : (expirationTime + GRANULARITY - 1) / GRANULARITY;
+        long current;
+        do {
+            current = session.expirationBucket;
+            if (current == bucket) {
+                return;
+            }
+        } while (!BUCKET.compareAndSet(session, current, bucket));
+        if (bucket != UNSCHEDULED) {
+            add(bucket, session);
+        }
+        if (current != UNSCHEDULED) {
+            Set<StandardSession> sessions = buckets.get(current);
+            if (sessions != null) {
+                sessions.remove(session);
+            }
+        }
+    }
+
+
+    /**
+     * Remove the session from the index.
+     *
+     * @param session The session
+     */
+    void unschedule(StandardSession session) {
+        long current = BUCKET.getAndSet(session, UNSCHEDULED);
+        if (current != UNSCHEDULED) {
+            Set<StandardSession> sessions = buckets.get(current);
+            if (sessions != null) {
+                sessions.remove(session);
+            }
+        }
+    }
+
+
+    /**
+     * Remove the sessions whose expiration time has been reached from the
+     * index, and return them. The caller checks whether each of them has
+     * actually expired, and schedules the ones that have not again.
+     *
+     * @param timeNow The current time
+     * @return The sessions due to expire, possibly none
+     */
+    List<StandardSession> pollDue(long timeNow) {
+        List<StandardSession> due = new ArrayList<StandardSession>();
+        long lastDue = timeNow / GRANULARITY;
+        Map.Entry<Long, Set<StandardSession>> entry;
+        while ((entry = buckets.firstEntry()) != null
+                && entry.getKey() <= lastDue) {
+            long bucket = entry.getKey();
+            buckets.remove(bucket, entry.getValue());
+            for (StandardSession session : entry.getValue()) {
+                if (BUCKET.compareAndSet(session, bucket, UNSCHEDULED)) {
+                    due.add(session);
+                }
+            }
+        }
+        return due;
+    }
+
+
+    /**
+     * Return the number of sessions in the index, stale entries included.
+     */
+    int size() {
+        int size = 0;
+        for (Set<StandardSession> sessions : buckets.values()) {
+            size += sessions.size();
+        }
+        return size;
+    }
+
+
+    /**
+     * Remove all sessions from the index.
+     */
+    void clear() {
+        for (Set<StandardSession> sessions : buckets.values()) {
+            for (StandardSession session : sessions) {
+                BUCKET.set(session, UNSCHEDULED);
+            }
+        }
+        buckets.clear();
+    }
+
+
+    // -------------------------------------------------------- Private Methods
+
+
+    private void add(long bucket, StandardSession session) {
+        Long key = Long.valueOf(bucket);
+        while (true) {
+            Set<StandardSession> sessions = buckets.get(key);
+            if (sessions == null) {
+                Set<StandardSession> created = ConcurrentHashMap.newKeySet();
+                sessions = buckets.putIfAbsent(key, created);
+                if (sessions == null) {
+                    sessions = created;
+                }
+            }
+            sessions.add(session);
+            // The bucket may have been polled meanwhile, in which case the
+            // session must be added to a bucket still in the index
+            if (buckets.get(key) == sessions
+                    || session.expirationBucket != bucket) {
+                return;
+            }
+        }
+    }
+}
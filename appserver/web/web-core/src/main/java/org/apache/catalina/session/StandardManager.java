@@ -498,6 +498,7 @@ public class StandardManager
                         StandardSession.deserialize(ois, this);
                     session.setManager(this);
                     sessions.put(session.getIdInternal(), session);
+                    scheduleExpiration(session);
                     session.activate();
                 }
             } catch (ClassNotFoundException e) {
@@ -986,24 +987,8 @@ public class StandardManager
      */
     public void processExpires() {
 
-        long timeNow = System.currentTimeMillis();
-
-        Session[] sessions = findSessions();
-        if (sessions != null) {
-            for (Session session : sessions) {
-                StandardSession sess = (StandardSession) session;
-                if (sess.lockBackground()) {
-                    try {
-                        sess.isValid();
-                    } finally {
-                        sess.unlockBackground();
-                    }
-                }
-            }
-        }
-
-        long timeEnd = System.currentTimeMillis();
-        processingTime += ( timeEnd - timeNow );
+        expireDueSessions();
+        processingTime += expiresProcessingTime;
     }
 
 }
@@ -314,6 +314,12 @@ public class StandardSession
      */
     protected long thisAccessedTime = creationTime;
 
+    /**
+     * The bucket of this session in the expiration index of its manager.
+     */
+    transient volatile long expirationBucket =
+        SessionExpirationIndex.UNSCHEDULED;
+
     /**
      * The session version, incremented and used by in-memory-replicating
      * session managers
@@ -628,6 +634,8 @@ public class StandardSession
         this.maxInactiveInterval = interval;
         if (isValid && interval == 0) {
             expire();
+        } else {
+            scheduleExpiration();
         }
 
     }
@@ -746,6 +754,7 @@ public class StandardSession
     public void setValid(boolean isValid) {
 
         this.isValid = isValid;
+        scheduleExpiration();
         //SJSAS 6406580 START
         if (!isValid && (getManager() instanceof PersistentManagerBase)) {
             ((PersistentManagerBase) getManager()).addToInvalidatedSessions(this.id);            
@@ -767,6 +776,7 @@ public class StandardSession
         this.thisAccessedTime = System.currentTimeMillis();
 
         evaluateIfValid();
+        scheduleExpiration();
     }
 
 
@@ -1099,6 +1109,33 @@ public class StandardSession
     // END SJSAS 6329289
 
 
+    /**
+     * Return the time at which this session expires unless it is accessed
+     * again: a time in the past if it is no longer valid, and
+     * <code>Long.MAX_VALUE</code> if it never expires.
+     */
+    long getExpirationTime() {
+        if (!isValid) {
+            return 0L;
+        }
+        if (maxInactiveInterval < 0) {
+            return Long.MAX_VALUE;
+        }
+        return thisAccessedTime + maxInactiveInterval * 1000L;
+    }
+
+
+    /**
+     * Update the position of this session in the expiration index of its
+     * manager, after a change of its expiration time.
+     */
+    private void scheduleExpiration() {
+        if (manager instanceof ManagerBase) {
+            ((ManagerBase) manager).scheduleExpiration(this);
+        }
+    }
+
+
     /** 
      * Increments the version number
      */
@@ -1989,6 +2026,7 @@ public class StandardSession
             throws ClassNotFoundException, IOException {
 
         version = new AtomicLong();
+        expirationBucket = SessionExpirationIndex.UNSCHEDULED;
 
         lastAccessedTime = ((Long) stream.readObject()).longValue();
         maxInactiveInterval = ((Integer) stream.readObject()).intValue();
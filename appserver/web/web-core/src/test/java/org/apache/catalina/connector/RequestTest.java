@@ -0,0 +1,256 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.apache.catalina.connector;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.servlet.http.Cookie;
+
+import org.apache.catalina.core.StandardContext;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Request and Response create their helper objects on first use; these
+ * tests check that they behave the same before that and after recycle.
+ */
+public class RequestTest {
+
+    private TestRequest request;
+
+    private Response response;
+
+    @Before
+    public void setUp() {
+        request = new TestRequest();
+        response = new Response();
+        request.setResponse(response);
+        response.setRequest(request);
+    }
+
+    @Test
+    public void testFreshRequest() {
+        assertUnset(request);
+    }
+
+    @Test
+    public void testRecycledRequest() {
+        use(request);
+        request.recycle();
+        request.parameters.clear();
+        assertUnset(request);
+
+        // and once more, now that the objects exist
+        use(request);
+        request.recycle();
+        request.parameters.clear();
+        assertUnset(request);
+    }
+
+    @Test
+    public void testRemoveAttributeUnset() {
+        request.removeAttribute("name");
+        assertFalse(request.getAttributeNames().hasMoreElements());
+
+        use(request);
+        request.removeAttribute("name");
+        assertEquals(Collections.singletonList("other"),
+            Collections.list(request.getAttributeNames()));
+    }
+
+    @Test
+    public void testSetCookiesUnset() {
+        request.setCookies(null);
+        assertNull(request.getCookies());
+        request.setCookies(new Cookie[0]);
+        assertNull(request.getCookies());
+
+        Cookie cookie = new Cookie("name", "value");
+        request.setCookies(new Cookie[] { cookie });
+        assertArrayEquals(new Cookie[] { cookie }, request.getCookies());
+        request.setCookies(null);
+        assertNull(request.getCookies());
+
+        request.recycle();
+        request.setCookies(new Cookie[] { cookie });
+        assertArrayEquals(new Cookie[] { cookie }, request.getCookies());
+    }
+
+    @Test
+    public void testParameterMap() {
+        request.parameters.put("a", new String[] { "1" });
+        Map<String, String[]> parameterMap = request.getParameterMap();
+        assertEquals(Collections.singleton("a"), parameterMap.keySet());
+        assertArrayEquals(new String[] { "1" }, parameterMap.get("a"));
+        // built once per request
+        assertSame(parameterMap, request.getParameterMap());
+
+        request.recycle();
+        request.parameters.clear();
+        request.parameters.put("b", new String[] { "2" });
+        parameterMap = request.getParameterMap();
+        assertEquals(Collections.singleton("b"), parameterMap.keySet());
+    }
+
+    @Test
+    public void testMappingData() {
+        assertSame(request.getMappingData(), request.getMappingData());
+        request.recycle();
+        assertSame(request.getMappingData(), request.getMappingData());
+    }
+
+    @Test
+    public void testToAbsoluteBeforeFirstUse() {
+        assertEquals("http://localhost:8080/app/dir/page.jsp",
+            response.toAbsolute("page.jsp"));
+        assertEquals("http://localhost:8080/other",
+            response.toAbsolute("/other"));
+        assertEquals("http://example.com/page",
+            response.toAbsolute("//example.com/page"));
+        assertEquals("https://example.com/page",
+            response.toAbsolute("https://example.com/page"));
+        assertNull(response.toAbsolute(null));
+
+        response.recycle();
+        assertEquals("http://localhost:8080/app/page.jsp",
+            response.toAbsolute("../page.jsp"));
+    }
+
+    @Test
+    public void testEncodeURLBeforeFirstUse() {
+        // without a session, the URL is left as it is
+        assertEquals("page.jsp", response.encodeURL("page.jsp"));
+        assertEquals("/other", response.encodeURL("/other"));
+
+        response.recycle();
+        assertEquals("page.jsp", response.encodeURL("page.jsp"));
+    }
+
+    private static void assertUnset(TestRequest request) {
+        assertFalse(request.getAttributeNames().hasMoreElements());
+        assertNull(request.getCookies());
+        assertFalse(request.getNoteNames().hasNext());
+        assertNull(request.getNote("name"));
+
+        Map<String, String[]> parameterMap = request.getParameterMap();
+        assertTrue(parameterMap.isEmpty());
+        try {
+            parameterMap.put("name", new String[] { "value" });
+            fail("parameter map is not locked");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Create all the objects that the request creates on first use.
+     */
+    private static void use(TestRequest request) {
+        request.context = new StandardContext();
+        request.setAttribute("name", "value");
+        request.setAttribute("other", "value");
+        request.setNote("name", "value");
+        request.addCookie(new Cookie("name", "value"));
+        request.parameters.put("name", new String[] { "value" });
+
+        assertEquals(2, Collections.list(request.getAttributeNames()).size());
+        assertEquals("value", request.getNote("name"));
+        assertEquals(1, request.getCookies().length);
+        assertEquals(1, request.getParameterMap().size());
+    }
+
+    /**
+     * Request whose parameters, cookies and server come from the test
+     * rather than from a Grizzly request.
+     */
+    static class TestRequest extends Request {
+
+        final Map<String, String[]> parameters =
+            new LinkedHashMap<String, String[]>();
+
+        @Override
+        public Enumeration<String> getParameterNames() {
+            return Collections.enumeration(parameters.keySet());
+        }
+
+        @Override
+        public String[] getParameterValues(String name) {
+            return parameters.get(name);
+        }
+
+        @Override
+        protected void parseCookies() {
+            // no Cookie header
+            cookiesParsed = true;
+        }
+
+        @Override
+        public String getScheme() {
+            return "http";
+        }
+
+        @Override
+        public String getServerName() {
+            return "localhost";
+        }
+
+        @Override
+        public int getServerPort() {
+            return 8080;
+        }
+
+        @Override
+        public String getDecodedRequestURI() {
+            return "/app/dir/page.jsp";
+        }
+    }
+}
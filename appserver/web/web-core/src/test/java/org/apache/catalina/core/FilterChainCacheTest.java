@@ -0,0 +1,190 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.apache.catalina.core;
+
+import java.io.IOException;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.apache.catalina.deploy.FilterDef;
+import org.apache.catalina.deploy.FilterMap;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class FilterChainCacheTest {
+
+    private StandardContext context;
+
+    private StandardWrapper wrapper;
+
+    @Before
+    public void setUp() {
+        context = new StandardContext();
+        for (String name : new String[] { "all", "byName", "sub", "late" }) {
+            FilterDef filterDef = new FilterDef();
+            filterDef.setFilterName(name);
+            filterDef.setFilterClass(NoopFilter.class);
+            context.addFilterDef(filterDef);
+        }
+        wrapper = new StandardWrapper();
+        wrapper.setName("servlet");
+    }
+
+    /**
+     * The filters mapped by URL pattern come first, in the order of their
+     * mappings, followed by the filters mapped by servlet name.
+     */
+    @Test
+    public void testFilterOrder() {
+        addURLMapping("all", "/*");
+        addServletMapping("byName", "servlet");
+        addURLMapping("sub", "/sub/*");
+        context.filterStart();
+
+        FilterChainCache cache = context.getFilterChainCache();
+        assertArrayEquals(filters("all", "sub", "byName"),
+            cache.getFilters(wrapper, DispatcherType.REQUEST, "/sub/page"));
+        assertArrayEquals(filters("all", "byName"),
+            cache.getFilters(wrapper, DispatcherType.REQUEST, "/other"));
+        assertArrayEquals(filters("byName"),
+            cache.getFilters(wrapper, DispatcherType.REQUEST, null));
+        // only REQUEST is mapped
+        assertArrayEquals(filters(),
+            cache.getFilters(wrapper, DispatcherType.FORWARD, "/sub/page"));
+    }
+
+    /**
+     * The filters of at most MAX_PATHS request paths are kept, the filters
+     * of further paths are matched on each request.
+     */
+    @Test
+    public void testPathsBounded() {
+        addURLMapping("all", "/*");
+        context.filterStart();
+
+        FilterChainCache cache = context.getFilterChainCache();
+        ApplicationFilterConfig[] first =
+            cache.getFilters(wrapper, DispatcherType.REQUEST, "/path0");
+        for (int i = 1; i < FilterChainCache.MAX_PATHS; i++) {
+            cache.getFilters(wrapper, DispatcherType.REQUEST, "/path" + i);
+        }
+        assertSame(first,
+            cache.getFilters(wrapper, DispatcherType.REQUEST, "/path0"));
+
+        ApplicationFilterConfig[] beyond =
+            cache.getFilters(wrapper, DispatcherType.REQUEST, "/beyond");
+        ApplicationFilterConfig[] again =
+            cache.getFilters(wrapper, DispatcherType.REQUEST, "/beyond");
+        assertNotSame(beyond, again);
+        assertArrayEquals(filters("all"), again);
+    }
+
+    /**
+     * A change of the filter mappings replaces the cache of the context.
+     */
+    @Test
+    public void testInvalidatedByMappingChange() {
+        addURLMapping("all", "/*");
+        context.filterStart();
+
+        FilterChainCache cache = context.getFilterChainCache();
+        assertArrayEquals(filters("all"),
+            cache.getFilters(wrapper, DispatcherType.REQUEST, "/page"));
+
+        addURLMapping("late", "/page");
+        assertNotSame(cache, context.getFilterChainCache());
+        assertArrayEquals(filters("all", "late"),
+            context.getFilterChainCache().getFilters(
+                wrapper, DispatcherType.REQUEST, "/page"));
+
+        context.removeFilterMaps();
+        assertArrayEquals(filters(),
+            context.getFilterChainCache().getFilters(
+                wrapper, DispatcherType.REQUEST, "/page"));
+    }
+
+    private void addURLMapping(String filterName, String urlPattern) {
+        FilterMap filterMap = new FilterMap();
+        filterMap.setFilterName(filterName);
+        filterMap.setURLPattern(urlPattern);
+        context.addFilterMap(filterMap);
+    }
+
+    private void addServletMapping(String filterName, String servletName) {
+        FilterMap filterMap = new FilterMap();
+        filterMap.setFilterName(filterName);
+        filterMap.setServletName(servletName);
+        context.addFilterMap(filterMap);
+    }
+
+    private ApplicationFilterConfig[] filters(String... names) {
+        ApplicationFilterConfig[] filters = new ApplicationFilterConfig[names.length];
+        for (int i = 0; i < names.length; i++) {
+            filters[i] = (ApplicationFilterConfig) context.findFilterConfig(names[i]);
+        }
+        return filters;
+    }
+
+    public static class NoopFilter implements Filter {
+
+        public void init(FilterConfig filterConfig) {
+        }
+
+        public void doFilter(ServletRequest request, ServletResponse response,
+                             FilterChain chain)
+                throws IOException, ServletException {
+            chain.doFilter(request, response);
+        }
+
+        public void destroy() {
+        }
+    }
+}
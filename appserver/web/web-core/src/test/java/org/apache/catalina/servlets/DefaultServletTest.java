@@ -0,0 +1,375 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.apache.catalina.servlets;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.catalina.Globals;
+import org.apache.naming.resources.FileDirContext;
+import org.apache.naming.resources.ProxyDirContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DefaultServletTest {
+
+    private static final byte[] PLAIN = "body { color: black; }".getBytes();
+
+    private static final byte[] BROTLI = "brotli-encoded".getBytes();
+
+    private static final byte[] GZIP = "gzip-encoded-content".getBytes();
+
+    @Rule
+    public TemporaryFolder docBase = new TemporaryFolder();
+
+    private DefaultServlet servlet;
+
+    @Before
+    public void setUp() throws Exception {
+        write("style.css", PLAIN);
+        write("style.css.br", BROTLI);
+        write("style.css.gz", GZIP);
+        write("plain.css", PLAIN);
+        write("gzonly.css", PLAIN);
+        write("gzonly.css.gz", GZIP);
+
+        FileDirContext dirContext = new FileDirContext();
+        dirContext.setCached(false);
+        dirContext.setDocBase(docBase.getRoot().getAbsolutePath());
+        ProxyDirContext resources =
+            new ProxyDirContext(new Hashtable<String, String>(), dirContext);
+
+        Map<String, Object> contextAttributes = new HashMap<String, Object>();
+        contextAttributes.put(Globals.RESOURCES_ATTR, resources);
+        Map<String, String> initParameters = new HashMap<String, String>();
+        initParameters.put("precompressed", "true");
+
+        servlet = new DefaultServlet();
+        servlet.init(servletConfig(initParameters,
+            servletContext(contextAttributes)));
+    }
+
+    @Test
+    public void testAcceptsEncoding() {
+        assertTrue(servlet.acceptsEncoding(request("/", "gzip, br").proxy, "br"));
+        assertTrue(servlet.acceptsEncoding(request("/", "gzip;q=0.5").proxy, "gzip"));
+        assertFalse(servlet.acceptsEncoding(request("/").proxy, "gzip"));
+        assertFalse(servlet.acceptsEncoding(request("/", "deflate").proxy, "gzip"));
+        // q=0 refuses the coding
+        assertFalse(servlet.acceptsEncoding(request("/", "gzip, br;q=0").proxy, "br"));
+        assertFalse(servlet.acceptsEncoding(request("/", "br; q=0.0").proxy, "br"));
+        // the wildcard accepts any coding not listed
+        assertTrue(servlet.acceptsEncoding(request("/", "*").proxy, "br"));
+        assertFalse(servlet.acceptsEncoding(request("/", "*;q=0").proxy, "br"));
+        // an explicit coding overrides the wildcard, in either order
+        assertFalse(servlet.acceptsEncoding(request("/", "br;q=0, *").proxy, "br"));
+        assertFalse(servlet.acceptsEncoding(request("/", "*, br;q=0").proxy, "br"));
+        assertTrue(servlet.acceptsEncoding(request("/", "*;q=0, gzip").proxy, "gzip"));
+        // several Accept-Encoding headers
+        assertTrue(servlet.acceptsEncoding(request("/", "deflate", "br").proxy, "br"));
+    }
+
+    @Test
+    public void testPrefersBrotli() throws Exception {
+        Response response = serve(request("/style.css", "gzip, br"));
+
+        assertEquals(HttpServletResponse.SC_OK, response.status);
+        assertEquals("br", response.header("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.header("Vary"));
+        assertEquals("text/css", response.contentType);
+        assertTrue(Arrays.equals(BROTLI, response.body()));
+    }
+
+    @Test
+    public void testGzipWhenBrotliRefused() throws Exception {
+        Response response = serve(request("/style.css", "br;q=0, gzip"));
+
+        assertEquals("gzip", response.header("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.header("Vary"));
+        assertTrue(Arrays.equals(GZIP, response.body()));
+    }
+
+    @Test
+    public void testOnlyAvailableVariant() throws Exception {
+        Response response = serve(request("/gzonly.css", "gzip, br"));
+
+        assertEquals("gzip", response.header("Content-Encoding"));
+        assertTrue(Arrays.equals(GZIP, response.body()));
+    }
+
+    @Test
+    public void testIdentity() throws Exception {
+        Response response = serve(request("/style.css"));
+
+        assertNull(response.header("Content-Encoding"));
+        // the response still depends on Accept-Encoding
+        assertEquals("Accept-Encoding", response.header("Vary"));
+        assertEquals("text/css", response.contentType);
+        assertTrue(Arrays.equals(PLAIN, response.body()));
+    }
+
+    @Test
+    public void testNoVariant() throws Exception {
+        Response response = serve(request("/plain.css", "gzip, br"));
+
+        assertNull(response.header("Content-Encoding"));
+        assertNull(response.header("Vary"));
+        assertTrue(Arrays.equals(PLAIN, response.body()));
+    }
+
+    @Test
+    public void testRangeOfVariant() throws Exception {
+        Request request = request("/style.css", "gzip");
+        request.headers.put("Range", Collections.singletonList("bytes=0-3"));
+
+        Response response = serve(request);
+
+        // the range applies to the encoded content
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.status);
+        assertEquals("gzip", response.header("Content-Encoding"));
+        assertEquals("bytes 0-3/" + GZIP.length, response.header("Content-Range"));
+        assertTrue(Arrays.equals(Arrays.copyOfRange(GZIP, 0, 4), response.body()));
+    }
+
+    private void write(String name, byte[] content) throws IOException {
+        FileOutputStream fos = new FileOutputStream(new File(docBase.getRoot(), name));
+        try {
+            fos.write(content);
+        } finally {
+            fos.close();
+        }
+    }
+
+    private Response serve(Request request) throws Exception {
+        Response response = new Response();
+        servlet.serveResource(request.proxy,
+            proxy(HttpServletResponse.class, response), true);
+        return response;
+    }
+
+    // ------------------------------------------------------------ Test doubles
+
+    private static Request request(String path, String... acceptEncodings) {
+        Request request = new Request(path);
+        if (acceptEncodings.length > 0) {
+            request.headers.put("Accept-Encoding", Arrays.asList(acceptEncodings));
+        }
+        return request;
+    }
+
+    private static ServletContext servletContext(final Map<String, Object> attributes) {
+        return proxy(ServletContext.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("getAttribute")) {
+                    return attributes.get(args[0]);
+                } else if (name.equals("getMimeType")) {
+                    return ((String) args[0]).endsWith(".css") ? "text/css" : null;
+                }
+                return defaultValue(method);
+            }
+        });
+    }
+
+    private static ServletConfig servletConfig(final Map<String, String> parameters,
+            final ServletContext servletContext) {
+        return proxy(ServletConfig.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("getInitParameter")) {
+                    return parameters.get(args[0]);
+                } else if (name.equals("getInitParameterNames")) {
+                    return Collections.enumeration(parameters.keySet());
+                } else if (name.equals("getServletContext")) {
+                    return servletContext;
+                } else if (name.equals("getServletName")) {
+                    return "default";
+                }
+                return defaultValue(method);
+            }
+        });
+    }
+
+    /**
+     * A GET request for a path, with the given headers.
+     */
+    private static class Request implements InvocationHandler {
+
+        final String path;
+
+        final Map<String, List<String>> headers = new HashMap<String, List<String>>();
+
+        final HttpServletRequest proxy = proxy(HttpServletRequest.class, this);
+
+        Request(String path) {
+            this.path = path;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (name.equals("getServletPath") || name.equals("getRequestURI")) {
+                return path;
+            } else if (name.equals("getMethod")) {
+                return "GET";
+            } else if (name.equals("getHeader")) {
+                List<String> values = headers.get(args[0]);
+                return (values == null) ? null : values.get(0);
+            } else if (name.equals("getHeaders")) {
+                List<String> values = headers.get(args[0]);
+                return Collections.enumeration((values == null)
+                    ? Collections.<String>emptyList() : values);
+            } else if (name.equals("getDateHeader")) {
+                return -1L;
+            }
+            return defaultValue(method);
+        }
+    }
+
+    /**
+     * Records the status, headers and body of a response.
+     */
+    private static class Response implements InvocationHandler {
+
+        int status = HttpServletResponse.SC_OK;
+
+        String contentType;
+
+        final Map<String, List<String>> headers = new HashMap<String, List<String>>();
+
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+        final ServletOutputStream ostream = new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                content.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        };
+
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (name.equals("setHeader")) {
+                headers.put((String) args[0],
+                    new ArrayList<String>(Collections.singletonList(String.valueOf(args[1]))));
+            } else if (name.equals("addHeader")) {
+                List<String> values = headers.get(args[0]);
+                if (values == null) {
+                    values = new ArrayList<String>();
+                    headers.put((String) args[0], values);
+                }
+                values.add((String) args[1]);
+            } else if (name.equals("containsHeader")) {
+                return headers.containsKey(args[0]);
+            } else if (name.equals("setStatus") || name.equals("sendError")) {
+                status = (Integer) args[0];
+            } else if (name.equals("setContentType")) {
+                contentType = (String) args[0];
+            } else if (name.equals("getOutputStream")) {
+                return ostream;
+            }
+            return defaultValue(method);
+        }
+
+        String header(String name) {
+            List<String> values = headers.get(name);
+            if (values == null) {
+                return null;
+            }
+            assertEquals(name, 1, values.size());
+            return values.get(0);
+        }
+
+        byte[] body() {
+            return content.toByteArray();
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(
+            DefaultServletTest.class.getClassLoader(), new Class<?>[] { type }, handler));
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return Boolean.FALSE;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+}
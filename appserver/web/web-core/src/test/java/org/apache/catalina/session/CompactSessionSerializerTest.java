@@ -0,0 +1,297 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.apache.catalina.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.sun.enterprise.container.common.spi.util.JavaEEObjectStreamHandler;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CompactSessionSerializerTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Map<String, Object> session = createSession();
+        CompactSessionSerializer serializer = new CompactSessionSerializer();
+
+        Map<?, ?> read = (Map<?, ?>) read(serializer, write(serializer, session));
+
+        assertEquals(session.size(), read.size());
+        for (Map.Entry<String, Object> entry : session.entrySet()) {
+            Object value = read.get(entry.getKey());
+            if (entry.getValue() instanceof int[]) {
+                assertTrue(Arrays.equals((int[]) entry.getValue(), (int[]) value));
+            } else {
+                assertEquals(entry.getValue(), value);
+            }
+        }
+    }
+
+    @Test
+    public void testSmallerThanJavaSerialization() throws Exception {
+        Map<String, Object> session = createSession();
+
+        int compact = write(new CompactSessionSerializer(), session).length;
+        int java = write(null, session).length;
+
+        assertTrue("compact " + compact + " java " + java, compact < java);
+    }
+
+    @Test
+    public void testFieldLayouts() throws Exception {
+        CompactSessionSerializer serializer = new CompactSessionSerializer();
+
+        // the serialVersionUID of Item is computed, its fields are not written
+        String item = new String(write(serializer,
+            new Item("sku-1", 1, new BigDecimal("1.50"))), "ISO-8859-1");
+        assertFalse(item.contains("quantity"));
+
+        // VersionedItem declares its serialVersionUID, it is written in full
+        String versioned = new String(write(serializer,
+            new VersionedItem("sku-1", 1)), "ISO-8859-1");
+        assertTrue(versioned.contains("quantity"));
+    }
+
+    @Test
+    public void testIsCompactStream() throws Exception {
+        Map<String, Object> session = createSession();
+
+        assertTrue(CompactSessionSerializer.isCompactStream(
+            new ByteArrayInputStream(write(new CompactSessionSerializer(), session))));
+        assertFalse(CompactSessionSerializer.isCompactStream(
+            new ByteArrayInputStream(write(null, session))));
+    }
+
+    @Test
+    public void testReplaceObject() throws Exception {
+        CompactSessionSerializer serializer =
+            new CompactSessionSerializer(new ReplacingStreamHandler());
+        Map<String, Object> session = new HashMap<String, Object>();
+        session.put("context", new NotSerializable("java:comp/env"));
+        session.put("item", new Item("sku-1", 1, BigDecimal.ONE));
+
+        Map<?, ?> read = (Map<?, ?>) read(serializer, write(serializer, session));
+
+        NotSerializable context = (NotSerializable) read.get("context");
+        assertNotNull(context);
+        assertEquals("java:comp/env", context.name);
+        assertEquals(session.get("item"), read.get("item"));
+    }
+
+    @Test
+    public void testPooledBuffers() throws Exception {
+        CompactSessionSerializer serializer = new CompactSessionSerializer();
+        // larger than a pooled buffer, then small again with the same buffer
+        char[] chars = new char[20000];
+        Arrays.fill(chars, 'x');
+        String large = new String(chars);
+
+        assertEquals(large, read(serializer, write(serializer, large)));
+        Map<String, Object> session = createSession();
+        Map<?, ?> read = (Map<?, ?>) read(serializer, write(serializer, session));
+        assertEquals(session.get("cart"), read.get("cart"));
+    }
+
+    @Test
+    public void testEnum() throws Exception {
+        CompactSessionSerializer serializer = new CompactSessionSerializer();
+
+        assertSame(Status.SHIPPED, read(serializer, write(serializer, Status.SHIPPED)));
+    }
+
+    private static Map<String, Object> createSession() {
+        List<Item> cart = new ArrayList<Item>();
+        for (int i = 0; i < 20; i++) {
+            cart.add(new Item("sku-" + i, i % 3 + 1, new BigDecimal(i + ".99")));
+        }
+        Map<String, Object> session = new HashMap<String, Object>();
+        session.put("cart", cart);
+        session.put("versioned", new VersionedItem("sku-v", 2));
+        session.put("status", Status.PENDING);
+        session.put("created", new Date(1234567890L));
+        session.put("visits", Integer.valueOf(42));
+        session.put("scores", new int[] { 1, 2, 3 });
+        return session;
+    }
+
+    private static byte[] write(CompactSessionSerializer serializer,
+            Object obj) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = (serializer != null)
+            ? serializer.createObjectOutputStream(bos)
+            : new ObjectOutputStream(bos);
+        try {
+            oos.writeObject(obj);
+        } finally {
+            oos.close();
+        }
+        return bos.toByteArray();
+    }
+
+    private static Object read(CompactSessionSerializer serializer,
+            byte[] bytes) throws Exception {
+        ObjectInputStream ois = serializer.createObjectInputStream(
+            new ByteArrayInputStream(bytes),
+            CompactSessionSerializerTest.class.getClassLoader());
+        try {
+            return ois.readObject();
+        } finally {
+            ois.close();
+        }
+    }
+
+    enum Status { PENDING, SHIPPED }
+
+    static class Item implements Serializable {
+
+        private final String sku;
+
+        private final int quantity;
+
+        private final BigDecimal price;
+
+        Item(String sku, int quantity, BigDecimal price) {
+            this.sku = sku;
+            this.quantity = quantity;
+            this.price = price;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Item)) {
+                return false;
+            }
+            Item other = (Item) o;
+            return sku.equals(other.sku) && quantity == other.quantity
+                && price.equals(other.price);
+        }
+
+        @Override
+        public int hashCode() {
+            return sku.hashCode();
+        }
+    }
+
+    static class VersionedItem implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String sku;
+
+        private final int quantity;
+
+        VersionedItem(String sku, int quantity) {
+            this.sku = sku;
+            this.quantity = quantity;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof VersionedItem)) {
+                return false;
+            }
+            VersionedItem other = (VersionedItem) o;
+            return sku.equals(other.sku) && quantity == other.quantity;
+        }
+
+        @Override
+        public int hashCode() {
+            return sku.hashCode();
+        }
+    }
+
+    static class NotSerializable {
+
+        final String name;
+
+        NotSerializable(String name) {
+            this.name = name;
+        }
+    }
+
+    static class SerializableReference implements Serializable {
+
+        private final String name;
+
+        SerializableReference(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Replaces the NotSerializable objects, as JavaEEIOUtils does for naming
+     * contexts.
+     */
+    static class ReplacingStreamHandler implements JavaEEObjectStreamHandler {
+
+        public Object replaceObject(Object obj) {
+            if (obj instanceof NotSerializable) {
+                return new SerializableReference(((NotSerializable) obj).name);
+            }
+            return obj;
+        }
+
+        public Object resolveObject(Object obj) {
+            if (obj instanceof SerializableReference) {
+                return new NotSerializable(((SerializableReference) obj).name);
+            }
+            return obj;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.apache.catalina.session;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SessionExpirationIndexTest {
+
+    private static final long GRANULARITY = SessionExpirationIndex.GRANULARITY;
+
+    private static final long NOW = 1000L * GRANULARITY;
+
+    private SessionExpirationIndex index;
+
+    private StandardManager manager;
+
+    @Before
+    public void setUp() {
+        index = new SessionExpirationIndex();
+        manager = new StandardManager();
+    }
+
+    @Test
+    public void testScheduleAndPollDue() {
+        StandardSession session = createSession(NOW, 60);
+        index.schedule(session);
+        assertEquals(1, index.size());
+
+        // not due before its expiration time
+        assertTrue(index.pollDue(NOW + 59 * GRANULARITY).isEmpty());
+        assertEquals(1, index.size());
+
+        List<StandardSession> due = index.pollDue(NOW + 60 * GRANULARITY);
+        assertEquals(1, due.size());
+        assertTrue(due.get(0) == session);
+        assertEquals(0, index.size());
+        assertEquals(SessionExpirationIndex.UNSCHEDULED, session.expirationBucket);
+    }
+
+    @Test
+    public void testTouchWithinBucket() {
+        StandardSession session = createSession(NOW + 1, 60);
+        index.schedule(session);
+        long bucket = session.expirationBucket;
+
+        session.thisAccessedTime = NOW + GRANULARITY - 1;
+        index.schedule(session);
+        assertEquals(bucket, session.expirationBucket);
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testTouchAcrossBuckets() {
+        StandardSession session = createSession(NOW, 60);
+        index.schedule(session);
+
+        session.thisAccessedTime = NOW + 10 * GRANULARITY;
+        index.schedule(session);
+        // moved, not added twice
+        assertEquals(1, index.size());
+
+        // the old bucket no longer holds it
+        assertTrue(index.pollDue(NOW + 60 * GRANULARITY).isEmpty());
+        List<StandardSession> due = index.pollDue(NOW + 70 * GRANULARITY);
+        assertEquals(1, due.size());
+        assertTrue(due.get(0) == session);
+    }
+
+    @Test
+    public void testNeverExpiringAndUnscheduled() {
+        StandardSession forever = createSession(NOW, -1);
+        index.schedule(forever);
+        assertEquals(0, index.size());
+
+        StandardSession session = createSession(NOW, 60);
+        index.schedule(session);
+        // a session which stops expiring leaves the index
+        session.maxInactiveInterval = -1;
+        index.schedule(session);
+        assertEquals(0, index.size());
+
+        session.maxInactiveInterval = 60;
+        index.schedule(session);
+        index.unschedule(session);
+        assertEquals(0, index.size());
+        assertTrue(index.pollDue(Long.MAX_VALUE / 2).isEmpty());
+    }
+
+    @Test
+    public void testConcurrentTouchAndExpire() throws Exception {
+        final int count = 100;
+        final int rounds = 200;
+        final List<StandardSession> sessions = new ArrayList<StandardSession>();
+        for (int i = 0; i < count; i++) {
+            StandardSession session = createSession(NOW, 1);
+            sessions.add(session);
+            index.schedule(session);
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        // requests move the sessions to later buckets
+        Thread toucher = new Thread() {
+            public void run() {
+                try {
+                    start.await();
+                    for (int r = 1; r <= rounds; r++) {
+                        for (StandardSession session : sessions) {
+                            session.thisAccessedTime = NOW + r * GRANULARITY;
+                            index.schedule(session);
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            }
+        };
+        // the background processing polls the due sessions and, as none of
+        // them is checked as expired here, schedules them again
+        Thread expirer = new Thread() {
+            public void run() {
+                try {
+                    start.await();
+                    for (int r = 1; r <= rounds; r++) {
+                        List<StandardSession> due = index.pollDue(NOW + (r + 1) * GRANULARITY);
+                        if (new HashSet<StandardSession>(due).size() != due.size()) {
+                            throw new AssertionError("session polled twice");
+                        }
+                        for (StandardSession session : due) {
+                            index.schedule(session);
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            }
+        };
+        toucher.start();
+        expirer.start();
+        start.countDown();
+        toucher.join();
+        expirer.join();
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+
+        // no session was lost, and none is in the index twice
+        List<StandardSession> due = index.pollDue(Long.MAX_VALUE / 2);
+        Set<StandardSession> polled = new HashSet<StandardSession>(due);
+        assertEquals(count, due.size());
+        assertEquals(count, polled.size());
+        assertTrue(polled.containsAll(sessions));
+        assertEquals(0, index.size());
+    }
+
+    private StandardSession createSession(long accessedTime, int maxInactiveInterval) {
+        // the fields are set directly so that the manager does not index it
+        StandardSession session = new StandardSession(manager);
+        session.isValid = true;
+        session.maxInactiveInterval = maxInactiveInterval;
+        session.thisAccessedTime = accessedTime;
+        return session;
+    }
+}
@@ -61,6 +61,8 @@ public class CacheManager {
 
     public static final int DEFAULT_CACHE_TIMEOUT = 30;
 
+    public static final int DEFAULT_STALE_WHILE_REVALIDATE = 0;
+
     public static final String DEFAULT_CACHE_CLASSNAME = 
         "com.sun.appserv.util.cache.LruCache";
 
@@ -74,6 +76,7 @@ public class CacheManager {
     // default max maximum number of entries in the cache
     int maxEntries = DEFAULT_CACHE_MAX_ENTRIES;
     int defaultTimeout = DEFAULT_CACHE_TIMEOUT;
+    int staleWhileRevalidate = DEFAULT_STALE_WHILE_REVALIDATE;
     String cacheClassName = DEFAULT_CACHE_CLASSNAME;
     
     boolean enabled = false;
@@ -126,6 +129,15 @@ public class CacheManager {
         this.defaultTimeout = defaultTimeout;
     }
 
+    /**
+     * set how long an expired response may still be sent while it is
+     * being regenerated
+     * @param staleWhileRevalidate in seconds; 0 to wait for the regeneration
+     */
+    public void setStaleWhileRevalidate(int staleWhileRevalidate) {
+        this.staleWhileRevalidate = staleWhileRevalidate;
+    }
+
     /**
      * set the whether this is enabled
      * @param enabled is this enabled?
@@ -149,6 +161,13 @@ public class CacheManager {
     public void addProperty(String name, String value) {
         if (name.equalsIgnoreCase("cacheClassName")) {
            cacheClassName = value; 
+        } else if (name.equalsIgnoreCase("staleWhileRevalidate")) {
+            try {
+                staleWhileRevalidate = Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                _logger.log(Level.WARNING, LogFacade.INVALID_CACHE_PROPERTY,
+                            new Object[] { name, value });
+            }
         } else {
             if (cacheProps == null) {
                 cacheProps = new Properties();
@@ -303,6 +322,15 @@ public class CacheManager {
         return defaultTimeout;
     }
 
+    /**
+     * get how long an expired response may still be sent while it is
+     * being regenerated
+     * @return time in seconds
+     */
+    public int getStaleWhileRevalidate() {
+        return staleWhileRevalidate;
+    }
+
     /**
      * get the default application-wide cache
      * @return cache object
@@ -50,12 +50,14 @@ import javax.servlet.*;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.apache.catalina.connector.CoyoteOutputStream;
 import org.glassfish.web.LogFacade;
 
 public class CachingFilter implements Filter, CacheManagerListener {
@@ -63,6 +65,9 @@ public class CachingFilter implements Filter, CacheManagerListener {
     private static final String PROCESSING_SET =
         "com.sun.appserv.web.cache.filter.CachingFilter.PROCESSING_SET";
 
+    // size of the chunks copied from off heap bodies
+    private static final int COPY_BUFFER_SIZE = 8192;
+
     // this servlet filter name
     String filterName;
     String servletName;
@@ -161,7 +166,7 @@ public class CachingFilter implements Filter, CacheManagerListener {
                 _logger.log(Level.FINE, LogFacade.CACHING_FILTER_CACHEABLE, new Object[]{request.getServletPath(), key, index});
             }
 
-            HttpCacheEntry entry = null;
+            HttpCacheEntry entry = null, staleEntry = null;
             boolean entryReady = false, waitForRefresh = true;
             
             // if refresh is not needed then check the cache first
@@ -174,6 +179,18 @@ public class CachingFilter implements Filter, CacheManagerListener {
                         // see if there is cached entry and is valid
                         entryReady = true;
                         break;
+                    } else if (entry != null && entry.isServableWhileRevalidating(
+                                manager.getStaleWhileRevalidate())) {
+                        /**
+                         *  the expired entry is sent while a single thread
+                         *  regenerates it, without blocking the others.
+                         */
+                        if (entry.startRevalidation()) {
+                            staleEntry = entry;
+                        } else {
+                            entryReady = true;
+                        }
+                        break;
                     }
                     else {
                         /** 
@@ -238,7 +255,9 @@ public class CachingFilter implements Filter, CacheManagerListener {
 
                         cache.put(key, entry, entry.getSize());
 
-                        cache.notifyRefresh(index);
+                        if (staleEntry == null) {
+                            cache.notifyRefresh(index);
+                        }
                         needNotify = false;
 
                         // transmit the response body content
@@ -253,7 +272,11 @@ public class CachingFilter implements Filter, CacheManagerListener {
                 } finally {
                     // IT 12891
                     if (needNotify) {
-                        cache.notifyRefresh(index);
+                        if (staleEntry == null) {
+                            cache.notifyRefresh(index);
+                        } else {
+                            staleEntry.cancelRevalidation();
+                        }
                     }
 
                     // clear the wrapper (XXX: cache these??)
@@ -352,7 +375,21 @@ public class CachingFilter implements Filter, CacheManagerListener {
                            HttpServletResponse response)
                            throws IOException {
         ServletOutputStream out = response.getOutputStream();
-        out.write(entry.bytes);
+        ByteBuffer body = entry.body;
+        if (body == null) {
+            out.write(entry.bytes);
+        } else if (out instanceof CoyoteOutputStream) {
+            // send the off heap body without copying it to the heap
+            ((CoyoteOutputStream) out).write(body.duplicate());
+        } else {
+            body = body.duplicate();
+            byte[] buf = new byte[Math.min(body.remaining(), COPY_BUFFER_SIZE)];
+            while (body.hasRemaining()) {
+                int n = Math.min(body.remaining(), buf.length);
+                body.get(buf, 0, n);
+                out.write(buf, 0, n);
+            }
+        }
     }
 
     /**
@@ -40,9 +40,11 @@
 
 package com.sun.appserv.web.cache.filter;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.servlet.http.Cookie;
 
 /** HttpCacheEntry 
@@ -70,8 +72,19 @@ public class HttpCacheEntry {
     // XXX: other cacheable response info 
     byte[] bytes; 
 
+    // read only view of the response bytes, when kept off heap instead
+    ByteBuffer body;
+
+    // slab of the body and slot of this entry in it, while it is cached by
+    // OffHeapResponseCache; guarded by the slab lock of the cache
+    OffHeapResponseCache.Slab slab;
+    int slot;
+
     volatile long expireTime = 0;
 
+    // is a thread regenerating this expired response?
+    private final AtomicBoolean revalidating = new AtomicBoolean();
+
     /**
      * set the real expire time
      * @param expireTime in milli seconds
@@ -99,11 +112,40 @@ public class HttpCacheEntry {
         return (expireTime > System.currentTimeMillis() || expireTime == -1);
     }
 
+    /**
+     * may this response still be sent while it is being regenerated?
+     * @param staleWhileRevalidate seconds after its expiry during which the
+     *        response may still be sent
+     */
+    public boolean isServableWhileRevalidating(int staleWhileRevalidate) {
+        return (expireTime != -1 && staleWhileRevalidate > 0 &&
+                expireTime + (staleWhileRevalidate * 1000L) >
+                    System.currentTimeMillis());
+    }
+
+    /**
+     * claim the regeneration of this expired response
+     * @return true if the caller is to regenerate it; false if another
+     *         thread does already
+     */
+    public boolean startRevalidation() {
+        return revalidating.compareAndSet(false, true);
+    }
+
+    /**
+     * give up the regeneration of this expired response, so that another
+     * thread may claim it
+     */
+    public void cancelRevalidation() {
+        revalidating.set(false);
+    }
+
     /** 
      * clear the contents
      */
     public void clear() {
         bytes = null;
+        body = null;
         responseHeaders = null;
         cookies = null;
     }
@@ -117,6 +159,8 @@ public class HttpCacheEntry {
         int size = 0;
         if (bytes != null) {
             size = bytes.length;
+        } else if (body != null) {
+            size = body.capacity();
         }
 
         // size of response bytes plus headers (each approx 20 chars or 40 bytes)
@@ -0,0 +1,319 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.appserv.web.cache.filter;
+
+import com.sun.appserv.util.cache.ConcurrentLruCache;
+import com.sun.appserv.util.cache.Constants;
+import org.glassfish.web.LogFacade;
+
+import java.nio.ByteBuffer;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.ResourceBundle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * OffHeapResponseCache
+ * response cache which keeps the bodies of the cached responses outside of
+ * the Java heap, bounded by their total size in bytes.
+ *
+ * The bodies are copied into direct buffers of <code>SlabSize</code> bytes
+ * (1 MB by default) which are filled one after the other. When the slabs
+ * would exceed <code>MaxOffHeapSize</code> bytes (64 MB by default; KB and
+ * MB suffixes are accepted), the oldest slab is dropped together with the
+ * responses whose bodies it holds. Slabs are never reused: a response being
+ * written out when its slab is dropped keeps the slab reachable until the
+ * write completes. Bodies larger than a slab stay on the heap.
+ *
+ * The entries are otherwise managed like with ConcurrentLruCache, whose
+ * statistics are reported along with the size and maximum size of the
+ * slabs, under the keys of BoundedMultiLruCache.
+ *
+ * Use it by setting the <code>cacheClassName</code> property of the cache
+ * of a web module to this class.
+ */
+public class OffHeapResponseCache extends ConcurrentLruCache {
+
+    public static final long DEFAULT_MAX_OFF_HEAP_SIZE = 64L * Constants.MB;
+
+    public static final int DEFAULT_SLAB_SIZE = Constants.MB;
+
+    private static final Logger _logger = LogFacade.getLogger();
+
+    private static final ResourceBundle _rb = _logger.getResourceBundle();
+
+    private long maxOffHeapSize = DEFAULT_MAX_OFF_HEAP_SIZE;
+
+    private int slabSize = DEFAULT_SLAB_SIZE;
+
+    // slabs from the oldest to the current one, guarded by slabLock
+    private final LinkedList<Slab> slabs = new LinkedList<Slab>();
+    private final Object slabLock = new Object();
+
+    private final AtomicLong offHeapSize = new AtomicLong();
+
+    /**
+     * default constructor
+     */
+    public OffHeapResponseCache() { }
+
+    /**
+     * initialize the cache
+     * @param maxEntries maximum number of entries expected in the cache
+     * @param loadFactor the load factor
+     * @param props opaque list of properties for a given cache implementation
+     */
+    @Override
+    public void init(int maxEntries, float loadFactor, Properties props) {
+        super.init(maxEntries, loadFactor, props);
+
+        if (props != null) {
+            String prop = props.getProperty("MaxOffHeapSize");
+            if (prop != null) {
+                maxOffHeapSize = parseSize("MaxOffHeapSize", prop);
+            }
+            prop = props.getProperty("SlabSize");
+            if (prop != null) {
+                slabSize = (int) Math.min(parseSize("SlabSize", prop),
+                                          Integer.MAX_VALUE);
+            }
+        }
+        if (slabSize > maxOffHeapSize) {
+            slabSize = (int) maxOffHeapSize;
+        }
+    }
+
+    /**
+     * parse a size in bytes, with an optional KB or MB suffix
+     */
+    private static long parseSize(String name, String value) {
+        String prop = value.toUpperCase(Locale.ENGLISH);
+        int multiplier = 1;
+        int index;
+        if ((index = prop.indexOf("KB")) != -1) {
+            multiplier = Constants.KB;
+            prop = prop.substring(0, index);
+        } else if ((index = prop.indexOf("MB")) != -1) {
+            multiplier = Constants.MB;
+            prop = prop.substring(0, index);
+        }
+
+        long size = -1;
+        try {
+            size = Long.parseLong(prop.trim());
+        } catch (NumberFormatException nfe) {}
+
+        if (size <= 0) {
+            String msg = MessageFormat.format(
+                _rb.getString(LogFacade.INVALID_CACHE_PROPERTY),
+                name, value);
+            throw new IllegalArgumentException(msg);
+        }
+        return size * multiplier;
+    }
+
+    /**
+     * cache the given value at the specified key and return previous value;
+     * the body of a response is moved off heap first.
+     */
+    @Override
+    protected Object _put(int hashCode, Object key,
+                          Object value, int size, boolean addValue) {
+        if (value instanceof HttpCacheEntry) {
+            HttpCacheEntry entry = (HttpCacheEntry) value;
+            if (entry.bytes != null && entry.bytes.length <= slabSize) {
+                ByteBuffer body = store(key, entry);
+                body.put(entry.bytes);
+                body.flip();
+                entry.body = body.asReadOnlyBuffer();
+                entry.bytes = null;
+            }
+        }
+        return super._put(hashCode, key, value, size, addValue);
+    }
+
+    /**
+     * reserve the room for the body of the given entry in the current slab,
+     * starting a new slab and dropping the oldest ones as needed.
+     */
+    private ByteBuffer store(Object key, HttpCacheEntry entry) {
+        int length = entry.bytes.length;
+        List<Slab> dropped = null;
+        ByteBuffer body;
+
+        synchronized (slabLock) {
+            Slab slab = slabs.peekLast();
+            if (slab == null || slab.buffer.remaining() < length) {
+                while (!slabs.isEmpty()
+                        && offHeapSize.get() + slabSize > maxOffHeapSize) {
+                    if (dropped == null) {
+                        dropped = new ArrayList<Slab>();
+                    }
+                    Slab oldest = slabs.removeFirst();
+                    offHeapSize.addAndGet(-slabSize);
+                    dropped.add(oldest);
+                }
+                slab = new Slab(ByteBuffer.allocateDirect(slabSize));
+                slabs.addLast(slab);
+                offHeapSize.addAndGet(slabSize);
+            }
+
+            ByteBuffer buffer = slab.buffer;
+            int position = buffer.position();
+            buffer.limit(position + length);
+            body = buffer.slice();
+            buffer.position(position + length);
+            buffer.limit(buffer.capacity());
+
+            entry.slab = slab;
+            entry.slot = slab.keys.size();
+            slab.keys.add(key);
+            slab.entries.add(entry);
+
+            if (dropped != null) {
+                for (Slab oldest : dropped) {
+                    for (HttpCacheEntry e : oldest.entries) {
+                        if (e != null) {
+                            e.slab = null;
+                        }
+                    }
+                }
+            }
+        }
+
+        // remove the responses of the dropped slabs, unless they were
+        // removed or replaced already
+        if (dropped != null) {
+            for (Slab slab : dropped) {
+                for (int i = 0; i < slab.keys.size(); i++) {
+                    if (slab.keys.get(i) != null) {
+                        remove(slab.keys.get(i), slab.entries.get(i));
+                    }
+                }
+            }
+        }
+        return body;
+    }
+
+    /**
+     * release the slot of a response removed from the cache, so that its
+     * key, headers and cookies are not kept reachable by its slab.
+     */
+    @Override
+    protected void valueRemoved(Object key, Object value) {
+        if (value instanceof HttpCacheEntry) {
+            HttpCacheEntry entry = (HttpCacheEntry) value;
+            synchronized (slabLock) {
+                Slab slab = entry.slab;
+                if (slab != null) {
+                    slab.keys.set(entry.slot, null);
+                    slab.entries.set(entry.slot, null);
+                    entry.slab = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * get the current size of the slabs
+     * @return size in bytes
+     */
+    public long getOffHeapSize() {
+        return offHeapSize.get();
+    }
+
+    /**
+     * get the maximum size of the slabs
+     * @return size in bytes
+     */
+    public long getMaxOffHeapSize() {
+        return maxOffHeapSize;
+    }
+
+    /**
+     * get the stats snapshot
+     * @return a Map of stats
+     */
+    @Override
+    public Map getStats() {
+        Map stats = super.getStats();
+        stats.put(Constants.STAT_BOUNDEDMULTILRUCACHE_CURRENT_SIZE,
+                  Long.valueOf(offHeapSize.get()));
+        stats.put(Constants.STAT_BOUNDEDMULTILRUCACHE_MAX_SIZE,
+                  Long.valueOf(maxOffHeapSize));
+        return stats;
+    }
+
+    /**
+     * clear all the entries from the cache.
+     * @return the number of entries cleared from the cache
+     */
+    @Override
+    public int clear() {
+        int count = super.clear();
+        synchronized (slabLock) {
+            slabs.clear();
+            offHeapSize.set(0);
+        }
+        return count;
+    }
+
+    /**
+     * A direct buffer holding response bodies, and the entries they belong
+     * to. The slot of an entry is cleared once it leaves the cache.
+     */
+    static final class Slab {
+
+        final ByteBuffer buffer;
+        final List<Object> keys = new ArrayList<Object>();
+        final List<HttpCacheEntry> entries = new ArrayList<HttpCacheEntry>();
+
+        Slab(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+}
@@ -85,6 +85,8 @@ public abstract class BasePersistenceStrategyBuilder
     protected int sessionMaxInactiveInterval = DEFAULT_SESSION_TIMEOUT;
     protected String persistentCookieName = "GLASSFISHCOOKIE";
     protected boolean relaxCacheVersionSemantics;
+    protected int replicationBatchInterval = 0;   // save at end of request
+    protected int compressionThreshold = -1;   // never compress
 
     // Special constant for Java Server Faces
     protected static final String JSF_HA_ENABLED = "com.sun.appserver.enableHighAvailability";    
@@ -306,6 +308,14 @@ public abstract class BasePersistenceStrategyBuilder
                         sessionFilename = value;                        
                     } else if (name.equalsIgnoreCase("persistenceFrequency")) {
                         _persistenceFrequency = value;
+                    } else if (name.equalsIgnoreCase("replicationBatchIntervalMillis")) {
+                        try {
+                            replicationBatchInterval = Integer.parseInt(value);
+                        } catch (NumberFormatException e) {
+                            Object[] params = {name, value};
+                            _logger.log(Level.WARNING, LogFacade.INVALID_PROPERTY,
+                                params);
+                        }
                     } else {
                         if (_logger.isLoggable(Level.INFO)) {
                             Object[] params = { name };
@@ -332,6 +342,14 @@ public abstract class BasePersistenceStrategyBuilder
                         _persistenceScope = value;
                     } else if (name.equalsIgnoreCase("cookieName")) {
                         persistentCookieName = value;                     
+                    } else if (name.equalsIgnoreCase("compressionThresholdBytes")) {
+                        try {
+                            compressionThreshold = Integer.parseInt(value);
+                        } catch (NumberFormatException e) {
+                            Object[] params = {name, value};
+                            _logger.log(Level.WARNING, LogFacade.INVALID_PROPERTY,
+                                params);
+                        }
                     } else {
                         if (_logger.isLoggable(Level.INFO)) {
                             Object[] params = { name };
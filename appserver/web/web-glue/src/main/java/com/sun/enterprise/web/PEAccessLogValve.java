@@ -63,9 +63,17 @@ import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.text.MessageFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -79,6 +87,11 @@ import java.util.logging.Logger;
  * </p>This class uses a direct <code>ByteBuffer</code> to store and write 
  * logs. 
  *
+ * <p>In asynchronous mode, each request thread formats its entries into
+ * its own buffers and hands the encoded entries to a writer thread through
+ * a lock-free queue; the writer thread writes them with gathering
+ * <code>FileChannel</code> writes.</p>
+ *
  * @author Jean-Francois Arcand
  * @author Charlie J. Hunt
  */
@@ -114,6 +127,67 @@ public final class PEAccessLogValve
      * The minimum size a buffer can have.
      */
     private final static int MIN_BUFFER_SIZE = 5120;
+
+
+    /**
+     * The maximum size of an access log entry in asynchronous mode.
+     */
+    private final static int MAX_ENTRY_SIZE = 1 << 20;
+
+
+    /**
+     * The maximum size of the per-thread buffers kept between entries in
+     * asynchronous mode; larger ones are only used for the entry that
+     * needed them.
+     */
+    private final static int MAX_RETAINED_SIZE = 64 * 1024;
+
+
+    /**
+     * The size of the buffers an entry is encoded into in asynchronous
+     * mode, unless it needs a larger one.
+     */
+    private final static int ENTRY_BUFFER_SIZE = 1024;
+
+
+    /**
+     * The maximum size of the entry buffers recycled by the writer thread
+     * in asynchronous mode.
+     */
+    private final static int MAX_RECYCLED_ENTRY_SIZE = 4096;
+
+
+    /**
+     * The maximum number of bytes that may be waiting for the writer
+     * thread in asynchronous mode, before request threads wait for it.
+     */
+    private final static long MAX_QUEUED_BYTES = 8L << 20;
+
+
+    /**
+     * The maximum number of entries written with one gathering write.
+     */
+    private final static int MAX_GATHERED_ENTRIES = 256;
+
+
+    /**
+     * The maximum number of entry buffers kept for reuse in asynchronous
+     * mode.
+     */
+    private final static int MAX_FREE_ENTRY_BUFFERS = 2 * MAX_GATHERED_ENTRIES;
+
+
+    /**
+     * The per-thread buffers the entries are formatted into in
+     * asynchronous mode.
+     */
+    private static final ThreadLocal<EntryBuffers> entryBuffers =
+        new ThreadLocal<EntryBuffers>() {
+            @Override
+            protected EntryBuffers initialValue() {
+                return new EntryBuffers();
+            }
+        };
     
     
     // ----------------------------------------------------- Instance Variables
@@ -295,6 +369,57 @@ public final class PEAccessLogValve
      * Simple lock
      */
     private Object lock = new Object();
+
+
+    /**
+     * Are the entries written asynchronously by a writer thread?
+     */
+    private boolean asynchronous = false;
+
+
+    /**
+     * The entries waiting for the writer thread in asynchronous mode.
+     */
+    private final ConcurrentLinkedQueue<ByteBuffer> entryQueue =
+        new ConcurrentLinkedQueue<ByteBuffer>();
+
+
+    /**
+     * The number of bytes in <code>entryQueue</code>.
+     */
+    private final AtomicLong queuedBytes = new AtomicLong();
+
+
+    /**
+     * The entry buffers the writer thread has written in asynchronous
+     * mode, for the request threads to encode their next entries into.
+     */
+    private final ConcurrentLinkedQueue<ByteBuffer> freeEntryBuffers =
+        new ConcurrentLinkedQueue<ByteBuffer>();
+
+
+    /**
+     * The number of buffers in <code>freeEntryBuffers</code>.
+     */
+    private final AtomicInteger freeEntryBufferCount = new AtomicInteger();
+
+
+    /**
+     * The writer thread of the asynchronous mode.
+     */
+    private volatile Thread asyncWriterThread = null;
+
+
+    /**
+     * Is the writer thread of the asynchronous mode waiting for entries?
+     */
+    private volatile boolean asyncWriterWaiting = false;
+
+
+    /**
+     * The writer thread completion semaphore of the asynchronous mode.
+     */
+    private volatile boolean asyncWriterDone = false;
     
 
     /**
@@ -353,6 +478,23 @@ public final class PEAccessLogValve
         return bufferSize;
     }
 
+
+    /**
+     * Are the entries written asynchronously by a writer thread?
+     */
+    public boolean isAsynchronous() {
+        return asynchronous;
+    }
+
+
+    /**
+     * Set whether request threads hand their entries to a writer thread
+     * instead of writing them into the shared buffer.
+     */
+    public void setAsynchronous(boolean asynchronous) {
+        this.asynchronous = asynchronous;
+    }
+
     // ------------------------------------------------------------- Properties
 
 
@@ -412,6 +554,14 @@ public final class PEAccessLogValve
     }
 
 
+    /**
+     * Set the formatter of the log entries.
+     */
+    void setFormatter(AccessLogFormatter formatter) {
+        this.formatter = formatter;
+    }
+
+
     /**
      * Return the log file prefix.
      */
@@ -579,6 +729,11 @@ public final class PEAccessLogValve
                 null!=request.getRequest().getAttribute(condition)) {
              return;
         }
+
+        if (asynchronous) {
+            enqueueLogEntry(request, response);
+            return;
+        }
         
         synchronized (lock){
             // Reset properly the buffer in case of an unexpected
@@ -623,6 +778,32 @@ public final class PEAccessLogValve
      * has changed since the previous log call.
      */
     public void log() throws IOException {
+
+        rotateIfNeeded();
+        
+        synchronized(lock){
+            try{
+                charBuffer.flip();
+                ByteBuffer byteBuffer =
+                    ByteBuffer.wrap(charBuffer.toString().getBytes(Charset.defaultCharset()));
+                while (byteBuffer.hasRemaining()){
+                    fileChannel.write(byteBuffer);
+                }
+            } catch (IOException ex){
+                ;
+            } finally {
+                charBuffer.clear();
+            }
+        }
+
+    }
+
+
+    /**
+     * Switch to a new log file if the date has changed since the log file
+     * was opened.
+     */
+    private void rotateIfNeeded() throws IOException {
         
         if (rotatable){
 
@@ -651,22 +832,114 @@ public final class PEAccessLogValve
                 }
             }
         }
-        
-        synchronized(lock){
-            try{
-                charBuffer.flip();
-                ByteBuffer byteBuffer =
-                    ByteBuffer.wrap(charBuffer.toString().getBytes(Charset.defaultCharset()));
-                while (byteBuffer.hasRemaining()){
-                    fileChannel.write(byteBuffer);
+    }
+
+
+    /**
+     * Format the entry of the given request into the buffers of the current
+     * thread and queue it for the writer thread.
+     */
+    private void enqueueLogEntry(Request request, Response response) {
+
+        if (formatter == null) {
+            return;
+        }
+
+        ByteBuffer entry = freeEntryBuffers.poll();
+        if (entry != null) {
+            freeEntryBufferCount.decrementAndGet();
+        }
+        try {
+            entry = entryBuffers.get().format(formatter, request, response,
+                                              entry);
+        } catch (BufferOverflowException ex) {
+            _logger.log(
+                Level.SEVERE,
+                LogFacade.ACCESS_LOG_UNABLE_TO_WRITE,
+                new Object[] {ex});
+            return;
+        }
+
+        // Wait for the writer thread if it falls too far behind
+        while (queuedBytes.get() > MAX_QUEUED_BYTES && started) {
+            LockSupport.unpark(asyncWriterThread);
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(1));
+        }
+
+        queuedBytes.addAndGet(entry.remaining());
+        entryQueue.offer(entry);
+        if (asyncWriterWaiting) {
+            LockSupport.unpark(asyncWriterThread);
+        }
+    }
+
+
+    /**
+     * Write the queued entries to the log file, a batch of entries with
+     * each gathering write.
+     */
+    private void writeQueuedEntries(ByteBuffer[] batch) {
+
+        try {
+            rotateIfNeeded();
+        } catch (IOException ex) {
+            ;
+        }
+
+        int count;
+        do {
+            long bytes = 0;
+            count = 0;
+            ByteBuffer entry;
+            while (count < batch.length
+                    && (entry = entryQueue.poll()) != null) {
+                bytes += entry.remaining();
+                batch[count++] = entry;
+            }
+            if (count == 0) {
+                break;
+            }
+            try {
+                long written = 0;
+                while (written < bytes) {
+                    written += fileChannel.write(batch, 0, count);
                 }
-            } catch (IOException ex){
+            } catch (IOException ex) {
                 ;
             } finally {
-                charBuffer.clear();
+                for (int i = 0; i < count; i++) {
+                    recycleEntryBuffer(batch[i]);
+                    batch[i] = null;
+                }
+                queuedBytes.addAndGet(-bytes);
             }
+        } while (count == batch.length);
+    }
+
+
+    /**
+     * Keep the buffer of a written entry for the entries to come, unless
+     * it is unusually large or enough buffers are kept already.
+     */
+    private void recycleEntryBuffer(ByteBuffer entry) {
+
+        if (entry.capacity() > MAX_RECYCLED_ENTRY_SIZE) {
+            return;
         }
+        if (freeEntryBufferCount.incrementAndGet() > MAX_FREE_ENTRY_BUFFERS) {
+            freeEntryBufferCount.decrementAndGet();
+            return;
+        }
+        freeEntryBuffers.offer(entry);
+    }
 
+
+    /**
+     * The number of bytes of the entries waiting for the writer thread in
+     * asynchronous mode.
+     */
+    long getQueuedBytes() {
+        return queuedBytes.get();
     }
 
 
@@ -790,6 +1063,13 @@ public final class PEAccessLogValve
             }
         }
 
+        /*
+         * If the accessLogAsync property of <virtual-server> is true, the
+         * entries are written by a writer thread
+         */
+        setAsynchronous(Boolean.parseBoolean(vsBean.getPropertyValue(
+            Constants.ACCESS_LOG_ASYNC_PROPERTY)));
+
         return true;
     }
 
@@ -1085,7 +1365,9 @@ public final class PEAccessLogValve
 
         lastAccessLogCreationTime = systime;
 
-        if (!flushRealTime){
+        if (asynchronous) {
+            asyncWriterStart();
+        } else if (!flushRealTime){
             // Start the background writer writerThread
             threadStart();
         }
@@ -1112,7 +1394,9 @@ public final class PEAccessLogValve
         lifecycle.fireLifecycleEvent(STOP_EVENT, null);
         started = false;
         
-        if (!flushRealTime){
+        if (asynchronous) {
+            asyncWriterStop();
+        } else if (!flushRealTime){
             // Stop the background writer thread
             threadStop();
         }
@@ -1193,4 +1477,147 @@ public final class PEAccessLogValve
         writerThread = null;
 
     }
+
+
+    /**
+     * Start the writer thread of the asynchronous mode.
+     */
+    private void asyncWriterStart() {
+
+        if (asyncWriterThread != null)
+            return;
+
+        asyncWriterDone = false;
+        asyncWriterThread = new Thread(new AsyncWriter(), "AccessLogAsyncWriter");
+        asyncWriterThread.setDaemon(true);
+        asyncWriterThread.start();
+    }
+
+
+    /**
+     * Stop the writer thread of the asynchronous mode, once it has written
+     * the queued entries.
+     */
+    private void asyncWriterStop() {
+
+        Thread thread = asyncWriterThread;
+        if (thread == null)
+            return;
+
+        asyncWriterDone = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            ;
+        }
+
+        asyncWriterThread = null;
+    }
+
+
+    /**
+     * The writer thread of the asynchronous mode. Unless a write interval
+     * has been set, the thread writes the entries as soon as they are
+     * queued.
+     */
+    private class AsyncWriter implements Runnable {
+
+        public void run() {
+            ByteBuffer[] batch = new ByteBuffer[MAX_GATHERED_ENTRIES];
+            while (!asyncWriterDone) {
+                if (writeInterval > 0) {
+                    LockSupport.parkNanos(this,
+                        TimeUnit.SECONDS.toNanos(writeInterval));
+                } else if (entryQueue.isEmpty()) {
+                    asyncWriterWaiting = true;
+                    // Check again, an entry may have been queued before
+                    // the flag was visible to its request thread
+                    if (entryQueue.isEmpty() && !asyncWriterDone) {
+                        LockSupport.parkNanos(this, TimeUnit.SECONDS.toNanos(1));
+                    }
+                    asyncWriterWaiting = false;
+                }
+                writeQueuedEntries(batch);
+            }
+            writeQueuedEntries(batch);
+        }
+    }
+
+
+    /**
+     * The buffers of a request thread in asynchronous mode: the entry is
+     * formatted into <code>chars</code>, reused by all the entries of the
+     * thread, and encoded into an entry buffer that the writer thread
+     * recycles once it has written the entry.
+     */
+    private static final class EntryBuffers {
+
+        private final CharsetEncoder encoder = Charset.defaultCharset()
+            .newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        private CharBuffer chars = CharBuffer.allocate(MIN_BUFFER_SIZE);
+
+        /**
+         * Returns the encoded entry of the given request, in
+         * <code>entry</code> if it is large enough, otherwise in a new
+         * buffer.
+         *
+         * @param entry a recycled entry buffer, or null
+         * @throws BufferOverflowException if the entry is larger than
+         * MAX_ENTRY_SIZE
+         */
+        ByteBuffer format(AccessLogFormatter formatter, Request request,
+                          Response response, ByteBuffer entry) {
+            while (true) {
+                chars.clear();
+                try {
+                    formatter.appendLogEntry(request, response, chars);
+                    chars.put('\n');
+                    break;
+                } catch (BufferOverflowException ex) {
+                    if (chars.capacity() >= MAX_ENTRY_SIZE) {
+                        throw ex;
+                    }
+                    chars = CharBuffer.allocate(chars.capacity() * 2);
+                }
+            }
+            chars.flip();
+
+            if (entry == null) {
+                entry = ByteBuffer.allocate(ENTRY_BUFFER_SIZE);
+            }
+            if (!encode(entry)) {
+                // Too large for the entry buffer, encode it again into one
+                // that is large enough for any encoding of the entry
+                entry = ByteBuffer.allocate((int) Math.ceil(
+                    chars.limit() * (double) encoder.maxBytesPerChar()));
+                chars.rewind();
+                encode(entry);
+            }
+            entry.flip();
+
+            // don't hold on to the buffer of an unusually large entry
+            if (chars.capacity() > MAX_RETAINED_SIZE) {
+                chars = CharBuffer.allocate(MIN_BUFFER_SIZE);
+            }
+            return entry;
+        }
+
+        /**
+         * Encodes <code>chars</code> into <code>entry</code>, and returns
+         * false if it does not fit.
+         */
+        private boolean encode(ByteBuffer entry) {
+            entry.clear();
+            encoder.reset();
+            CoderResult result = encoder.encode(chars, entry, true);
+            if (!result.isOverflow()) {
+                result = encoder.flush(entry);
+            }
+            return !result.isOverflow();
+        }
+    }
 }
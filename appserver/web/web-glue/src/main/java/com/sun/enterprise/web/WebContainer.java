@@ -716,6 +716,13 @@ public class WebContainer implements org.glassfish.api.container.Container, Post
         return webModuleProbeProvider;
     }
 
+    /**
+     * Gets the bootstrap of the web module stats providers.
+     */
+    public WebStatsProviderBootstrap getWebStatsProviderBootstrap() {
+        return webStatsProviderBootstrap;
+    }
+
     public String getName() {
         return "Web";
     }
@@ -2985,6 +2992,12 @@ public class WebContainer implements org.glassfish.api.container.Container, Post
                     habitat,
                     domain,
                     globalAccessLoggingEnabled);
+        } else if (Constants.ACCESS_LOG_ASYNC_PROPERTY.equals(name)) {
+            vs.reconfigureAccessLog(globalAccessLogBufferSize,
+                    globalAccessLogWriteInterval,
+                    habitat,
+                    domain,
+                    globalAccessLoggingEnabled);
         } else if ("allowRemoteHost".equals(name)
                 || "denyRemoteHost".equals(name)) {
             vs.configureRemoteHostFilterValve();
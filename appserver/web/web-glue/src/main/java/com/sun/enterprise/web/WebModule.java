@@ -43,6 +43,7 @@ package com.sun.enterprise.web;
 import com.sun.enterprise.config.serverbeans.Application;
 import com.sun.enterprise.config.serverbeans.ConfigBeansUtilities;
 import com.sun.enterprise.config.serverbeans.ServerTags;
+import com.sun.enterprise.container.common.impl.util.JavaEEIOUtilsStreamHandler;
 import com.sun.enterprise.container.common.spi.util.JavaEEIOUtils;
 import com.sun.enterprise.deployment.*;
 import org.glassfish.web.deployment.annotation.handlers.ServletSecurityHandler;
@@ -63,8 +64,10 @@ import org.apache.catalina.core.*;
 import org.apache.catalina.deploy.FilterMaps;
 import org.apache.catalina.loader.WebappLoader;
 import org.apache.catalina.servlets.DefaultServlet;
+import org.apache.catalina.session.CompactSessionSerializer;
 import org.apache.catalina.session.StandardManager;
 import org.apache.jasper.servlet.JspServlet;
+import org.apache.naming.resources.ProxyDirContext;
 import org.glassfish.api.deployment.DeploymentContext;
 import org.glassfish.embeddable.web.Context;
 import org.glassfish.embeddable.web.config.FormLoginConfig;
@@ -78,6 +81,7 @@ import org.glassfish.web.LogFacade;
 import org.glassfish.web.admin.monitor.ServletProbeProvider;
 import org.glassfish.web.admin.monitor.SessionProbeProvider;
 import org.glassfish.web.admin.monitor.WebModuleProbeProvider;
+import org.glassfish.web.admin.monitor.WebStatsProviderBootstrap;
 import org.glassfish.web.deployment.descriptor.*;
 import org.glassfish.web.deployment.runtime.SessionConfig;
 import org.glassfish.web.deployment.runtime.*;
@@ -403,6 +407,10 @@ public class WebModule extends PwcWebModule implements Context {
     public ObjectInputStream createObjectInputStream(InputStream is)
             throws IOException {
 
+        if (getSessionSerializer(is) != null) {
+            return super.createObjectInputStream(is);
+        }
+
         ObjectInputStream ois = null;
 
         Loader loader = getLoader();
@@ -435,6 +443,10 @@ public class WebModule extends PwcWebModule implements Context {
     public ObjectOutputStream createObjectOutputStream(OutputStream os)
             throws IOException {
 
+        if (getSessionSerializer() != null) {
+            return super.createObjectOutputStream(os);
+        }
+
         ObjectOutputStream oos = null;
 
         try {
@@ -448,6 +460,17 @@ public class WebModule extends PwcWebModule implements Context {
         return oos;
     }
 
+    /**
+     * Creates a CompactSessionSerializer that replaces the objects that are
+     * not serializable (such as javax.naming.Context) like the streams of
+     * {@link #createObjectOutputStream}.
+     */
+    @Override
+    public CompactSessionSerializer createCompactSessionSerializer() {
+        return new CompactSessionSerializer(
+            JavaEEIOUtilsStreamHandler.forIOUtils(javaEEIOUtils));
+    }
+
     /**
      * Set to <code>true</code> when the default-web.xml has been read for
      * this module.
@@ -493,6 +516,42 @@ public class WebModule extends PwcWebModule implements Context {
         }
     }
 
+    /**
+     * Allocates the resources of this web module, and makes the statistics
+     * of their cache available to monitoring.
+     */
+    @Override
+    public boolean resourcesStart() {
+        boolean ok = super.resourcesStart();
+        if (ok && (webContainer != null) && (getParent() != null)
+                && (resources instanceof ProxyDirContext)) {
+            WebStatsProviderBootstrap webStatsProviderBootstrap =
+                webContainer.getWebStatsProviderBootstrap();
+            if (webStatsProviderBootstrap != null) {
+                webStatsProviderBootstrap.setResourceCache(monitoringNodeName,
+                    getParent().getName(),
+                    ((ProxyDirContext) resources).getCache());
+            }
+        }
+        return ok;
+    }
+
+    /**
+     * Makes the statistics of the response cache of this web module
+     * available to monitoring, or withdraws them if <code>cache</code> is
+     * null.
+     */
+    void setResponseCache(com.sun.appserv.util.cache.Cache cache) {
+        if ((webContainer != null) && (getParent() != null)) {
+            WebStatsProviderBootstrap webStatsProviderBootstrap =
+                webContainer.getWebStatsProviderBootstrap();
+            if (webStatsProviderBootstrap != null) {
+                webStatsProviderBootstrap.setResponseCache(monitoringNodeName,
+                    getParent().getName(), cache);
+            }
+        }
+    }
+
     /**
      * Starts this web module.
      */
@@ -1409,6 +1468,16 @@ public class WebModule extends PwcWebModule implements Context {
                 } else if("securePagesWithPragma".equalsIgnoreCase(name)) {
                     boolean securePagesWithPragma = ConfigBeansUtilities.toBoolean(value);
                     setSecurePagesWithPragma(securePagesWithPragma);
+                } else if("resourceCacheClassName".equalsIgnoreCase(name)) {
+                    setResourceCacheClassName(value);
+                } else if("resourceCacheOffHeapObjectMaxSize".equalsIgnoreCase(name)) {
+                    try {
+                        setResourceCacheOffHeapObjectMaxSize(Integer.parseInt(value));
+                    } catch(NumberFormatException e) {
+                        Object[] params = {name, value};
+                        logger.log(Level.WARNING, LogFacade.INVALID_PROPERTY,
+                            params);
+                    }
                 } else if("useMyFaces".equalsIgnoreCase(name)) {
                     setUseMyFaces(ConfigBeansUtilities.toBoolean(value));
                 } else if("useBundledJsf".equalsIgnoreCase(name)) {
@@ -1853,6 +1922,28 @@ public class WebModule extends PwcWebModule implements Context {
         wcd.removeUrlPattern(pattern);
     }
 
+    /**
+     * Sets the serializer of the sessions of this web module:
+     * <code>java</code> for standard Java serialization (the default),
+     * <code>compact</code> for a CompactSessionSerializer, or the class name
+     * of a SessionSerializer.
+     */
+    private void configureSessionSerializer(String value) {
+        if ("java".equalsIgnoreCase(value)) {
+            setSessionSerializer(null);
+        } else if ("compact".equalsIgnoreCase(value)) {
+            setSessionSerializer(createCompactSessionSerializer());
+        } else {
+            Object serializer = loadInstance(value);
+            if (serializer instanceof SessionSerializer) {
+                setSessionSerializer((SessionSerializer) serializer);
+            } else if (serializer != null) {
+                Object[] params = {"sessionSerializer", value};
+                logger.log(Level.WARNING, LogFacade.INVALID_PROPERTY, params);
+            }
+        }
+    }
+
     /**
      * Configure the properties of the session, such as the timeout,
      * whether to force URL rewriting etc.
@@ -1884,6 +1975,8 @@ public class WebModule extends PwcWebModule implements Context {
                     setCookies(ConfigBeansUtilities.toBoolean(value));
                 } else if("enableURLRewriting".equalsIgnoreCase(name)) {
                     setEnableURLRewriting(ConfigBeansUtilities.toBoolean(value));
+                } else if("sessionSerializer".equalsIgnoreCase(name)) {
+                    configureSessionSerializer(value);
                 } else {
                     if (logger.isLoggable(Level.INFO)) {
                         logger.log(Level.INFO, LogFacade.PROP_NOT_YET_SUPPORTED, name);
@@ -2081,6 +2174,18 @@ public class WebModule extends PwcWebModule implements Context {
             monitoringNodeName, vsId);
     }
 
+    @Override
+    public void sessionExpirationProcessedEvent(long processingTime) {
+        sessionProbeProvider.sessionExpirationProcessedEvent(processingTime,
+            monitoringNodeName, vsId);
+    }
+
+    @Override
+    public void sessionsReplicatedEvent(long replicatedBytes, long requestCount) {
+        sessionProbeProvider.sessionsReplicatedEvent(replicatedBytes,
+            requestCount, monitoringNodeName, vsId);
+    }
+
     @Override
     public void sessionPersistedStartEvent(HttpSession session) {
         sessionProbeProvider.sessionPersistedStartEvent(session.getId(),
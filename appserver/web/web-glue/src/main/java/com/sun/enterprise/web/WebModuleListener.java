@@ -421,6 +421,7 @@ final class WebModuleListener
                     // caching filters/tags can find it
                     ServletContext ctxt = webModule.getServletContext();
                     ctxt.setAttribute(CacheManager.CACHE_MANAGER_ATTR_NAME, cm);
+                    webModule.setResponseCache(cm.getDefaultCache());
 
                 } catch (LifecycleException ee) {
                     _logger.log(Level.WARNING, ee.getMessage(),
@@ -441,6 +442,7 @@ final class WebModuleListener
                     _logger.log(Level.FINE, LogFacade.CACHE_MANAGER_STOPPED);
                 }
                 ctxt.removeAttribute(CacheManager.CACHE_MANAGER_ATTR_NAME);
+                webModule.setResponseCache(null);
             } catch (LifecycleException ee) {
                 _logger.log(Level.WARNING, ee.getMessage(), ee.getCause());
             }
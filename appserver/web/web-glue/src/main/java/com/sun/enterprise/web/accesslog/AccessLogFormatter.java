@@ -45,7 +45,9 @@ import org.apache.catalina.Response;
 
 import java.nio.CharBuffer;
 import java.text.SimpleDateFormat;
+import java.util.Calendar;
 import java.util.Date;
+import java.util.GregorianCalendar;
 import java.util.TimeZone;
 
 /**
@@ -69,25 +71,38 @@ public abstract class AccessLogFormatter {
     /**
      * ThreadLocal for a date formatter to format Dates into a day string in the format
      * "dd".
+     *
+     * @deprecated no longer used by the formatters of this package, which
+     * use {@link #getTimestamp()}; kept for subclasses
      */
+    @Deprecated
     protected volatile ThreadLocal<SimpleDateFormat> dayFormatter = null;
 
     /**
      * ThreadLocal for a date formatter to format a Date into a month string in the format
      * "MM".
+     *
+     * @deprecated see {@link #dayFormatter}
      */
+    @Deprecated
     protected volatile ThreadLocal<SimpleDateFormat> monthFormatter = null;
 
     /**
      * ThreadLocal for a date formatter to format a Date into a year string in the format
      * "yyyy".
+     *
+     * @deprecated see {@link #dayFormatter}
      */
+    @Deprecated
     protected volatile ThreadLocal<SimpleDateFormat> yearFormatter = null;
 
     /**
      * ThreadLocal for a date formatter to format a Date into a time in the format
-     * "kk:mm:ss" (kk is a 24-hour representation of the hour).
+     * "HH:mm:ss".
+     *
+     * @deprecated see {@link #dayFormatter}
      */
+    @Deprecated
     protected volatile ThreadLocal<SimpleDateFormat> timeFormatter = null;
 
     /**
@@ -109,6 +124,11 @@ public abstract class AccessLogFormatter {
      */
     private Date currentDate = null;
 
+    /**
+     * The timestamp of the current second, as appended to log lines.
+     */
+    private volatile Timestamp timestamp = null;
+
 
     /**
      * Constructor.
@@ -119,6 +139,24 @@ public abstract class AccessLogFormatter {
         tz = TimeZone.getDefault();
         timeZone = calculateTimeZoneOffset(tz.getRawOffset());
         currentDate = new Date(System.currentTimeMillis());
+
+        dayFormatter = createFormatter("dd");
+        monthFormatter = createFormatter("MM");
+        yearFormatter = createFormatter("yyyy");
+        timeFormatter = createFormatter("HH:mm:ss");
+    }
+
+
+    private ThreadLocal<SimpleDateFormat> createFormatter(final String pattern) {
+        final TimeZone timeZone = tz;
+        return new ThreadLocal<SimpleDateFormat>() {
+            @Override
+            protected SimpleDateFormat initialValue() {
+                SimpleDateFormat f = new SimpleDateFormat(pattern);
+                f.setTimeZone(timeZone);
+                return f;
+            }
+        };
     }
 
 
@@ -154,6 +192,51 @@ public abstract class AccessLogFormatter {
 
     }
 
+    /**
+     * Returns the current time in the format
+     * "dd/MMM/yyyy:HH:mm:ss &lt;time zone&gt;" used by the access log lines.
+     * The string is formatted at most once per second and shared by all
+     * the threads logging within that second.
+     */
+    protected String getTimestamp() {
+        long systime = System.currentTimeMillis();
+        long second = systime / 1000;
+        Timestamp ts = timestamp;
+        if (ts == null || ts.second != second) {
+            ts = new Timestamp(second, formatTimestamp(second * 1000));
+            timestamp = ts;
+        }
+        return ts.value;
+    }
+
+    private String formatTimestamp(long time) {
+        Calendar cal = new GregorianCalendar(tz);
+        cal.setTimeInMillis(time);
+        StringBuilder sb = new StringBuilder(32);
+        appendTwoDigits(sb, cal.get(Calendar.DAY_OF_MONTH));
+        sb.append('/');
+        sb.append(months[cal.get(Calendar.MONTH)]);
+        sb.append('/');
+        sb.append(cal.get(Calendar.YEAR));
+        sb.append(':');
+        // 0-23, as the "HH" pattern previously used by the formatters
+        appendTwoDigits(sb, cal.get(Calendar.HOUR_OF_DAY));
+        sb.append(':');
+        appendTwoDigits(sb, cal.get(Calendar.MINUTE));
+        sb.append(':');
+        appendTwoDigits(sb, cal.get(Calendar.SECOND));
+        sb.append(SPACE);
+        sb.append(timeZone);
+        return sb.toString();
+    }
+
+    private static void appendTwoDigits(StringBuilder sb, int value) {
+        if (value < 10) {
+            sb.append('0');
+        }
+        sb.append(value);
+    }
+
     protected String calculateTimeZoneOffset(long offset) {
         StringBuilder sb = new StringBuilder();
         if ((offset<0))  {
@@ -206,4 +289,19 @@ public abstract class AccessLogFormatter {
     public boolean needTimeTaken() {
         return needTimeTaken;
     }    
+
+
+    /**
+     * A formatted timestamp and the second it was formatted for.
+     */
+    private static final class Timestamp {
+
+        final long second;
+        final String value;
+
+        Timestamp(long second, String value) {
+            this.second = second;
+            this.value = value;
+        }
+    }
 }
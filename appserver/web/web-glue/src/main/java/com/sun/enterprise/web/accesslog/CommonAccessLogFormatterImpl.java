@@ -47,9 +47,6 @@ import org.apache.catalina.Response;
 import javax.servlet.ServletRequest;
 import javax.servlet.http.HttpServletRequest;
 import java.nio.CharBuffer;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.TimeZone;
 
 /**
  * Access log formatter using the <i>common</i> access log format from
@@ -66,40 +63,6 @@ public class CommonAccessLogFormatterImpl extends AccessLogFormatter {
     public CommonAccessLogFormatterImpl() {
 
         super();
-
-        final TimeZone timeZone = tz;
-        dayFormatter = new ThreadLocal<SimpleDateFormat>() {
-            @Override
-            protected SimpleDateFormat initialValue() {
-                SimpleDateFormat f = new SimpleDateFormat("dd");
-                f.setTimeZone(timeZone);
-                return f;
-            }
-        };
-        monthFormatter = new ThreadLocal<SimpleDateFormat>() {
-            @Override
-            protected SimpleDateFormat initialValue() {
-                SimpleDateFormat f = new SimpleDateFormat("MM");
-                f.setTimeZone(timeZone);
-                return f;
-            }
-        };
-        yearFormatter = new ThreadLocal<SimpleDateFormat>() {
-            @Override
-            protected SimpleDateFormat initialValue() {
-                SimpleDateFormat f = new SimpleDateFormat("yyyy");
-                f.setTimeZone(timeZone);
-                return f;
-            }
-        };
-        timeFormatter = new ThreadLocal<SimpleDateFormat>() {
-            @Override
-            protected SimpleDateFormat initialValue() {
-                SimpleDateFormat f = new SimpleDateFormat("HH:mm:ss");
-                f.setTimeZone(timeZone);
-                return f;
-            }
-        };
     }
 
 
@@ -178,17 +141,8 @@ public class CommonAccessLogFormatterImpl extends AccessLogFormatter {
      * Appends the current date to the given char buffer.
      */
     private void appendCurrentDate(CharBuffer cb) {
-        Date date = getDate();
         cb.put("[");
-        cb.put(dayFormatter.get().format(date));           // Day
-        cb.put('/');
-        cb.put(lookup(monthFormatter.get().format(date))); // Month
-        cb.put('/');
-        cb.put(yearFormatter.get().format(date));          // Year
-        cb.put(':');
-        cb.put(timeFormatter.get().format(date));          // Time
-        cb.put(SPACE);
-        cb.put(timeZone);                                  // Time Zone
+        cb.put(getTimestamp());
         cb.put("]");
     }
 
@@ -54,7 +54,6 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import java.nio.CharBuffer;
-import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -154,40 +153,6 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
             patternComponents = parsePattern(ConfigBeansUtilities.getDefaultFormat());
         }
         this.container = container;
-
-        final TimeZone timeZone = tz;
-        dayFormatter = new ThreadLocal<SimpleDateFormat>() {
-            @Override
-            protected SimpleDateFormat initialValue() {
-                SimpleDateFormat f = new SimpleDateFormat("dd");
-                f.setTimeZone(timeZone);
-                return f;
-            }
-        };
-        monthFormatter =  new ThreadLocal<SimpleDateFormat>() {
-            @Override
-            protected SimpleDateFormat initialValue() {
-                SimpleDateFormat f = new SimpleDateFormat("MM");
-                f.setTimeZone(timeZone);
-                return f;
-            }
-        };
-        yearFormatter = new ThreadLocal<SimpleDateFormat>() {
-            @Override
-            protected SimpleDateFormat initialValue() {
-                SimpleDateFormat f = new SimpleDateFormat("yyyy");
-                f.setTimeZone(timeZone);
-                return f;
-            }
-        };
-        timeFormatter = new ThreadLocal<SimpleDateFormat>() {
-            @Override
-            protected SimpleDateFormat initialValue() {
-                SimpleDateFormat f = new SimpleDateFormat("HH:mm:ss");
-                f.setTimeZone(timeZone);
-                return f;
-            }
-        };
     }
 
     /**
@@ -487,16 +452,7 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
      */
     private void appendCurrentDate(CharBuffer cb) {
         cb.put(QUOTE);
-        Date date = getDate();
-        cb.put(dayFormatter.get().format(date));           // Day
-        cb.put('/');
-        cb.put(lookup(monthFormatter.get().format(date))); // Month
-        cb.put('/');
-        cb.put(yearFormatter.get().format(date));          // Year
-        cb.put(':');
-        cb.put(timeFormatter.get().format(date));          // Time
-        cb.put(SPACE);
-        cb.put(timeZone);                                  // Time Zone
+        cb.put(getTimestamp());
         cb.put(QUOTE);
     }
 
@@ -1571,4 +1571,9 @@ public class LogFacade {
         message = "Exception getting Validator Factory from JNDI: {0}",
         level = "WARNING")
     public static final String EXCEPTION_GETTING_VALIDATOR_FACTORY = prefix + "00285";
+
+    @LogMessageInfo(
+        message = "Invalid value [{1}] of the cache property {0}",
+        level = "WARNING")
+    public static final String INVALID_CACHE_PROPERTY = prefix + "00286";
 }
@@ -0,0 +1,115 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.appserv.web.cache.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HttpCacheEntryTest {
+
+    @Test
+    public void testOneRevalidationAtATime() {
+        HttpCacheEntry entry = new HttpCacheEntry();
+
+        assertTrue(entry.startRevalidation());
+        assertFalse(entry.startRevalidation());
+
+        // a failed revalidation lets the next request try again
+        entry.cancelRevalidation();
+        assertTrue(entry.startRevalidation());
+        assertFalse(entry.startRevalidation());
+    }
+
+    @Test
+    public void testOneConcurrentRevalidation() throws Exception {
+        final int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < 100; round++) {
+                final HttpCacheEntry entry = new HttpCacheEntry();
+                final CyclicBarrier barrier = new CyclicBarrier(threads);
+                List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+                for (int t = 0; t < threads; t++) {
+                    futures.add(executor.submit(new Callable<Boolean>() {
+                        public Boolean call() throws Exception {
+                            barrier.await();
+                            return entry.startRevalidation();
+                        }
+                    }));
+                }
+                int started = 0;
+                for (Future<Boolean> future : futures) {
+                    if (future.get(10, TimeUnit.SECONDS)) {
+                        started++;
+                    }
+                }
+                assertEquals(1, started);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testServableWhileRevalidating() {
+        HttpCacheEntry entry = new HttpCacheEntry();
+        entry.setExpireTime(System.currentTimeMillis() - 1000);
+
+        assertFalse(entry.isValid());
+        assertTrue(entry.isServableWhileRevalidating(60));
+        assertFalse(entry.isServableWhileRevalidating(0));
+
+        entry.setExpireTime(-1);
+        assertFalse(entry.isServableWhileRevalidating(60));
+    }
+}
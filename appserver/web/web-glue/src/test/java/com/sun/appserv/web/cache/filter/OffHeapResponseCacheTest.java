@@ -0,0 +1,188 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.appserv.web.cache.filter;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+
+import com.sun.appserv.util.cache.Constants;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class OffHeapResponseCacheTest {
+
+    private static final int SLAB_SIZE = 1024;
+
+    private static final int MAX_OFF_HEAP_SIZE = 4 * SLAB_SIZE;
+
+    private OffHeapResponseCache cache;
+
+    @Before
+    public void setUp() {
+        Properties props = new Properties();
+        props.setProperty("MaxOffHeapSize", "4KB");
+        props.setProperty("SlabSize", "1KB");
+        cache = new OffHeapResponseCache();
+        cache.init(1000, 0.75f, props);
+    }
+
+    @Test
+    public void testBodyMovedOffHeap() {
+        HttpCacheEntry entry = createEntry(100, (byte) 7);
+        cache.put("key", entry, entry.getSize());
+
+        HttpCacheEntry cached = (HttpCacheEntry) cache.get("key");
+        assertSame(entry, cached);
+        assertNull(cached.bytes);
+        assertTrue(cached.body.isReadOnly());
+        assertBody(cached, 100, (byte) 7);
+        assertEquals(SLAB_SIZE, cache.getOffHeapSize());
+    }
+
+    @Test
+    public void testBodyLargerThanSlabStaysOnHeap() {
+        HttpCacheEntry entry = createEntry(SLAB_SIZE + 1, (byte) 1);
+        cache.put("key", entry, entry.getSize());
+
+        assertNotNull(entry.bytes);
+        assertNull(entry.body);
+        assertEquals(0, cache.getOffHeapSize());
+    }
+
+    @Test
+    public void testOldestSlabsDroppedBeyondMaxOffHeapSize() {
+        // two bodies per slab, three times as many as fit
+        int count = 3 * 2 * MAX_OFF_HEAP_SIZE / SLAB_SIZE;
+        for (int i = 0; i < count; i++) {
+            HttpCacheEntry entry = createEntry(SLAB_SIZE / 2, (byte) i);
+            cache.put("key" + i, entry, entry.getSize());
+            assertTrue("off heap size " + cache.getOffHeapSize(),
+                cache.getOffHeapSize() <= MAX_OFF_HEAP_SIZE);
+        }
+
+        // the responses of the dropped slabs left the cache with them
+        int kept = 2 * MAX_OFF_HEAP_SIZE / SLAB_SIZE;
+        for (int i = 0; i < count - kept; i++) {
+            assertNull("key" + i, cache.get("key" + i));
+        }
+        for (int i = count - kept; i < count; i++) {
+            HttpCacheEntry cached = (HttpCacheEntry) cache.get("key" + i);
+            assertNotNull("key" + i, cached);
+            assertBody(cached, SLAB_SIZE / 2, (byte) i);
+        }
+        assertEquals(kept, cache.getEntryCount());
+
+        Map stats = cache.getStats();
+        assertEquals(Long.valueOf(MAX_OFF_HEAP_SIZE),
+            stats.get(Constants.STAT_BOUNDEDMULTILRUCACHE_CURRENT_SIZE));
+        assertEquals(Long.valueOf(MAX_OFF_HEAP_SIZE),
+            stats.get(Constants.STAT_BOUNDEDMULTILRUCACHE_MAX_SIZE));
+    }
+
+    @Test
+    public void testReplacedResponseNotRemovedWithOldSlab() {
+        HttpCacheEntry first = createEntry(SLAB_SIZE, (byte) 1);
+        cache.put("key", first, first.getSize());
+        // the slot of the replaced response is released
+        HttpCacheEntry second = createEntry(10, (byte) 2);
+        cache.put("key", second, second.getSize());
+        assertNull(first.slab);
+
+        // drop the slab of the first response, but not the one of the second
+        for (int i = 0; i < MAX_OFF_HEAP_SIZE / SLAB_SIZE - 1; i++) {
+            HttpCacheEntry entry = createEntry(SLAB_SIZE, (byte) 3);
+            cache.put("other" + i, entry, entry.getSize());
+        }
+
+        assertEquals(MAX_OFF_HEAP_SIZE, cache.getOffHeapSize());
+        assertSame(second, cache.get("key"));
+        assertBody(second, 10, (byte) 2);
+    }
+
+    @Test
+    public void testRemovedResponseReleasesItsSlot() {
+        HttpCacheEntry entry = createEntry(100, (byte) 1);
+        cache.put("key", entry, entry.getSize());
+        OffHeapResponseCache.Slab slab = entry.slab;
+        assertNotNull(slab);
+
+        cache.remove("key");
+
+        assertNull(entry.slab);
+        assertNull(slab.keys.get(entry.slot));
+        assertNull(slab.entries.get(entry.slot));
+    }
+
+    @Test
+    public void testClear() {
+        HttpCacheEntry entry = createEntry(100, (byte) 1);
+        cache.put("key", entry, entry.getSize());
+
+        cache.clear();
+
+        assertNull(cache.get("key"));
+        assertEquals(0, cache.getOffHeapSize());
+    }
+
+    private static HttpCacheEntry createEntry(int length, byte value) {
+        HttpCacheEntry entry = new HttpCacheEntry();
+        entry.bytes = new byte[length];
+        Arrays.fill(entry.bytes, value);
+        return entry;
+    }
+
+    private static void assertBody(HttpCacheEntry entry, int length,
+            byte value) {
+        ByteBuffer body = entry.body.duplicate();
+        assertEquals(length, body.remaining());
+        while (body.hasRemaining()) {
+            assertEquals(value, body.get());
+        }
+    }
+}
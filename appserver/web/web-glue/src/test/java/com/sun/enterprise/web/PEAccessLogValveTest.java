@@ -0,0 +1,230 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.web;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.enterprise.web.accesslog.AccessLogFormatter;
+import org.apache.catalina.Request;
+import org.apache.catalina.Response;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the asynchronous mode of PEAccessLogValve.
+ */
+public class PEAccessLogValveTest {
+
+    private static final long MAX_QUEUED_BYTES = 8L << 20;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PEAccessLogValve valve;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        valve = new PEAccessLogValve();
+        valve.setDirectory(folder.getRoot().getAbsolutePath());
+        valve.setPrefix("access_log.");
+        valve.setSuffix("txt");
+        valve.setRotatable(false);
+        valve.setAsynchronous(true);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testEntriesOfAllThreadsWritten() throws Exception {
+        final int threads = 4;
+        final int entries = 5000;
+        valve.setFormatter(new NumberedFormatter());
+        valve.start();
+
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(new Callable<Void>() {
+                public Void call() throws IOException {
+                    for (int i = 0; i < entries; i++) {
+                        valve.postInvoke(null, null);
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<Void> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        valve.stop();
+
+        // every entry once, with the length its number gives it, also when
+        // it was encoded into a recycled buffer of a larger entry
+        BitSet seen = new BitSet();
+        for (String line : readLog()) {
+            int space = line.indexOf(' ');
+            int n = Integer.parseInt(line.substring(0, space));
+            assertFalse("entry " + n + " written twice", seen.get(n));
+            seen.set(n);
+            assertEquals(NumberedFormatter.padding(n),
+                line.length() - space - 1);
+        }
+        assertEquals(threads * entries, seen.cardinality());
+    }
+
+    @Test
+    public void testRequestThreadsWaitForSlowWriter() throws Exception {
+        final int entrySize = 100 * 1024;
+        final int entries = 200;
+        // the writer thread only writes when woken by a waiting request
+        // thread, or when it is stopped
+        valve.setWriterInterval(3600);
+        valve.setFormatter(new FixedFormatter(entrySize));
+        valve.start();
+
+        Future<Long> future = executor.submit(new Callable<Long>() {
+            public Long call() throws IOException {
+                long maxQueued = 0;
+                for (int i = 0; i < entries; i++) {
+                    valve.postInvoke(null, null);
+                    maxQueued = Math.max(maxQueued, valve.getQueuedBytes());
+                }
+                return maxQueued;
+            }
+        });
+        long maxQueued = future.get(60, TimeUnit.SECONDS);
+        valve.stop();
+
+        assertTrue("queued " + maxQueued,
+            maxQueued <= MAX_QUEUED_BYTES + entrySize + 1);
+        assertEquals((long) entries * (entrySize + 1), logFile().length());
+        assertEquals(0, valve.getQueuedBytes());
+    }
+
+    private File logFile() {
+        return new File(folder.getRoot(), "access_log.txt");
+    }
+
+    private List<String> readLog() throws IOException {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+            new FileInputStream(logFile()), Charset.defaultCharset()));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+        return lines;
+    }
+
+    /**
+     * Writes the number of the entry followed by a padding whose length
+     * depends on the number, some of them larger than an entry buffer.
+     * The entries fit in the initial character buffer of a thread, so
+     * that no entry is formatted twice.
+     */
+    static class NumberedFormatter extends AccessLogFormatter {
+
+        private final AtomicInteger next = new AtomicInteger();
+
+        static int padding(int n) {
+            return (n % 10 == 0) ? 1500 + n % 2000 : n % 200;
+        }
+
+        public void appendLogEntry(Request request, Response response,
+                                   CharBuffer charBuffer) {
+            int n = next.getAndIncrement();
+            charBuffer.put(Integer.toString(n)).put(' ');
+            for (int i = padding(n); i > 0; i--) {
+                charBuffer.put('x');
+            }
+        }
+    }
+
+    /**
+     * Writes entries of the same size.
+     */
+    static class FixedFormatter extends AccessLogFormatter {
+
+        private final int size;
+
+        FixedFormatter(int size) {
+            this.size = size;
+        }
+
+        public void appendLogEntry(Request request, Response response,
+                                   CharBuffer charBuffer) {
+            for (int i = 0; i < size; i++) {
+                charBuffer.put('x');
+            }
+        }
+    }
+}
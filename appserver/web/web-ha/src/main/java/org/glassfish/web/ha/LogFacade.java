@@ -114,4 +114,19 @@ public class LogFacade {
             level = "WARNING")
     public static final String COULD_NOT_CREATE_BACKING_STORE = prefix + "00008";
 
+    @LogMessageInfo(
+            message = "Failed to save session {0} to backing store",
+            level = "WARNING")
+    public static final String FAILED_TO_SAVE_SESSION = prefix + "00009";
+
+    @LogMessageInfo(
+            message = "Session {0} is locked by a background task, its changes since the last replication are not saved as the manager stops",
+            level = "WARNING")
+    public static final String SESSION_NOT_SAVED_ON_STOP = prefix + "00010";
+
+    @LogMessageInfo(
+            message = "Exception while replicating the batched session saves",
+            level = "WARNING")
+    public static final String EXCEPTION_FLUSHING_BATCHED_SAVES = prefix + "00011";
+
 }
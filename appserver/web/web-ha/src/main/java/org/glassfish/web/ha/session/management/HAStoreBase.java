@@ -50,12 +50,14 @@ package org.glassfish.web.ha.session.management;
 import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.zip.GZIPOutputStream;
+import java.util.zip.GZIPInputStream;
 
 import com.sun.enterprise.container.common.spi.util.JavaEEIOUtils;
 import org.apache.catalina.*;
+import org.apache.catalina.core.StandardContext;
 import org.apache.catalina.session.StoreBase;
 import com.sun.enterprise.web.ServerConfigLookup;
 
@@ -184,53 +186,111 @@ public abstract class HAStoreBase extends StoreBase {
     *
     * @param session
     *   The session we are serializing
+    * @param compress
+    *   true to compress the state whatever its size
     *
     */
     protected byte[] getByteArray(Session session, boolean compress)
       throws IOException {
-        ByteArrayOutputStream bos = null;
-        ObjectOutputStream oos = null;
-
-
-
-        byte[] obs;
+        ReplicationOutputBuffer buffer = ReplicationOutputBuffer.acquire();
         try {
-            bos = new ByteArrayOutputStream();
-            // ObjectInputOutputStreamFactory oiosf = ObjectInputOutputStreamFactoryFactory.getFactory();
-            
-            
+            ObjectOutputStream oos = createObjectOutputStream(buffer);
             try {
-                if (compress) {
-                    oos = ioUtils.createObjectOutputStream(
-                        new GZIPOutputStream(new BufferedOutputStream(bos)), true);
-                } else {
-                    oos = ioUtils.createObjectOutputStream(new BufferedOutputStream(bos), true);
-                }
-            } catch (Exception ex) {}
+                writeSession(session, oos);
+            } finally {
+                oos.close();
+            }
+            return buffer.toByteArray(compress ? 0 : compressionThreshold);
+        } finally {
+            buffer.release();
+        }
+    }
 
-            //use normal ObjectOutputStream if there is a failure during stream creation
-            if(oos == null) {
-                if (compress) {
-                    oos = new ObjectOutputStream(new GZIPOutputStream(new BufferedOutputStream(bos)));
-                } else {
-                    oos = new ObjectOutputStream(new BufferedOutputStream(bos));
-                }
-            }             
+    /**
+    * Create the ObjectOutputStream that state is serialized with.
+    *
+    * @param os
+    *   The stream the serialized state is written to
+    *
+    */
+    protected ObjectOutputStream createObjectOutputStream(OutputStream os)
+      throws IOException {
+        Container container = manager.getContainer();
+        if (container instanceof StandardContext
+                && ((StandardContext) container).getSessionSerializer() != null) {
+            return ((StandardContext) container).createObjectOutputStream(os);
+        }
+        ObjectOutputStream oos = null;
+        try {
+            oos = ioUtils.createObjectOutputStream(os, true);
+        } catch (Exception ex) {}
 
-            writeSession(session, oos);
-            oos.close();
-            oos = null;
+        //use normal ObjectOutputStream if there is a failure during stream creation
+        if(oos == null) {
+            oos = new ObjectOutputStream(os);
+        }
+        return oos;
+    }
 
-            obs = bos.toByteArray();
-            //for monitoring
+    /**
+    * Return the stream to deserialize <code>state</code> from,
+    * uncompressing it if it was compressed when it was saved.
+    *
+    * @param state
+    *   The byte[] with the serialized state
+    *
+    */
+    protected InputStream getInputStream(byte[] state) throws IOException {
+        InputStream is = new BufferedInputStream(new ByteArrayInputStream(state));
+        if (ReplicationOutputBuffer.isCompressed(state)) {
+            is = new BufferedInputStream(new GZIPInputStream(is));
         }
-        finally {
-            if ( oos != null )  {
-                oos.close();
+        return is;
+    }
+
+    /**
+     * Create an ObjectInputStream with the session serializer of the
+     * context, or return null if the session data in <code>is</code> was
+     * written with Java serialization.
+     */
+    protected ObjectInputStream createSerializerObjectInputStream(
+            InputStream is, ClassLoader classLoader) throws IOException {
+        Container container = manager.getContainer();
+        if (container instanceof StandardContext) {
+            SessionSerializer serializer =
+                ((StandardContext) container).getSessionSerializer(is);
+            if (serializer != null) {
+                return serializer.createObjectInputStream(is, classLoader);
             }
         }
+        return null;
+    }
+
+    /**
+    * The size in bytes above which serialized state is compressed
+    * before it is replicated; negative to never compress
+    */
+    protected volatile int compressionThreshold = -1;
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    public void setCompressionThreshold(int value) {
+        compressionThreshold = value;
+    }
+
+    /**
+    * The number of bytes of state handed to the backing store so far
+    */
+    private final AtomicLong replicatedBytes = new AtomicLong();
+
+    public long getReplicatedBytes() {
+        return replicatedBytes.get();
+    }
 
-        return obs;
+    protected void addReplicatedBytes(long bytes) {
+        replicatedBytes.addAndGet(bytes);
     }
     
     //SJSAS 6406580 START
@@ -65,6 +65,9 @@ public class ModifiedAttributeHASession extends BaseHASession {
 
     private transient Map<String, SessionAttributeState> _attributeStates = new HashMap<String, SessionAttributeState>();
     private transient boolean _dirtyFlag = false;
+
+    // digests of the attribute states last replicated
+    private transient Map<String, byte[]> _replicatedDigests = null;
     
     
     /** Creates a new instance of ModifiedAttributeHASession */
@@ -289,6 +292,36 @@ public class ModifiedAttributeHASession extends BaseHASession {
         _attributeStates.remove(attributeName);
     }
 
+    /**
+     * return the digest of the state of attributeName
+     * when it was last replicated, or null if unknown
+     * @param attributeName
+     */
+    byte[] getReplicatedDigest(String attributeName) {
+        if(_replicatedDigests == null) {
+            return null;
+        }
+        return _replicatedDigests.get(attributeName);
+    }
+
+    /**
+     * record the digests of the attribute states just replicated;
+     * a null digest forgets the attribute
+     * @param digests
+     */
+    void setReplicatedDigests(Map<String, byte[]> digests) {
+        if(_replicatedDigests == null) {
+            _replicatedDigests = new HashMap<String, byte[]>();
+        }
+        for (Map.Entry<String, byte[]> entry : digests.entrySet()) {
+            if(entry.getValue() == null) {
+                _replicatedDigests.remove(entry.getKey());
+            } else {
+                _replicatedDigests.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
     /**
      * return isDirty
      */    
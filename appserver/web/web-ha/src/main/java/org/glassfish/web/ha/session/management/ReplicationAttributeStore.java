@@ -48,10 +48,14 @@ import org.apache.catalina.*;
 import org.apache.catalina.session.*;
 
 import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 
 /**
@@ -156,8 +160,9 @@ public class ReplicationAttributeStore extends ReplicationStore {
         if(_logger.isLoggable(Level.FINE)) {
             _logger.fine("ReplicationAttributeStore>>save: replicator: " + replicator);                    
         }         
+        Map<String, byte[]> digests = new HashMap<String, byte[]>();
         CompositeMetadata compositeMetadata
-            = createCompositeMetadata(modAttrSession);
+            = createCompositeMetadata(modAttrSession, digests);
                 
         try {
             if (_logger.isLoggable(Level.FINE)) {
@@ -165,6 +170,8 @@ public class ReplicationAttributeStore extends ReplicationStore {
             }
             replicator.save(session.getIdInternal(), //id
                     compositeMetadata, !((HASession) session).isPersistent());
+            addReplicatedBytes(getStateSize(compositeMetadata));
+            modAttrSession.setReplicatedDigests(digests);
             modAttrSession.resetAttributeState();
             postSaveUpdate(modAttrSession);
         } catch (BackingStoreException ex) {
@@ -200,8 +207,9 @@ public class ReplicationAttributeStore extends ReplicationStore {
         if(_logger.isLoggable(Level.FINE)) {
             _logger.fine("ReplicationAttributeStore>>doSave: replicator: " + replicator);                    
         }         
+        Map<String, byte[]> digests = new HashMap<String, byte[]>();
         CompositeMetadata compositeMetadata 
-            = createCompositeMetadata(modAttrSession);
+            = createCompositeMetadata(modAttrSession, digests);
                 
         try {
             if (_logger.isLoggable(Level.FINE)) {
@@ -210,6 +218,8 @@ public class ReplicationAttributeStore extends ReplicationStore {
 
             replicator.save(session.getIdInternal(), //id
                     compositeMetadata, !((HASession) session).isPersistent());
+            addReplicatedBytes(getStateSize(compositeMetadata));
+            modAttrSession.setReplicatedDigests(digests);
             modAttrSession.resetAttributeState();
             postSaveUpdate(modAttrSession);
         } catch (BackingStoreException ex) {
@@ -268,8 +278,7 @@ public class ReplicationAttributeStore extends ReplicationStore {
         }
         byte[] state = metadata.getState();
         Session _session = null;
-        BufferedInputStream bis = null;
-        ByteArrayInputStream bais = null;
+        InputStream is = null;
         Loader loader = null;    
         ClassLoader classLoader = null;
         ObjectInputStream ois = null;
@@ -280,8 +289,7 @@ public class ReplicationAttributeStore extends ReplicationStore {
             
         try
         {
-            bais = new ByteArrayInputStream(state);
-            bis = new BufferedInputStream(bais);
+            is = getInputStream(state);
             
             //Get the username, ssoId from metadata
             //ssoId = metadata.getSsoId();
@@ -300,15 +308,16 @@ public class ReplicationAttributeStore extends ReplicationStore {
                 classLoader = loader.getClassLoader();
             }
             
-            if (classLoader != null) {
+            ois = createSerializerObjectInputStream(is, classLoader);
+            if (ois == null && classLoader != null) {
 
                 try {
-                    ois = ioUtils.createObjectInputStream(bis, true, classLoader);
+                    ois = ioUtils.createObjectInputStream(is, true, classLoader);
                 } catch (Exception ex) {}
 
             }
             if (ois == null) {
-                ois = new ObjectInputStream(bis); 
+                ois = new ObjectInputStream(is); 
             }
             
             if(ois != null) {
@@ -319,7 +328,7 @@ public class ReplicationAttributeStore extends ReplicationStore {
 
                     try {
                         ois.close();
-                        bis = null;
+                        is = null;
                     }
                     catch (IOException e) {
                     }
@@ -405,7 +414,16 @@ public class ReplicationAttributeStore extends ReplicationStore {
         }
     }
     
-    private CompositeMetadata createCompositeMetadata(ModifiedAttributeHASession modAttrSession) {
+    /**
+     * Create the metadata to replicate for the added, modified and deleted
+     * attributes of <code>modAttrSession</code>. Modified attributes whose
+     * serialized state is the same as when they were last replicated are
+     * left out; the digests of the state that is replicated are put into
+     * <code>digests</code>, to be recorded on the session once the save
+     * has succeeded.
+     */
+    private CompositeMetadata createCompositeMetadata(ModifiedAttributeHASession modAttrSession,
+            Map<String, byte[]> digests) {
         
         byte[] trunkState = null;
         if (modAttrSession.isNew()) {
@@ -428,11 +446,11 @@ public class ReplicationAttributeStore extends ReplicationStore {
         printAttrList("DELETED", deletedAttrs);
         
         addToEntries(modAttrSession, entries, 
-                SessionAttributeMetadata.Operation.ADD, addedAttrs);
+                SessionAttributeMetadata.Operation.ADD, addedAttrs, digests);
         addToEntries(modAttrSession, entries, 
-                SessionAttributeMetadata.Operation.UPDATE, modifiedAttrs);
+                SessionAttributeMetadata.Operation.UPDATE, modifiedAttrs, digests);
         addToEntries(modAttrSession, entries,
-                SessionAttributeMetadata.Operation.DELETE, deletedAttrs);
+                SessionAttributeMetadata.Operation.DELETE, deletedAttrs, digests);
 
         CompositeMetadata result 
             = new CompositeMetadata(modAttrSession.getVersion(),
@@ -455,7 +473,7 @@ public class ReplicationAttributeStore extends ReplicationStore {
     
     private void addToEntries(ModifiedAttributeHASession modAttrSession,
             List<SessionAttributeMetadata> entries, SessionAttributeMetadata.Operation op,
-            List<String> attrList) {
+            List<String> attrList, Map<String, byte[]> digests) {
         String nextAttrName = null;
         Object nextAttrValue = null;
         byte[] nextValue = null;
@@ -466,11 +484,62 @@ public class ReplicationAttributeStore extends ReplicationStore {
             try {
                 nextValue = getByteArray(nextAttrValue);
             } catch (IOException ex) {}
+            byte[] nextDigest = null;
+            if (op != SessionAttributeMetadata.Operation.DELETE && nextValue != null) {
+                nextDigest = getDigest(nextValue);
+                if (op == SessionAttributeMetadata.Operation.UPDATE
+                        && MessageDigest.isEqual(nextDigest,
+                            modAttrSession.getReplicatedDigest(nextAttrName))) {
+                    if (_logger.isLoggable(Level.FINE)) {
+                        _logger.fine("ReplicationAttributeStore>>addToEntries: unchanged attribute=" + nextAttrName);
+                    }
+                    continue;
+                }
+            }
+            digests.put(nextAttrName, nextDigest);
             SessionAttributeMetadata nextAttrMetadata
                 = new SessionAttributeMetadata(nextAttrName, op, nextValue);
             entries.add(nextAttrMetadata);
         }
     }
+
+    /**
+    * Return the digest of the serialized state of an attribute, used to
+    * tell whether it has changed since it was last replicated.
+    */
+    private static byte[] getDigest(byte[] state) {
+        MessageDigest md = messageDigests.get();
+        md.reset();
+        return md.digest(state);
+    }
+
+    private static final ThreadLocal<MessageDigest> messageDigests =
+        new ThreadLocal<MessageDigest>() {
+            @Override
+            protected MessageDigest initialValue() {
+                try {
+                    return MessageDigest.getInstance("SHA-256");
+                } catch (NoSuchAlgorithmException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        };
+
+    /**
+    * Return the number of bytes of serialized state in <code>metadata</code>
+    */
+    private static long getStateSize(CompositeMetadata metadata) {
+        long size = 0L;
+        if (metadata.getState() != null) {
+            size += metadata.getState().length;
+        }
+        for (SessionAttributeMetadata attr : metadata.getEntries()) {
+            if (attr.getState() != null) {
+                size += attr.getState().length;
+            }
+        }
+        return size;
+    }
     
     /**
     * Create an byte[] for the session that we can then pass to
@@ -482,36 +551,18 @@ public class ReplicationAttributeStore extends ReplicationStore {
     */
     protected byte[] getByteArray(Object attributeValue)
       throws IOException {
-        ByteArrayOutputStream bos = null;
-        ObjectOutputStream oos = null;
-
-
-        byte[] obs;
+        ReplicationOutputBuffer buffer = ReplicationOutputBuffer.acquire();
         try {
-            bos = new ByteArrayOutputStream();
-            
-
+            ObjectOutputStream oos = createObjectOutputStream(buffer);
             try {
-                oos = ioUtils.createObjectOutputStream(new BufferedOutputStream(bos), true);
-            } catch (Exception ex) {}
-
-            //use normal ObjectOutputStream if there is a failure during stream creation
-            if(oos == null) {
-                oos = new ObjectOutputStream(new BufferedOutputStream(bos)); 
-            }            
-            oos.writeObject(attributeValue);
-            oos.close();
-            oos = null;
-
-            obs = bos.toByteArray();
-        }
-        finally {
-            if ( oos != null )  {
+                oos.writeObject(attributeValue);
+            } finally {
                 oos.close();
             }
+            return buffer.toByteArray(compressionThreshold);
+        } finally {
+            buffer.release();
         }
-
-        return obs;
     }
     
     /**
@@ -528,8 +579,7 @@ public class ReplicationAttributeStore extends ReplicationStore {
         throws IOException, ClassNotFoundException 
     {
         Object attributeValue = null;
-        BufferedInputStream bis = null;
-        ByteArrayInputStream bais = null;
+        InputStream is = null;
         Loader loader = null;    
         ClassLoader classLoader = null;
         ObjectInputStream ois = null;
@@ -538,8 +588,7 @@ public class ReplicationAttributeStore extends ReplicationStore {
             
         try
         {
-            bais = new ByteArrayInputStream(state);
-            bis = new BufferedInputStream(bais);
+            is = getInputStream(state);
             
             if (container != null) {
                 loader = container.getLoader();
@@ -549,15 +598,16 @@ public class ReplicationAttributeStore extends ReplicationStore {
                 classLoader = loader.getClassLoader();
             }
             
-            if (classLoader != null) {
+            ois = createSerializerObjectInputStream(is, classLoader);
+            if (ois == null && classLoader != null) {
 
                 try {
-                    ois = ioUtils.createObjectInputStream(bis, true, classLoader);
+                    ois = ioUtils.createObjectInputStream(is, true, classLoader);
                 } catch (Exception ex) {}
 
             }
             if (ois == null) {
-                ois = new ObjectInputStream(bis); 
+                ois = new ObjectInputStream(is); 
             }
             
             if(ois != null) {
@@ -568,7 +618,7 @@ public class ReplicationAttributeStore extends ReplicationStore {
 
                     try {
                         ois.close();
-                        bis = null;
+                        is = null;
                     }
                     catch (IOException e) {
                     }
@@ -603,43 +653,25 @@ public class ReplicationAttributeStore extends ReplicationStore {
     */
     protected byte[] getByteArrayFromCollection(Collection entries)
       throws IOException {
-        ByteArrayOutputStream bos = null;
-        ObjectOutputStream oos = null;
-
-        
-        byte[] obs;
+        ReplicationOutputBuffer buffer = ReplicationOutputBuffer.acquire();
         try {
-            bos = new ByteArrayOutputStream();
-            
-
+            ObjectOutputStream oos = createObjectOutputStream(buffer);
             try {
-                oos = ioUtils.createObjectOutputStream(new BufferedOutputStream(bos), true);
-            } catch (Exception ex) {}
-
-            //use normal ObjectOutputStream if there is a failure during stream creation
-            if(oos == null) {
-                oos = new ObjectOutputStream(new BufferedOutputStream(bos)); 
-            }
-            //first write out the entriesSize
-            int entriesSize = entries.size();
-            oos.writeObject(Integer.valueOf(entriesSize));
-            //then write out the entries
-            Iterator it = entries.iterator();
-            while(it.hasNext()) {
-                oos.writeObject(it.next());
-            }
-            oos.close();
-            oos = null;
-
-            obs = bos.toByteArray();
-        }
-        finally {
-            if ( oos != null )  {
+                //first write out the entriesSize
+                int entriesSize = entries.size();
+                oos.writeObject(Integer.valueOf(entriesSize));
+                //then write out the entries
+                Iterator it = entries.iterator();
+                while(it.hasNext()) {
+                    oos.writeObject(it.next());
+                }
+            } finally {
                 oos.close();
             }
+            return buffer.toByteArray(compressionThreshold);
+        } finally {
+            buffer.release();
         }
-
-        return obs;
     }
     
     /**
@@ -656,8 +688,7 @@ public class ReplicationAttributeStore extends ReplicationStore {
         throws IOException, ClassNotFoundException 
     {
         Collection<Object> attributeValueList = new ArrayList<Object>();
-        BufferedInputStream bis = null;
-        ByteArrayInputStream bais = null;
+        InputStream is = null;
         Loader loader = null;    
         ClassLoader classLoader = null;
         ObjectInputStream ois = null;
@@ -665,8 +696,7 @@ public class ReplicationAttributeStore extends ReplicationStore {
             
         try
         {
-            bais = new ByteArrayInputStream(state);
-            bis = new BufferedInputStream(bais);
+            is = getInputStream(state);
             
             if (container != null) {
                 loader = container.getLoader();
@@ -676,15 +706,16 @@ public class ReplicationAttributeStore extends ReplicationStore {
                 classLoader = loader.getClassLoader();
             }
             
-            if (classLoader != null) {
+            ois = createSerializerObjectInputStream(is, classLoader);
+            if (ois == null && classLoader != null) {
 
                 try {
-                    ois = ioUtils.createObjectInputStream(bis, true, classLoader);
+                    ois = ioUtils.createObjectInputStream(is, true, classLoader);
                 } catch (Exception ex) {}
 
             }
             if (ois == null) {
-                ois = new ObjectInputStream(bis); 
+                ois = new ObjectInputStream(is); 
             }
             if(ois != null) {
                 try {
@@ -702,7 +733,7 @@ public class ReplicationAttributeStore extends ReplicationStore {
                 finally {
                     try {
                         ois.close();
-                        bis = null;
+                        is = null;
                     }
                     catch (IOException e) {
                     }
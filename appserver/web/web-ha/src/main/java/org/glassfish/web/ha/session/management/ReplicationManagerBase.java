@@ -195,6 +195,7 @@ public abstract class ReplicationManagerBase<T extends Storeable> extends Persis
         }
         Session removed = null;
         removed = sessions.remove(session.getIdInternal());
+        unscheduleExpiration(session);
         if (removed != null && _logger.isLoggable(Level.FINE)){
             _logger.fine("Remove from manager cache id=" + session.getId());
         }
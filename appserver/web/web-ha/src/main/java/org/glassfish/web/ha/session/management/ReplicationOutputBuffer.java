@@ -0,0 +1,132 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.web.ha.session.management;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The in-memory sink that session and attribute state is serialized into
+ * before it is handed to the backing store.
+ * <p>
+ * Each thread keeps one buffer, so that a save does not allocate and grow a
+ * new ByteArrayOutputStream every time. State larger than the compression
+ * threshold of the store is gzipped; compressed state starts with the gzip
+ * magic number, which a Java serialization stream never does, so that it is
+ * recognised on load without any further marker.
+ */
+final class ReplicationOutputBuffer extends ByteArrayOutputStream {
+
+    private static final int INITIAL_SIZE = 4 * 1024;
+
+    // Buffers grown beyond this are not kept once the save is done
+    private static final int MAX_RETAINED_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<ReplicationOutputBuffer> buffers =
+        new ThreadLocal<ReplicationOutputBuffer>() {
+            @Override
+            protected ReplicationOutputBuffer initialValue() {
+                return new ReplicationOutputBuffer();
+            }
+        };
+
+    private boolean inUse;
+
+    private ReplicationOutputBuffer() {
+        super(INITIAL_SIZE);
+    }
+
+    /**
+     * Returns the empty buffer of the current thread, or a new buffer if
+     * the one of the current thread is already in use further up the stack.
+     * The buffer must be handed back with {@link #release}.
+     */
+    static ReplicationOutputBuffer acquire() {
+        ReplicationOutputBuffer buffer = buffers.get();
+        if (buffer.inUse) {
+            return new ReplicationOutputBuffer();
+        }
+        buffer.inUse = true;
+        buffer.reset();
+        return buffer;
+    }
+
+    void release() {
+        inUse = false;
+        if (buf.length > MAX_RETAINED_SIZE) {
+            buf = new byte[INITIAL_SIZE];
+        }
+        count = 0;
+    }
+
+    /**
+     * Returns a copy of the contents of this buffer, gzipped if there are
+     * more than <code>compressionThreshold</code> bytes and compression
+     * makes them smaller.
+     *
+     * @param compressionThreshold the size above which the contents are
+     * compressed, or a negative value to never compress
+     */
+    byte[] toByteArray(int compressionThreshold) throws IOException {
+        if (compressionThreshold < 0 || count <= compressionThreshold) {
+            return toByteArray();
+        }
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(count / 2);
+        GZIPOutputStream gzos = new GZIPOutputStream(bos);
+        try {
+            gzos.write(buf, 0, count);
+        } finally {
+            gzos.close();
+        }
+        return bos.size() < count ? bos.toByteArray() : toByteArray();
+    }
+
+    /**
+     * Returns true if <code>state</code> was compressed by
+     * {@link #toByteArray(int)}.
+     */
+    static boolean isCompressed(byte[] state) {
+        return state.length >= 2
+            && (state[0] & 0xff) == 0x1f
+            && (state[1] & 0xff) == 0x8b;
+    }
+}
@@ -62,7 +62,6 @@ import org.glassfish.web.ha.LogFacade;
 
 import java.io.*;
 import java.util.logging.Level;
-import java.util.zip.GZIPInputStream;
 
 /**
  *
@@ -173,6 +172,7 @@ public class ReplicationStore extends HAStoreBase {
             HASession haSess = (HASession)session;
             replicator.save(session.getIdInternal(), //id
                     simpleMetadata, haSess.isPersistent());
+            addReplicatedBytes(sessionState.length);
 
             if (_logger.isLoggable(Level.FINE)) {
                 _logger.fine("Save succeeded.");
@@ -267,6 +267,7 @@ public class ReplicationStore extends HAStoreBase {
         try {
             backingStore.save(session.getIdInternal(), //id
                     simpleMetadata, !((HASession)session).isPersistent());  //TODO: Revist the last param
+            addReplicatedBytes(sessionState.length);
         } catch (BackingStoreException ex) {
             IOException ex1 =
                 (IOException) new IOException("Error during save: " + ex.getMessage()).initCause(ex);
@@ -499,8 +500,6 @@ public class ReplicationStore extends HAStoreBase {
     public Session getSession(byte[] state,  long version) throws IOException {
         Session _session = null;
         InputStream is;
-        BufferedInputStream bis;
-        ByteArrayInputStream bais;    
         ObjectInputStream ois = null;
         Loader loader = null;
         ClassLoader classLoader = null;
@@ -508,14 +507,7 @@ public class ReplicationStore extends HAStoreBase {
         java.security.Principal pal=null; //MERGE chg added
         try
         {
-            bais = new ByteArrayInputStream(state);
-            bis = new BufferedInputStream(bais);
-            if(isReplicationCompressionEnabled()) {
-                is = new GZIPInputStream(bis);
-            } else {
-                is = bis;
-            }            
-            
+            is = getInputStream(state);
 
             if(_logger.isLoggable(Level.FINEST)) {
                 _logger.finest("loaded session from replicationstore, length = "+state.length);
@@ -526,7 +518,8 @@ public class ReplicationStore extends HAStoreBase {
                 classLoader = loader.getClassLoader(); 
             }
 
-            if (classLoader != null) {
+            ois = createSerializerObjectInputStream(is, classLoader);
+            if (ois == null && classLoader != null) {
                 try {
                     ois = ioUtils.createObjectInputStream(is,true,classLoader);
                 } catch (Exception ex) {
@@ -545,7 +538,6 @@ public class ReplicationStore extends HAStoreBase {
                 if (ois != null) {
                     try {
                         ois.close();
-                        bis = null;
                     }
                     catch (IOException e) {
                     }
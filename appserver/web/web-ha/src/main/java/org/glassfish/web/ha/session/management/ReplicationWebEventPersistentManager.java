@@ -47,7 +47,12 @@
 
 package org.glassfish.web.ha.session.management;
 
+import org.apache.catalina.Container;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.Loader;
 import org.apache.catalina.Session;
+import org.apache.catalina.core.StandardContext;
+import org.apache.catalina.session.StandardSession;
 import org.glassfish.gms.bootstrap.GMSAdapterService;
 import org.glassfish.ha.common.GlassFishHAReplicaPredictor;
 import org.glassfish.ha.common.HACookieInfo;
@@ -66,10 +71,16 @@ import org.glassfish.hk2.api.PerLookup;
 
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
+import java.util.ArrayList;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 
 /**
@@ -94,6 +105,28 @@ public class ReplicationWebEventPersistentManager<T extends Storeable> extends R
 
     private String instanceName = "";
 
+    private volatile int replicationBatchInterval = 0;
+
+    // sessions saved since the last flush, by id
+    private final ConcurrentHashMap<String, Session> pendingSaves = new ConcurrentHashMap<String, Session>();
+
+    // the scheduled flushes, null unless saves are batched and the manager is started
+    private volatile ScheduledFuture<?> batchFlusher;
+
+    // held while the queued saves are flushed
+    private final Object batchFlusherLock = new Object();
+
+    // how long stop() retries the sessions that requests hold locked
+    private static final long STOP_FLUSH_TIMEOUT = 5000L;
+
+    private static final long STOP_FLUSH_RETRY_INTERVAL = 50L;
+
+    private final AtomicLong replicationRequestCount = new AtomicLong();
+
+    // only accessed by the background processing thread
+    private long lastReplicatedBytes = 0L;
+    private long lastReplicationRequestCount = 0L;
+
 
     /**
      * The descriptive information about this implementation.
@@ -130,7 +163,8 @@ public class ReplicationWebEventPersistentManager<T extends Storeable> extends R
     }
     
     /**
-    * called from valve; does the save of session
+    * called from valve; does the save of session, or queues it for
+    * the next flush if saves are batched
     *
     * @param session 
     *   The session to store
@@ -139,7 +173,19 @@ public class ReplicationWebEventPersistentManager<T extends Storeable> extends R
         if (_logger.isLoggable(Level.FINE)) {
             _logger.fine("in doValveSave");
         }
+        replicationRequestCount.incrementAndGet();
+        if (batchFlusher != null) {
+            pendingSaves.put(session.getIdInternal(), session);
+            // stop() may have drained the queue meanwhile
+            if (batchFlusher != null
+                    || !pendingSaves.remove(session.getIdInternal(), session)) {
+                return;
+            }
+        }
+        saveSession(session);
+    }
 
+    private void saveSession(Session session) {
             try {
                 ReplicationStore replicationStore = (ReplicationStore) this.getStore();
                 replicationStore.doValveSave(session);
@@ -147,13 +193,223 @@ public class ReplicationWebEventPersistentManager<T extends Storeable> extends R
                     _logger.fine("FINISHED repStore.valveSave");
                 }
             } catch (Exception ex) {
-                ex.printStackTrace();
-
+                _logger.log(Level.WARNING, LogFacade.FAILED_TO_SAVE_SESSION, session.getIdInternal());
                 _logger.log(Level.FINE, "exception occurred in doValveSave id=" + session.getIdInternal(),
                                 ex);
-                
             }
     }
+
+    /**
+    * save the sessions queued since the last flush; a session saved
+    * by several requests in between is replicated once.
+    * A session is serialized under its background lock, so that requests
+    * do not modify it meanwhile; one that a request holds locked is left
+    * for the next flush
+    */
+    protected void flushPendingSaves() {
+        for (String id : new ArrayList<String>(pendingSaves.keySet())) {
+            Session session = pendingSaves.remove(id);
+            if (session == null) {
+                continue;
+            }
+            if (!(session instanceof StandardSession)) {
+                saveSession(session);
+                continue;
+            }
+            StandardSession standardSession = (StandardSession) session;
+            if (standardSession.lockBackground()) {
+                try {
+                    saveSession(session);
+                } finally {
+                    standardSession.unlockBackground();
+                }
+            } else {
+                pendingSaves.putIfAbsent(id, session);
+            }
+        }
+    }
+
+    /**
+    * save all the queued sessions when the manager stops. Sessions
+    * that requests hold locked are retried for up to
+    * STOP_FLUSH_TIMEOUT milliseconds; those still locked then are saved
+    * under the foreground lock, as doValveSave does without batching.
+    * A session locked by a background task, such as the session reaper,
+    * is not saved
+    */
+    private void flushAllPendingSaves() {
+        long deadline = System.currentTimeMillis() + STOP_FLUSH_TIMEOUT;
+        flushPendingSaves();
+        while (!pendingSaves.isEmpty() && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(STOP_FLUSH_RETRY_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            flushPendingSaves();
+        }
+        for (String id : new ArrayList<String>(pendingSaves.keySet())) {
+            Session session = pendingSaves.remove(id);
+            if (session == null) {
+                continue;
+            }
+            if (!(session instanceof StandardSession)) {
+                saveSession(session);
+                continue;
+            }
+            StandardSession standardSession = (StandardSession) session;
+            if (standardSession.lockForeground()) {
+                try {
+                    saveSession(session);
+                } finally {
+                    standardSession.unlockForeground();
+                }
+            } else {
+                // background locked, e.g. by the session reaper
+                _logger.log(Level.WARNING, LogFacade.SESSION_NOT_SAVED_ON_STOP, id);
+            }
+        }
+    }
+
+    @Override
+    public void doRemove(String id) {
+        pendingSaves.remove(id);
+        super.doRemove(id);
+    }
+
+    /**
+     * Return the interval in milliseconds at which session saves are
+     * flushed to the backing store, or 0 if sessions are saved at the end
+     * of each request.
+     */
+    public int getReplicationBatchInterval() {
+        return replicationBatchInterval;
+    }
+
+    /**
+     * Set the interval in milliseconds at which session saves are
+     * flushed to the backing store. With a positive interval, the sessions
+     * saved by requests are queued and replicated together by a thread
+     * shared by all the managers; a failover within the interval sees the
+     * state of the last flush. 0 (the default) saves each session at the end of the request.
+     * Takes effect when the manager is started.
+     *
+     * @param millis the flush interval
+     */
+    public void setReplicationBatchInterval(int millis) {
+        replicationBatchInterval = millis;
+    }
+
+    /**
+     * Return the number of bytes of session state replicated so far.
+     */
+    public long getReplicatedBytes() {
+        if (!(getStore() instanceof HAStoreBase)) {
+            return 0L;
+        }
+        return ((HAStoreBase) getStore()).getReplicatedBytes();
+    }
+
+    /**
+     * Return the number of requests that saved a session so far.
+     */
+    public long getReplicationRequestCount() {
+        return replicationRequestCount.get();
+    }
+
+    @Override
+    public void start() throws LifecycleException {
+        super.start();
+        if (replicationBatchInterval > 0 && batchFlusher == null) {
+            batchFlusher = BatchFlushExecutor.EXECUTOR.scheduleWithFixedDelay(
+                    new ReplicationBatchFlusher(), replicationBatchInterval,
+                    replicationBatchInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void stop() throws LifecycleException {
+        ScheduledFuture<?> flusher = batchFlusher;
+        if (flusher != null) {
+            batchFlusher = null;
+            flusher.cancel(false);
+            // waits for a flush in progress
+            synchronized (batchFlusherLock) {
+                flushAllPendingSaves();
+            }
+        }
+        super.stop();
+    }
+
+    /**
+     * Perform the background processes for this Manager, and publish
+     * the bytes replicated since the last time to monitoring.
+     */
+    @Override
+    public void backgroundProcess() {
+        super.backgroundProcess();
+        long bytes = getReplicatedBytes();
+        long requests = replicationRequestCount.get();
+        Container container = getContainer();
+        if (requests > lastReplicationRequestCount
+                && container instanceof StandardContext) {
+            ((StandardContext) container).sessionsReplicatedEvent(
+                    bytes - lastReplicatedBytes, requests - lastReplicationRequestCount);
+        }
+        lastReplicatedBytes = bytes;
+        lastReplicationRequestCount = requests;
+    }
+
+    /**
+     * Flushes the queued saves of this manager, run every
+     * replicationBatchInterval milliseconds by the BatchFlushExecutor.
+     */
+    private class ReplicationBatchFlusher implements Runnable {
+
+        public void run() {
+            Thread currentThread = Thread.currentThread();
+            ClassLoader previousClassLoader = currentThread.getContextClassLoader();
+            Loader loader = getContainer().getLoader();
+            if (loader != null && loader.getClassLoader() != null) {
+                currentThread.setContextClassLoader(loader.getClassLoader());
+            }
+            try {
+                synchronized (batchFlusherLock) {
+                    // stop() flushes what is left
+                    if (batchFlusher != null) {
+                        flushPendingSaves();
+                    }
+                }
+            } catch (Throwable t) {
+                // an exception would cancel the next flushes
+                _logger.log(Level.WARNING, LogFacade.EXCEPTION_FLUSHING_BATCHED_SAVES, t);
+            } finally {
+                currentThread.setContextClassLoader(previousClassLoader);
+            }
+        }
+    }
+
+    /**
+     * The single daemon thread that flushes the queued saves of all the
+     * managers, created when the first manager batches its saves.
+     */
+    private static class BatchFlushExecutor {
+
+        static final ScheduledThreadPoolExecutor EXECUTOR =
+                new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "ReplicationBatchFlusher");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+
+        static {
+            // do not keep the stopped managers until their next flush time
+            EXECUTOR.setRemoveOnCancelPolicy(true);
+        }
+    }
    
 
     //START OF 6364900
@@ -126,6 +126,8 @@ public class ReplicatedWebMethodSessionStrategyBuilder extends BasePersistenceSt
         rwepMgr.setMaxActiveSessions(maxSessions);
         rwepMgr.setMaxIdleBackup(0);
         rwepMgr.setRelaxCacheVersionSemantics(relaxCacheVersionSemantics);
+        rwepMgr.setReplicationBatchInterval(replicationBatchInterval);
+        store.setCompressionThreshold(compressionThreshold);
         rwepMgr.setStore(store);
         rwepMgr.setDisableJreplica(disableJreplica);
 
@@ -0,0 +1,268 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.web.ha.session.management;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.catalina.Manager;
+import org.apache.catalina.core.StandardContext;
+import org.apache.catalina.core.StandardHost;
+import org.glassfish.ha.store.api.BackingStore;
+import org.glassfish.ha.store.api.BackingStoreException;
+import org.glassfish.ha.store.api.BackingStoreFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReplicationAttributeStoreTest {
+
+    private ReplicationWebEventPersistentManager<CompositeMetadata> manager;
+
+    private ReplicationAttributeStore store;
+
+    private RecordingBackingStore backingStore;
+
+    @Before
+    public void setUp() {
+        StandardHost host = new StandardHost();
+        host.setName("localhost");
+        StandardContext context = new StandardContext();
+        context.setName("/test");
+        context.setEngineName("test");
+        context.setParent(host);
+
+        manager = new ReplicationWebEventPersistentManager<CompositeMetadata>();
+        manager.setContainer(context);
+        backingStore = new RecordingBackingStore();
+        manager.setBackingStore(backingStore);
+        store = new ReplicationAttributeStore(null);
+        manager.setStore(store);
+    }
+
+    @Test
+    public void testUnchangedAttributeSkipped() throws Exception {
+        TestSession session = new TestSession(manager, "s1");
+
+        session.setAttribute("cart", "a");
+        store.doValveSave(session);
+        assertEquals("cart=ADD", describe(backingStore.last()));
+
+        // set again with the same state
+        session.setAttribute("cart", "a");
+        store.doValveSave(session);
+        assertEquals("", describe(backingStore.last()));
+
+        session.setAttribute("cart", "b");
+        store.doValveSave(session);
+        assertEquals("cart=UPDATE", describe(backingStore.last()));
+        assertEquals(3, backingStore.saved.size());
+    }
+
+    @Test
+    public void testDigestRecordedAfterSave() throws Exception {
+        TestSession session = new TestSession(manager, "s1");
+        session.setAttribute("cart", "a");
+        store.doValveSave(session);
+
+        session.setAttribute("cart", "c");
+        backingStore.failing = true;
+        store.doValveSave(session);
+        assertEquals(1, backingStore.saved.size());
+
+        // the failed save must not make "c" look replicated
+        backingStore.failing = false;
+        store.doValveSave(session);
+        assertEquals("cart=UPDATE", describe(backingStore.last()));
+        SessionAttributeMetadata attr =
+            backingStore.last().getEntries().iterator().next();
+        assertEquals("c", store.getAttributeValue(attr.getState()));
+    }
+
+    @Test
+    public void testRemovedAttributeReplicated() throws Exception {
+        TestSession session = new TestSession(manager, "s1");
+        session.setAttribute("cart", "a");
+        store.doValveSave(session);
+
+        session.removeAttribute("cart");
+        store.doValveSave(session);
+        assertEquals("cart=DELETE", describe(backingStore.last()));
+
+        // added again with the state it had before it was removed
+        session.setAttribute("cart", "a");
+        store.doValveSave(session);
+        assertEquals("cart=ADD", describe(backingStore.last()));
+    }
+
+    @Test
+    public void testCompressionRoundTrip() throws Exception {
+        char[] chars = new char[8192];
+        Arrays.fill(chars, 'x');
+        String value = new String(chars);
+
+        store.setCompressionThreshold(1024);
+        byte[] state = store.getByteArray(value);
+        assertTrue(ReplicationOutputBuffer.isCompressed(state));
+        assertTrue(state.length < chars.length);
+        assertEquals(value, store.getAttributeValue(state));
+
+        // at or below the threshold
+        state = store.getByteArray("small");
+        assertFalse(ReplicationOutputBuffer.isCompressed(state));
+        assertEquals("small", store.getAttributeValue(state));
+
+        store.setCompressionThreshold(-1);
+        state = store.getByteArray(value);
+        assertFalse(ReplicationOutputBuffer.isCompressed(state));
+        assertEquals(value, store.getAttributeValue(state));
+    }
+
+    @Test
+    public void testCompressedAttributeSaved() throws Exception {
+        char[] chars = new char[8192];
+        Arrays.fill(chars, 'x');
+        String value = new String(chars);
+        store.setCompressionThreshold(1024);
+        TestSession session = new TestSession(manager, "s1");
+
+        session.setAttribute("cart", value);
+        store.doValveSave(session);
+        byte[] state = backingStore.last().getEntries().iterator().next().getState();
+        assertTrue(ReplicationOutputBuffer.isCompressed(state));
+        assertEquals(value, store.getAttributeValue(state));
+
+        // the digest is of the compressed state, which is the same again
+        session.setAttribute("cart", new String(chars));
+        store.doValveSave(session);
+        assertEquals("", describe(backingStore.last()));
+    }
+
+    private static String describe(CompositeMetadata metadata) {
+        StringBuilder sb = new StringBuilder();
+        for (SessionAttributeMetadata attr : metadata.getEntries()) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(attr.getAttributeName()).append('=').append(attr.getOperation());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * A valid session with the given id that has been saved before, not
+     * added to the manager.
+     */
+    static class TestSession extends ModifiedAttributeHASession {
+
+        TestSession(Manager manager, String id) {
+            super(manager);
+            this.id = id;
+            setValid(true);
+            setNew(false);
+        }
+    }
+
+    /**
+     * Records the metadata saved, or fails the saves when
+     * <code>failing</code> is set.
+     */
+    static class RecordingBackingStore extends BackingStore<String, CompositeMetadata> {
+
+        final List<CompositeMetadata> saved = new ArrayList<CompositeMetadata>();
+
+        final Map<String, CompositeMetadata> values = new HashMap<String, CompositeMetadata>();
+
+        boolean failing;
+
+        CompositeMetadata last() {
+            return saved.get(saved.size() - 1);
+        }
+
+        public BackingStoreFactory getBackingStoreFactory() {
+            return null;
+        }
+
+        @Override
+        public CompositeMetadata load(String key, String version) throws BackingStoreException {
+            return values.get(key);
+        }
+
+        @Override
+        public String save(String key, CompositeMetadata value, boolean isNew)
+                throws BackingStoreException {
+            if (failing) {
+                throw new BackingStoreException("save of " + key + " failed");
+            }
+            saved.add(value);
+            values.put(key, value);
+            return null;
+        }
+
+        public void remove(String key) {
+            values.remove(key);
+        }
+
+        public int removeExpired(long idleForMillis) {
+            return 0;
+        }
+
+        public int removeExpired() {
+            return 0;
+        }
+
+        @Override
+        public int size() throws BackingStoreException {
+            return values.size();
+        }
+
+        @Override
+        public void destroy() {
+            values.clear();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.web.ha.session.management;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ReplicationOutputBufferTest {
+
+    @Test
+    public void testCompressedAboveThreshold() throws Exception {
+        byte[] state = new byte[4096];
+        Arrays.fill(state, (byte) 'x');
+
+        byte[] result = write(state, 1024);
+        assertTrue(ReplicationOutputBuffer.isCompressed(result));
+        assertTrue(result.length < state.length);
+        assertArrayEquals(state, gunzip(result));
+    }
+
+    @Test
+    public void testNotCompressedAtThreshold() throws Exception {
+        byte[] state = new byte[1024];
+        Arrays.fill(state, (byte) 'x');
+
+        byte[] result = write(state, 1024);
+        assertFalse(ReplicationOutputBuffer.isCompressed(result));
+        assertArrayEquals(state, result);
+    }
+
+    @Test
+    public void testNeverCompressedWithoutThreshold() throws Exception {
+        byte[] state = new byte[4096];
+        Arrays.fill(state, (byte) 'x');
+
+        assertArrayEquals(state, write(state, -1));
+    }
+
+    @Test
+    public void testIncompressibleStateKept() throws Exception {
+        byte[] state = new byte[4096];
+        new Random(42L).nextBytes(state);
+        // a serialization stream never starts with the gzip magic number
+        state[0] = (byte) 0xac;
+
+        byte[] result = write(state, 0);
+        assertFalse(ReplicationOutputBuffer.isCompressed(result));
+        assertArrayEquals(state, result);
+    }
+
+    @Test
+    public void testBufferReused() throws Exception {
+        ReplicationOutputBuffer buffer = ReplicationOutputBuffer.acquire();
+        try {
+            buffer.write(new byte[] {1, 2, 3});
+            // a nested save gets a buffer of its own
+            ReplicationOutputBuffer nested = ReplicationOutputBuffer.acquire();
+            assertNotSame(buffer, nested);
+            nested.release();
+        } finally {
+            buffer.release();
+        }
+
+        ReplicationOutputBuffer again = ReplicationOutputBuffer.acquire();
+        try {
+            assertSame(buffer, again);
+            assertArrayEquals(new byte[0], again.toByteArray(-1));
+        } finally {
+            again.release();
+        }
+    }
+
+    private static byte[] write(byte[] state, int compressionThreshold) throws Exception {
+        ReplicationOutputBuffer buffer = ReplicationOutputBuffer.acquire();
+        try {
+            buffer.write(state);
+            return buffer.toByteArray(compressionThreshold);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private static byte[] gunzip(byte[] state) throws Exception {
+        InputStream is = new GZIPInputStream(new ByteArrayInputStream(state));
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            byte[] buf = new byte[1024];
+            int n;
+            while ((n = is.read(buf)) != -1) {
+                bos.write(buf, 0, n);
+            }
+            return bos.toByteArray();
+        } finally {
+            is.close();
+        }
+    }
+}
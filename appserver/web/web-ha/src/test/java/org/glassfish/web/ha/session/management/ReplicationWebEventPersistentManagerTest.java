@@ -0,0 +1,271 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.web.ha.session.management;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.catalina.Manager;
+import org.apache.catalina.Session;
+import org.apache.catalina.core.StandardContext;
+import org.apache.catalina.core.StandardHost;
+import org.apache.catalina.session.SessionLock;
+import org.apache.catalina.session.StandardSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReplicationWebEventPersistentManagerTest {
+
+    // long enough for the scheduled flush not to run during a test
+    private static final int LONG_INTERVAL = 60000;
+
+    private ReplicationWebEventPersistentManager<CompositeMetadata> manager;
+
+    private RecordingStore store;
+
+    private boolean started;
+
+    @Before
+    public void setUp() {
+        StandardHost host = new StandardHost();
+        host.setName("localhost");
+        StandardContext context = new StandardContext();
+        context.setName("/test");
+        context.setEngineName("test");
+        context.setParent(host);
+
+        manager = new ReplicationWebEventPersistentManager<CompositeMetadata>();
+        manager.setContainer(context);
+        manager.setSaveOnRestart(false);
+        store = new RecordingStore();
+        manager.setStore(store);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (started) {
+            manager.stop();
+        }
+    }
+
+    @Test
+    public void testSavedAtOnceWithoutBatching() throws Exception {
+        start(0);
+        Session session = new TestSession(manager, "s1");
+
+        manager.doValveSave(session);
+        manager.doValveSave(session);
+
+        assertEquals(list("s1", "s1"), store.saved);
+    }
+
+    @Test
+    public void testSavesCoalesced() throws Exception {
+        start(LONG_INTERVAL);
+        Session first = new TestSession(manager, "s1");
+        Session second = new TestSession(manager, "s2");
+
+        manager.doValveSave(first);
+        manager.doValveSave(second);
+        manager.doValveSave(first);
+        assertTrue(store.saved.isEmpty());
+
+        manager.flushPendingSaves();
+        assertEquals(2, store.saved.size());
+        assertTrue(store.saved.containsAll(list("s1", "s2")));
+
+        // nothing is left for the next flush
+        manager.flushPendingSaves();
+        assertEquals(2, store.saved.size());
+    }
+
+    @Test
+    public void testLockedSessionRequeued() throws Exception {
+        start(LONG_INTERVAL);
+        StandardSession session = new TestSession(manager, "s1");
+        // a request is using the session
+        assertTrue(session.lockForeground());
+
+        manager.doValveSave(session);
+        manager.flushPendingSaves();
+        assertTrue(store.saved.isEmpty());
+
+        session.unlockForeground();
+        manager.flushPendingSaves();
+        assertEquals(list("s1"), store.saved);
+        // the flush released its background lock
+        assertTrue(session.lockForeground());
+    }
+
+    @Test
+    public void testScheduledFlush() throws Exception {
+        start(50);
+        manager.doValveSave(new TestSession(manager, "s1"));
+
+        long deadline = System.currentTimeMillis() + 10000L;
+        while (store.saved.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertEquals(list("s1"), store.saved);
+    }
+
+    @Test
+    public void testStopDrainsQueue() throws Exception {
+        start(LONG_INTERVAL);
+        manager.doValveSave(new TestSession(manager, "s1"));
+        manager.doValveSave(new TestSession(manager, "s2"));
+
+        stop();
+        assertEquals(2, store.saved.size());
+        assertTrue(store.saved.containsAll(list("s1", "s2")));
+
+        // once stopped, sessions are saved at once
+        manager.doValveSave(new TestSession(manager, "s3"));
+        assertEquals(3, store.saved.size());
+    }
+
+    @Test
+    public void testStopWaitsForRequest() throws Exception {
+        start(LONG_INTERVAL);
+        final StandardSession session = new TestSession(manager, "s1");
+        assertTrue(session.lockForeground());
+        manager.doValveSave(session);
+
+        Thread request = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200L);
+                } catch (InterruptedException e) {
+                    // unlock at once
+                }
+                session.unlockForeground();
+            }
+        };
+        request.start();
+        stop();
+        request.join();
+
+        assertEquals(list("s1"), store.saved);
+    }
+
+    @Test
+    public void testStopSkipsBackgroundLockedSession() throws Exception {
+        start(LONG_INTERVAL);
+        StandardSession session = new TestSession(manager, "s1");
+        session.setSessionLock(new BackgroundTaskLock());
+        manager.doValveSave(session);
+        manager.doValveSave(new TestSession(manager, "s2"));
+
+        // retries the locked session until the stop timeout
+        stop();
+        assertEquals(list("s2"), store.saved);
+    }
+
+    private void start(int batchInterval) throws Exception {
+        manager.setReplicationBatchInterval(batchInterval);
+        manager.start();
+        started = true;
+    }
+
+    private void stop() throws Exception {
+        started = false;
+        manager.stop();
+    }
+
+    private static List<String> list(String... ids) {
+        List<String> list = new ArrayList<String>();
+        Collections.addAll(list, ids);
+        return list;
+    }
+
+    /**
+     * A valid session with the given id, not added to the manager.
+     */
+    static class TestSession extends StandardSession {
+
+        TestSession(Manager manager, String id) {
+            super(manager);
+            this.id = id;
+            setValid(true);
+        }
+    }
+
+    /**
+     * The lock of a session held by another background task, such as the
+     * session reaper, for as long as the test runs.
+     */
+    static class BackgroundTaskLock extends SessionLock {
+
+        @Override
+        public synchronized boolean lockBackground() {
+            return false;
+        }
+
+        @Override
+        public synchronized boolean lockForeground() {
+            return false;
+        }
+    }
+
+    /**
+     * Records the ids of the sessions saved, in order.
+     */
+    static class RecordingStore extends ReplicationStore {
+
+        final List<String> saved =
+            Collections.synchronizedList(new ArrayList<String>());
+
+        RecordingStore() {
+            super(null);
+        }
+
+        @Override
+        public void doValveSave(Session session) {
+            saved.add(session.getIdInternal());
+        }
+    }
+}
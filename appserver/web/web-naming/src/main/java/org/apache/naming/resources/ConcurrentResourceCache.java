@@ -0,0 +1,445 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.apache.naming.resources;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Resource cache for concurrent use, which ProxyDirContext uses without
+ * locking it.
+ * <p>
+ * Lookups are plain reads of concurrent maps. The cache is bounded by the
+ * number of bytes it holds: each entry weighs its cached content plus
+ * one KB. When an entry does not fit, entries are evicted in insertion
+ * order, except that an entry accessed since it was last considered gets
+ * a second chance (a CLOCK approximation of LRU). Eviction is done by one
+ * thread at a time; lookups never wait for it.
+ * <p>
+ * Negative lookups are kept apart, up to
+ * <code>spareNotFoundEntries</code> of them, and do not count towards the
+ * size of the cache.
+ * <p>
+ * Optionally, the content of resources up to
+ * <code>offHeapObjectMaxSize</code> KB is moved to direct buffers, see
+ * {@link DirectResource}.
+ */
+public class ConcurrentResourceCache extends ResourceCache {
+
+
+    // -------------------------------------------------------------- Constants
+
+
+    /**
+     * Weight of an entry in addition to its content, in bytes.
+     */
+    protected static final int ENTRY_WEIGHT = 1024;
+
+
+    // ----------------------------------------------------------- Constructors
+
+
+    public ConcurrentResourceCache() {
+    }
+
+
+    // ----------------------------------------------------- Instance Variables
+
+
+    /**
+     * Cached entries, by name.
+     */
+    protected final ConcurrentHashMap<String, Node> entries =
+        new ConcurrentHashMap<String, Node>();
+
+
+    /**
+     * Not found entries, by name.
+     */
+    protected final ConcurrentHashMap<String, CacheEntry> notFoundEntries =
+        new ConcurrentHashMap<String, CacheEntry>();
+
+
+    /**
+     * Cached entries in eviction order. Removed entries are dropped lazily.
+     */
+    protected final ConcurrentLinkedQueue<Node> evictionQueue =
+        new ConcurrentLinkedQueue<Node>();
+
+
+    /**
+     * Number of removed entries still in the eviction queue.
+     */
+    protected final AtomicInteger removedNodes = new AtomicInteger();
+
+
+    /**
+     * Current weight of the cached entries, in bytes.
+     */
+    protected final AtomicLong weight = new AtomicLong();
+
+
+    /**
+     * Lock of the thread evicting entries.
+     */
+    protected final ReentrantLock evictionLock = new ReentrantLock();
+
+
+    protected final LongAdder lookups = new LongAdder();
+
+
+    protected final LongAdder hits = new LongAdder();
+
+
+    protected final LongAdder evictions = new LongAdder();
+
+
+    /**
+     * Max size in KB of the resources whose content is kept off the heap,
+     * 0 to keep all contents on the heap.
+     */
+    protected int offHeapObjectMaxSize = 0;
+
+
+    // ------------------------------------------------------------- Properties
+
+
+    /**
+     * Return the access count.
+     */
+    @Override
+    public long getAccessCount() {
+        return lookups.sum();
+    }
+
+
+    /**
+     * Return the number of cache hits.
+     */
+    @Override
+    public long getHitsCount() {
+        return hits.sum();
+    }
+
+
+    /**
+     * Return the number of entries evicted to make room for others.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+
+    /**
+     * Return the current cache size in KB.
+     */
+    @Override
+    public int getCacheSize() {
+        return (int) (weight.get() / 1024);
+    }
+
+
+    /**
+     * Return the number of cached entries, not counting the not found
+     * entries.
+     */
+    public int getEntryCount() {
+        return entries.size();
+    }
+
+
+    /**
+     * Return the max size in KB of the resources whose content is kept off
+     * the heap.
+     */
+    public int getOffHeapObjectMaxSize() {
+        return offHeapObjectMaxSize;
+    }
+
+
+    /**
+     * Set the max size in KB of the resources whose content is kept off
+     * the heap, 0 to keep all contents on the heap.
+     */
+    public void setOffHeapObjectMaxSize(int offHeapObjectMaxSize) {
+        this.offHeapObjectMaxSize = offHeapObjectMaxSize;
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+
+    /**
+     * Evict entries until the given number of KB can be added.
+     */
+    @Override
+    public boolean allocate(int space) {
+        evictionLock.lock();
+        try {
+            return evict(space * 1024L);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+
+    @Override
+    public CacheEntry lookup(String name) {
+        lookups.increment();
+        CacheEntry cacheEntry = null;
+        Node node = entries.get(name);
+        if (node != null) {
+            cacheEntry = node.entry;
+        } else {
+            cacheEntry = notFoundEntries.get(name);
+        }
+        if (cacheEntry != null) {
+            hits.increment();
+        }
+        return cacheEntry;
+    }
+
+
+    @Override
+    public void load(CacheEntry entry) {
+        add(entry);
+    }
+
+
+    @Override
+    public boolean unload(String name) {
+        return remove(name);
+    }
+
+
+    @Override
+    public boolean add(CacheEntry entry) {
+        if (!entry.exists) {
+            if (notFoundEntries.size() >= spareNotFoundEntries) {
+                notFoundEntries.clear();
+            }
+            return (notFoundEntries.putIfAbsent(entry.name, entry) == null);
+        }
+        if (entries.containsKey(entry.name)) {
+            return false;
+        }
+
+        moveOffHeap(entry);
+        Node node = new Node(entry, ENTRY_WEIGHT + getContentLength(entry));
+        long maxWeight = cacheMaxSize * 1024L;
+        if (node.weight > maxWeight) {
+            return false;
+        }
+        if (weight.get() + node.weight > maxWeight) {
+            evictionLock.lock();
+            try {
+                if (!evict(node.weight)) {
+                    return false;
+                }
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+
+        // The cache may briefly exceed its size when threads add entries
+        // concurrently; the next addition evicts again
+        if (entries.putIfAbsent(entry.name, node) != null) {
+            return false;
+        }
+        weight.addAndGet(node.weight);
+        evictionQueue.offer(node);
+        return true;
+    }
+
+
+    @Override
+    public boolean remove(String name) {
+        Node node = entries.remove(name);
+        if (node != null) {
+            removed(node);
+            purgeEvictionQueue();
+            return true;
+        }
+        return (notFoundEntries.remove(name) != null);
+    }
+
+
+    // ------------------------------------------------------ Protected Methods
+
+
+    /**
+     * Evict entries until the given number of bytes can be added.
+     * Called with the eviction lock held.
+     *
+     * @return false if the cache cannot hold that many bytes
+     */
+    protected boolean evict(long needed) {
+        long maxWeight = cacheMaxSize * 1024L;
+        if (needed > maxWeight) {
+            return false;
+        }
+        // Each entry gets at most one second chance per eviction
+        int secondChances = entries.size();
+        while (weight.get() + needed > maxWeight) {
+            Node node = evictionQueue.poll();
+            if (node == null) {
+                return false;
+            }
+            if (node.removed) {
+                removedNodes.decrementAndGet();
+                continue;
+            }
+            long accessCount = node.entry.accessCount;
+            if ((accessCount != node.accessCount) && (secondChances-- > 0)) {
+                node.accessCount = accessCount;
+                evictionQueue.offer(node);
+                continue;
+            }
+            if (entries.remove(node.entry.name, node)) {
+                removed(node);
+                evictions.increment();
+            }
+            // Either way, the node is no longer in the queue
+            removedNodes.decrementAndGet();
+        }
+        return true;
+    }
+
+
+    /**
+     * Account for the removal of the given node from the entries.
+     */
+    protected void removed(Node node) {
+        node.removed = true;
+        removedNodes.incrementAndGet();
+        weight.addAndGet(-node.weight);
+    }
+
+
+    /**
+     * Drop the removed entries from the eviction queue once they outnumber
+     * the cached ones, as entries may be removed and added again many times
+     * without the cache ever filling up.
+     */
+    protected void purgeEvictionQueue() {
+        if ((removedNodes.get() > entries.size() + 64)
+                && evictionLock.tryLock()) {
+            try {
+                int purged = 0;
+                for (Iterator<Node> it = evictionQueue.iterator();
+                        it.hasNext(); ) {
+                    if (it.next().removed) {
+                        it.remove();
+                        purged++;
+                    }
+                }
+                removedNodes.addAndGet(-purged);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+
+    /**
+     * Move the content of the given entry off the heap, if it is small
+     * enough.
+     */
+    protected void moveOffHeap(CacheEntry entry) {
+        if ((offHeapObjectMaxSize > 0) && (entry.resource != null)) {
+            byte[] content = entry.resource.getContent();
+            if ((content != null)
+                    && (content.length <= offHeapObjectMaxSize * 1024L)) {
+                entry.resource = new DirectResource(content);
+            }
+        }
+    }
+
+
+    /**
+     * Return the length of the cached content of the given entry.
+     */
+    protected static long getContentLength(CacheEntry entry) {
+        if (entry.resource instanceof DirectResource) {
+            return ((DirectResource) entry.resource).getContentLength();
+        }
+        if ((entry.resource != null)
+                && (entry.resource.getContent() != null)) {
+            return entry.resource.getContent().length;
+        }
+        return 0;
+    }
+
+
+    // ---------------------------------------------------------- Node Class
+
+
+    /**
+     * Cached entry with its eviction state.
+     */
+    protected static class Node {
+
+        final CacheEntry entry;
+
+        final long weight;
+
+        /**
+         * Access count of the entry when it was added or last given a second
+         * chance.
+         */
+        long accessCount;
+
+        volatile boolean removed = false;
+
+        Node(CacheEntry entry, long weight) {
+            this.entry = entry;
+            this.weight = weight;
+            this.accessCount = entry.accessCount;
+        }
+    }
+
+
+}
@@ -0,0 +1,178 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.apache.naming.resources;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Resource whose content is held in a direct buffer, outside of the Java
+ * heap.
+ * <p>
+ * <code>getContent</code> returns <code>null</code>, so that callers read
+ * the content through <code>streamContent</code> instead of expecting a
+ * heap array.
+ */
+public class DirectResource extends Resource {
+
+
+    // ----------------------------------------------------------- Constructors
+
+
+    public DirectResource(byte[] binaryContent) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(binaryContent.length);
+        buffer.put(binaryContent);
+        buffer.flip();
+        this.buffer = buffer.asReadOnlyBuffer();
+    }
+
+
+    // ----------------------------------------------------- Instance Variables
+
+
+    /**
+     * Content, positioned at its start.
+     */
+    protected final ByteBuffer buffer;
+
+
+    // ------------------------------------------------------------- Properties
+
+
+    /**
+     * Return the length of the content.
+     */
+    public int getContentLength() {
+        return buffer.limit();
+    }
+
+
+    /**
+     * Return a read only view of the content.
+     */
+    public ByteBuffer getBuffer() {
+        return buffer.asReadOnlyBuffer();
+    }
+
+
+    /**
+     * Content accessor.
+     * 
+     * @return InputStream over the content
+     */
+    @Override
+    public InputStream streamContent() {
+        return new BufferInputStream(buffer.duplicate());
+    }
+
+
+    /**
+     * Content accessor.
+     * 
+     * @return null, the content is not on the heap
+     */
+    @Override
+    public byte[] getContent() {
+        return null;
+    }
+
+
+    // --------------------------------------------- BufferInputStream Class
+
+
+    private static class BufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private int mark = 0;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? (buffer.get() & 0xff) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readlimit) {
+            mark = buffer.position();
+        }
+
+        @Override
+        public synchronized void reset() {
+            buffer.position(mark);
+        }
+    }
+
+
+}
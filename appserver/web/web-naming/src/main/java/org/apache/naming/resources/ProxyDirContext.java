@@ -94,6 +94,18 @@ public class ProxyDirContext implements DirContext {
     public static final String CONTEXT = "context";
     public static final String HOST = "host";
 
+    /**
+     * Environment property naming the ResourceCache implementation.
+     */
+    public static final String CACHE_CLASS = "cacheClassName";
+
+    /**
+     * Environment property giving the max size in KB of the resources
+     * whose content a ConcurrentResourceCache keeps off the heap.
+     */
+    public static final String CACHE_OFF_HEAP_OBJECT_MAX_SIZE =
+        "cacheOffHeapObjectMaxSize";
+
 
     // ----------------------------------------------------------- Constructors
 
@@ -110,11 +122,19 @@ public class ProxyDirContext implements DirContext {
             // the caching policy.
             BaseDirContext baseDirContext = (BaseDirContext) dirContext;
             if (baseDirContext.isCached()) {
+                if (env.get(CACHE_CLASS) != null) {
+                    cacheClassName = env.get(CACHE_CLASS);
+                }
                 cache = (ResourceCache) 
                     Class.forName(cacheClassName).newInstance();
                 cache.setCacheMaxSize(baseDirContext.getCacheMaxSize());
                 cacheTTL = baseDirContext.getCacheTTL();
                 cacheObjectMaxSize = baseDirContext.getCacheMaxSize() / 20;
+                if ((cache instanceof ConcurrentResourceCache)
+                        && (env.get(CACHE_OFF_HEAP_OBJECT_MAX_SIZE) != null)) {
+                    ((ConcurrentResourceCache) cache).setOffHeapObjectMaxSize(
+                        Integer.parseInt(env.get(CACHE_OFF_HEAP_OBJECT_MAX_SIZE)));
+                }
             }
         }
         hostName = env.get(HOST);
@@ -1477,7 +1497,8 @@ public class ProxyDirContext implements DirContext {
         if (((!entry.exists)
              || (entry.context != null)
              || ((entry.resource != null) 
-                 && (entry.resource.getContent() != null)))
+                 && ((entry.resource.getContent() != null)
+                     || (entry.resource instanceof DirectResource))))
             && (System.currentTimeMillis() < entry.timestamp)) {
             return true;
         }
@@ -1601,13 +1622,8 @@ public class ProxyDirContext implements DirContext {
         // Set timestamp
         entry.timestamp = System.currentTimeMillis() + cacheTTL;
 
-        // Add new entry to cache
-        synchronized (cache) {
-            // Check cache size, and remove elements if too big
-            if ((cache.lookup(name) == null) && cache.allocate(entry.size)) {
-                cache.load(entry);
-            }
-        }
+        // Add new entry to cache, removing elements if too big
+        cache.add(entry);
 
     }
 
@@ -1618,9 +1634,7 @@ public class ProxyDirContext implements DirContext {
     protected boolean cacheUnload(String name) {
         if (cache == null)
             return false;
-        synchronized (cache) {
-            return cache.unload(name);
-        }
+        return cache.remove(name);
     }
 
 
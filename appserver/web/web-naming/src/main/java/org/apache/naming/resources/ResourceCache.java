@@ -365,6 +365,35 @@ public class ResourceCache {
     }
 
 
+    /**
+     * Add the given entry, unless an entry with the same name is cached,
+     * making room for it if needed.
+     *
+     * @return true if the entry was added
+     */
+    public boolean add(CacheEntry entry) {
+        synchronized (this) {
+            if ((lookup(entry.name) == null) && allocate(entry.size)) {
+                load(entry);
+                return true;
+            }
+            return false;
+        }
+    }
+
+
+    /**
+     * Remove the entry with the given name.
+     *
+     * @return true if an entry was removed
+     */
+    public boolean remove(String name) {
+        synchronized (this) {
+            return unload(name);
+        }
+    }
+
+
     public boolean unload(String name) {
         CacheEntry removedEntry = removeCache(name);
         if (removedEntry != null) {
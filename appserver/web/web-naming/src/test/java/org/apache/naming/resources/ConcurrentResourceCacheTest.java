@@ -0,0 +1,326 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.apache.naming.resources;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentResourceCacheTest {
+
+    private ConcurrentResourceCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new ConcurrentResourceCache();
+        // three entries of 1 KB content, each weighing 2 KB
+        cache.setCacheMaxSize(6);
+    }
+
+    @Test
+    public void testEvictedInInsertionOrder() {
+        assertTrue(cache.add(entry("/a", 1024)));
+        assertTrue(cache.add(entry("/b", 1024)));
+        assertTrue(cache.add(entry("/c", 1024)));
+        assertEquals(6, cache.getCacheSize());
+        assertEquals(0L, cache.getEvictionCount());
+
+        assertTrue(cache.add(entry("/d", 1024)));
+        assertNull(cache.lookup("/a"));
+        assertNotNull(cache.lookup("/b"));
+        assertNotNull(cache.lookup("/d"));
+        assertEquals(3, cache.getEntryCount());
+        assertEquals(6, cache.getCacheSize());
+        assertEquals(1L, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testAccessedEntryGetsSecondChance() {
+        cache.add(entry("/a", 1024));
+        cache.add(entry("/b", 1024));
+        cache.add(entry("/c", 1024));
+        access("/a");
+
+        cache.add(entry("/d", 1024));
+        assertNotNull(cache.lookup("/a"));
+        assertNull(cache.lookup("/b"));
+
+        cache.add(entry("/e", 1024));
+        assertNull(cache.lookup("/c"));
+
+        // the second chance is used up unless /a is accessed again
+        cache.add(entry("/f", 1024));
+        assertNull(cache.lookup("/a"));
+        assertNotNull(cache.lookup("/d"));
+        assertEquals(3L, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testAllEntriesAccessed() {
+        cache.add(entry("/a", 1024));
+        cache.add(entry("/b", 1024));
+        cache.add(entry("/c", 1024));
+        access("/a");
+        access("/b");
+        access("/c");
+
+        // every entry had its second chance, so the oldest goes
+        assertTrue(cache.add(entry("/d", 1024)));
+        assertNull(cache.lookup("/a"));
+        assertEquals(3, cache.getEntryCount());
+        assertEquals(6, cache.getCacheSize());
+    }
+
+    @Test
+    public void testWeightedBySize() {
+        cache.add(entry("/a", 1024));
+        cache.add(entry("/b", 1024));
+        cache.add(entry("/c", 1024));
+
+        // 4 KB of content needs the room of all three
+        assertTrue(cache.add(entry("/big", 4 * 1024)));
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(5, cache.getCacheSize());
+        assertEquals(3L, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testEntryLargerThanCache() {
+        cache.add(entry("/a", 1024));
+
+        assertFalse(cache.add(entry("/huge", 6 * 1024)));
+        assertNull(cache.lookup("/huge"));
+        assertNotNull(cache.lookup("/a"));
+        assertEquals(2, cache.getCacheSize());
+    }
+
+    @Test
+    public void testAllocate() {
+        cache.add(entry("/a", 1024));
+        cache.add(entry("/b", 1024));
+        cache.add(entry("/c", 1024));
+
+        assertTrue(cache.allocate(3));
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(2, cache.getCacheSize());
+        assertFalse(cache.allocate(7));
+    }
+
+    @Test
+    public void testDuplicateNotAdded() {
+        CacheEntry entry = entry("/a", 1024);
+        assertTrue(cache.add(entry));
+
+        assertFalse(cache.add(entry("/a", 1024)));
+        assertSame(entry, cache.lookup("/a"));
+        assertEquals(2, cache.getCacheSize());
+    }
+
+    @Test
+    public void testNotFoundEntriesCapped() {
+        cache.setSpareNotFoundEntries(2);
+        assertTrue(cache.add(notFound("/x")));
+        assertTrue(cache.add(notFound("/y")));
+        assertNotNull(cache.lookup("/x"));
+        assertNotNull(cache.lookup("/y"));
+
+        // a third one drops the others
+        assertTrue(cache.add(notFound("/z")));
+        assertNull(cache.lookup("/x"));
+        assertNull(cache.lookup("/y"));
+        assertNotNull(cache.lookup("/z"));
+
+        // and they do not count towards the size
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getCacheSize());
+    }
+
+    @Test
+    public void testRemoveAndUnload() {
+        cache.add(entry("/a", 1024));
+        cache.add(entry("/b", 2048));
+        cache.add(notFound("/x"));
+        assertEquals(5, cache.getCacheSize());
+
+        assertTrue(cache.remove("/a"));
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(3, cache.getCacheSize());
+        assertFalse(cache.remove("/a"));
+
+        assertTrue(cache.unload("/b"));
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getCacheSize());
+
+        assertTrue(cache.remove("/x"));
+        assertNull(cache.lookup("/x"));
+        assertFalse(cache.remove("/unknown"));
+    }
+
+    @Test
+    public void testRemovedEntriesNotEvicted() {
+        cache.add(entry("/a", 1024));
+        cache.add(entry("/b", 1024));
+        cache.add(entry("/c", 1024));
+        cache.remove("/b");
+
+        // fits in the room of /b
+        assertTrue(cache.add(entry("/d", 1024)));
+        assertNotNull(cache.lookup("/a"));
+        assertEquals(0L, cache.getEvictionCount());
+
+        assertTrue(cache.add(entry("/e", 1024)));
+        assertNull(cache.lookup("/a"));
+        assertNotNull(cache.lookup("/c"));
+        assertEquals(1L, cache.getEvictionCount());
+        assertEquals(6, cache.getCacheSize());
+    }
+
+    @Test
+    public void testEvictionQueuePurged() {
+        cache.add(entry("/a", 1024));
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(cache.add(entry("/b", 1024)));
+            assertTrue(cache.remove("/b"));
+        }
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(2, cache.getCacheSize());
+        assertTrue(cache.evictionQueue.size() <= 1 + 65);
+        assertEquals(0L, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testOffHeap() throws Exception {
+        cache.setCacheMaxSize(100);
+        cache.setOffHeapObjectMaxSize(2);
+        CacheEntry small = entry("/small", 2048);
+        CacheEntry large = entry("/large", 2049);
+
+        assertTrue(cache.add(small));
+        assertTrue(cache.add(large));
+
+        assertTrue(small.resource instanceof DirectResource);
+        assertNull(small.resource.getContent());
+        assertEquals(2048, ((DirectResource) small.resource).getContentLength());
+        assertEquals(2048L, small.attributes.getContentLength());
+        byte[] content = read(small.resource.streamContent());
+        assertEquals(2048, content.length);
+        for (int i = 0; i < content.length; i++) {
+            assertEquals((byte) i, content[i]);
+        }
+
+        assertFalse(large.resource instanceof DirectResource);
+        assertEquals(2049, large.resource.getContent().length);
+
+        // the content off the heap is weighed as well
+        assertEquals(3 + 3, cache.getCacheSize());
+        cache.remove("/small");
+        assertEquals(3, cache.getCacheSize());
+    }
+
+    @Test
+    public void testOnHeapByDefault() {
+        CacheEntry entry = entry("/a", 1024);
+        cache.add(entry);
+
+        assertFalse(entry.resource instanceof DirectResource);
+        assertEquals(1024, entry.resource.getContent().length);
+    }
+
+    @Test
+    public void testCounters() {
+        // read through ResourceCache, as the monitoring does
+        ResourceCache resourceCache = cache;
+        cache.add(entry("/a", 1024));
+        cache.add(notFound("/x"));
+
+        cache.lookup("/a");
+        cache.lookup("/x");
+        cache.lookup("/b");
+        cache.lookup("/a");
+
+        assertEquals(4L, resourceCache.getAccessCount());
+        assertEquals(3L, resourceCache.getHitsCount());
+        assertEquals(2, resourceCache.getCacheSize());
+    }
+
+    private void access(String name) {
+        cache.lookup(name).accessCount++;
+    }
+
+    private static CacheEntry entry(String name, int length) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) i;
+        }
+        CacheEntry entry = new CacheEntry();
+        entry.name = name;
+        entry.resource = new Resource(content);
+        entry.attributes = new ResourceAttributes();
+        entry.attributes.setContentLength(length);
+        return entry;
+    }
+
+    private static CacheEntry notFound(String name) {
+        CacheEntry entry = new CacheEntry();
+        entry.name = name;
+        entry.exists = false;
+        return entry;
+    }
+
+    private static byte[] read(InputStream is) throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buf = new byte[512];
+        int n;
+        while ((n = is.read(buf)) != -1) {
+            bos.write(buf, 0, n);
+        }
+        return bos.toByteArray();
+    }
+}
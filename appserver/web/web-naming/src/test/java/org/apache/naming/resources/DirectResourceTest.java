@@ -0,0 +1,118 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.apache.naming.resources;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DirectResourceTest {
+
+    @Test
+    public void testContentOffHeap() {
+        DirectResource resource = new DirectResource(new byte[] {1, 2, 3});
+
+        assertNull(resource.getContent());
+        assertEquals(3, resource.getContentLength());
+        assertTrue(resource.getBuffer().isDirect());
+    }
+
+    @Test
+    public void testBufferReadOnlyDuplicate() {
+        DirectResource resource = new DirectResource(new byte[] {1, 2, 3});
+
+        ByteBuffer buffer = resource.getBuffer();
+        assertTrue(buffer.isReadOnly());
+        try {
+            buffer.put(0, (byte) 9);
+            fail("buffer is writable");
+        } catch (ReadOnlyBufferException e) {
+            // expected
+        }
+
+        // reading one view leaves the others at the start
+        assertEquals(1, buffer.get());
+        assertEquals(2, buffer.get());
+        ByteBuffer other = resource.getBuffer();
+        assertNotSame(buffer, other);
+        assertEquals(0, other.position());
+        assertEquals(3, other.remaining());
+        assertEquals(1, other.get());
+        assertEquals(3, resource.getContentLength());
+    }
+
+    @Test
+    public void testStreamContent() throws Exception {
+        DirectResource resource = new DirectResource(new byte[] {1, 2, 3, 4});
+
+        InputStream is = resource.streamContent();
+        assertEquals(4, is.available());
+        assertEquals(1, is.read());
+        is.mark(4);
+        byte[] b = new byte[8];
+        assertEquals(3, is.read(b, 0, b.length));
+        assertEquals(4, b[2]);
+        assertEquals(-1, is.read());
+        assertEquals(-1, is.read(b, 0, b.length));
+        is.reset();
+        assertEquals(2, is.skip(2));
+        assertEquals(4, is.read());
+
+        // each stream starts over
+        assertEquals(1, resource.streamContent().read());
+    }
+
+    @Test
+    public void testEmptyContent() throws Exception {
+        DirectResource resource = new DirectResource(new byte[0]);
+
+        assertEquals(0, resource.getContentLength());
+        assertEquals(-1, resource.streamContent().read());
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.admin.monitor.statistics;
+
+import org.glassfish.external.statistics.impl.CountStatisticImpl;
+import org.glassfish.external.statistics.impl.RangeStatisticImpl;
+import org.glassfish.external.statistics.impl.StatisticImpl;
+import org.glassfish.external.statistics.impl.TimeStatisticImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one statistic update made from every request thread, as done by
+ * the request, servlet, pool and EJB stats providers: a count increment, a
+ * time statistic incrementCount() and a range gauge going up and down.
+ * <p>
+ * The striped statistics are compared with <code>synchronized</code>, the
+ * org.glassfish.external.statistics.impl classes the providers used before,
+ * with the range gauge updated in a block synchronized on the statistic as
+ * the pool providers did.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(32)
+public class StatisticUpdateBenchmark {
+
+    @Param({"striped", "synchronized"})
+    public String impl;
+
+    @Param({"count", "time", "range"})
+    public String statistic;
+
+    private Update update;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        long now = System.currentTimeMillis();
+        boolean striped = "striped".equals(impl);
+        if ("time".equals(statistic)) {
+            if (striped) {
+                final StripedTimeStatisticImpl time = new StripedTimeStatisticImpl(
+                        0L, 0L, 0L, 0L, "ProcessingTime", StatisticImpl.UNIT_MILLISECOND, "", now, -1L);
+                update = new Update() {
+                    public long apply(long value) {
+                        time.incrementCount(value);
+                        return value;
+                    }
+                };
+            } else {
+                final TimeStatisticImpl time = new TimeStatisticImpl(
+                        0L, 0L, 0L, 0L, "ProcessingTime", StatisticImpl.UNIT_MILLISECOND, "", now, -1L);
+                update = new Update() {
+                    public long apply(long value) {
+                        time.incrementCount(value);
+                        return value;
+                    }
+                };
+            }
+        } else if ("range".equals(statistic)) {
+            if (striped) {
+                final StripedRangeStatisticImpl range = new StripedRangeStatisticImpl(
+                        0L, 0L, 0L, "NumConnUsed", StatisticImpl.UNIT_COUNT, "", now, now);
+                update = new Update() {
+                    public long apply(long value) {
+                        range.increment();
+                        range.decrement();
+                        return value;
+                    }
+                };
+            } else {
+                final RangeStatisticImpl range = new RangeStatisticImpl(
+                        0L, 0L, 0L, "NumConnUsed", StatisticImpl.UNIT_COUNT, "", now, now);
+                update = new Update() {
+                    public long apply(long value) {
+                        synchronized (range) {
+                            range.setCurrent(range.getCurrent() + 1);
+                        }
+                        synchronized (range) {
+                            range.setCurrent(range.getCurrent() - 1);
+                        }
+                        return value;
+                    }
+                };
+            }
+        } else {
+            if (striped) {
+                final StripedCountStatisticImpl count = new StripedCountStatisticImpl(
+                        "RequestCount", StatisticImpl.UNIT_COUNT, "");
+                update = new Update() {
+                    public long apply(long value) {
+                        count.increment();
+                        return value;
+                    }
+                };
+            } else {
+                final CountStatisticImpl count = new CountStatisticImpl(
+                        "RequestCount", StatisticImpl.UNIT_COUNT, "");
+                update = new Update() {
+                    public long apply(long value) {
+                        count.increment();
+                        return value;
+                    }
+                };
+            }
+        }
+    }
+
+    @Benchmark
+    public long update(Times times) {
+        return update.apply(times.next());
+    }
+
+    /**
+     * A varying processing time per thread, so that the minimum and maximum
+     * times keep being compared.
+     */
+    @State(Scope.Thread)
+    public static class Times {
+
+        private long value;
+
+        long next() {
+            value = (value + 7) & 1023;
+            return value;
+        }
+    }
+
+    interface Update {
+
+        long apply(long value);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.admin.monitor.statistics;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.glassfish.external.statistics.CountStatistic;
+
+/**
+ * A CountStatistic counted in a LongAdder. It can be used in place of
+ * org.glassfish.external.statistics.impl.CountStatisticImpl.
+ */
+public final class StripedCountStatisticImpl extends StripedStatisticImpl
+        implements CountStatistic {
+
+    private final LongAdder count = new LongAdder();
+    private final long initCount;
+    private final CountStatistic cs;
+
+    public StripedCountStatisticImpl(long countVal, String name, String unit,
+                                     String desc, long sampleTime, long startTime) {
+        super(name, unit, desc, startTime, sampleTime);
+        count.add(countVal);
+        initCount = countVal;
+        cs = (CountStatistic) Proxy.newProxyInstance(
+                CountStatistic.class.getClassLoader(),
+                new Class[] { CountStatistic.class },
+                this);
+    }
+
+    public StripedCountStatisticImpl(String name, String unit, String desc) {
+        this(0L, name, unit, desc, -1L, System.currentTimeMillis());
+    }
+
+    public CountStatistic getStatistic() {
+        return cs;
+    }
+
+    @Override
+    public synchronized Map getStaticAsMap() {
+        Map map = super.getStaticAsMap();
+        map.put("count", getCount());
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + NEWLINE + "Count: " + getCount();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Sets the count. Unlike the increments this is not atomic with respect
+     * to concurrent updates; it is meant for counts that are set from
+     * another statistic when they are read.
+     */
+    public void setCount(long countVal) {
+        count.reset();
+        count.add(countVal);
+        sample();
+    }
+
+    public void increment() {
+        count.increment();
+        sample();
+    }
+
+    public void increment(long delta) {
+        count.add(delta);
+        sample();
+    }
+
+    public void decrement() {
+        count.decrement();
+        sample();
+    }
+
+    @Override
+    public synchronized void reset() {
+        super.reset();
+        count.reset();
+        count.add(initCount);
+    }
+}
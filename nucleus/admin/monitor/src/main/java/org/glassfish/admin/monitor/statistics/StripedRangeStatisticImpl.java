@@ -0,0 +1,170 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.admin.monitor.statistics;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+import org.glassfish.external.statistics.RangeStatistic;
+
+/**
+ * A RangeStatistic whose high and low water marks are kept in
+ * LongAccumulators. It can be used in place of
+ * org.glassfish.external.statistics.impl.RangeStatisticImpl.
+ * <p>
+ * The current value has to be exact for the water marks, so it is kept in a
+ * single AtomicLong; {@link #increment()} and {@link #decrement()} update it
+ * without a lock where callers of RangeStatisticImpl synchronized on the
+ * statistic around a getCurrent() and setCurrent() pair.
+ */
+public final class StripedRangeStatisticImpl extends StripedStatisticImpl
+        implements RangeStatistic {
+
+    private final AtomicLong currentVal;
+    private final LongAccumulator highWaterMark = new LongAccumulator(MAX, Long.MIN_VALUE);
+    private final LongAccumulator lowWaterMark = new LongAccumulator(MIN, Long.MAX_VALUE);
+    private final long initCurrentVal;
+    private final long initHighWaterMark;
+    private final long initLowWaterMark;
+    private final RangeStatistic rs;
+
+    public StripedRangeStatisticImpl(long curVal, long highMark, long lowMark,
+                                     String name, String unit, String desc,
+                                     long startTime, long sampleTime) {
+        super(name, unit, desc, startTime, sampleTime);
+        currentVal = new AtomicLong(curVal);
+        highWaterMark.accumulate(highMark);
+        lowWaterMark.accumulate(lowMark);
+        initCurrentVal = curVal;
+        initHighWaterMark = highMark;
+        initLowWaterMark = lowMark;
+        rs = (RangeStatistic) Proxy.newProxyInstance(
+                RangeStatistic.class.getClassLoader(),
+                new Class[] { RangeStatistic.class },
+                this);
+    }
+
+    public RangeStatistic getStatistic() {
+        return rs;
+    }
+
+    @Override
+    public synchronized Map getStaticAsMap() {
+        Map map = super.getStaticAsMap();
+        map.put("current", getCurrent());
+        map.put("lowwatermark", getLowWaterMark());
+        map.put("highwatermark", getHighWaterMark());
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + NEWLINE +
+            "Current: " + getCurrent() + NEWLINE +
+            "LowWaterMark: " + getLowWaterMark() + NEWLINE +
+            "HighWaterMark: " + getHighWaterMark();
+    }
+
+    public long getCurrent() {
+        return currentVal.get();
+    }
+
+    public void setCurrent(long curVal) {
+        currentVal.set(curVal);
+        record(curVal);
+    }
+
+    public void increment() {
+        record(currentVal.incrementAndGet());
+    }
+
+    public void decrement() {
+        record(currentVal.decrementAndGet());
+    }
+
+    /**
+     * Sets the current value to update if it is expect, for the callers
+     * whose update depends on the current value.
+     *
+     * @return false if the current value was not expect
+     */
+    public boolean compareAndSetCurrent(long expect, long update) {
+        if (currentVal.compareAndSet(expect, update)) {
+            record(update);
+            return true;
+        }
+        return false;
+    }
+
+    public long getHighWaterMark() {
+        return highWaterMark.get();
+    }
+
+    public void setHighWaterMark(long highMark) {
+        highWaterMark.reset();
+        highWaterMark.accumulate(highMark);
+    }
+
+    public long getLowWaterMark() {
+        return lowWaterMark.get();
+    }
+
+    public void setLowWaterMark(long lowMark) {
+        lowWaterMark.reset();
+        lowWaterMark.accumulate(lowMark);
+    }
+
+    @Override
+    public synchronized void reset() {
+        super.reset();
+        currentVal.set(initCurrentVal);
+        setHighWaterMark(initHighWaterMark);
+        setLowWaterMark(initLowWaterMark);
+    }
+
+    private void record(long curVal) {
+        highWaterMark.accumulate(curVal);
+        lowWaterMark.accumulate(curVal);
+        sample();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.admin.monitor.statistics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.function.LongBinaryOperator;
+
+import org.glassfish.external.statistics.impl.StatisticImpl;
+
+/**
+ * Base class of the statistics that keep their values in striped cells
+ * (LongAdder and LongAccumulator) rather than in fields guarded by the
+ * statistic's monitor, so that the request threads updating a statistic do
+ * not contend with each other. Reading a value adds up the cells and does not
+ * block the updates; a value read while updates are in progress may not
+ * include them yet.
+ * <p>
+ * Like the statistics in org.glassfish.external.statistics.impl, these are
+ * StatisticImpls and the InvocationHandler of the proxy returned by their
+ * getStatistic(), so the monitoring tree, the reset of the statistics and the
+ * REST and CLI reporting handle them in the same way.
+ */
+public abstract class StripedStatisticImpl extends StatisticImpl
+        implements InvocationHandler {
+
+    /** Keeps the maximum value in a LongAccumulator. */
+    protected static final LongBinaryOperator MAX = new LongBinaryOperator() {
+        public long applyAsLong(long left, long right) {
+            return Math.max(left, right);
+        }
+    };
+
+    /** Keeps the minimum value in a LongAccumulator. */
+    protected static final LongBinaryOperator MIN = new LongBinaryOperator() {
+        public long applyAsLong(long left, long right) {
+            return Math.min(left, right);
+        }
+    };
+
+    protected StripedStatisticImpl(String name, String unit, String desc,
+                                   long startTime, long sampleTime) {
+        super(name, unit, desc, startTime, sampleTime);
+    }
+
+    /**
+     * Records the time of an update. The shared sample time is only written
+     * when it changes, i.e. at most once a millisecond.
+     */
+    protected final void sample() {
+        long now = System.currentTimeMillis();
+        if (sampleTime != now) {
+            sampleTime = now;
+        }
+    }
+
+    @Override
+    public synchronized void reset() {
+        super.reset();
+        sampleTime = -1L;
+    }
+
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        checkMethod(method);
+        try {
+            return method.invoke(this, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        } catch (Exception e) {
+            throw new RuntimeException("unexpected invocation exception: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.admin.monitor.statistics;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.glassfish.external.statistics.TimeStatistic;
+
+/**
+ * A TimeStatistic whose count and total time are kept in LongAdders and whose
+ * minimum and maximum times are kept in LongAccumulators. It can be used in
+ * place of org.glassfish.external.statistics.impl.TimeStatisticImpl.
+ */
+public final class StripedTimeStatisticImpl extends StripedStatisticImpl
+        implements TimeStatistic {
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totTime = new LongAdder();
+    private final LongAccumulator maxTime = new LongAccumulator(MAX, Long.MIN_VALUE);
+    private final LongAccumulator minTime = new LongAccumulator(MIN, Long.MAX_VALUE);
+    private final long initCount;
+    private final long initMaxTime;
+    private final long initMinTime;
+    private final long initTotTime;
+    private final TimeStatistic ts;
+
+    public StripedTimeStatisticImpl(long counter, long maximumTime, long minimumTime,
+                                    long totalTime, String name, String unit,
+                                    String desc, long startTime, long sampleTime) {
+        super(name, unit, desc, startTime, sampleTime);
+        initCount = counter;
+        initMaxTime = maximumTime;
+        initMinTime = minimumTime;
+        initTotTime = totalTime;
+        ts = (TimeStatistic) Proxy.newProxyInstance(
+                TimeStatistic.class.getClassLoader(),
+                new Class[] { TimeStatistic.class },
+                this);
+    }
+
+    public TimeStatistic getStatistic() {
+        return ts;
+    }
+
+    @Override
+    public synchronized Map getStaticAsMap() {
+        Map map = super.getStaticAsMap();
+        map.put("count", getCount());
+        map.put("maxtime", getMaxTime());
+        map.put("mintime", getMinTime());
+        map.put("totaltime", getTotalTime());
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + NEWLINE +
+            "Count: " + getCount() + NEWLINE +
+            "MinTime: " + getMinTime() + NEWLINE +
+            "MaxTime: " + getMaxTime() + NEWLINE +
+            "TotalTime: " + getTotalTime();
+    }
+
+    /**
+     * Records one invocation that took the given time. The first invocation
+     * replaces the initial minimum, maximum and total times.
+     */
+    public void incrementCount(long current) {
+        // The count goes last, so that a reader that sees it also sees the times
+        totTime.add(current);
+        maxTime.accumulate(current);
+        minTime.accumulate(current);
+        count.increment();
+        sample();
+    }
+
+    public long getCount() {
+        return initCount + count.sum();
+    }
+
+    public long getMaxTime() {
+        long max = maxTime.get();
+        return (max == Long.MIN_VALUE) ? initMaxTime : max;
+    }
+
+    public long getMinTime() {
+        long min = minTime.get();
+        return (min == Long.MAX_VALUE) ? initMinTime : min;
+    }
+
+    public long getTotalTime() {
+        return (count.sum() == 0) ? initTotTime : totTime.sum();
+    }
+
+    @Override
+    public synchronized void reset() {
+        super.reset();
+        count.reset();
+        totTime.reset();
+        maxTime.reset();
+        minTime.reset();
+    }
+}
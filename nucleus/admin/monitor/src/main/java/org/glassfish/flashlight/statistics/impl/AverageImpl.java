@@ -44,7 +44,9 @@
  */
 package org.glassfish.flashlight.statistics.impl;
 
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
 import org.glassfish.flashlight.datatree.impl.AbstractTreeNode;
 import org.glassfish.flashlight.statistics.Average;
 
@@ -67,13 +69,23 @@ public class AverageImpl extends AbstractTreeNode implements Average {
     /** DEFAULT_VALUE of any statistic is 0 */
     protected static final String NEWLINE = System.getProperty("line.separator");
    
-    AtomicLong min = new AtomicLong (DEFAULT_MIN_BOUND);
-    AtomicLong max = new AtomicLong(0);
-    
-    AtomicLong times = new AtomicLong(0);
-    AtomicLong sum = new AtomicLong(0);
+    static final LongBinaryOperator MIN = new LongBinaryOperator() {
+        public long applyAsLong(long left, long right) {
+            return Math.min(left, right);
+        }
+    };
+    static final LongBinaryOperator MAX = new LongBinaryOperator() {
+        public long applyAsLong(long left, long right) {
+            return Math.max(left, right);
+        }
+    };
+    // Striped, so that the threads adding data points do not contend
+    final LongAccumulator min = new LongAccumulator(MIN, Long.MAX_VALUE);
+    final LongAccumulator max = new LongAccumulator(MAX, 0);
+    final LongAdder times = new LongAdder();
+    final LongAdder sum = new LongAdder();
     private long startTime = 0;
-    private AtomicLong lastSampleTime = new AtomicLong(0);
+    private volatile long lastSampleTime = 0;
     
     private String NAME = "average";
     private String DESCRIPTION = "Average RangeStatistic";
@@ -92,19 +104,15 @@ public class AverageImpl extends AbstractTreeNode implements Average {
      */
     @Override
     public void addDataPoint(long value) {
-        if (min.get() == DEFAULT_MIN_BOUND) // initial seeding
-        {
-            min.set(value);
-        }
-        if (value < min.get()) {
-            min.set(value);
-        } else if (value > max.get()) {
-            max.set(value);
+        min.accumulate(value);
+        max.accumulate(value);
+        sum.add(value);
+        times.increment();
+        // Only write the shared field when the time has changed
+        long now = getSampleTime();
+        if (lastSampleTime != now) {
+            lastSampleTime = now;
         }
-        sum.addAndGet(value);
-        times.incrementAndGet();
-        // TBD: remove this code, once getSampleTime is refactored
-        lastSampleTime.set(getSampleTime ());
     }
 
     @Override
@@ -117,14 +125,15 @@ public class AverageImpl extends AbstractTreeNode implements Average {
 
     @Override
     public void setReset() {
-        times.set(0);
-        sum.set(0);
+        times.reset();
+        sum.reset();
 
     }
 
     @Override
     public long getMin() {
-        return min.get();
+        long value = min.get();
+        return (value == Long.MAX_VALUE) ? DEFAULT_MIN_BOUND : value;
     }
 
     @Override
@@ -149,7 +158,7 @@ public class AverageImpl extends AbstractTreeNode implements Average {
 
     @Override
     public long getSize() {
-        return times.get();
+        return times.sum();
     }
 
     @Override
@@ -183,7 +192,7 @@ public class AverageImpl extends AbstractTreeNode implements Average {
     }
     @Override
     public long getTotal (){
-        return sum.get();
+        return sum.sum();
 
     }
     /*
@@ -197,6 +206,6 @@ public class AverageImpl extends AbstractTreeNode implements Average {
     }
     @Override
     public long getLastSampleTime() {
-        return this.lastSampleTime.longValue();
+        return this.lastSampleTime;
     }
 }
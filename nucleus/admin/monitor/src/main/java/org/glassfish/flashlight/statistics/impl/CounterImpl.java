@@ -45,7 +45,7 @@
 package org.glassfish.flashlight.statistics.impl;
 
 import org.glassfish.flashlight.statistics.*;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import org.glassfish.flashlight.datatree.impl.AbstractTreeNode;
 
 import org.jvnet.hk2.annotations.Service;
@@ -65,10 +65,9 @@ public class CounterImpl extends AbstractTreeNode implements Counter {
     public static final long DEFAULT_MIN_BOUND = DEFAULT_VALUE;
     /** DEFAULT_VALUE of any statistic is 0 */
     protected static final String NEWLINE = System.getProperty("line.separator");
-    private AtomicLong count = new AtomicLong(0);
-    long max = 0;
-    long min = 0;
-    private AtomicLong lastSampleTime = new AtomicLong();
+    // Striped, so that the threads counting do not contend on one field
+    private final LongAdder count = new LongAdder();
+    private volatile long lastSampleTime;
     private String DESCRIPTION = "Counter CountStatistic";
     private String UNIT = java.lang.Long.class.toString();
 
@@ -79,47 +78,32 @@ public class CounterImpl extends AbstractTreeNode implements Counter {
     }
 
     public long getCount() {
-        return count.get();
+        return count.sum();
     }
 
     public void setCount(long count) {
-        if (count > max) {
-            max = count;
-        } else {
-            min = count;
-        }
-        this.count.set(count);
+        this.count.reset();
+        this.count.add(count);
     }
-    // TBD: remove reference to getSampleTime -> extremely inefficient implementation
-    // Will have to be replaced by Timer implemenation
+
     public void increment() {
-        long cnt = this.count.incrementAndGet();
-        if (cnt > max) {
-            max = cnt;
-        // Remove this after refactoring to Timer Impl. This is inefficient
-        }
-        this.lastSampleTime.set(getSampleTime ());
+        this.count.increment();
+        setLastSampleTime();
     }
 
     //automatically add the increment to cnt
     public void  increment(long delta) {
-        long cnt = this.count.addAndGet(delta);
-        if(cnt > max) {
-            max = cnt;
-        }
-        this.lastSampleTime.set(getSampleTime());
+        this.count.add(delta);
+        setLastSampleTime();
     }
-    
+
     public void decrement() {
-        long cnt = this.count.decrementAndGet();
-        if (cnt < min) {
-            min = cnt;
-        }
+        this.count.decrement();
     }
 
     public void setReset(boolean reset) {
         if (reset) {
-            this.count.set(0);
+            this.count.reset();
         }
     }
 
@@ -141,16 +125,14 @@ public class CounterImpl extends AbstractTreeNode implements Counter {
     }
 
     public long getLastSampleTime() {
-        return this.lastSampleTime.longValue();
+        return this.lastSampleTime;
     }
 
-    /*
-     * TBD
-     * This is an inefficient implementation. Should schedule a Timer task
-     * that gets a timeout event every 30s or so and updates this value
-     */
-    private long getSampleTime() {
-        return System.currentTimeMillis();
-
+    // Only writes the shared field when the time has changed
+    private void setLastSampleTime() {
+        long now = System.currentTimeMillis();
+        if (lastSampleTime != now) {
+            lastSampleTime = now;
+        }
     }
 }
@@ -44,7 +44,7 @@ import org.glassfish.flashlight.datatree.impl.AbstractTreeNode;
 import org.glassfish.flashlight.statistics.*;
 import org.glassfish.flashlight.statistics.factory.AverageFactory;
 
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
 
 /**
  * @author Harpreet Singh
@@ -55,25 +55,19 @@ public abstract class TimeStatsAbstractImpl extends AbstractTreeNode
     private Average average = AverageFactory.createAverage();
 
 
-    private AtomicLong lastSampleTime = new AtomicLong(0);
+    // Striped, so that the threads timing do not contend on one field
+    private final LongAccumulator lastSampleTime = new LongAccumulator(AverageImpl.MAX, 0);
     protected long startTime = 0;
 
     private ThreadLocalTimeStatData individualData = new ThreadLocalTimeStatData();
 
+    // One TimeStatData per thread, so that the threads timing do not share
+    // (and overwrite) each other's entry and exit times
     private static class ThreadLocalTimeStatData extends ThreadLocal<TimeStatData> {
 
-        private TimeStatData tsd;
-
         protected TimeStatData initialValue (){
-            tsd = new TimeStatData ();
-            return tsd;
-        }
-        public TimeStatData get (){
-            if (tsd == null)
-                tsd = new TimeStatData();
-            return tsd;
+            return new TimeStatData ();
         }
-        
     }
 
     protected static final String NEWLINE = System.getProperty("line.separator");
@@ -149,7 +143,7 @@ public abstract class TimeStatsAbstractImpl extends AbstractTreeNode
     }
 
     private void setLastSampleTime(long time) {
-        this.lastSampleTime.set(time);
+        this.lastSampleTime.accumulate(time);
     }
 
     private static class TimeStatData {
@@ -0,0 +1,210 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.admin.monitor.statistics;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.glassfish.external.statistics.CountStatistic;
+import org.glassfish.external.statistics.RangeStatistic;
+import org.glassfish.external.statistics.TimeStatistic;
+import org.glassfish.external.statistics.impl.StatisticImpl;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class StripedStatisticImplTest {
+
+    private static final int THREADS = 8;
+    private static final int UPDATES = 10000;
+
+    @Test
+    public void testCount() {
+        StripedCountStatisticImpl count = new StripedCountStatisticImpl(
+                "RequestCount", StatisticImpl.UNIT_COUNT, "requests");
+        assertEquals(0L, count.getCount());
+        assertEquals(-1L, count.getLastSampleTime());
+        count.increment();
+        count.increment(5L);
+        count.decrement();
+        assertEquals(5L, count.getCount());
+        assertTrue(count.getLastSampleTime() > 0L);
+        count.setCount(42L);
+        assertEquals(42L, count.getCount());
+        count.reset();
+        assertEquals(0L, count.getCount());
+        assertEquals(-1L, count.getLastSampleTime());
+    }
+
+    @Test
+    public void testTime() {
+        StripedTimeStatisticImpl time = new StripedTimeStatisticImpl(0L, 0L, 0L, 0L,
+                "ProcessingTime", StatisticImpl.UNIT_MILLISECOND, "time",
+                System.currentTimeMillis(), -1L);
+        assertEquals(0L, time.getCount());
+        assertEquals(0L, time.getMinTime());
+        assertEquals(0L, time.getMaxTime());
+        time.incrementCount(20L);
+        time.incrementCount(5L);
+        time.incrementCount(11L);
+        assertEquals(3L, time.getCount());
+        assertEquals(5L, time.getMinTime());
+        assertEquals(20L, time.getMaxTime());
+        assertEquals(36L, time.getTotalTime());
+        time.reset();
+        assertEquals(0L, time.getCount());
+        assertEquals(0L, time.getMinTime());
+        assertEquals(0L, time.getMaxTime());
+        assertEquals(0L, time.getTotalTime());
+    }
+
+    @Test
+    public void testRange() {
+        StripedRangeStatisticImpl range = new StripedRangeStatisticImpl(0L, 0L, 0L,
+                "NumConnUsed", StatisticImpl.UNIT_COUNT, "used",
+                System.currentTimeMillis(), System.currentTimeMillis());
+        range.increment();
+        range.increment();
+        range.increment();
+        range.decrement();
+        assertEquals(2L, range.getCurrent());
+        assertEquals(3L, range.getHighWaterMark());
+        assertEquals(0L, range.getLowWaterMark());
+        range.setCurrent(-4L);
+        assertEquals(-4L, range.getLowWaterMark());
+        assertFalse(range.compareAndSetCurrent(3L, 5L));
+        assertEquals(-4L, range.getCurrent());
+        assertTrue(range.compareAndSetCurrent(-4L, 5L));
+        assertEquals(5L, range.getCurrent());
+        assertEquals(5L, range.getHighWaterMark());
+        range.reset();
+        assertEquals(0L, range.getCurrent());
+        assertEquals(0L, range.getHighWaterMark());
+        assertEquals(0L, range.getLowWaterMark());
+    }
+
+    @Test
+    public void testBoundedRange() {
+        StripedBoundedRangeStatisticImpl range = new StripedBoundedRangeStatisticImpl(
+                0L, 0L, 0L, 32L, 0L, "BeansInPool", StatisticImpl.UNIT_COUNT, "beans",
+                System.currentTimeMillis(), System.currentTimeMillis());
+        range.setCurrent(7L);
+        assertEquals(7L, range.getHighWaterMark());
+        assertEquals(32L, range.getUpperBound());
+        assertEquals(0L, range.getLowerBound());
+        Map map = range.getStaticAsMap();
+        assertEquals(7L, map.get("current"));
+        assertEquals(32L, map.get("upperbound"));
+        assertEquals(0L, map.get("lowerbound"));
+        assertEquals("BeansInPool", map.get("name"));
+    }
+
+    @Test
+    public void testStatisticProxy() {
+        StripedCountStatisticImpl count = new StripedCountStatisticImpl(
+                "ErrorCount", StatisticImpl.UNIT_COUNT, "errors");
+        CountStatistic cs = count.getStatistic();
+        count.increment();
+        assertEquals(1L, cs.getCount());
+        assertEquals("ErrorCount", cs.getName());
+        // MonitoringReporter and the REST provider get the map through the handler
+        assertSame(count, Proxy.getInvocationHandler(cs));
+        assertEquals(1L, ((StatisticImpl) Proxy.getInvocationHandler(cs)).getStaticAsMap().get("count"));
+
+        StripedTimeStatisticImpl time = new StripedTimeStatisticImpl(0L, 0L, 0L, 0L,
+                "MethodTime", StatisticImpl.UNIT_MILLISECOND, "time",
+                System.currentTimeMillis(), -1L);
+        TimeStatistic ts = time.getStatistic();
+        time.incrementCount(3L);
+        assertEquals(3L, ts.getMaxTime());
+        Map map = time.getStaticAsMap();
+        assertEquals(1L, map.get("count"));
+        assertEquals(3L, map.get("totaltime"));
+
+        RangeStatistic rs = new StripedRangeStatisticImpl(1L, 1L, 1L,
+                "Range", StatisticImpl.UNIT_COUNT, "range",
+                System.currentTimeMillis(), System.currentTimeMillis()).getStatistic();
+        assertEquals(1L, rs.getCurrent());
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws InterruptedException {
+        final StripedCountStatisticImpl count = new StripedCountStatisticImpl(
+                "RequestCount", StatisticImpl.UNIT_COUNT, "requests");
+        final StripedTimeStatisticImpl time = new StripedTimeStatisticImpl(0L, 0L, 0L, 0L,
+                "ProcessingTime", StatisticImpl.UNIT_MILLISECOND, "time",
+                System.currentTimeMillis(), -1L);
+        final StripedRangeStatisticImpl range = new StripedRangeStatisticImpl(0L, 0L, 0L,
+                "NumConnUsed", StatisticImpl.UNIT_COUNT, "used",
+                System.currentTimeMillis(), System.currentTimeMillis());
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[THREADS];
+        for (int i = 0; i < THREADS; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 1; j <= UPDATES; j++) {
+                        count.increment();
+                        time.incrementCount(j);
+                        range.increment();
+                        range.decrement();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals((long) THREADS * UPDATES, count.getCount());
+        assertEquals((long) THREADS * UPDATES, time.getCount());
+        assertEquals(THREADS * (UPDATES * (UPDATES + 1L) / 2), time.getTotalTime());
+        assertEquals(1L, time.getMinTime());
+        assertEquals(UPDATES, time.getMaxTime());
+        assertEquals(0L, range.getCurrent());
+        assertTrue(range.getHighWaterMark() >= 1L && range.getHighWaterMark() <= THREADS);
+    }
+}
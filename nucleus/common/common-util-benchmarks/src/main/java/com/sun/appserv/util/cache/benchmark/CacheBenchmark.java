@@ -0,0 +1,150 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.appserv.util.cache.benchmark;
+
+import com.sun.appserv.util.cache.Cache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the Cache implementations of com.sun.appserv.util.cache under
+ * concurrent access. The keys follow a skewed distribution, a few keys are
+ * requested most of the time as with cached HTTP responses, and there are
+ * more distinct keys than the cache can hold, so that a share of the
+ * lookups miss and cause an insert and an eviction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class CacheBenchmark {
+
+    private static final int KEY_COUNT = 1 << 16;
+    private static final int KEY_MASK = KEY_COUNT - 1;
+
+    @Param({"LruCache", "MultiLruCache", "BoundedMultiLruCache", "ConcurrentLruCache"})
+    public String cacheClass;
+
+    @Param({"4096"})
+    public int maxEntries;
+
+    private Cache cache;
+
+    // precomputed skewed key sequence, shared by all threads
+    private Integer[] keys;
+
+    // the first hitMask + 1 keys are put in the cache in advance
+    private int hitMask;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        cache = (Cache) Class.forName("com.sun.appserv.util.cache." + cacheClass)
+                .newInstance();
+        // BoundedMultiLruCache requires a size bound; large enough for
+        // the entry count to remain the limit
+        Properties props = new Properties();
+        props.setProperty("MaxSize", "64MB");
+        cache.init(maxEntries, props);
+
+        // the square of a uniform value favors the low keys
+        Random random = new Random(42);
+        keys = new Integer[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            double u = random.nextDouble();
+            keys[i] = Integer.valueOf((int) (u * u * maxEntries * 4));
+        }
+        hitMask = Integer.highestOneBit(maxEntries / 2) - 1;
+        for (int i = 0; i <= hitMask; i++) {
+            cache.put(keys[i], keys[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cache.destroy();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next = new Random().nextInt(KEY_COUNT);
+    }
+
+    /**
+     * A lookup, followed by an insert on a miss.
+     */
+    @Benchmark
+    public Object getOrPut(Cursor cursor) {
+        Integer key = keys[cursor.next++ & KEY_MASK];
+        Object value = cache.get(key);
+        if (value == null) {
+            cache.put(key, key);
+            value = key;
+        }
+        return value;
+    }
+
+    /**
+     * Lookups of keys which are all in the cache.
+     */
+    @Benchmark
+    public Object getHit(Cursor cursor) {
+        return cache.get(keys[cursor.next++ & hitMask]);
+    }
+}
@@ -0,0 +1,806 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.appserv.util.cache;
+
+import com.sun.enterprise.util.CULoggerInfo;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Vector;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ConcurrentLruCache
+ * in-memory bounded cache with approximate LRU eviction, for use where
+ * LruCache is contended.
+ *
+ * Lookups do not lock: the hash table is read through volatile references
+ * and only writers lock the stripe that owns the bucket. There is no LRU
+ * list; every entry carries its last access time, and when the cache
+ * overflows a victim is picked among a small random sample of entries as
+ * the one accessed least recently. Statistics are kept in LongAdders.
+ *
+ * Entries trimmed because of overflow or timeout are reported to the
+ * CacheListeners like with LruCache.
+ */
+public class ConcurrentLruCache implements Cache {
+
+    // the item never expires
+    public static final long NO_TIMEOUT = -1;
+
+    static final int MAX_ENTRIES = 1 << 30;
+    static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+    // entries compared to pick a victim
+    private static final int SAMPLE_SIZE = 8;
+
+    // the number of buckets locked by one lock
+    private static final int BUCKETS_PER_STRIPE = 16;
+
+    protected int maxEntries;
+    protected int threshold;
+    protected long timeout = NO_TIMEOUT;
+
+    private int maxBuckets;
+    private AtomicReferenceArray<Entry> buckets;
+    private ReentrantLock[] stripeLocks;
+    private int stripeShift;
+
+    // refresh flags per bucket, guarded by the refresh lock of the stripe
+    private boolean[] refreshFlags;
+    private Object[] refreshLocks;
+
+    private final AtomicInteger entryCount = new AtomicInteger();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder removalCount = new LongAdder();
+    private final LongAdder refreshCount = new LongAdder();
+    private final LongAdder addCount = new LongAdder();
+    private final LongAdder trimCount = new LongAdder();
+
+    protected List<CacheListener> listeners =
+        new CopyOnWriteArrayList<CacheListener>();
+
+    /**
+     * default constructor
+     */
+    public ConcurrentLruCache() { }
+
+    /**
+     * initialize the cache
+     * @param maxEntries maximum number of entries expected in the cache
+     * @param props opaque list of properties for a given cache implementation
+     */
+    public void init(int maxEntries, Properties props) throws Exception {
+        init(maxEntries, DEFAULT_LOAD_FACTOR, props);
+    }
+
+    /**
+     * initialize the cache
+     * @param maxEntries maximum number of entries expected in the cache
+     * @param timeout to be used to trim the expired entries
+     * @param loadFactor the load factor
+     * @param props opaque list of properties for a given cache implementation
+     */
+    public void init(int maxEntries, long timeout, float loadFactor, Properties props) {
+        setTimeout(timeout);
+        init(maxEntries, loadFactor, props);
+    }
+
+    /**
+     * initialize the cache
+     * @param maxEntries maximum number of entries expected in the cache
+     * @param loadFactor the load factor
+     * @param props opaque list of properties for a given cache implementation
+     */
+    public void init(int maxEntries, float loadFactor, Properties props) {
+        if (maxEntries <= 0) {
+            String msg = CULoggerInfo.getString(CULoggerInfo.illegalMaxEntries);
+            Object[] params = { Integer.valueOf(maxEntries) };
+            throw new IllegalArgumentException(MessageFormat.format(msg, params));
+        }
+        if (maxEntries > MAX_ENTRIES)
+            maxEntries = MAX_ENTRIES;
+        if (loadFactor < 0)
+            loadFactor = 0;
+
+        this.maxEntries = maxEntries;
+        threshold = (int) (maxEntries * loadFactor) + 1;
+
+        // find a power of 2 >= maxEntries
+        maxBuckets = 1;
+        while (maxBuckets < maxEntries)
+            maxBuckets <<= 1;
+
+        int stripes = Math.max(1, maxBuckets / BUCKETS_PER_STRIPE);
+        stripeShift = Integer.numberOfTrailingZeros(maxBuckets / stripes);
+        stripeLocks = new ReentrantLock[stripes];
+        refreshLocks = new Object[stripes];
+        for (int i = 0; i < stripes; i++) {
+            stripeLocks[i] = new ReentrantLock();
+            refreshLocks[i] = new Object();
+        }
+        buckets = new AtomicReferenceArray<Entry>(maxBuckets);
+        refreshFlags = new boolean[maxBuckets];
+        entryCount.set(0);
+    }
+
+    /**
+     * sets the timeout value
+     * @param timeout to be used to trim the expired entries
+     */
+    public void setTimeout(long timeout) {
+        // accept a positive timeout
+        if (timeout > 0)
+            this.timeout = timeout;
+    }
+
+    /**
+     * add the cache module listener
+     * @param listener <code>CacheListener</code> implementation
+     */
+    public void addCacheListener(CacheListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Returns a hash code for non-null Object x.
+     */
+    protected int hash(Object x) {
+        int h = x.hashCode();
+        return h - (h << 7);  // i.e., -127 * h
+    }
+
+    protected final int getIndex(int hashCode) {
+        return (hashCode & (maxBuckets - 1));
+    }
+
+    /**
+     * get the index of the item given a key
+     * @param key of the entry
+     * @return the index to be used in the cache
+     */
+    public final int getIndex(Object key) {
+        return getIndex(hash(key));
+    }
+
+    private ReentrantLock lockFor(int index) {
+        return stripeLocks[index >>> stripeShift];
+    }
+
+    /**
+     * Cannot find an item with the given key and hashCode
+     * @param key <code>Object</code> that is not found
+     * @param hashCode <code>int</code> its hashCode
+     * @return the Object value to return for the key; null by default
+     */
+    protected Object loadValue(Object key, int hashCode) {
+        return null;
+    }
+
+    /**
+     * called once a value is no longer in the cache: its entry was removed
+     * or trimmed, or the value was replaced by another one. It is not
+     * called by clear().
+     * @param key the key of the entry
+     * @param value the value that left the cache
+     */
+    protected void valueRemoved(Object key, Object value) {
+    }
+
+    /**
+     * get the item stored at the key.
+     * @param key lookup key
+     * @return the item stored at the key; null if not found.
+     */
+    public Object get(Object key) {
+        int hashCode = hash(key);
+        Entry entry = find(hashCode, key);
+        if (entry != null) {
+            entry.touch();
+            hitCount.increment();
+            return entry.value;
+        }
+        missCount.increment();
+        return loadValue(key, hashCode);
+    }
+
+    private Entry find(int hashCode, Object key) {
+        for (Entry e = buckets.get(getIndex(hashCode)); e != null; e = e.next) {
+            if (e.hashCode == hashCode && (e.key == key || e.key.equals(key))) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * check if the cache contains the item at the key
+     * @param key lookup key
+     * @return true if there is an item stored at the key; false if not.
+     */
+    public boolean contains(Object key) {
+        return (get(key) != null);
+    }
+
+    /**
+     * get all the items stored at the key.
+     * @param key lookup key
+     * @return an Iterator over the items with the given key.
+     */
+    public Iterator getAll(Object key) {
+        int hashCode = hash(key);
+        ArrayList valueList = new ArrayList();
+        for (Entry e = buckets.get(getIndex(hashCode)); e != null; e = e.next) {
+            if (e.hashCode == hashCode && e.key.equals(key)) {
+                hitCount.increment();
+                valueList.add(e.value);
+            }
+        }
+        return valueList.iterator();
+    }
+
+    /**
+     * get an Iterator for the keys stored in the cache
+     * @return an Iterator
+     */
+    public Iterator keys() {
+        ArrayList keyList = new ArrayList(entryCount.get());
+        for (int index = 0; index < maxBuckets; index++) {
+            for (Entry e = buckets.get(index); e != null; e = e.next) {
+                keyList.add(e.key);
+            }
+        }
+        return keyList.iterator();
+    }
+
+    /**
+     * get an Enumeration for the keys stored in the cache
+     * @return an Enumeration
+     */
+    public Enumeration elements() {
+        Vector keyList = new Vector();
+        for (int index = 0; index < maxBuckets; index++) {
+            for (Entry e = buckets.get(index); e != null; e = e.next) {
+                keyList.addElement(e.key);
+            }
+        }
+        return keyList.elements();
+    }
+
+    /**
+     * get an Iterator for the values stored in the cache
+     * @return an Iterator
+     */
+    public Iterator values() {
+        ArrayList valueList = new ArrayList(entryCount.get());
+        for (int index = 0; index < maxBuckets; index++) {
+            for (Entry e = buckets.get(index); e != null; e = e.next) {
+                valueList.add(e.value);
+            }
+        }
+        return valueList.iterator();
+    }
+
+    /**
+     * cache the given value at the specified key and return previous value
+     * @param key lookup key
+     * @param value item value to be stored
+     * @return the previous item stored at the key; null if not found.
+     */
+    public Object put(Object key, Object value) {
+        return _put(hash(key), key, value, -1, false);
+    }
+
+    /**
+     * cache the given value at the specified key and return previous value
+     * @param key lookup key
+     * @param value item value to be stored
+     * @param size in bytes of the value being cached
+     * @return the previous item stored at the key; null if not found.
+     */
+    public Object put(Object key, Object value, int size) {
+        return _put(hash(key), key, value, size, false);
+    }
+
+    /**
+     * add the given value to the cache at the specified key
+     * @param key lookup key
+     * @param value item value to be stored
+     */
+    public void add(Object key, Object value) {
+        _put(hash(key), key, value, -1, true);
+    }
+
+    /**
+     * add the given value with specified size to the cache at specified key
+     * @param key lookup key
+     * @param value item value to be stored
+     * @param size in bytes of the value being added
+     */
+    public void add(Object key, Object value, int size) {
+        _put(hash(key), key, value, size, true);
+    }
+
+    /**
+     * cache the given value at the specified key and return previous value;
+     * with addValue, the value is added even if the key is already mapped.
+     */
+    protected Object _put(int hashCode, Object key,
+                          Object value, int size, boolean addValue) {
+        int index = getIndex(hashCode);
+        Object oldValue = null;
+        boolean added = false;
+
+        ReentrantLock lock = lockFor(index);
+        lock.lock();
+        try {
+            Entry head = buckets.get(index);
+            Entry entry = addValue ? null : findInChain(head, hashCode, key);
+            if (entry == null) {
+                buckets.set(index, new Entry(hashCode, key, value, size, head));
+                added = true;
+            } else {
+                oldValue = entry.value;
+                entry.value = value;
+                entry.size = size;
+                entry.lastAccessed = System.currentTimeMillis();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (added) {
+            addCount.increment();
+            if (entryCount.incrementAndGet() > threshold) {
+                trimOverflow();
+            }
+        } else {
+            refreshCount.increment();
+            if (oldValue != value) {
+                valueRemoved(key, oldValue);
+            }
+        }
+        return oldValue;
+    }
+
+    private static Entry findInChain(Entry head, int hashCode, Object key) {
+        for (Entry e = head; e != null; e = e.next) {
+            if (e.hashCode == hashCode && (e.key == key || e.key.equals(key))) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * remove the item stored at the key.
+     * @param key lookup key
+     * @return the item stored at the key; null if not found.
+     */
+    public Object remove(Object key) {
+        return remove(key, null);
+    }
+
+    /**
+     * remove the given value stored at the key; value-specific removals.
+     * @param key lookup key
+     * @param value to match (for a multi-valued keys)
+     * @return the item stored at the key; null if not found.
+     */
+    public Object remove(Object key, Object value) {
+        int hashCode = hash(key);
+        int index = getIndex(hashCode);
+        Entry removed = null;
+
+        ReentrantLock lock = lockFor(index);
+        lock.lock();
+        try {
+            for (Entry e = buckets.get(index); e != null; e = e.next) {
+                if (e.hashCode == hashCode && key.equals(e.key)
+                        && (value == null || value == e.value)) {
+                    if (unlink(index, e)) {
+                        removed = e;
+                    }
+                    break;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (removed != null) {
+            entryCount.decrementAndGet();
+            removalCount.increment();
+            hitCount.increment();
+            valueRemoved(removed.key, removed.value);
+            return removed.value;
+        }
+        missCount.increment();
+        return null;
+    }
+
+    /**
+     * remove all the item with the given key.
+     * @param key lookup key
+     */
+    public void removeAll(Object key) {
+        int hashCode = hash(key);
+        int index = getIndex(hashCode);
+        List<Entry> removed = null;
+
+        ReentrantLock lock = lockFor(index);
+        lock.lock();
+        try {
+            for (Entry e = buckets.get(index); e != null; e = e.next) {
+                if (e.hashCode == hashCode && key.equals(e.key)
+                        && unlink(index, e)) {
+                    if (removed == null) {
+                        removed = new ArrayList<Entry>(2);
+                    }
+                    removed.add(e);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (removed != null) {
+            entryCount.addAndGet(-removed.size());
+            removalCount.add(removed.size());
+            for (Entry e : removed) {
+                valueRemoved(e.key, e.value);
+            }
+        }
+    }
+
+    /**
+     * Removes the entry from its bucket chain unless it was removed already.
+     * The stripe lock of the bucket is held by the caller. The entry keeps
+     * its next reference so that lock-free readers positioned on it can
+     * continue along the chain.
+     */
+    private boolean unlink(int index, Entry entry) {
+        if (!Entry.STATE.compareAndSet(entry, Entry.LIVE, Entry.REMOVED)) {
+            return false;
+        }
+        Entry head = buckets.get(index);
+        if (head == entry) {
+            buckets.set(index, entry.next);
+            return true;
+        }
+        for (Entry e = head; e != null; e = e.next) {
+            if (e.next == entry) {
+                e.next = entry.next;
+                return true;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Trims entries while the cache holds more than its threshold.
+     */
+    private void trimOverflow() {
+        int attempts = 0;
+        while (entryCount.get() > threshold && attempts++ < SAMPLE_SIZE) {
+            Entry victim = sampleVictim();
+            if (victim != null && trimEntry(victim)) {
+                attempts = 0;
+            }
+        }
+    }
+
+    /**
+     * Picks the least recently accessed of a sample of entries, starting
+     * at a random bucket.
+     */
+    private Entry sampleVictim() {
+        Entry victim = null;
+        int sampled = 0;
+        int start = ThreadLocalRandom.current().nextInt(maxBuckets);
+        for (int i = 0; i < maxBuckets && sampled < SAMPLE_SIZE; i++) {
+            for (Entry e = buckets.get((start + i) & (maxBuckets - 1));
+                    e != null && sampled < SAMPLE_SIZE; e = e.next) {
+                if (e.state == Entry.LIVE) {
+                    sampled++;
+                    if (victim == null || e.lastAccessed < victim.lastAccessed) {
+                        victim = e;
+                    }
+                }
+            }
+        }
+        return victim;
+    }
+
+    /**
+     * Removes the entry and notifies the listeners, unless another thread
+     * removed it first.
+     */
+    private boolean trimEntry(Entry entry) {
+        int index = getIndex(entry.hashCode);
+        boolean trimmed;
+
+        ReentrantLock lock = lockFor(index);
+        lock.lock();
+        try {
+            trimmed = unlink(index, entry);
+        } finally {
+            lock.unlock();
+        }
+
+        if (trimmed) {
+            entryCount.decrementAndGet();
+            trimCount.increment();
+            for (CacheListener listener : listeners) {
+                listener.trimEvent(entry.key, entry.value);
+            }
+            valueRemoved(entry.key, entry.value);
+        }
+        return trimmed;
+    }
+
+    /**
+     * trim the expired entries from the cache.
+     * @param maxCount maximum number of invalid entries to trim
+     *        specify Integer.MAX_VALUE to trim all invalid entries
+     * This call is to be scheduled by a thread managed by the container.
+     */
+    public void trimExpiredEntries(int maxCount) {
+        if (timeout == NO_TIMEOUT) {
+            return;
+        }
+        long expiredTime = System.currentTimeMillis() - timeout;
+        int count = 0;
+        for (int index = 0; index < maxBuckets && count < maxCount; index++) {
+            for (Entry e = buckets.get(index); e != null && count < maxCount;
+                    e = e.next) {
+                if (e.lastAccessed <= expiredTime && trimEntry(e)) {
+                    count++;
+                }
+            }
+        }
+    }
+
+    /**
+     * wait for a refresh on the object associated with the key
+     * @param index of the key
+     * @return true on successful notification, or false if there is
+     *  no thread refreshing this entry.
+     */
+    public boolean waitRefresh(int index) {
+        Object monitor = refreshLocks[index >>> stripeShift];
+        synchronized (monitor) {
+            if (refreshFlags[index] == false) {
+                refreshFlags[index] = true;
+                return false;
+            }
+
+            // wait till refresh is finished
+            try {
+                while (refreshFlags[index])
+                    monitor.wait();
+            } catch (InterruptedException ie) {}
+        }
+        return true;
+    }
+
+    /**
+     * notify threads waiting for a refresh on the object associated with the key
+     * @param index of the key
+     */
+    public void notifyRefresh(int index) {
+        Object monitor = refreshLocks[index >>> stripeShift];
+        synchronized (monitor) {
+            refreshFlags[index] = false;
+            monitor.notifyAll();
+        }
+    }
+
+    /**
+     * clear all the entries from the cache.
+     * @return the number of entries cleared from the cache
+     */
+    public int clear() {
+        int count = 0;
+        for (int stripe = 0; stripe < stripeLocks.length; stripe++) {
+            ReentrantLock lock = stripeLocks[stripe];
+            lock.lock();
+            try {
+                int first = stripe << stripeShift;
+                int last = first + (1 << stripeShift);
+                for (int index = first; index < last; index++) {
+                    for (Entry e = buckets.get(index); e != null; e = e.next) {
+                        if (Entry.STATE.compareAndSet(e, Entry.LIVE, Entry.REMOVED)) {
+                            count++;
+                        }
+                    }
+                    buckets.set(index, null);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        entryCount.addAndGet(-count);
+        return count;
+    }
+
+    /**
+     * get the number of entries in the cache
+     * @return the number of entries the cache currently holds
+     */
+    public int getEntryCount() {
+        return entryCount.get();
+    }
+
+    /**
+     * is this cache empty?
+     * @return true if the cache is empty; false otherwise.
+     */
+    public boolean isEmpty() {
+        return (entryCount.get() == 0);
+    }
+
+    /**
+     * get the desired statistic counter
+     * @param key to corresponding stat
+     * @return an Object corresponding to the stat
+     * See also: Constant.java for the key
+     */
+    public Object getStatByName(String key) {
+        if (key == null)
+            return null;
+        return getStats().get(key);
+    }
+
+    /**
+     * get the stats snapshot
+     * @return a Map of stats
+     * See also: Constant.java for the keys; the LruCache keys are reported
+     * so that the cache can be monitored like LruCache.
+     */
+    public Map getStats() {
+        HashMap stats = new HashMap();
+
+        stats.put(Constants.STAT_BASECACHE_MAX_ENTRIES,
+                  Integer.valueOf(maxEntries));
+        stats.put(Constants.STAT_BASECACHE_THRESHOLD,
+                  Integer.valueOf(threshold));
+        stats.put(Constants.STAT_BASECACHE_TABLE_SIZE,
+                  Integer.valueOf(maxBuckets));
+        stats.put(Constants.STAT_BASECACHE_ENTRY_COUNT,
+                  Integer.valueOf(entryCount.get()));
+        stats.put(Constants.STAT_BASECACHE_HIT_COUNT,
+                  Integer.valueOf(hitCount.intValue()));
+        stats.put(Constants.STAT_BASECACHE_MISS_COUNT,
+                  Integer.valueOf(missCount.intValue()));
+        stats.put(Constants.STAT_BASECACHE_REMOVAL_COUNT,
+                  Integer.valueOf(removalCount.intValue()));
+        stats.put(Constants.STAT_BASECACHE_REFRESH_COUNT,
+                  Integer.valueOf(refreshCount.intValue()));
+        stats.put(Constants.STAT_BASECACHE_OVERFLOW_COUNT,
+                  Integer.valueOf(0));
+        stats.put(Constants.STAT_BASECACHE_ADD_COUNT,
+                  Integer.valueOf(addCount.intValue()));
+        stats.put(Constants.STAT_LRUCACHE_LIST_LENGTH,
+                  Integer.valueOf(entryCount.get()));
+        stats.put(Constants.STAT_LRUCACHE_TRIM_COUNT,
+                  Integer.valueOf(trimCount.intValue()));
+
+        return stats;
+    }
+
+    /**
+     * clear the stats
+     */
+    public void clearStats() {
+        hitCount.reset();
+        missCount.reset();
+        removalCount.reset();
+        refreshCount.reset();
+        addCount.reset();
+        trimCount.reset();
+    }
+
+    /**
+     * Sets all references to null. This method should be called
+     * at the end of this object's life cycle.
+     */
+    public void destroy() {
+        if (buckets != null) {
+            clear();
+        }
+        listeners.clear();
+        buckets = null;
+        refreshFlags = null;
+        refreshLocks = null;
+    }
+
+    private static final class Entry {
+
+        static final int LIVE = 0;
+        static final int REMOVED = 1;
+
+        static final AtomicIntegerFieldUpdater<Entry> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Entry.class, "state");
+
+        final int hashCode;
+        final Object key;
+        volatile Object value;
+        volatile int size;
+        volatile Entry next;
+        volatile long lastAccessed;
+        volatile int state = LIVE;
+
+        Entry(int hashCode, Object key, Object value, int size, Entry next) {
+            this.hashCode = hashCode;
+            this.key = key;
+            this.value = value;
+            this.size = size;
+            this.next = next;
+            this.lastAccessed = System.currentTimeMillis();
+        }
+
+        /**
+         * record an access; the timestamp is only written when it changes,
+         * so that hot entries read by many threads are not written on
+         * every hit
+         */
+        void touch() {
+            long now = System.currentTimeMillis();
+            if (lastAccessed != now) {
+                lastAccessed = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.appserv.util.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Approximate access frequency of cache entries (count-min sketch with 4 rows),
+ * used to decide whether a new entry is worth evicting an existing one.
+ * Counters saturate at 15 and are halved once the number of recorded accesses
+ * reaches ten times the width of the sketch, so that the frequencies follow the
+ * recent workload.<br>
+ * Updates are lock-free, a few increments may be lost under contention, which
+ * is acceptable for an estimate.
+ */
+public final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = {0x97cb3127, 0xbeeb8da1, 0x61c88647, 0x7f4a7c15};
+
+    private final AtomicIntegerArray table;
+    private final int mask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+
+    /**
+     * @param maxEntries number of entries whose frequencies need to be told apart
+     */
+    public FrequencySketch(int maxEntries) {
+        int width = Integer.highestOneBit(Math.max(16, Math.min(maxEntries, 1 << 24) * 4 - 1)) << 1;
+        table = new AtomicIntegerArray(width * DEPTH);
+        mask = width - 1;
+        sampleSize = width * 10;
+    }
+
+    /**
+     * records an access to the item with the given hash.
+     * @param hash hashCode of the item
+     */
+    public void increment(int hash) {
+        boolean added = false;
+        for (int i = 0; i < DEPTH; i++) {
+            int index = indexOf(hash, i);
+            int count = table.get(index);
+            if (count < MAX_COUNT) {
+                added |= table.compareAndSet(index, count, count + 1);
+            }
+        }
+        if (added && additions.incrementAndGet() >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * @param hash hashCode of the item
+     * @return int estimated number of recent accesses to the item (0 - 15)
+     */
+    public int frequency(int hash) {
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < DEPTH; i++) {
+            frequency = Math.min(frequency, table.get(indexOf(hash, i)));
+        }
+        return frequency;
+    }
+
+    private int indexOf(int hash, int row) {
+        int h = (hash ^ (hash >>> 16)) * SEEDS[row];
+        h ^= h >>> 15;
+        return (row * (mask + 1)) + (h & mask);
+    }
+
+    private void reset() {
+        int current = additions.get();
+        //only the thread that wins the race ages the counters
+        if (current >= sampleSize && additions.compareAndSet(current, current / 2)) {
+            for (int i = 0; i < table.length(); i++) {
+                int count = table.get(i);
+                table.compareAndSet(i, count, count >>> 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.appserv.util.cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ConcurrentLruCacheTest {
+
+    private ConcurrentLruCache cache;
+    private List<Object> trimmed;
+
+    @Before
+    public void setUp() {
+        cache = new ConcurrentLruCache();
+        cache.init(100, 1.0f, null);
+        trimmed = new ArrayList<Object>();
+        cache.addCacheListener(new CacheListener() {
+            public synchronized void trimEvent(Object key, Object value) {
+                trimmed.add(key);
+            }
+        });
+    }
+
+    @Test
+    public void putGetRemove() {
+        assertNull(cache.put("a", "1"));
+        assertEquals("1", cache.put("a", "2"));
+        assertEquals("2", cache.get("a"));
+        assertEquals(1, cache.getEntryCount());
+
+        assertEquals("2", cache.remove("a"));
+        assertNull(cache.get("a"));
+        assertTrue(cache.isEmpty());
+
+        // like BaseCache, a successful remove counts as a hit
+        assertEquals(Integer.valueOf(2),
+                cache.getStatByName(Constants.STAT_BASECACHE_HIT_COUNT));
+        assertEquals(Integer.valueOf(1),
+                cache.getStatByName(Constants.STAT_BASECACHE_REFRESH_COUNT));
+    }
+
+    @Test
+    public void multiValuedKeys() {
+        cache.add("k", "v1");
+        cache.add("k", "v2");
+        assertEquals(2, cache.getEntryCount());
+
+        int count = 0;
+        for (Iterator it = cache.getAll("k"); it.hasNext(); it.next()) {
+            count++;
+        }
+        assertEquals(2, count);
+
+        assertEquals("v1", cache.remove("k", "v1"));
+        assertEquals("v2", cache.get("k"));
+        cache.add("k", "v3");
+        cache.removeAll("k");
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    public void removedValuesReported() {
+        final List<Object> removed = new ArrayList<Object>();
+        ConcurrentLruCache cache = new ConcurrentLruCache() {
+            @Override
+            protected synchronized void valueRemoved(Object key, Object value) {
+                removed.add(value);
+            }
+        };
+        cache.init(2, 1.0f, null);
+
+        cache.put("a", "1");
+        cache.put("a", "2");
+        assertEquals(1, removed.size());
+        assertEquals("1", removed.get(0));
+
+        cache.remove("a");
+        assertEquals("2", removed.get(1));
+
+        cache.add("k", "v1");
+        cache.add("k", "v2");
+        cache.removeAll("k");
+        assertEquals(4, removed.size());
+        assertTrue(removed.contains("v1") && removed.contains("v2"));
+
+        // the threshold is maxEntries * loadFactor + 1
+        for (int i = 0; i < 5; i++) {
+            cache.put(i, i);
+        }
+        assertEquals(6, removed.size());
+    }
+
+    @Test
+    public void overflowTrimsAndNotifies() {
+        for (int i = 0; i < 300; i++) {
+            cache.put(i, i);
+        }
+        // the threshold is maxEntries * loadFactor + 1
+        assertEquals(101, cache.getEntryCount());
+        assertEquals(199, trimmed.size());
+        for (Object key : trimmed) {
+            assertNull(cache.get(key));
+        }
+        assertEquals(Integer.valueOf(199),
+                cache.getStatByName(Constants.STAT_LRUCACHE_TRIM_COUNT));
+
+        cache.clearStats();
+        assertEquals(Integer.valueOf(0),
+                cache.getStatByName(Constants.STAT_LRUCACHE_TRIM_COUNT));
+    }
+
+    @Test
+    public void leastRecentlyUsedIsTrimmedFirst() throws Exception {
+        ConcurrentLruCache small = new ConcurrentLruCache();
+        // 6 * 1.0 + 1 = 7 entries, so that the sample covers all of them
+        small.init(6, 1.0f, null);
+        for (int i = 0; i < 7; i++) {
+            small.put(i, i);
+        }
+        Thread.sleep(5);
+        for (int i = 1; i < 7; i++) {
+            small.get(i);
+        }
+        small.put(7, 7);
+        assertNull(small.get(0));
+        assertEquals(7, small.getEntryCount());
+    }
+
+    @Test
+    public void trimExpiredEntries() throws Exception {
+        ConcurrentLruCache timed = new ConcurrentLruCache();
+        timed.init(100, 20, 1.0f, null);
+        timed.put("old", "x");
+        Thread.sleep(40);
+        timed.put("new", "y");
+        timed.trimExpiredEntries(Integer.MAX_VALUE);
+        assertNull(timed.get("old"));
+        assertEquals("y", timed.get("new"));
+    }
+
+    @Test
+    public void clearEmptiesCache() {
+        for (int i = 0; i < 50; i++) {
+            cache.put(i, i);
+        }
+        assertEquals(50, cache.clear());
+        assertTrue(cache.isEmpty());
+        assertFalse(cache.keys().hasNext());
+    }
+
+    @Test
+    public void concurrentAccessKeepsCountConsistent() throws Exception {
+        final int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger failures = new AtomicInteger();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int base = t * 1000;
+            workers[t] = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < 5000; i++) {
+                            Integer key = base + (i % 500);
+                            cache.put(key, key);
+                            Object value = cache.get(key);
+                            if (value != null && !value.equals(key)) {
+                                failures.incrementAndGet();
+                            }
+                            if (i % 7 == 0) {
+                                cache.remove(key);
+                            }
+                        }
+                    } catch (InterruptedException ex) {
+                        failures.incrementAndGet();
+                    }
+                }
+            };
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread t : workers) {
+            t.join();
+        }
+
+        assertEquals(0, failures.get());
+        int count = 0;
+        for (Iterator it = cache.keys(); it.hasNext(); it.next()) {
+            count++;
+        }
+        assertEquals(count, cache.getEntryCount());
+        assertTrue(count <= 101);
+    }
+}
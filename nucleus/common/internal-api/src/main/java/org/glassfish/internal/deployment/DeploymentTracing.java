@@ -156,6 +156,22 @@ public class DeploymentTracing {
         }
     }
 
+    private class ScanEvent extends Event {
+        final int reused;
+        final int parsed;
+        final long savedInMs;
+
+        private ScanEvent(int reused, int parsed, long savedInMs) {
+            this.reused = reused;
+            this.parsed = parsed;
+            this.savedInMs = savedInMs;
+        }
+        void print(PrintStream ps) {
+            ps.println("Scan reused " + reused + " cached jars, parsed " + parsed + " jars, saved "
+                    + savedInMs + " ms at " + elapsedInMs());
+        }
+    }
+
     final long inception = System.currentTimeMillis();
     final List<Event> events = new ArrayList<Event>();
 
@@ -175,6 +191,10 @@ public class DeploymentTracing {
         events.add(new ModuleEvent(mark, moduleName));
     }
 
+    public void addScanMark(int reusedJars, int parsedJars, long savedInMs) {
+        events.add(new ScanEvent(reusedJars, parsedJars, savedInMs));
+    }
+
     public void print(PrintStream ps) {
         for (int i=0;i<events.size(); i++) {
             events.get(i).print(ps);
@@ -0,0 +1,186 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.v3.services.impl;
+
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.http.Method;
+import org.glassfish.grizzly.http.ProcessingState;
+import org.glassfish.grizzly.http.Protocol;
+import org.glassfish.grizzly.http.server.HttpHandler;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.server.Response;
+import org.glassfish.grizzly.http.server.util.MappingData;
+import org.glassfish.grizzly.http.util.DataChunk;
+import org.glassfish.grizzly.nio.transport.TCPNIOConnection;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
+import org.glassfish.internal.grizzly.ContextMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Measures the mapping of requests to the registered applications by the
+ * ContainerMapper, from a number of threads at the same time.
+ * <p>
+ * The <code>optimistic</code> mapping validates a stamp of the MapperLock
+ * as requests are mapped. It is compared with <code>readLock</code>, which
+ * maps the same mapper under the read lock of a plain
+ * ReentrantReadWriteLock only, as each request did before the MapperLock,
+ * without obtaining or validating a stamp.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class ContainerMapperBenchmark {
+
+    @Param({"optimistic", "readLock"})
+    public String locking;
+
+    @Param({"16"})
+    public int applications;
+
+    private ContextMapper mapper;
+
+    private MapperLock mapperLock;
+
+    private final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        GrizzlyService grizzlyService = new GrizzlyService();
+        mapperLock = grizzlyService.obtainMapperLock();
+        ContainerMapper containerMapper = new ContainerMapper(grizzlyService, null);
+        mapper = new ContextMapper();
+        containerMapper.setMapper(mapper);
+        containerMapper.setDefaultHost("server");
+        containerMapper.configureMapper();
+        for (int i = 0; i < applications; i++) {
+            containerMapper.register("/app" + i, Collections.singletonList("server"),
+                    new ApplicationHandler(), null);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class RequestState {
+
+        private DataChunk serverName;
+
+        private DataChunk decodedURI;
+
+        private final MappingData mappingData = new MappingData();
+
+        @Setup(Level.Trial)
+        public void setUp(ContainerMapperBenchmark benchmark) throws Exception {
+            HttpRequestPacket packet = new BenchmarkRequestPacket();
+            packet.setMethod(Method.GET);
+            packet.setRequestURI("/app" + (benchmark.applications / 2) + "/index.html");
+            packet.setProtocol(Protocol.HTTP_1_1);
+            Request request = Request.create();
+            request.initialize(packet, FilterChainContext.create(
+                    new TCPNIOConnection(TCPNIOTransportBuilder.newInstance().build(), null)), null);
+            serverName = request.getRequest().serverName();
+            decodedURI = packet.getRequestURIRef().getDecodedRequestURIBC();
+        }
+    }
+
+    @Benchmark
+    public Object map(RequestState state) throws Exception {
+        state.mappingData.recycle();
+        if ("readLock".equals(locking)) {
+            readWriteLock.readLock().lock();
+            try {
+                mapper.map(state.serverName, state.decodedURI, state.mappingData);
+            } finally {
+                readWriteLock.readLock().unlock();
+            }
+        } else {
+            ContainerMapper.map(mapperLock, mapper, state.serverName, state.decodedURI,
+                    state.mappingData);
+        }
+        return state.mappingData.context;
+    }
+
+    /**
+     * A request to the default host, which is otherwise obtained from the
+     * Host header as parsed by the HTTP codec.
+     */
+    private static class BenchmarkRequestPacket extends HttpRequestPacket {
+
+        private final ProcessingState processingState = new ProcessingState();
+
+        @Override
+        protected void doParseHostHeader() {
+            serverNameRaw().setString("server");
+        }
+
+        @Override
+        public ProcessingState getProcessingState() {
+            return processingState;
+        }
+    }
+
+    private static class ApplicationHandler extends HttpHandler {
+
+        @Override
+        public void service(Request request, Response response) {
+            response.setStatus(204);
+        }
+    }
+}
@@ -165,9 +165,15 @@ public class ApplicationLifecycle implements Deployment, PostConstruct {
     private ExecutorService executorService = null;
 
     private Collection<ApplicationLifecycleInterceptor> alcInterceptors = Collections.EMPTY_LIST;
+
+    private ClassModelCache classModelCache = null;
     
     public void postConstruct() {
         executorService = createExecutorService();
+        if (Boolean.valueOf(System.getProperty(ClassModelCache.CACHE_PROPERTY, "true"))) {
+            classModelCache = new ClassModelCache(
+                new File(env.getApplicationStubPath(), "classmodel"));
+        }
         deploymentLifecycleProbeProvider = 
             new DeploymentLifecycleProbeProvider();
         alcInterceptors = habitat.getAllServices(
@@ -545,13 +551,14 @@ public class ApplicationLifecycle implements Deployment, PostConstruct {
                     // scan the jar and store the result in the deployment context.
                     ParsingContext parsingContext = new ParsingContext.Builder().logger(context.getLogger()).executorService(executorService).build();
                     Parser parser = new Parser(parsingContext);
-                    ReadableArchiveScannerAdapter scannerAdapter = new ReadableArchiveScannerAdapter(parser, context.getSource());
+                    ClassModelCache.Scan cacheScan = classModelCache==null?null:classModelCache.newScan();
+                    ReadableArchiveScannerAdapter scannerAdapter = new ReadableArchiveScannerAdapter(parser, context.getSource(), cacheScan);
                     parser.parse(scannerAdapter, null);
                     for (ReadableArchive externalLibArchive :
                         getExternalLibraries(context)) {
                         ReadableArchiveScannerAdapter libAdapter = null;
                         try {
-                            libAdapter = new ReadableArchiveScannerAdapter(parser, externalLibArchive);
+                            libAdapter = new ReadableArchiveScannerAdapter(parser, externalLibArchive, cacheScan);
                             parser.parse(libAdapter, null);
                         } finally {
                             if (libAdapter!=null) {
@@ -561,6 +568,17 @@ public class ApplicationLifecycle implements Deployment, PostConstruct {
                     }
                     parser.awaitTermination();
                     scannerAdapter.close();
+                    if (cacheScan!=null && cacheScan.getReused()+cacheScan.getParsed()>0) {
+                        DeploymentTracing tracing = context.getModuleMetaData(DeploymentTracing.class);
+                        if (tracing!=null) {
+                            tracing.addScanMark(cacheScan.getReused(), cacheScan.getParsed(), cacheScan.getSavedTime());
+                        }
+                        if (logger.isLoggable(Level.FINE)) {
+                            logger.log(Level.FINE, KernelLoggerInfo.classModelCacheUsed, new Object[] {
+                                cacheScan.getReused(), cacheScan.getParsed(), cacheScan.getSavedTime(),
+                                context.getSource().getURI()});
+                        }
+                    }
                     context.addTransientAppMetaData(Types.class.getName(), parsingContext.getTypes());
                     context.addTransientAppMetaData(Parser.class.getName(), parser);
                     return parsingContext.getTypes();
@@ -57,6 +57,7 @@ import javax.inject.Provider;
 import org.glassfish.api.ActionReport;
 import org.glassfish.api.StartupRunLevel;
 import org.glassfish.api.admin.ServerEnvironment;
+import org.glassfish.api.container.Sniffer;
 import org.glassfish.api.deployment.DeployCommandParameters;
 import org.glassfish.api.deployment.DeploymentContext;
 import org.glassfish.api.deployment.UndeployCommandParameters;
@@ -98,6 +99,17 @@ public class ApplicationLoaderService implements org.glassfish.hk2.api.PreDestro
 
     final Logger logger = KernelLoggerInfo.getLogger();
 
+    /**
+     * Set to true to load independent applications concurrently at startup.
+     */
+    static final String PARALLEL_LOADING_PROPERTY = "org.glassfish.deployment.parallel.loading";
+
+    /**
+     * The maximum number of applications loaded at a time when loading in
+     * parallel, the number of processors by default.
+     */
+    static final String PARALLEL_LOADING_THREADS_PROPERTY = "org.glassfish.deployment.parallel.loading.threads";
+
     // During the authentication service's PostConstruct the javax.security.auth.login.Configuration class is constructed.
     // During the Configuration initialization a static variable is set to the current thread's context class loader.
     // When applications are loaded via this (ApplicationLoaderService) the current thread's context class loader
@@ -121,6 +133,9 @@ public class ApplicationLoaderService implements org.glassfish.hk2.api.PreDestro
     @Inject
     ContainerRegistry containerRegistry;
 
+    @Inject
+    ContainerStarter containerStarter;
+
     @Inject
     ApplicationRegistry appRegistry;
 
@@ -237,10 +252,14 @@ public class ApplicationLoaderService implements org.glassfish.hk2.api.PreDestro
         }
 
         Iterator iter = DeploymentOrder.getApplicationDeployments();
-        while (iter.hasNext()) {
-          Application app = (Application)iter.next();
-          ApplicationRef appRef = server.getApplicationRef(app.getName());
-          processApplication(app, appRef);
+        if (Boolean.getBoolean(PARALLEL_LOADING_PROPERTY)) {
+            processApplicationsInParallel(iter);
+        } else {
+            while (iter.hasNext()) {
+              Application app = (Application)iter.next();
+              ApplicationRef appRef = server.getApplicationRef(app.getName());
+              processApplication(app, appRef);
+            }
         }
 
         // does the user want us to run a particular application
@@ -345,6 +364,176 @@ public class ApplicationLoaderService implements org.glassfish.hk2.api.PreDestro
     }
 
 
+    /**
+     * Loads the given applications, in deployment order, concurrently on a
+     * bounded number of threads. Each application is only loaded once the
+     * applications it depends on, as returned by
+     * {@link #getLoadDependencies(Application, List)}, have been loaded.
+     * <p>
+     * The containers used by the applications are started, and their
+     * deployers looked up, on this thread before any application is loaded,
+     * so that container start-up and the first use of an engine never run
+     * concurrently. The parallel loading then relies on the following being
+     * safe to use from several threads for different applications:
+     * <ul>
+     * <li>ApplicationLifecycle.deploy, each application having its own
+     * DeploymentContext, archive and class loaders;</li>
+     * <li>the ApplicationRegistry, ContainerRegistry and Events services,
+     * which are synchronized or backed by concurrent maps;</li>
+     * <li>the deployers of started containers, which already serve
+     * concurrent deployments from the admin commands.</li>
+     * </ul>
+     * Applications whose loading may share more than that with other
+     * applications are loaded on their own, see
+     * {@link #isLoadedAlone(Application)}. Dependencies that do not show in
+     * the configuration, such as <code>java:global</code> lookups of another
+     * application at start-up, have to be expressed with the
+     * deployment-order of the applications.
+     */
+    private void processApplicationsInParallel(Iterator iter) {
+        // Resolve the runtime dependencies once, before the loading threads
+        // need them
+        initializeRuntimeDependencies();
+
+        List<Application> apps = new ArrayList<Application>();
+        while (iter.hasNext()) {
+            apps.add((Application)iter.next());
+        }
+        containerStarter.startContainers(getSniffers(apps));
+
+        int threads = Integer.getInteger(PARALLEL_LOADING_THREADS_PROPERTY,
+            Runtime.getRuntime().availableProcessors());
+        ParallelApplicationLoader loader = new ParallelApplicationLoader(threads, logger);
+        List<Application> added = new ArrayList<Application>();
+        for (final Application app : apps) {
+            final ApplicationRef appRef = server.getApplicationRef(app.getName());
+            loader.add(app.getName(), new Runnable() {
+                public void run() {
+                    processApplication(app, appRef);
+                }
+            }, getLoadDependencies(app, added));
+            added.add(app);
+        }
+
+        try {
+            loader.loadAll();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.log(Level.SEVERE, KernelLoggerInfo.deployException, e);
+        }
+        loader.logReport();
+    }
+
+    /**
+     * Returns the sniffers of the engines recorded in domain.xml for the
+     * given applications, without duplicates.
+     */
+    private Set<Sniffer> getSniffers(List<Application> apps) {
+        Set<Sniffer> sniffers = new LinkedHashSet<Sniffer>();
+        for (Application app : apps) {
+            for (com.sun.enterprise.config.serverbeans.Module module : app.getModule()) {
+                for (Engine engine : module.getEngines()) {
+                    Sniffer sniffer = snifferManager.getSniffer(engine.getSniffer());
+                    if (sniffer != null) {
+                        sniffers.add(sniffer);
+                    }
+                }
+            }
+        }
+        return sniffers;
+    }
+
+    /**
+     * Returns the names of the applications, among the given ones which
+     * precede it in deployment order, that must be loaded before the given
+     * application:
+     * <ul>
+     * <li>all system applications come before the standalone resource
+     * adapters, which come before the other applications;</li>
+     * <li>applications with a lower deployment-order come before those with
+     * a higher one;</li>
+     * <li>applications embedding a resource adapter come before the ones
+     * that follow them, which may use their connector resources;</li>
+     * <li>applications sharing a library are loaded one at a time;</li>
+     * <li>applications loaded alone come after all the preceding
+     * applications and before all the following ones.</li>
+     * </ul>
+     */
+    private List<String> getLoadDependencies(Application app, List<Application> previous) {
+        int rank = getLoadRank(app);
+        int order = Integer.parseInt(app.getDeploymentOrder());
+        boolean alone = isLoadedAlone(app);
+        Set<String> libraries = getLibraries(app);
+        List<String> dependencies = new ArrayList<String>();
+        for (Application other : previous) {
+            if (alone
+                    || isLoadedAlone(other)
+                    || getLoadRank(other) < rank
+                    || Integer.parseInt(other.getDeploymentOrder()) < order
+                    || other.containsSnifferType(ServerTags.CONNECTOR)
+                    || !Collections.disjoint(libraries, getLibraries(other))) {
+                dependencies.add(other.getName());
+            }
+        }
+        return dependencies;
+    }
+
+    /**
+     * Returns true if the given application is not loaded concurrently with
+     * any other application, which is the case of:
+     * <ul>
+     * <li>enterprise applications, whose modules share the class loader of
+     * the application and are only known once the archive is read again;
+     * </li>
+     * <li>applications without engines in domain.xml, such as upgraded
+     * ones, whose sniffers and containers are only known once the archive
+     * is read again;</li>
+     * <li>applications with application-scoped resources, which are
+     * created while the application is loaded.</li>
+     * </ul>
+     */
+    static boolean isLoadedAlone(Application app) {
+        if (!app.isStandaloneModule()) {
+            return true;
+        }
+        boolean hasEngines = false;
+        for (com.sun.enterprise.config.serverbeans.Module module : app.getModule()) {
+            if (hasResources(module.getResources())) {
+                return true;
+            }
+            hasEngines |= !module.getEngines().isEmpty();
+        }
+        return !hasEngines || hasResources(app.getResources());
+    }
+
+    private static boolean hasResources(Resources resources) {
+        return resources != null && !resources.getResources().isEmpty();
+    }
+
+    private static int getLoadRank(Application app) {
+        if (app.getObjectType().startsWith(DeploymentType.SYSTEM_PREFIX)) {
+            return 0;
+        }
+        if (app.isStandaloneModule() && app.containsSnifferType(ServerTags.CONNECTOR)) {
+            return 1;
+        }
+        return 2;
+    }
+
+    private static Set<String> getLibraries(Application app) {
+        Set<String> libraries = new HashSet<String>();
+        String value = app.getLibraries();
+        if (value != null) {
+            for (String library : value.split(",")) {
+                library = library.trim();
+                if (library.length() > 0) {
+                    libraries.add(new File(library).getName());
+                }
+            }
+        }
+        return libraries;
+    }
+
     public void processApplication(Application app, ApplicationRef appRef) {
 
         long operationStartTime = Calendar.getInstance().getTimeInMillis();
@@ -0,0 +1,1058 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.v3.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import org.glassfish.api.deployment.archive.ReadableArchive;
+import org.glassfish.hk2.classmodel.reflect.ArchiveAdapter;
+import org.glassfish.hk2.classmodel.reflect.Parser;
+import org.glassfish.hk2.classmodel.reflect.ParsingContext;
+import org.glassfish.hk2.external.org.objectweb.asm.AnnotationVisitor;
+import org.glassfish.hk2.external.org.objectweb.asm.ClassReader;
+import org.glassfish.hk2.external.org.objectweb.asm.ClassVisitor;
+import org.glassfish.hk2.external.org.objectweb.asm.FieldVisitor;
+import org.glassfish.hk2.external.org.objectweb.asm.MethodVisitor;
+import org.glassfish.hk2.external.org.objectweb.asm.Opcodes;
+import org.glassfish.hk2.external.org.objectweb.asm.Type;
+import org.glassfish.kernel.KernelLoggerInfo;
+
+/**
+ * Cache of the class-model scan of jar files, kept on disk and keyed by the
+ * content of the jar, the version of the hk2 parser and the format of the
+ * cache, so that the library jars of an application are not parsed again
+ * when the application is redeployed or the server restarted.
+ * <p>
+ * The hk2 class model cannot be saved as such. Instead the cache records the
+ * events the class-model visitors receive while the classes of a jar are
+ * parsed, and replays them into the parsing context of a later deployment
+ * of a jar with the same content, which builds the same types without
+ * opening the jar or reading its classes.
+ */
+class ClassModelCache {
+
+    /**
+     * System property to set to false to disable the cache.
+     */
+    static final String CACHE_PROPERTY = "org.glassfish.deployment.classmodel.cache";
+
+    private static final int MAGIC = 0x474d4331;
+
+    // part of the cache keys, to change along with the format of the entries
+    private static final int FORMAT_VERSION = 2;
+
+    // part of the cache keys, the class model built from the events depends
+    // on the hk2 class-model parser
+    private static final String PARSER_VERSION = parserVersion();
+
+    private static final String SUFFIX = ".cm";
+
+    private static final String TMP_SUFFIX = ".tmp";
+
+    // entries unused for longer than that are removed
+    private static final long MAX_UNUSED_TIME = TimeUnit.DAYS.toMillis(30);
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    // class events
+    private static final int VISIT = 1;
+    private static final int SOURCE = 2;
+    private static final int OUTER_CLASS = 3;
+    private static final int ANNOTATION = 4;
+    private static final int INNER_CLASS = 5;
+    private static final int FIELD = 6;
+    private static final int METHOD = 7;
+    private static final int END = 8;
+    // field and method events, along with ANNOTATION and END
+    private static final int ANNOTATION_DEFAULT = 9;
+    // annotation events, along with ANNOTATION and END
+    private static final int VALUE = 10;
+    private static final int ENUM = 11;
+    private static final int ARRAY = 12;
+
+    // annotation and constant values
+    private static final int NULL = 0;
+    private static final int STRING = 1;
+    private static final int INTEGER = 2;
+    private static final int LONG = 3;
+    private static final int FLOAT = 4;
+    private static final int DOUBLE = 5;
+    private static final int BYTE = 6;
+    private static final int BOOLEAN = 7;
+    private static final int CHARACTER = 8;
+    private static final int SHORT = 9;
+    private static final int TYPE = 10;
+    private static final int PRIMITIVE_ARRAY = 11;
+
+    private static final Class<?>[] PRIMITIVES = { byte.class, boolean.class,
+        char.class, short.class, int.class, long.class, float.class, double.class };
+
+    private static final Logger logger = KernelLoggerInfo.getLogger();
+
+    private final File directory;
+
+    ClassModelCache(File directory) {
+        this.directory = directory;
+        removeUnused();
+    }
+
+    /**
+     * @return a new scan, to use for the archives of one deployment
+     */
+    Scan newScan() {
+        return new Scan();
+    }
+
+    private void removeUnused() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        long oldest = System.currentTimeMillis() - MAX_UNUSED_TIME;
+        for (File file : files) {
+            if (file.getName().endsWith(TMP_SUFFIX) || file.lastModified() < oldest) {
+                if (!file.delete() && logger.isLoggable(Level.FINE)) {
+                    logger.log(Level.FINE, "Cannot delete class model cache entry " + file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Use of the cache by the archives of a deployment, with the number
+     * of jars replayed from the cache and parsed, and the parsing time the
+     * cache saved.
+     */
+    class Scan {
+
+        private final AtomicInteger reused = new AtomicInteger();
+
+        private final AtomicInteger parsed = new AtomicInteger();
+
+        private final AtomicLong savedNanos = new AtomicLong();
+
+        /**
+         * @param archive an archive about to be parsed
+         * @return the cache entry of the archive, null if it is not a jar
+         * file or cannot be read
+         */
+        Entry getEntry(ReadableArchive archive) {
+            URI uri = archive.getURI();
+            if (uri == null || !"file".equals(uri.getScheme())) {
+                return null;
+            }
+            File jar = new File(uri);
+            if (!jar.isFile()) {
+                return null;
+            }
+            try {
+                return new Entry(this, new File(directory, digest(jar) + SUFFIX));
+            } catch (IOException e) {
+                if (logger.isLoggable(Level.FINE)) {
+                    logger.log(Level.FINE, "Cannot compute the class model cache key of " + jar, e);
+                }
+                return null;
+            }
+        }
+
+        int getReused() {
+            return reused.get();
+        }
+
+        int getParsed() {
+            return parsed.get();
+        }
+
+        long getSavedTime() {
+            return TimeUnit.NANOSECONDS.toMillis(savedNanos.get());
+        }
+    }
+
+    /**
+     * The cached scan of the content of one jar file.
+     */
+    static class Entry {
+
+        private final Scan scan;
+
+        private final File file;
+
+        private Entry(Scan scan, File file) {
+            this.scan = scan;
+            this.file = file;
+        }
+
+        /**
+         * Builds the types of the cached jar in the parsing context.
+         *
+         * @param uri the URI the types are defined in
+         * @param context the parsing context of the deployment
+         * @return false if there is no valid cached scan of the jar, in which
+         * case nothing was added to the parsing context
+         */
+        boolean replay(URI uri, ParsingContext context) {
+            long start = System.nanoTime();
+            EventInput in = load();
+            if (in == null) {
+                return false;
+            }
+            long parseNanos = in.readLong();
+            for (int classes = in.readInt(); classes > 0; classes--) {
+                String name = in.readString();
+                replayClass(in, context.getClassVisitor(uri, name, true));
+            }
+            if (!file.setLastModified(System.currentTimeMillis()) && logger.isLoggable(Level.FINE)) {
+                logger.log(Level.FINE, "Cannot touch class model cache entry " + file);
+            }
+            scan.reused.incrementAndGet();
+            scan.savedNanos.addAndGet(Math.max(0, parseNanos - (System.nanoTime() - start)));
+            return true;
+        }
+
+        /**
+         * @return a recorder for the parsing of the jar
+         */
+        Recorder record() {
+            return new Recorder(this);
+        }
+
+        private EventInput load() {
+            if (!file.isFile()) {
+                return null;
+            }
+            byte[] bytes = new byte[(int) file.length()];
+            try {
+                InputStream is = new FileInputStream(file);
+                try {
+                    int read = 0;
+                    while (read < bytes.length) {
+                        int n = is.read(bytes, read, bytes.length - read);
+                        if (n < 0) {
+                            return null;
+                        }
+                        read += n;
+                    }
+                } finally {
+                    is.close();
+                }
+            } catch (IOException e) {
+                if (logger.isLoggable(Level.FINE)) {
+                    logger.log(Level.FINE, "Cannot read class model cache entry " + file, e);
+                }
+                return null;
+            }
+            // magic, parse time, class count and checksum
+            if (bytes.length < 24) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, bytes.length - 8);
+            EventInput in = new EventInput(bytes, bytes.length - 8);
+            if (in.readInt() != MAGIC || readLong(bytes, bytes.length - 8) != crc.getValue()) {
+                return null;
+            }
+            return in;
+        }
+    }
+
+    /**
+     * Records the class-model events of the classes of a jar while they are
+     * parsed, and saves them as the cache entry of the jar once all of them
+     * have been parsed.
+     */
+    static class Recorder {
+
+        private final Entry entry;
+
+        private final long start = System.nanoTime();
+
+        private final EventOutput out = new EventOutput();
+
+        private final EventOutput classes = new EventOutput();
+
+        private int count;
+
+        private boolean discarded;
+
+        private Recorder(Entry entry) {
+            this.entry = entry;
+        }
+
+        /**
+         * @param task the task of the parser for the class entries of the jar
+         * @return a task that hands the class entries to the parser's task,
+         * then records the class-model events of the classes it parsed
+         */
+        ArchiveAdapter.EntryTask entryTask(final ArchiveAdapter.EntryTask task) {
+            return new ArchiveAdapter.EntryTask() {
+                @Override
+                public void on(ArchiveAdapter.Entry entry, InputStream is) throws IOException {
+                    byte[] bytes = readFully(is);
+                    try {
+                        task.on(entry, new ByteArrayInputStream(bytes));
+                    } catch (IOException e) {
+                        discard();
+                        throw e;
+                    } catch (RuntimeException e) {
+                        discard();
+                        throw e;
+                    }
+                    try {
+                        record(entry.name, bytes);
+                    } catch (RuntimeException e) {
+                        discard();
+                        if (logger.isLoggable(Level.FINE)) {
+                            logger.log(Level.FINE, "Cannot record the class model of " + entry.name, e);
+                        }
+                    }
+                }
+            };
+        }
+
+        /**
+         * Records the events of a class the way the parser visits it, with
+         * debug information skipped.
+         */
+        private void record(String name, byte[] bytes) {
+            EventOutput events = new EventOutput();
+            new ClassReader(bytes).accept(new RecordingClassVisitor(null, events),
+                    ClassReader.SKIP_DEBUG);
+            classes.writeString(name);
+            classes.write(events);
+            count++;
+        }
+
+        /**
+         * Discards the events recorded so far, when the jar could not be
+         * parsed entirely or contains classes the cache cannot replay.
+         */
+        void discard() {
+            discarded = true;
+        }
+
+        /**
+         * Saves the recorded events, unless they were discarded.
+         */
+        void store() {
+            entry.scan.parsed.incrementAndGet();
+            if (discarded) {
+                return;
+            }
+            out.writeInt(MAGIC);
+            out.writeLong(System.nanoTime() - start);
+            out.writeInt(count);
+            out.write(classes);
+            CRC32 crc = new CRC32();
+            crc.update(out.buffer(), 0, out.size());
+            out.writeLong(crc.getValue());
+
+            File file = entry.file;
+            File directory = file.getParentFile();
+            File tmp = null;
+            try {
+                if (!directory.isDirectory() && !directory.mkdirs()) {
+                    throw new IOException("Cannot create " + directory);
+                }
+                tmp = File.createTempFile("classmodel", TMP_SUFFIX, directory);
+                OutputStream os = new FileOutputStream(tmp);
+                try {
+                    os.write(out.buffer(), 0, out.size());
+                } finally {
+                    os.close();
+                }
+                // another deployment of the same jar may have stored it already
+                if (!tmp.renameTo(file) && !file.isFile()) {
+                    throw new IOException("Cannot rename " + tmp + " to " + file);
+                }
+            } catch (IOException e) {
+                if (logger.isLoggable(Level.FINE)) {
+                    logger.log(Level.FINE, "Cannot write class model cache entry " + file, e);
+                }
+            } finally {
+                if (tmp != null && tmp.exists() && !tmp.delete() && logger.isLoggable(Level.FINE)) {
+                    logger.log(Level.FINE, "Cannot delete " + tmp);
+                }
+            }
+        }
+    }
+
+    private static String digest(File file) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        md.update((FORMAT_VERSION + ":" + PARSER_VERSION + ":").getBytes(UTF8));
+        InputStream is = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = is.read(buffer)) > 0) {
+                md.update(buffer, 0, n);
+            }
+        } finally {
+            is.close();
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : md.digest()) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the implementation version of the hk2 class-model parser, or
+     * when its jar does not tell, the location and time stamp of the jar
+     */
+    private static String parserVersion() {
+        Package pkg = Parser.class.getPackage();
+        if (pkg != null && pkg.getImplementationVersion() != null) {
+            return pkg.getImplementationVersion();
+        }
+        try {
+            CodeSource source = Parser.class.getProtectionDomain().getCodeSource();
+            if (source != null && source.getLocation() != null) {
+                URL location = source.getLocation();
+                if ("file".equals(location.getProtocol())) {
+                    File jar = new File(location.toURI());
+                    return location + "@" + jar.lastModified() + "/" + jar.length();
+                }
+                return location.toString();
+            }
+        } catch (Exception e) {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.log(Level.FINE, "Cannot locate the class model parser", e);
+            }
+        }
+        return "unknown";
+    }
+
+    private static byte[] readFully(InputStream is) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = is.read(buffer)) > 0) {
+            bytes.write(buffer, 0, n);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xff);
+        }
+        return value;
+    }
+
+    private static void replayClass(EventInput in, ClassVisitor cv) {
+        for (;;) {
+            int event = in.readByte();
+            switch (event) {
+                case VISIT:
+                    int version = in.readInt();
+                    int access = in.readInt();
+                    String name = in.readString();
+                    String signature = in.readString();
+                    String superName = in.readString();
+                    String[] interfaces = in.readStrings();
+                    if (cv != null) {
+                        cv.visit(version, access, name, signature, superName, interfaces);
+                    }
+                    break;
+                case SOURCE:
+                    String source = in.readString();
+                    String debug = in.readString();
+                    if (cv != null) {
+                        cv.visitSource(source, debug);
+                    }
+                    break;
+                case OUTER_CLASS:
+                    String owner = in.readString();
+                    String outerName = in.readString();
+                    String outerDesc = in.readString();
+                    if (cv != null) {
+                        cv.visitOuterClass(owner, outerName, outerDesc);
+                    }
+                    break;
+                case ANNOTATION:
+                    String desc = in.readString();
+                    boolean visible = in.readBoolean();
+                    replayAnnotation(in, cv == null ? null : cv.visitAnnotation(desc, visible));
+                    break;
+                case INNER_CLASS:
+                    String innerName = in.readString();
+                    String innerOuterName = in.readString();
+                    String innerSimpleName = in.readString();
+                    int innerAccess = in.readInt();
+                    if (cv != null) {
+                        cv.visitInnerClass(innerName, innerOuterName, innerSimpleName, innerAccess);
+                    }
+                    break;
+                case FIELD:
+                    int fieldAccess = in.readInt();
+                    String fieldName = in.readString();
+                    String fieldDesc = in.readString();
+                    String fieldSignature = in.readString();
+                    Object value = in.readValue();
+                    replayField(in, cv == null ? null
+                            : cv.visitField(fieldAccess, fieldName, fieldDesc, fieldSignature, value));
+                    break;
+                case METHOD:
+                    int methodAccess = in.readInt();
+                    String methodName = in.readString();
+                    String methodDesc = in.readString();
+                    String methodSignature = in.readString();
+                    String[] exceptions = in.readStrings();
+                    replayMethod(in, cv == null ? null
+                            : cv.visitMethod(methodAccess, methodName, methodDesc, methodSignature, exceptions));
+                    break;
+                case END:
+                    if (cv != null) {
+                        cv.visitEnd();
+                    }
+                    return;
+                default:
+                    throw new IllegalStateException("Unknown class event " + event);
+            }
+        }
+    }
+
+    private static void replayField(EventInput in, FieldVisitor fv) {
+        for (;;) {
+            int event = in.readByte();
+            switch (event) {
+                case ANNOTATION:
+                    String desc = in.readString();
+                    boolean visible = in.readBoolean();
+                    replayAnnotation(in, fv == null ? null : fv.visitAnnotation(desc, visible));
+                    break;
+                case END:
+                    if (fv != null) {
+                        fv.visitEnd();
+                    }
+                    return;
+                default:
+                    throw new IllegalStateException("Unknown field event " + event);
+            }
+        }
+    }
+
+    private static void replayMethod(EventInput in, MethodVisitor mv) {
+        for (;;) {
+            int event = in.readByte();
+            switch (event) {
+                case ANNOTATION:
+                    String desc = in.readString();
+                    boolean visible = in.readBoolean();
+                    replayAnnotation(in, mv == null ? null : mv.visitAnnotation(desc, visible));
+                    break;
+                case ANNOTATION_DEFAULT:
+                    replayAnnotation(in, mv == null ? null : mv.visitAnnotationDefault());
+                    break;
+                case END:
+                    if (mv != null) {
+                        mv.visitEnd();
+                    }
+                    return;
+                default:
+                    throw new IllegalStateException("Unknown method event " + event);
+            }
+        }
+    }
+
+    private static void replayAnnotation(EventInput in, AnnotationVisitor av) {
+        for (;;) {
+            int event = in.readByte();
+            switch (event) {
+                case VALUE:
+                    String name = in.readString();
+                    Object value = in.readValue();
+                    if (av != null) {
+                        av.visit(name, value);
+                    }
+                    break;
+                case ENUM:
+                    String enumName = in.readString();
+                    String enumDesc = in.readString();
+                    String enumValue = in.readString();
+                    if (av != null) {
+                        av.visitEnum(enumName, enumDesc, enumValue);
+                    }
+                    break;
+                case ANNOTATION:
+                    String annotationName = in.readString();
+                    String annotationDesc = in.readString();
+                    replayAnnotation(in, av == null ? null : av.visitAnnotation(annotationName, annotationDesc));
+                    break;
+                case ARRAY:
+                    String arrayName = in.readString();
+                    replayAnnotation(in, av == null ? null : av.visitArray(arrayName));
+                    break;
+                case END:
+                    if (av != null) {
+                        av.visitEnd();
+                    }
+                    return;
+                default:
+                    throw new IllegalStateException("Unknown annotation event " + event);
+            }
+        }
+    }
+
+    private static final class RecordingClassVisitor extends ClassVisitor {
+
+        private final EventOutput out;
+
+        RecordingClassVisitor(ClassVisitor cv, EventOutput out) {
+            super(Opcodes.ASM5, cv);
+            this.out = out;
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature,
+                String superName, String[] interfaces) {
+            out.writeByte(VISIT);
+            out.writeInt(version);
+            out.writeInt(access);
+            out.writeString(name);
+            out.writeString(signature);
+            out.writeString(superName);
+            out.writeStrings(interfaces);
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+
+        @Override
+        public void visitSource(String source, String debug) {
+            out.writeByte(SOURCE);
+            out.writeString(source);
+            out.writeString(debug);
+            super.visitSource(source, debug);
+        }
+
+        @Override
+        public void visitOuterClass(String owner, String name, String desc) {
+            out.writeByte(OUTER_CLASS);
+            out.writeString(owner);
+            out.writeString(name);
+            out.writeString(desc);
+            super.visitOuterClass(owner, name, desc);
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+            out.writeByte(ANNOTATION);
+            out.writeString(desc);
+            out.writeBoolean(visible);
+            return new RecordingAnnotationVisitor(super.visitAnnotation(desc, visible), out);
+        }
+
+        @Override
+        public void visitInnerClass(String name, String outerName, String innerName, int access) {
+            out.writeByte(INNER_CLASS);
+            out.writeString(name);
+            out.writeString(outerName);
+            out.writeString(innerName);
+            out.writeInt(access);
+            super.visitInnerClass(name, outerName, innerName, access);
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+            out.writeByte(FIELD);
+            out.writeInt(access);
+            out.writeString(name);
+            out.writeString(desc);
+            out.writeString(signature);
+            out.writeValue(value);
+            return new RecordingFieldVisitor(super.visitField(access, name, desc, signature, value), out);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String desc, String signature,
+                String[] exceptions) {
+            out.writeByte(METHOD);
+            out.writeInt(access);
+            out.writeString(name);
+            out.writeString(desc);
+            out.writeString(signature);
+            out.writeStrings(exceptions);
+            return new RecordingMethodVisitor(super.visitMethod(access, name, desc, signature, exceptions), out);
+        }
+
+        @Override
+        public void visitEnd() {
+            out.writeByte(END);
+            super.visitEnd();
+        }
+    }
+
+    private static final class RecordingFieldVisitor extends FieldVisitor {
+
+        private final EventOutput out;
+
+        RecordingFieldVisitor(FieldVisitor fv, EventOutput out) {
+            super(Opcodes.ASM5, fv);
+            this.out = out;
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+            out.writeByte(ANNOTATION);
+            out.writeString(desc);
+            out.writeBoolean(visible);
+            return new RecordingAnnotationVisitor(super.visitAnnotation(desc, visible), out);
+        }
+
+        @Override
+        public void visitEnd() {
+            out.writeByte(END);
+            super.visitEnd();
+        }
+    }
+
+    private static final class RecordingMethodVisitor extends MethodVisitor {
+
+        private final EventOutput out;
+
+        RecordingMethodVisitor(MethodVisitor mv, EventOutput out) {
+            super(Opcodes.ASM5, mv);
+            this.out = out;
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+            out.writeByte(ANNOTATION);
+            out.writeString(desc);
+            out.writeBoolean(visible);
+            return new RecordingAnnotationVisitor(super.visitAnnotation(desc, visible), out);
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotationDefault() {
+            out.writeByte(ANNOTATION_DEFAULT);
+            return new RecordingAnnotationVisitor(super.visitAnnotationDefault(), out);
+        }
+
+        @Override
+        public void visitEnd() {
+            out.writeByte(END);
+            super.visitEnd();
+        }
+    }
+
+    private static final class RecordingAnnotationVisitor extends AnnotationVisitor {
+
+        private final EventOutput out;
+
+        RecordingAnnotationVisitor(AnnotationVisitor av, EventOutput out) {
+            super(Opcodes.ASM5, av);
+            this.out = out;
+        }
+
+        @Override
+        public void visit(String name, Object value) {
+            out.writeByte(VALUE);
+            out.writeString(name);
+            out.writeValue(value);
+            super.visit(name, value);
+        }
+
+        @Override
+        public void visitEnum(String name, String desc, String value) {
+            out.writeByte(ENUM);
+            out.writeString(name);
+            out.writeString(desc);
+            out.writeString(value);
+            super.visitEnum(name, desc, value);
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String name, String desc) {
+            out.writeByte(ANNOTATION);
+            out.writeString(name);
+            out.writeString(desc);
+            return new RecordingAnnotationVisitor(super.visitAnnotation(name, desc), out);
+        }
+
+        @Override
+        public AnnotationVisitor visitArray(String name) {
+            out.writeByte(ARRAY);
+            out.writeString(name);
+            return new RecordingAnnotationVisitor(super.visitArray(name), out);
+        }
+
+        @Override
+        public void visitEnd() {
+            out.writeByte(END);
+            super.visitEnd();
+        }
+    }
+
+    /**
+     * Big-endian encoding of the recorded events, in memory.
+     */
+    private static final class EventOutput extends ByteArrayOutputStream {
+
+        EventOutput() {
+            super(4096);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+
+        void write(EventOutput other) {
+            write(other.buf, 0, other.count);
+        }
+
+        void writeByte(int value) {
+            write(value);
+        }
+
+        void writeBoolean(boolean value) {
+            write(value ? 1 : 0);
+        }
+
+        void writeInt(int value) {
+            write(value >>> 24);
+            write(value >>> 16);
+            write(value >>> 8);
+            write(value);
+        }
+
+        void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeInt(-1);
+            } else {
+                byte[] bytes = value.getBytes(UTF8);
+                writeInt(bytes.length);
+                write(bytes, 0, bytes.length);
+            }
+        }
+
+        void writeStrings(String[] values) {
+            if (values == null) {
+                writeInt(-1);
+            } else {
+                writeInt(values.length);
+                for (String value : values) {
+                    writeString(value);
+                }
+            }
+        }
+
+        void writeValue(Object value) {
+            if (value == null) {
+                writeByte(NULL);
+            } else if (value instanceof String) {
+                writeByte(STRING);
+                writeString((String) value);
+            } else if (value instanceof Integer) {
+                writeByte(INTEGER);
+                writeInt((Integer) value);
+            } else if (value instanceof Long) {
+                writeByte(LONG);
+                writeLong((Long) value);
+            } else if (value instanceof Float) {
+                writeByte(FLOAT);
+                writeInt(Float.floatToRawIntBits((Float) value));
+            } else if (value instanceof Double) {
+                writeByte(DOUBLE);
+                writeLong(Double.doubleToRawLongBits((Double) value));
+            } else if (value instanceof Byte) {
+                writeByte(BYTE);
+                writeByte((Byte) value);
+            } else if (value instanceof Boolean) {
+                writeByte(BOOLEAN);
+                writeBoolean((Boolean) value);
+            } else if (value instanceof Character) {
+                writeByte(CHARACTER);
+                writeInt((Character) value);
+            } else if (value instanceof Short) {
+                writeByte(SHORT);
+                writeInt((Short) value);
+            } else if (value instanceof Type) {
+                writeByte(TYPE);
+                writeString(((Type) value).getDescriptor());
+            } else if (value.getClass().isArray() && value.getClass().getComponentType().isPrimitive()) {
+                Class<?> type = value.getClass().getComponentType();
+                int length = Array.getLength(value);
+                writeByte(PRIMITIVE_ARRAY);
+                for (int i = 0; i < PRIMITIVES.length; i++) {
+                    if (PRIMITIVES[i] == type) {
+                        writeByte(i);
+                    }
+                }
+                writeInt(length);
+                for (int i = 0; i < length; i++) {
+                    writeValue(Array.get(value, i));
+                }
+            } else {
+                throw new IllegalArgumentException("Unsupported value " + value.getClass());
+            }
+        }
+    }
+
+    /**
+     * Decoding of the events written by {@link EventOutput}.
+     */
+    private static final class EventInput {
+
+        private final byte[] bytes;
+
+        private final int limit;
+
+        private int pos;
+
+        EventInput(byte[] bytes, int limit) {
+            this.bytes = bytes;
+            this.limit = limit;
+        }
+
+        int readByte() {
+            if (pos >= limit) {
+                throw new IllegalStateException("Truncated class model cache entry");
+            }
+            return bytes[pos++] & 0xff;
+        }
+
+        boolean readBoolean() {
+            return readByte() != 0;
+        }
+
+        int readInt() {
+            return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+        }
+
+        long readLong() {
+            return ((long) readInt() << 32) | (readInt() & 0xffffffffL);
+        }
+
+        String readString() {
+            int length = readInt();
+            if (length < 0) {
+                return null;
+            }
+            if (length > limit - pos) {
+                throw new IllegalStateException("Truncated class model cache entry");
+            }
+            String value = new String(bytes, pos, length, UTF8);
+            pos += length;
+            return value;
+        }
+
+        String[] readStrings() {
+            int length = readInt();
+            if (length < 0) {
+                return null;
+            }
+            String[] values = new String[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = readString();
+            }
+            return values;
+        }
+
+        Object readValue() {
+            int type = readByte();
+            switch (type) {
+                case NULL:
+                    return null;
+                case STRING:
+                    return readString();
+                case INTEGER:
+                    return readInt();
+                case LONG:
+                    return readLong();
+                case FLOAT:
+                    return Float.intBitsToFloat(readInt());
+                case DOUBLE:
+                    return Double.longBitsToDouble(readLong());
+                case BYTE:
+                    return (byte) readByte();
+                case BOOLEAN:
+                    return readBoolean();
+                case CHARACTER:
+                    return (char) readInt();
+                case SHORT:
+                    return (short) readInt();
+                case TYPE:
+                    return Type.getType(readString());
+                case PRIMITIVE_ARRAY:
+                    Class<?> componentType = PRIMITIVES[readByte()];
+                    int length = readInt();
+                    Object array = Array.newInstance(componentType, length);
+                    for (int i = 0; i < length; i++) {
+                        Array.set(array, i, readValue());
+                    }
+                    return array;
+                default:
+                    throw new IllegalStateException("Unknown value type " + type);
+            }
+        }
+    }
+}
@@ -53,10 +53,13 @@ import javax.inject.Inject;
 
 import org.glassfish.api.container.Container;
 import org.glassfish.api.container.Sniffer;
+import org.glassfish.api.deployment.Deployer;
+import org.glassfish.api.logging.LogHelper;
 import org.glassfish.hk2.api.ServiceHandle;
 import org.glassfish.hk2.api.ServiceLocator;
 import org.glassfish.internal.data.ContainerRegistry;
 import org.glassfish.internal.data.EngineInfo;
+import org.glassfish.kernel.KernelLoggerInfo;
 import org.glassfish.server.ServerEnvironmentImpl;
 import org.jvnet.hk2.annotations.Service;
 
@@ -124,5 +127,43 @@ public class ContainerStarter {
         return containers.values();
     }
 
+    /**
+     * Starts the containers of the given sniffers that are not started yet,
+     * and looks up their deployers, one container at a time on the calling
+     * thread. Applications using these containers can then be deployed from
+     * several threads without a container being set up while another thread
+     * deploys to it.
+     * <p>
+     * A container that cannot be started is logged and left alone, the
+     * deployment of the applications using it reports the failure.
+     */
+    public void startContainers(Collection<? extends Sniffer> sniffers) {
+        for (Sniffer sniffer : sniffers) {
+            String[] containerNames = sniffer.getContainersNames();
+            if (containerNames == null || containerNames.length == 0) {
+                continue;
+            }
+            synchronized (registry) {
+                if (registry.getContainer(containerNames[0]) == null
+                        && startContainer(sniffer) == null) {
+                    continue;
+                }
+                for (String name : containerNames) {
+                    EngineInfo info = registry.getContainer(name);
+                    if (info == null || info.getDeployer() != null) {
+                        continue;
+                    }
+                    try {
+                        Class<? extends Deployer> deployerClass = info.getContainer().getDeployer();
+                        info.setDeployer(habitat.getService(deployerClass));
+                    } catch (Exception e) {
+                        LogHelper.log(KernelLoggerInfo.getLogger(), Level.WARNING,
+                                KernelLoggerInfo.cantStartContainerAhead, e, name);
+                    }
+                }
+            }
+        }
+    }
+
 
 }
@@ -0,0 +1,325 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.v3.server;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.glassfish.kernel.KernelLoggerInfo;
+
+/**
+ * Loads the applications of the server at startup on a bounded number of
+ * threads. An application is loaded as soon as all the applications it
+ * depends on have been loaded, so that independent applications are loaded
+ * concurrently.
+ * <p>
+ * The time each application took to load is recorded, along with the
+ * critical path: the chain of dependent applications with the longest
+ * total load time, which bounds the startup time whatever the number
+ * of threads.
+ */
+class ParallelApplicationLoader {
+
+    private final int threads;
+
+    private final Logger logger;
+
+    private final ClassLoader contextClassLoader;
+
+    private final Map<String, Load> loads = new LinkedHashMap<String, Load>();
+
+    private long startTime;
+
+    private long endTime;
+
+    /**
+     * @param threads the maximum number of applications loaded at a time
+     * @param logger the logger of the failures and of the load report
+     */
+    ParallelApplicationLoader(int threads, Logger logger) {
+        this.threads = Math.max(1, threads);
+        this.logger = logger;
+        this.contextClassLoader = Thread.currentThread().getContextClassLoader();
+    }
+
+    /**
+     * Adds an application to load.
+     *
+     * @param name the name of the application
+     * @param loader loads the application
+     * @param dependencies the names of the applications that must be loaded
+     * before this one, all of them already added
+     */
+    void add(String name, Runnable loader, Collection<String> dependencies) {
+        if (loads.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate application " + name);
+        }
+        Load load = new Load(name, loader);
+        for (String dependency : dependencies) {
+            Load dependencyLoad = loads.get(dependency);
+            if (dependencyLoad == null) {
+                throw new IllegalArgumentException("Unknown application " + dependency);
+            }
+            load.dependencies.add(dependencyLoad);
+            dependencyLoad.dependents.add(load);
+        }
+        load.pending = load.dependencies.size();
+        loads.put(name, load);
+    }
+
+    /**
+     * Loads all the added applications and waits for them to be loaded.
+     * Ready applications are started in the order they were added. The
+     * failure of an application is logged and does not prevent the
+     * applications that depend on it from being loaded, as with the
+     * sequential loading.
+     *
+     * @throws InterruptedException if interrupted while waiting, in which
+     * case the applications being loaded are interrupted and no other one
+     * is started
+     */
+    void loadAll() throws InterruptedException {
+        startTime = System.nanoTime();
+        if (loads.isEmpty()) {
+            endTime = startTime;
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(threads, loads.size()), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r);
+                t.setName("application-loader-" + count.incrementAndGet());
+                t.setContextClassLoader(contextClassLoader);
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        try {
+            CompletionService<Load> completion = new ExecutorCompletionService<Load>(executor);
+            int running = 0;
+            for (Load load : loads.values()) {
+                if (load.pending == 0) {
+                    completion.submit(load);
+                    running++;
+                }
+            }
+            // Only this thread updates the pending counts
+            while (running > 0) {
+                Load loaded;
+                try {
+                    loaded = completion.take().get();
+                } catch (ExecutionException e) {
+                    // Load.call() only lets errors through
+                    if (e.getCause() instanceof Error) {
+                        throw (Error) e.getCause();
+                    }
+                    throw new IllegalStateException(e.getCause());
+                }
+                running--;
+                for (Load dependent : loaded.dependents) {
+                    if (--dependent.pending == 0) {
+                        completion.submit(dependent);
+                        running++;
+                    }
+                }
+            }
+        } finally {
+            endTime = System.nanoTime();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the time taken by {@link #loadAll()} in milliseconds
+     */
+    long getTotalTime() {
+        return TimeUnit.NANOSECONDS.toMillis(endTime - startTime);
+    }
+
+    /**
+     * @return the time the given application took to load in milliseconds,
+     * or -1 if it was not loaded
+     */
+    long getLoadTime(String name) {
+        Load load = loads.get(name);
+        return (load == null || !load.loaded) ? -1 : TimeUnit.NANOSECONDS.toMillis(load.end - load.start);
+    }
+
+    /**
+     * @return the names of the applications on the critical path, in load
+     * order
+     */
+    List<String> getCriticalPath() {
+        Load last = null;
+        for (Load load : loads.values()) {
+            computePathTime(load);
+            if (last == null || load.pathTime > last.pathTime) {
+                last = load;
+            }
+        }
+        List<String> path = new ArrayList<String>();
+        for (Load load = last; load != null; load = load.pathPrevious) {
+            path.add(load.name);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * @return the total load time of the applications on the critical path
+     * in milliseconds
+     */
+    long getCriticalPathTime() {
+        long time = 0;
+        for (String name : getCriticalPath()) {
+            time += Math.max(0, getLoadTime(name));
+        }
+        return time;
+    }
+
+    /**
+     * Logs the load time of each application, in the order they were
+     * started, and the critical path.
+     */
+    void logReport() {
+        List<Load> started = new ArrayList<Load>();
+        long sumOfTimes = 0;
+        for (Load load : loads.values()) {
+            if (load.loaded) {
+                started.add(load);
+                sumOfTimes += load.end - load.start;
+            }
+        }
+        Collections.sort(started, new Comparator<Load>() {
+            public int compare(Load l1, Load l2) {
+                return Long.compare(l1.start, l2.start);
+            }
+        });
+
+        StringBuilder timings = new StringBuilder();
+        for (Load load : started) {
+            timings.append("\n    ").append(load.name)
+                    .append(": started at ").append(TimeUnit.NANOSECONDS.toMillis(load.start - startTime))
+                    .append(" ms, loaded in ").append(TimeUnit.NANOSECONDS.toMillis(load.end - load.start))
+                    .append(" ms");
+        }
+        logger.log(Level.INFO, KernelLoggerInfo.parallelLoadingReport, new Object[] {
+                started.size(), getTotalTime(), Math.min(threads, loads.size()),
+                TimeUnit.NANOSECONDS.toMillis(sumOfTimes), getCriticalPathTime(),
+                getCriticalPath(), timings});
+    }
+
+    private static void computePathTime(Load load) {
+        if (load.pathTime >= 0) {
+            return;
+        }
+        long time = 0;
+        for (Load dependency : load.dependencies) {
+            // Dependencies were added first, their path time is known
+            if (dependency.pathTime > time) {
+                time = dependency.pathTime;
+                load.pathPrevious = dependency;
+            }
+        }
+        load.pathTime = time + (load.loaded ? load.end - load.start : 0);
+    }
+
+    private final class Load implements Callable<Load> {
+
+        final String name;
+
+        final Runnable loader;
+
+        final List<Load> dependencies = new ArrayList<Load>();
+
+        final List<Load> dependents = new ArrayList<Load>();
+
+        // Only used by the thread running loadAll()
+        int pending;
+
+        // Written by the loading thread, read after completion.take()
+        volatile long start;
+
+        volatile long end;
+
+        volatile boolean loaded;
+
+        long pathTime = -1;
+
+        Load pathPrevious;
+
+        Load(String name, Runnable loader) {
+            this.name = name;
+            this.loader = loader;
+        }
+
+        public Load call() {
+            start = System.nanoTime();
+            try {
+                loader.run();
+            } catch (RuntimeException e) {
+                logger.log(Level.SEVERE, KernelLoggerInfo.deployException, e);
+            } finally {
+                end = System.nanoTime();
+                loaded = true;
+            }
+            return this;
+        }
+    }
+}
@@ -72,6 +72,11 @@ public class ReadableArchiveScannerAdapter extends AbstractAdapter {
      */
     final ReadableArchiveScannerAdapter parent;
 
+    /**
+     * Can be null, when the class-model cache is not used.
+     */
+    final ClassModelCache.Scan cacheScan;
+
     /**
      * We need to maintain a count of the sub archives we have asked
      * the class-model to parse so we can close our archive once all
@@ -93,10 +98,15 @@ public class ReadableArchiveScannerAdapter extends AbstractAdapter {
     
 
     public ReadableArchiveScannerAdapter(Parser parser, ReadableArchive archive) {
+        this(parser, archive, null);
+    }
+
+    ReadableArchiveScannerAdapter(Parser parser, ReadableArchive archive, ClassModelCache.Scan cacheScan) {
         this.archive = archive;
         this.parser = parser;
         this.uri = archive.getURI();
         this.parent = null;
+        this.cacheScan = cacheScan;
     }
 
     private ReadableArchiveScannerAdapter(ReadableArchiveScannerAdapter parent, ReadableArchive archive, URI uri) {
@@ -104,6 +114,7 @@ public class ReadableArchiveScannerAdapter extends AbstractAdapter {
         this.archive = archive;
         this.parser = parent.parser;
         this.uri = uri==null?archive.getURI():uri;
+        this.cacheScan = parent.cacheScan;
     }
 
     @Override
@@ -119,6 +130,18 @@ public class ReadableArchiveScannerAdapter extends AbstractAdapter {
     @Override
     public void onSelectedEntries(ArchiveAdapter.Selector selector, EntryTask entryTask, final Logger logger ) throws IOException {
 
+        ClassModelCache.Entry cacheEntry = cacheScan==null?null:cacheScan.getEntry(archive);
+        if (cacheEntry!=null && cacheEntry.replay(uri, parser.getContext())) {
+            if (logger.isLoggable(level)) {
+                logger.log(level, "Reused the cached parsing of " + this.uri);
+            }
+            return;
+        }
+        ClassModelCache.Recorder recorder = cacheEntry==null?null:cacheEntry.record();
+        if (recorder!=null) {
+            entryTask = recorder.entryTask(entryTask);
+        }
+
         Enumeration<String> entries = archive.entries();
         while (entries.hasMoreElements()) {
             final String name = entries.nextElement();
@@ -128,9 +151,15 @@ public class ReadableArchiveScannerAdapter extends AbstractAdapter {
             }
             // check for non exploded jars.
             if (name.endsWith(".jar")) {
-                handleJar(name, logger);
+                if (handleJar(name, logger)!=null && recorder!=null) {
+                    // the classes of the inner jars are not recorded.
+                    recorder.discard();
+                }
             }  
         }
+        if (recorder!=null) {
+            recorder.store();
+        }
         if (logger.isLoggable(level)) {
             logger.log(level, "Finished parsing " + this.uri);
         }
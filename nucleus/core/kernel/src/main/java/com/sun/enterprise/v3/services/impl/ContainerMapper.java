@@ -48,7 +48,6 @@ import java.util.logging.Logger;
 
 import java.io.CharConversionException;
 import java.util.concurrent.Callable;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.glassfish.api.container.Adapter;
 import org.glassfish.api.container.Sniffer;
 import org.glassfish.api.deployment.ApplicationContainer;
@@ -82,9 +81,7 @@ public class ContainerMapper extends ADBAwareHttpHandler {
 
     private static final Logger LOGGER = KernelLoggerInfo.getLogger();
     private final static String ROOT = "";
-    private ContextMapper mapper;
     private final GrizzlyListener listener;
-    private String defaultHostName = "server";
     private final GrizzlyService grizzlyService;
     protected final static Note<MappingData> MAPPING_DATA =
             Request.<MappingData>createNote("MappingData");
@@ -92,15 +89,26 @@ public class ContainerMapper extends ADBAwareHttpHandler {
     // (@see org.apache.catalina.connector.CoyoteAdapter)
     private final static Note<DataChunk> DATA_CHUNK =
             Request.<DataChunk>createNote("DataChunk");
-    private final ReentrantReadWriteLock mapperLock;
+    /**
+     * Held for writing while the mappers are updated in place, such as by the
+     * web container while it starts. Requests map optimistically and only
+     * take the read lock to map again if the write lock was taken meanwhile.
+     */
+    private final MapperLock mapperLock;
 
     
     private static final AfterServiceListener afterServiceListener =
             new AfterServiceListenerImpl();
+
+    /**
+     * The mapper state used by requests, replaced as a whole on change.
+     */
+    private volatile MapperState state = new MapperState(null, "server", false);
+
     /**
-     * Are we running multiple {@ Adapter} or {@link HttpHandlerChain}
+     * Serializes the changes of the mapper state.
      */
-    private boolean mapMultipleAdapter;
+    private final Object stateLock = new Object();
 
     public ContainerMapper(final GrizzlyService service,
             final GrizzlyListener grizzlyListener) {
@@ -115,11 +123,10 @@ public class ContainerMapper extends ADBAwareHttpHandler {
      * @param defaultHost
      */
     protected void setDefaultHost(String defaultHost) {
-        mapperLock.writeLock().lock();
-        try {
-            defaultHostName = defaultHost;
-        } finally {
-            mapperLock.writeLock().unlock();
+        synchronized (stateLock) {
+            final MapperState current = state;
+            state = new MapperState(current.mapper, defaultHost,
+                    current.mapMultipleAdapter);
         }
     }
 
@@ -129,7 +136,11 @@ public class ContainerMapper extends ADBAwareHttpHandler {
      * @param mapper
      */
     protected void setMapper(ContextMapper mapper) {
-        this.mapper = mapper;
+        synchronized (stateLock) {
+            final MapperState current = state;
+            state = new MapperState(mapper, current.defaultHostName,
+                    current.mapMultipleAdapter);
+        }
     }
 
     /**
@@ -139,6 +150,9 @@ public class ContainerMapper extends ADBAwareHttpHandler {
         mapperLock.writeLock().lock();
 
         try {
+            final MapperState current = state;
+            final ContextMapper mapper = current.mapper;
+            final String defaultHostName = current.defaultHostName;
             mapper.setDefaultHostName(defaultHostName);
             mapper.addHost(defaultHostName, new String[]{}, null);
             mapper.addContext(defaultHostName, ROOT,
@@ -189,81 +203,95 @@ public class ContainerMapper extends ADBAwareHttpHandler {
             final Response response) throws CharConversionException, Exception {
         MappingData mappingData;
         
-        mapperLock.readLock().lock();
+        final MapperState current = state;
         
-        try {
-            // If we have only one Adapter deployed, invoke that Adapter directly.
-            if (!mapMultipleAdapter) {
-                // Remove the MappingData as we might delegate the request
-                // to be serviced directly by the WebContainer
-                final HttpHandler httpHandler = mapper.getHttpHandler();
-                if (httpHandler != null) {
-                    request.setNote(MAPPING_DATA, null);
+        // If we have only one Adapter deployed, invoke that Adapter directly.
+        if (!current.mapMultipleAdapter) {
+            // Remove the MappingData as we might delegate the request
+            // to be serviced directly by the WebContainer
+            final HttpHandler httpHandler = getHttpHandler(current.mapper);
+            if (httpHandler != null) {
+                request.setNote(MAPPING_DATA, null);
 //                    httpHandler.service(request, response);
 //                    return;
-                    return new HttpHandlerCallable(httpHandler,
-                            request, response);
-                }
+                return new HttpHandlerCallable(httpHandler,
+                        request, response);
             }
+        }
 
-            final DataChunk decodedURI = request.getRequest()
-                    .getRequestURIRef().getDecodedRequestURIBC(isAllowEncodedSlash());
+        final DataChunk decodedURI = request.getRequest()
+                .getRequestURIRef().getDecodedRequestURIBC(isAllowEncodedSlash());
 
-            mappingData = request.getNote(MAPPING_DATA);
-            if (mappingData == null) {
-                mappingData = new MappingData();
-                request.setNote(MAPPING_DATA, mappingData);
-            } else {
-                mappingData.recycle();
+        mappingData = request.getNote(MAPPING_DATA);
+        if (mappingData == null) {
+            mappingData = new MappingData();
+            request.setNote(MAPPING_DATA, mappingData);
+        } else {
+            mappingData.recycle();
+        }
+        HttpHandler httpHandler;
+
+        final CharChunk decodedURICC = decodedURI.getCharChunk();
+        final int semicolon = decodedURICC.indexOf(';', 0);
+
+        // Map the request without any trailling.
+        httpHandler = mapUriWithSemicolon(current.mapper, request, decodedURI,
+                semicolon, mappingData);
+        if (httpHandler == null || httpHandler instanceof ContainerMapper) {
+            String ext = decodedURI.toString();
+            String type = "";
+            if (ext.lastIndexOf(".") > 0) {
+                ext = "*" + ext.substring(ext.lastIndexOf("."));
+                type = ext.substring(ext.lastIndexOf(".") + 1);
             }
-            HttpHandler httpHandler;
-
-            final CharChunk decodedURICC = decodedURI.getCharChunk();
-            final int semicolon = decodedURICC.indexOf(';', 0);
-
-            // Map the request without any trailling.
-            httpHandler = mapUriWithSemicolon(request, decodedURI,
-                    semicolon, mappingData);
-            if (httpHandler == null || httpHandler instanceof ContainerMapper) {
-                String ext = decodedURI.toString();
-                String type = "";
-                if (ext.lastIndexOf(".") > 0) {
-                    ext = "*" + ext.substring(ext.lastIndexOf("."));
-                    type = ext.substring(ext.lastIndexOf(".") + 1);
-                }
 
-                if (!MimeType.contains(type) && !"/".equals(ext)) {
-                    initializeFileURLPattern(ext);
-                    mappingData.recycle();
-                    httpHandler = mapUriWithSemicolon(request, decodedURI,
-                            semicolon, mappingData);
-                } else {
+            if (!MimeType.contains(type) && !"/".equals(ext)) {
+                initializeFileURLPattern(current.mapper, ext);
+                mappingData.recycle();
+                httpHandler = mapUriWithSemicolon(current.mapper, request, decodedURI,
+                        semicolon, mappingData);
+            } else {
 //                    super.service(request, response);
 //                    return;
-                    return new SuperCallable(request, response);
-                }
+                return new SuperCallable(request, response);
             }
+        }
 
-            if (LOGGER.isLoggable(Level.FINE)) {
-                LOGGER.log(Level.FINE, "Request: {0} was mapped to Adapter: {1}",
-                        new Object[]{decodedURI.toString(), httpHandler});
-            }
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, "Request: {0} was mapped to Adapter: {1}",
+                    new Object[]{decodedURI.toString(), httpHandler});
+        }
 
-            // The Adapter used for servicing static pages doesn't decode the
-            // request by default, hence do not pass the undecoded request.
-            if (httpHandler == null || httpHandler instanceof ContainerMapper) {
+        // The Adapter used for servicing static pages doesn't decode the
+        // request by default, hence do not pass the undecoded request.
+        if (httpHandler == null || httpHandler instanceof ContainerMapper) {
 //                super.service(request, response);
-                return new SuperCallable(request, response);
-            } else {
+            return new SuperCallable(request, response);
+        } else {
 //                httpHandler.service(request, response);
-                return new HttpHandlerCallable(httpHandler, request, response);
-            }
+            return new HttpHandlerCallable(httpHandler, request, response);
+        }
+    }
+
+    /**
+     * Returns the {@link HttpHandler} of the given mapper, once the update of
+     * the mappers in progress, if any, is complete.
+     */
+    private HttpHandler getHttpHandler(final ContextMapper mapper) {
+        final long stamp = mapperLock.tryOptimisticRead();
+        final HttpHandler httpHandler = mapper.getHttpHandler();
+        if (mapperLock.validate(stamp)) {
+            return httpHandler;
+        }
+        mapperLock.readLock().lock();
+        try {
+            return mapper.getHttpHandler();
         } finally {
             mapperLock.readLock().unlock();
-        }         
+        }
     }
-    
-    private void initializeFileURLPattern(String ext) {
+
+    private void initializeFileURLPattern(ContextMapper mapper, String ext) {
         for (Sniffer sniffer : grizzlyService.getHabitat().<Sniffer>getAllServices(Sniffer.class)) {
             boolean match = false;
             if (sniffer.getURLPatterns() != null) {
@@ -281,7 +309,6 @@ public class ContainerMapper extends ADBAwareHttpHandler {
                     ((SnifferAdapter) httpHandler).initialize(sniffer, this);
                     ContextRootInfo c = new ContextRootInfo(httpHandler, null);
 
-                    mapperLock.readLock().unlock();
                     mapperLock.writeLock().lock();
                     try {
                         for (String pattern : sniffer.getURLPatterns()) {
@@ -291,7 +318,6 @@ public class ContainerMapper extends ADBAwareHttpHandler {
                             }
                         }
                     } finally {
-                        mapperLock.readLock().lock();
                         mapperLock.writeLock().unlock();
                     }
                     
@@ -316,52 +342,59 @@ public class ContainerMapper extends ADBAwareHttpHandler {
     final HttpHandler mapUriWithSemicolon(final Request req,
             final DataChunk decodedURI, int semicolonPos,
             final MappingData mappingData) throws Exception {
+        return mapUriWithSemicolon(state.mapper, req, decodedURI, semicolonPos,
+                mappingData);
+    }
 
-        mapperLock.readLock().lock();
+    private HttpHandler mapUriWithSemicolon(final ContextMapper mapper,
+            final Request req, final DataChunk decodedURI, int semicolonPos,
+            final MappingData mappingData) throws Exception {
 
-        try {
-            final CharChunk charChunk = decodedURI.getCharChunk();
-            final int oldStart = charChunk.getStart();
-            final int oldEnd = charChunk.getEnd();
+        final CharChunk charChunk = decodedURI.getCharChunk();
+        final int oldStart = charChunk.getStart();
+        final int oldEnd = charChunk.getEnd();
 
-            if (semicolonPos == 0) {
-                semicolonPos = decodedURI.indexOf(';', 0);
-            }
+        if (semicolonPos == 0) {
+            semicolonPos = decodedURI.indexOf(';', 0);
+        }
 
-            DataChunk localDecodedURI = decodedURI;
-            if (semicolonPos >= 0) {
-                charChunk.setEnd(semicolonPos);
-                // duplicate the URI path, because Mapper may corrupt the attributes,
-                // which follow the path
-                localDecodedURI = req.getNote(DATA_CHUNK);
-                if (localDecodedURI == null) {
-                    localDecodedURI = DataChunk.newInstance();
-                    req.setNote(DATA_CHUNK, localDecodedURI);
-                }
-                localDecodedURI.duplicate(decodedURI);
+        DataChunk localDecodedURI = decodedURI;
+        if (semicolonPos >= 0) {
+            charChunk.setEnd(semicolonPos);
+            // duplicate the URI path, because Mapper may corrupt the attributes,
+            // which follow the path
+            localDecodedURI = req.getNote(DATA_CHUNK);
+            if (localDecodedURI == null) {
+                localDecodedURI = DataChunk.newInstance();
+                req.setNote(DATA_CHUNK, localDecodedURI);
             }
+            localDecodedURI.duplicate(decodedURI);
+        }
 
 
-            try {
-                return map(req, localDecodedURI, mappingData);
-            } finally {
-                charChunk.setStart(oldStart);
-                charChunk.setEnd(oldEnd);
-            }
+        try {
+            return map(mapper, req, localDecodedURI, mappingData);
         } finally {
-            mapperLock.readLock().unlock();
+            charChunk.setStart(oldStart);
+            charChunk.setEnd(oldEnd);
         }
     }
 
     HttpHandler map(final Request req, final DataChunk decodedURI,
             MappingData mappingData) throws Exception {
+        return map(state.mapper, req, decodedURI, mappingData);
+    }
+
+    private HttpHandler map(final ContextMapper mapper, final Request req,
+            final DataChunk decodedURI, MappingData mappingData) throws Exception {
         
         if (mappingData == null) {
             mappingData = req.getNote(MAPPING_DATA);
         }
         // Map the request to its Adapter/Container and also it's Servlet if
         // the request is targetted to the CoyoteAdapter.
-        mapper.map(req.getRequest().serverName(), decodedURI, mappingData);
+        map(mapperLock, mapper, req.getRequest().serverName(), decodedURI,
+                mappingData);
 
         updatePaths(req, mappingData);
 
@@ -381,6 +414,45 @@ public class ContainerMapper extends ADBAwareHttpHandler {
         return null;
     }
 
+    /**
+     * Maps without locking unless the write lock of the mappers is taken
+     * meanwhile, in which case the mapping is discarded and done again under
+     * the read lock.
+     */
+    static void map(final MapperLock mapperLock, final Mapper mapper,
+            final DataChunk serverName, final DataChunk decodedURI,
+            final MappingData mappingData) throws Exception {
+        final long stamp = mapperLock.tryOptimisticRead();
+        boolean mapped = false;
+        if (stamp != 0) {
+            final CharChunk charChunk = decodedURI.getCharChunk();
+            final int oldStart = charChunk.getStart();
+            final int oldEnd = charChunk.getEnd();
+            try {
+                mapper.map(serverName, decodedURI, mappingData);
+                mapped = mapperLock.validate(stamp);
+            } catch (Exception e) {
+                if (mapperLock.validate(stamp)) {
+                    throw e;
+                }
+            }
+            if (!mapped) {
+                charChunk.setStart(oldStart);
+                charChunk.setEnd(oldEnd);
+                mappingData.recycle();
+            }
+        }
+        if (!mapped) {
+            // The mappers were being updated, map again once they are
+            mapperLock.readLock().lock();
+            try {
+                mapper.map(serverName, decodedURI, mappingData);
+            } finally {
+                mapperLock.readLock().unlock();
+            }
+        }
+    }
+
     public void register(String contextRoot, Collection<String> vs, HttpHandler httpService,
             ApplicationContainer container) {
 
@@ -389,7 +461,7 @@ public class ContainerMapper extends ADBAwareHttpHandler {
                     new Object[]{this, contextRoot, httpService, container, String.valueOf(listener.getPort())});
         }
 
-        mapMultipleAdapter = true;
+        final ContextMapper mapper = mapMultipleAdapters();
         ContextRootInfo c = new ContextRootInfo(httpService, container);
         for (String host : vs) {
             mapper.addContext(host, contextRoot, c, new String[0], null);
@@ -406,6 +478,7 @@ public class ContainerMapper extends ADBAwareHttpHandler {
             LOGGER.log(Level.FINE, "MAPPER ({0}) UNREGISTER contextRoot: {1}",
                     new Object[]{this, contextRoot});
         }
+        final ContextMapper mapper = state.mapper;
         for (String host : grizzlyService.hosts) {
             mapper.removeContext(host, contextRoot);
         }
@@ -416,7 +489,7 @@ public class ContainerMapper extends ADBAwareHttpHandler {
             LOGGER.log(Level.FINE, "MAPPER({0}) REGISTER endpoint: {1}", endpoint);
         }
 
-        mapMultipleAdapter = true;
+        final ContextMapper mapper = mapMultipleAdapters();
         final String contextRoot = endpoint.getContextRoot();
         final Collection<String> vs = endpoint.getVirtualServers();
         
@@ -446,6 +519,43 @@ public class ContainerMapper extends ADBAwareHttpHandler {
         unregister(endpoint.getContextRoot());
     }
 
+    /**
+     * Switches to mapping each request, now that more than one
+     * {@link HttpHandler} is registered.
+     *
+     * @return the mapper to register the {@link HttpHandler} with
+     */
+    private ContextMapper mapMultipleAdapters() {
+        synchronized (stateLock) {
+            final MapperState current = state;
+            if (!current.mapMultipleAdapter) {
+                state = new MapperState(current.mapper,
+                        current.defaultHostName, true);
+            }
+            return current.mapper;
+        }
+    }
+
+    /**
+     * The mapper along with its settings. Instances are immutable, so that a
+     * request reads them consistently without locking.
+     */
+    private static final class MapperState {
+        final ContextMapper mapper;
+        final String defaultHostName;
+        /**
+         * Are we running multiple {@ Adapter} or {@link HttpHandlerChain}
+         */
+        final boolean mapMultipleAdapter;
+
+        MapperState(final ContextMapper mapper, final String defaultHostName,
+                final boolean mapMultipleAdapter) {
+            this.mapper = mapper;
+            this.defaultHostName = defaultHostName;
+            this.mapMultipleAdapter = mapMultipleAdapter;
+        }
+    }
+
     private final static class HttpHandlerCallable implements Callable {
         private final HttpHandler httpHandler;
         private final Request request;
@@ -68,7 +68,6 @@ import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.inject.Inject;
@@ -151,8 +150,7 @@ public class GrizzlyService implements RequestDispatcher, PostConstruct, PreDest
     /**
      * HTTP Mapper update lock.
      */
-    private final ReentrantReadWriteLock mapperLock =
-            new ReentrantReadWriteLock();
+    private final MapperLock mapperLock = new MapperLock();
         
     private DynamicConfigListener configListener;
 
@@ -429,7 +427,7 @@ public class GrizzlyService implements RequestDispatcher, PostConstruct, PreDest
      * Returns HTTP {@link Mapper} lock to prevent concurrent access to a
      * {@link Mapper} object.
      */
-    public ReentrantReadWriteLock obtainMapperLock() {
+    public MapperLock obtainMapperLock() {
         return mapperLock;
     }
     
@@ -0,0 +1,141 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.v3.services.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * The lock of the HTTP mappers. Writers, such as the web container while it
+ * starts, take the write lock as with any ReentrantReadWriteLock. Requests
+ * need not take the read lock: they can map optimistically between
+ * {@link #tryOptimisticRead()} and {@link #validate(long)}, which fails if
+ * the write lock was taken in between, and only then map again under the
+ * read lock.
+ */
+public class MapperLock extends ReentrantReadWriteLock {
+
+    private static final long serialVersionUID = 1L;
+
+    // Write locked whenever the write lock of this lock is held
+    private final StampedLock sequence = new StampedLock();
+
+    private final WriteLock writeLock = new SequencedWriteLock(this);
+
+    @Override
+    public WriteLock writeLock() {
+        return writeLock;
+    }
+
+    /**
+     * @return a stamp to validate once the mappers have been read, 0 if the
+     * write lock is held
+     */
+    public long tryOptimisticRead() {
+        return sequence.tryOptimisticRead();
+    }
+
+    /**
+     * @return true if the write lock has not been held since the given stamp
+     * was obtained, in which case what was read from the mappers in between
+     * is consistent
+     */
+    public boolean validate(long stamp) {
+        return stamp != 0 && sequence.validate(stamp);
+    }
+
+    private final class SequencedWriteLock extends WriteLock {
+
+        private static final long serialVersionUID = 1L;
+
+        // Only accessed by the thread holding the write lock
+        private long stamp;
+
+        SequencedWriteLock(ReentrantReadWriteLock lock) {
+            super(lock);
+        }
+
+        @Override
+        public void lock() {
+            super.lock();
+            acquired();
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            super.lockInterruptibly();
+            acquired();
+        }
+
+        @Override
+        public boolean tryLock() {
+            if (super.tryLock()) {
+                acquired();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean tryLock(long timeout, TimeUnit unit) throws InterruptedException {
+            if (super.tryLock(timeout, unit)) {
+                acquired();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void unlock() {
+            if (getHoldCount() == 1) {
+                sequence.unlockWrite(stamp);
+            }
+            super.unlock();
+        }
+
+        private void acquired() {
+            if (getHoldCount() == 1) {
+                stamp = sequence.writeLock();
+            }
+        }
+    }
+}
@@ -647,4 +647,19 @@ public class KernelLoggerInfo {
             level = "INFO")
     public static final String checkpointAutoResumeDone = LOGMSG_PREFIX + "-00096";
 
+    @LogMessageInfo(
+            message = "Loaded {0} applications in {1} ms on {2} threads, for a total load time of {3} ms. Critical path of {4} ms: {5}. Load times:{6}",
+            level = "INFO")
+    public static final String parallelLoadingReport = LOGMSG_PREFIX + "-00097";
+
+    @LogMessageInfo(
+            message = "Reused the cached class model of {0} jar files and parsed {1} jar files, saving {2} ms of parsing, for {3}",
+            level = "FINE")
+    public static final String classModelCacheUsed = LOGMSG_PREFIX + "-00098";
+
+    @LogMessageInfo(
+            message = "Cannot start the {0} container ahead of deployment",
+            level = "WARNING")
+    public static final String cantStartContainerAhead = LOGMSG_PREFIX + "-00099";
+
 }
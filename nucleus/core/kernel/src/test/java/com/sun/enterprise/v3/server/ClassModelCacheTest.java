@@ -0,0 +1,191 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.v3.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.sun.enterprise.deployment.deploy.shared.InputJarArchive;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.glassfish.hk2.classmodel.reflect.AnnotatedElement;
+import org.glassfish.hk2.classmodel.reflect.AnnotationModel;
+import org.glassfish.hk2.classmodel.reflect.ClassModel;
+import org.glassfish.hk2.classmodel.reflect.FieldModel;
+import org.glassfish.hk2.classmodel.reflect.MethodModel;
+import org.glassfish.hk2.classmodel.reflect.Parser;
+import org.glassfish.hk2.classmodel.reflect.ParsingContext;
+import org.glassfish.hk2.classmodel.reflect.Type;
+import org.glassfish.hk2.classmodel.reflect.Types;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ClassModelCacheTest {
+
+    private File directory;
+
+    private File jar;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = File.createTempFile("classmodel", "test");
+        directory.delete();
+        directory.mkdir();
+        // a jar with annotations, annotation defaults and constants
+        jar = new File(Test.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    /**
+     * The types replayed from the cache are the ones obtained by parsing the jar.
+     */
+    @Test
+    public void testReplayBuildsSameTypes() throws Exception {
+        ClassModelCache cache = new ClassModelCache(directory);
+
+        ClassModelCache.Scan first = cache.newScan();
+        Types parsed = parse(first);
+        assertEquals(1, first.getParsed());
+        assertEquals(0, first.getReused());
+        assertEquals(1, directory.listFiles().length);
+
+        ClassModelCache.Scan second = cache.newScan();
+        Types replayed = parse(second);
+        assertEquals(0, second.getParsed());
+        assertEquals(1, second.getReused());
+
+        List<String> expected = describe(parsed);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, describe(replayed));
+    }
+
+    /**
+     * A damaged cache entry is ignored and the jar parsed again.
+     */
+    @Test
+    public void testDamagedEntryIgnored() throws Exception {
+        ClassModelCache cache = new ClassModelCache(directory);
+        List<String> expected = describe(parse(cache.newScan()));
+
+        File entry = directory.listFiles()[0];
+        FileOutputStream os = new FileOutputStream(entry, true);
+        try {
+            os.write(new byte[] {1, 2, 3});
+        } finally {
+            os.close();
+        }
+
+        ClassModelCache.Scan scan = cache.newScan();
+        List<String> types = describe(parse(scan));
+        assertEquals(1, scan.getParsed());
+        assertEquals(0, scan.getReused());
+        assertEquals(expected, types);
+    }
+
+    private Types parse(ClassModelCache.Scan scan) throws IOException, InterruptedException {
+        ParsingContext context = new ParsingContext.Builder().build();
+        Parser parser = new Parser(context);
+        try {
+            InputJarArchive archive = new InputJarArchive();
+            archive.open(jar.toURI());
+            ReadableArchiveScannerAdapter adapter = new ReadableArchiveScannerAdapter(parser, archive, scan);
+            parser.parse(adapter, null);
+            parser.awaitTermination();
+            adapter.close();
+            return context.getTypes();
+        } finally {
+            parser.close();
+        }
+    }
+
+    private static List<String> describe(Types types) {
+        List<String> descriptions = new ArrayList<String>();
+        for (Type type : types.getAllTypes()) {
+            StringBuilder sb = new StringBuilder(type.getName());
+            sb.append(' ').append(type.getDefiningURIs());
+            describe(sb, type);
+            for (MethodModel method : type.getMethods()) {
+                sb.append("\n  ").append(method.getName()).append(method.getSignature());
+                describe(sb, method);
+            }
+            if (type instanceof ClassModel) {
+                for (FieldModel field : ((ClassModel) type).getFields()) {
+                    sb.append("\n  ").append(field.getName()).append(' ').append(field.getType() == null ? null : field.getType().getName());
+                    describe(sb, field);
+                }
+            }
+            descriptions.add(sb.toString());
+        }
+        Collections.sort(descriptions);
+        return descriptions;
+    }
+
+    private static void describe(StringBuilder sb, AnnotatedElement element) {
+        List<String> annotations = new ArrayList<String>();
+        for (AnnotationModel annotation : element.getAnnotations()) {
+            StringBuilder values = new StringBuilder();
+            for (Map.Entry<String, Object> value : annotation.getValues().entrySet()) {
+                Object v = value.getValue();
+                values.append(value.getKey()).append('=').append(
+                        v instanceof Object[] ? Arrays.deepToString((Object[]) v) : String.valueOf(v));
+            }
+            annotations.add(" @" + annotation.getType().getName() + "(" + values + ")");
+        }
+        Collections.sort(annotations);
+        for (String annotation : annotations) {
+            sb.append(annotation);
+        }
+    }
+}
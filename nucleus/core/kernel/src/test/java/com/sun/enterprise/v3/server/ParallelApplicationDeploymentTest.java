@@ -0,0 +1,202 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.v3.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.glassfish.api.ActionReport;
+import org.glassfish.api.admin.ServerEnvironment;
+import org.glassfish.api.container.Sniffer;
+import org.glassfish.api.deployment.DeployCommandParameters;
+import org.glassfish.api.deployment.UndeployCommandParameters;
+import org.glassfish.config.support.GlassFishDocument;
+import org.glassfish.hk2.api.ActiveDescriptor;
+import org.glassfish.hk2.api.ServiceLocator;
+import org.glassfish.hk2.utilities.BuilderHelper;
+import org.glassfish.hk2.utilities.ServiceLocatorUtilities;
+import org.glassfish.internal.data.ContainerRegistry;
+import org.glassfish.internal.data.EngineInfo;
+import org.glassfish.internal.deployment.Deployment;
+import org.glassfish.internal.deployment.ExtendedDeploymentContext;
+import org.glassfish.tests.kernel.deployment.container.FakeSniffer;
+import org.glassfish.tests.utils.ConfigApiTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.jvnet.hk2.config.DomDocument;
+
+import com.sun.enterprise.config.serverbeans.Server;
+
+/**
+ * Deploys applications through the ParallelApplicationLoader the way
+ * ApplicationLoaderService does at startup, with their container started
+ * ahead of time by the ContainerStarter.
+ */
+public class ParallelApplicationDeploymentTest extends ConfigApiTest {
+
+    private static final String[] APPLICATIONS = { "parallelApp1", "parallelApp2" };
+
+    private ServiceLocator habitat;
+
+    private Logger logger;
+
+    private final Map<String, File> sources = new ConcurrentHashMap<String, File>();
+
+    private final Map<String, ActionReport> reports = new ConcurrentHashMap<String, ActionReport>();
+
+    public String getFileName() {
+        return "DomainTest";
+    }
+
+    @Override
+    public DomDocument getDocument(ServiceLocator habitat) {
+        DomDocument doc = habitat.getService(GlassFishDocument.class);
+        if (doc == null) {
+            return new GlassFishDocument(habitat, Executors.newCachedThreadPool(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = Executors.defaultThreadFactory().newThread(r);
+                    t.setDaemon(true);
+                    return t;
+                }
+            }));
+        }
+        return doc;
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        habitat = getHabitat();
+        if (habitat.getService(Server.class, ServerEnvironment.DEFAULT_INSTANCE_NAME) == null) {
+            Server server = habitat.getService(Server.class, "server");
+            ActiveDescriptor<Server> descriptor = BuilderHelper.createConstantDescriptor(server,
+                    ServerEnvironment.DEFAULT_INSTANCE_NAME, Server.class);
+            ServiceLocatorUtilities.addOneDescriptor(habitat, descriptor);
+        }
+        logger = Logger.getAnonymousLogger();
+        logger.setLevel(Level.OFF);
+
+        for (String name : APPLICATIONS) {
+            File source = File.createTempFile(name, "tmp");
+            source.delete();
+            source.mkdirs();
+            sources.put(name, source);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        Deployment deployment = habitat.getService(Deployment.class);
+        for (Map.Entry<String, File> entry : sources.entrySet()) {
+            if (deployment.get(entry.getKey()) != null) {
+                UndeployCommandParameters params = new UndeployCommandParameters(entry.getKey());
+                params.target = "server";
+                ActionReport report = habitat.getService(ActionReport.class, "hk2-agent");
+                try {
+                    ExtendedDeploymentContext dc = deployment.getBuilder(logger, params, report)
+                            .source(entry.getValue()).build();
+                    deployment.undeploy(entry.getKey(), dc);
+                } catch (IOException e) {
+                    // the temporary directories are deleted anyway
+                }
+            }
+            entry.getValue().delete();
+        }
+    }
+
+    /**
+     * Two applications deployed in parallel are both loaded, with a single
+     * container started for them.
+     */
+    @Test
+    public void testDeployInParallel() throws Exception {
+        Sniffer sniffer = habitat.getService(FakeSniffer.class);
+        habitat.getService(ContainerStarter.class).startContainers(Collections.singleton(sniffer));
+        ContainerRegistry containerRegistry = habitat.getService(ContainerRegistry.class);
+        EngineInfo engineInfo = containerRegistry.getContainer(sniffer.getContainersNames()[0]);
+        assertNotNull(engineInfo);
+        assertNotNull(engineInfo.getDeployer());
+
+        ParallelApplicationLoader loader = new ParallelApplicationLoader(APPLICATIONS.length, logger);
+        for (final String name : APPLICATIONS) {
+            loader.add(name, new Runnable() {
+                public void run() {
+                    deploy(name);
+                }
+            }, Collections.<String>emptyList());
+        }
+        loader.loadAll();
+
+        Deployment deployment = habitat.getService(Deployment.class);
+        for (String name : APPLICATIONS) {
+            assertEquals(name, ActionReport.ExitCode.SUCCESS, reports.get(name).getActionExitCode());
+            assertNotNull(name, deployment.get(name));
+        }
+        assertEquals(engineInfo, containerRegistry.getContainer(sniffer.getContainersNames()[0]));
+    }
+
+    private void deploy(String name) {
+        Deployment deployment = habitat.getService(Deployment.class);
+        DeployCommandParameters params = new DeployCommandParameters(sources.get(name));
+        params.name = name;
+        params.target = "server";
+        params.origin = DeployCommandParameters.Origin.load;
+        ActionReport report = habitat.getService(ActionReport.class, "hk2-agent");
+        reports.put(name, report);
+        try {
+            ExtendedDeploymentContext dc = deployment.getBuilder(logger, params, report)
+                    .source(sources.get(name)).build();
+            deployment.deploy(Collections.singletonList(habitat.getService(FakeSniffer.class)), dc);
+        } catch (IOException e) {
+            report.failure(logger, "Cannot deploy " + name, e);
+        }
+    }
+}
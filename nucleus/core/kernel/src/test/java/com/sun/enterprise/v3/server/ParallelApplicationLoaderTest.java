@@ -0,0 +1,171 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.v3.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelApplicationLoaderTest {
+
+    private final List<String> loaded = new CopyOnWriteArrayList<String>();
+
+    private Logger logger;
+
+    @Before
+    public void setUp() {
+        loaded.clear();
+        logger = Logger.getAnonymousLogger();
+        logger.setLevel(Level.OFF);
+    }
+
+    /**
+     * Applications are only loaded after the ones they depend on.
+     */
+    @Test
+    public void testDependenciesLoadedFirst() throws Exception {
+        ParallelApplicationLoader loader = new ParallelApplicationLoader(4, logger);
+        loader.add("a", load("a", 20), Collections.<String>emptyList());
+        loader.add("b", load("b", 0), Arrays.asList("a"));
+        loader.add("c", load("c", 0), Arrays.asList("a", "b"));
+        loader.add("d", load("d", 0), Collections.<String>emptyList());
+        loader.loadAll();
+
+        assertEquals(4, loaded.size());
+        assertTrue(loaded.indexOf("a") < loaded.indexOf("b"));
+        assertTrue(loaded.indexOf("b") < loaded.indexOf("c"));
+    }
+
+    /**
+     * Independent applications are loaded at the same time.
+     */
+    @Test
+    public void testIndependentLoadedConcurrently() throws Exception {
+        final CountDownLatch both = new CountDownLatch(2);
+        Runnable meet = new Runnable() {
+            public void run() {
+                both.countDown();
+                try {
+                    assertTrue(both.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                loaded.add(Thread.currentThread().getName());
+            }
+        };
+        ParallelApplicationLoader loader = new ParallelApplicationLoader(2, logger);
+        loader.add("a", meet, Collections.<String>emptyList());
+        loader.add("b", meet, Collections.<String>emptyList());
+        loader.loadAll();
+
+        assertEquals(0, both.getCount());
+        assertEquals(2, loaded.size());
+    }
+
+    /**
+     * The failure of an application does not prevent the applications
+     * depending on it from being loaded.
+     */
+    @Test
+    public void testFailureDoesNotBlockDependents() throws Exception {
+        ParallelApplicationLoader loader = new ParallelApplicationLoader(2, logger);
+        loader.add("a", new Runnable() {
+            public void run() {
+                throw new IllegalStateException("a failed");
+            }
+        }, Collections.<String>emptyList());
+        loader.add("b", load("b", 0), Arrays.asList("a"));
+        loader.loadAll();
+
+        assertEquals(Arrays.asList("b"), loaded);
+        assertTrue(loader.getLoadTime("a") >= 0);
+    }
+
+    /**
+     * The critical path is the chain of dependencies with the longest total
+     * load time.
+     */
+    @Test
+    public void testCriticalPath() throws Exception {
+        ParallelApplicationLoader loader = new ParallelApplicationLoader(4, logger);
+        loader.add("a", load("a", 100), Collections.<String>emptyList());
+        loader.add("b", load("b", 10), Collections.<String>emptyList());
+        loader.add("c", load("c", 10), Arrays.asList("b"));
+        loader.add("d", load("d", 100), Arrays.asList("a"));
+        loader.add("e", load("e", 10), Arrays.asList("b", "c"));
+        loader.loadAll();
+
+        assertEquals(Arrays.asList("a", "d"), loader.getCriticalPath());
+        assertTrue(loader.getCriticalPathTime() >= 200);
+        assertTrue(loader.getTotalTime() >= loader.getCriticalPathTime());
+        loader.logReport();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownDependency() {
+        ParallelApplicationLoader loader = new ParallelApplicationLoader(1, logger);
+        loader.add("a", load("a", 0), Arrays.asList("b"));
+    }
+
+    private Runnable load(final String name, final long millis) {
+        return new Runnable() {
+            public void run() {
+                try {
+                    Thread.sleep(millis);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                loaded.add(name);
+            }
+        };
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.v3.services.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.glassfish.grizzly.http.server.util.MappingData;
+import org.glassfish.grizzly.http.util.DataChunk;
+import org.glassfish.internal.grizzly.ContextMapper;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the optimistic mapping of the requests.
+ */
+public class ContainerMapperTest {
+
+    private final MapperLock lock = new MapperLock();
+
+    private final DataChunk serverName = DataChunk.newInstance();
+
+    private final DataChunk decodedURI = DataChunk.newInstance();
+
+    private final MappingData mappingData = new MappingData();
+
+    @Before
+    public void setUp() {
+        serverName.setString("localhost");
+        char[] uri = "/app/index.html".toCharArray();
+        decodedURI.setChars(uri, 0, uri.length);
+    }
+
+    /**
+     * Without concurrent writes a request is mapped once, without the read
+     * lock.
+     */
+    @Test
+    public void testOptimisticMapping() throws Exception {
+        RecordingMapper mapper = new RecordingMapper(false, false);
+        ContainerMapper.map(lock, mapper, serverName, decodedURI, mappingData);
+        assertEquals(1, mapper.readHoldCounts.size());
+        assertEquals(0, mapper.readHoldCounts.get(0).intValue());
+        assertEquals(0, lock.getReadLockCount());
+    }
+
+    /**
+     * A write while mapping discards the mapping, which is done again under
+     * the read lock.
+     */
+    @Test
+    public void testFallbackToReadLock() throws Exception {
+        RecordingMapper mapper = new RecordingMapper(true, false);
+        ContainerMapper.map(lock, mapper, serverName, decodedURI, mappingData);
+        assertEquals(2, mapper.readHoldCounts.size());
+        assertEquals(0, mapper.readHoldCounts.get(0).intValue());
+        assertEquals(1, mapper.readHoldCounts.get(1).intValue());
+        assertEquals("/app/index.html", decodedURI.toString());
+        assertNull(mappingData.context);
+        assertEquals(0, lock.getReadLockCount());
+    }
+
+    /**
+     * What a mapper being updated throws is not reported, the request is
+     * mapped again under the read lock.
+     */
+    @Test
+    public void testFailureWhileWritingIgnored() throws Exception {
+        RecordingMapper mapper = new RecordingMapper(true, true);
+        ContainerMapper.map(lock, mapper, serverName, decodedURI, mappingData);
+        assertEquals(2, mapper.readHoldCounts.size());
+        assertEquals(1, mapper.readHoldCounts.get(1).intValue());
+    }
+
+    /**
+     * What a mapper throws without a concurrent write is reported.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testFailureWithoutWriteReported() throws Exception {
+        RecordingMapper mapper = new RecordingMapper(false, true);
+        ContainerMapper.map(lock, mapper, serverName, decodedURI, mappingData);
+    }
+
+    /**
+     * No optimistic mapping is attempted while the write lock is held.
+     */
+    @Test
+    public void testWriteLockHeld() throws Exception {
+        RecordingMapper mapper = new RecordingMapper(false, false);
+        lock.writeLock().lock();
+        try {
+            ContainerMapper.map(lock, mapper, serverName, decodedURI, mappingData);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        assertEquals(1, mapper.readHoldCounts.size());
+        assertEquals(1, mapper.readHoldCounts.get(0).intValue());
+    }
+
+    /**
+     * Records the read hold count of each mapping and optionally has
+     * another thread take the write lock during the first one, which then
+     * leaves the URI and the mapping data half updated or fails.
+     */
+    private final class RecordingMapper extends ContextMapper {
+
+        private final boolean write;
+
+        private final boolean fail;
+
+        final List<Integer> readHoldCounts = new ArrayList<Integer>();
+
+        RecordingMapper(boolean write, boolean fail) {
+            this.write = write;
+            this.fail = fail;
+        }
+
+        @Override
+        public void map(DataChunk host, DataChunk uri, MappingData data)
+                throws Exception {
+            readHoldCounts.add(lock.getReadHoldCount());
+            if (readHoldCounts.size() > 1) {
+                return;
+            }
+            if (write) {
+                Thread writer = new Thread() {
+                    @Override
+                    public void run() {
+                        lock.writeLock().lock();
+                        lock.writeLock().unlock();
+                    }
+                };
+                writer.start();
+                writer.join();
+            }
+            if (fail) {
+                throw new IllegalStateException();
+            }
+            uri.getCharChunk().setStart(uri.getCharChunk().getEnd());
+            data.context = this;
+        }
+    }
+}
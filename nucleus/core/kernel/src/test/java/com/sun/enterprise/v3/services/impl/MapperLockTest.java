@@ -0,0 +1,158 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.v3.services.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class MapperLockTest {
+
+    private final MapperLock lock = new MapperLock();
+
+    /**
+     * A stamp stays valid as long as the write lock is not taken.
+     */
+    @Test
+    public void testValidateWithoutWrite() {
+        long stamp = lock.tryOptimisticRead();
+        assertTrue(stamp != 0);
+        assertTrue(lock.validate(stamp));
+        lock.readLock().lock();
+        lock.readLock().unlock();
+        assertTrue(lock.validate(stamp));
+    }
+
+    /**
+     * No stamp is handed out while the write lock is held, however deeply
+     * nested, and the stamps taken before never validate again.
+     */
+    @Test
+    public void testNestedWriteLock() {
+        long before = lock.tryOptimisticRead();
+        lock.writeLock().lock();
+        assertEquals(1, lock.getWriteHoldCount());
+        assertEquals(0, lock.tryOptimisticRead());
+        lock.writeLock().lock();
+        assertTrue(lock.writeLock().tryLock());
+        assertEquals(3, lock.getWriteHoldCount());
+        lock.writeLock().unlock();
+        lock.writeLock().unlock();
+        assertEquals(1, lock.getWriteHoldCount());
+        assertEquals(0, lock.tryOptimisticRead());
+        assertFalse(lock.validate(before));
+        lock.writeLock().unlock();
+        assertEquals(0, lock.getWriteHoldCount());
+        assertFalse(lock.isWriteLocked());
+        assertFalse(lock.validate(before));
+        long after = lock.tryOptimisticRead();
+        assertTrue(after != 0);
+        assertTrue(lock.validate(after));
+    }
+
+    /**
+     * The timed and interruptible acquisitions sequence the lock too.
+     */
+    @Test
+    public void testTimedAndInterruptibleWriteLock() throws Exception {
+        long stamp = lock.tryOptimisticRead();
+        assertTrue(lock.writeLock().tryLock(1, TimeUnit.SECONDS));
+        lock.writeLock().lockInterruptibly();
+        assertEquals(0, lock.tryOptimisticRead());
+        lock.writeLock().unlock();
+        lock.writeLock().unlock();
+        assertFalse(lock.validate(stamp));
+        assertTrue(lock.tryOptimisticRead() != 0);
+    }
+
+    /**
+     * A write by another thread between the stamp and its validation is
+     * detected, even once that thread has released the write lock.
+     */
+    @Test
+    public void testValidateFailsAcrossConcurrentWrite() throws Exception {
+        long stamp = lock.tryOptimisticRead();
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                lock.writeLock().lock();
+                lock.writeLock().unlock();
+            }
+        };
+        writer.start();
+        writer.join();
+        assertFalse(lock.validate(stamp));
+    }
+
+    /**
+     * A failed tryLock, as while another thread holds the write lock, leaves
+     * the sequence alone.
+     */
+    @Test
+    public void testFailedTryLock() throws Exception {
+        lock.readLock().lock();
+        try {
+            final boolean[] locked = new boolean[1];
+            Thread writer = new Thread() {
+                @Override
+                public void run() {
+                    locked[0] = lock.writeLock().tryLock();
+                }
+            };
+            long stamp = lock.tryOptimisticRead();
+            writer.start();
+            writer.join();
+            assertFalse(locked[0]);
+            assertTrue(lock.validate(stamp));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Test
+    public void testZeroStampNeverValidates() {
+        assertFalse(lock.validate(0));
+    }
+}
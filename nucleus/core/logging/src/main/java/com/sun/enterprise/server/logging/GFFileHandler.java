@@ -47,18 +47,30 @@ import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.text.FieldPosition;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 import java.util.ResourceBundle;
 import java.util.Vector;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.ErrorManager;
 import java.util.logging.Formatter;
 import java.util.logging.Level;
@@ -84,6 +96,7 @@ import com.sun.appserv.server.util.Version;
 import com.sun.common.util.logging.BooleanLatch;
 import com.sun.enterprise.admin.monitor.callflow.Agent;
 import com.sun.enterprise.module.bootstrap.EarlyLogHandler;
+import com.sun.enterprise.server.logging.logviewer.backend.LogIndex;
 import com.sun.enterprise.util.LocalStringManagerImpl;
 import com.sun.enterprise.util.io.FileUtils;
 import com.sun.enterprise.v3.logging.AgentFormatterDelegate;
@@ -142,6 +155,62 @@ PostConstruct, PreDestroy, LogEventBroadcaster, LoggingRuntime {
 
     private BlockingQueue<LogRecord> pendingRecords = new ArrayBlockingQueue<LogRecord>(5000);
 
+    /**
+     * What publish() does with a record when the batch writer's ring buffer
+     * is full.
+     * BLOCK waits for a free slot.
+     * DROP discards records below the overflow level and waits for the others.
+     * SAMPLE keeps one in every sampleRate records below the overflow level
+     * and waits for the others.
+     */
+    enum OverflowPolicy { BLOCK, DROP, SAMPLE }
+
+    private static final int DEFAULT_BATCH_WRITER_CAPACITY = 16384;
+
+    private static final int BATCH_BUFFER_SIZE = 64 * 1024;
+
+    private static final long PRODUCER_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private static final long PUMP_POLL_MILLIS = 100;
+
+    // The batch writer replaces pendingRecords when batchWriter=true is
+    // configured. Records are queued in a lock-free ring buffer, formatted
+    // by the pump into a reused direct buffer and written to the file
+    // channel once per batch instead of once per record.
+    private MpscRingBuffer<LogRecord> ringBuffer;
+
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+    private Level overflowLevel = Level.WARNING;
+
+    private int overflowSampleRate = 10;
+
+    // records below the overflow level that found the buffer full, SAMPLE
+    // keeps every overflowSampleRate-th of them
+    private final AtomicLong sampledRecords = new AtomicLong();
+
+    private final AtomicLong droppedRecords = new AtomicLong();
+
+    // only accessed by the pump
+    private long reportedDroppedRecords;
+
+    private ByteBuffer batchBuffer;
+
+    private CharsetEncoder batchEncoder;
+
+    private String batchEncoding;
+
+    // The sparse index of the log file that lets the log viewer position on
+    // a record and skip segments without parsing the whole file. Created by
+    // the pump once the formatter is known to be one the log viewer parses.
+    private boolean logIndexEnabled = true;
+
+    private File indexedLogFile;
+
+    private LogIndexWriter indexWriter;
+
+    private String excludeFields;
+
     // Rotation can be done in 3 ways
     // 1. Based on the Size: Rotate when some Threshold number of bytes are 
     //    written to server.log
@@ -201,6 +270,13 @@ PostConstruct, PreDestroy, LogEventBroadcaster, LoggingRuntime {
             serverLog = new File(env.getDomainRoot(), filename);
             absoluteServerLogName = env.getDomainRoot() + File.separator + filename;
         }
+
+        configureBatchWriter(manager, cname);
+        String logIndexProperty = manager.getProperty(cname + ".logIndex");
+        if (logIndexProperty != null) {
+            logIndexEnabled = Boolean.parseBoolean(logIndexProperty);
+        }
+        excludeFields = manager.getProperty(LogManagerService.EXCLUDE_FIELDS_PROPERTY);
         changeFileName(serverLog);
 
         // Reading just few lines of log file to get the log fomatter used.
@@ -392,7 +468,6 @@ PostConstruct, PreDestroy, LogEventBroadcaster, LoggingRuntime {
             rotate();
         }
         
-        String excludeFields = manager.getProperty(LogManagerService.EXCLUDE_FIELDS_PROPERTY);
         boolean multiLineMode = Boolean.parseBoolean(manager.getProperty(LogManagerService.MULTI_LINE_MODE_PROPERTY));
                 
         if (UniformLogFormatter.class.getName().equals(formatterName)) {
@@ -448,6 +523,79 @@ PostConstruct, PreDestroy, LogEventBroadcaster, LoggingRuntime {
 
     }
 
+    private void configureBatchWriter(LogManager manager, String cname) {
+        if (!Boolean.parseBoolean(manager.getProperty(cname + ".batchWriter"))) {
+            return;
+        }
+
+        int capacity = DEFAULT_BATCH_WRITER_CAPACITY;
+        String propValue = manager.getProperty(cname + ".batchWriterCapacity");
+        if (propValue != null) {
+            try {
+                capacity = Integer.parseInt(propValue);
+            } catch (NumberFormatException e) {
+                reportInvalidAttribute(propValue, "batchWriterCapacity");
+            }
+        }
+        if (capacity <= 0) {
+            capacity = DEFAULT_BATCH_WRITER_CAPACITY;
+        }
+
+        OverflowPolicy policy = OverflowPolicy.BLOCK;
+        propValue = manager.getProperty(cname + ".batchWriterOverflowPolicy");
+        if (propValue != null) {
+            try {
+                policy = OverflowPolicy.valueOf(propValue.trim().toUpperCase(Locale.ENGLISH));
+            } catch (IllegalArgumentException e) {
+                reportInvalidAttribute(propValue, "batchWriterOverflowPolicy");
+            }
+        }
+
+        Level level = Level.WARNING;
+        propValue = manager.getProperty(cname + ".batchWriterOverflowLevel");
+        if (propValue != null) {
+            try {
+                level = Level.parse(propValue.trim());
+            } catch (IllegalArgumentException e) {
+                reportInvalidAttribute(propValue, "batchWriterOverflowLevel");
+            }
+        }
+
+        int sampleRate = 10;
+        propValue = manager.getProperty(cname + ".batchWriterSampleRate");
+        if (propValue != null) {
+            try {
+                sampleRate = Integer.parseInt(propValue);
+            } catch (NumberFormatException e) {
+                reportInvalidAttribute(propValue, "batchWriterSampleRate");
+            }
+        }
+
+        enableBatchWriter(capacity, policy, level, sampleRate);
+    }
+
+    private void reportInvalidAttribute(String propValue, String attributeName) {
+        LogRecord lr = new LogRecord(Level.WARNING, LogFacade.INVALID_ATTRIBUTE_VALUE);
+        lr.setParameters(new Object[]{propValue, attributeName});
+        lr.setResourceBundle(ResourceBundle.getBundle(LogFacade.LOGGING_RB_NAME));
+        lr.setThreadID((int) Thread.currentThread().getId());
+        lr.setLoggerName(LogFacade.LOGGING_LOGGER_NAME);
+        EarlyLogHandler.earlyMessages.add(lr);
+    }
+
+    /**
+     * Switches this handler to the batch writer. Must be called before the
+     * log file is opened and the pump is started.
+     */
+    void enableBatchWriter(int capacity, OverflowPolicy policy,
+            Level level, int sampleRate) {
+        ringBuffer = new MpscRingBuffer<LogRecord>(capacity);
+        overflowPolicy = policy;
+        overflowLevel = level;
+        overflowSampleRate = (sampleRate <= 0) ? 1 : sampleRate;
+        batchBuffer = ByteBuffer.allocateDirect(BATCH_BUFFER_SIZE);
+    }
+
     Formatter findFormatterService(String formatterName) {
         List<Formatter> formatterServices = habitat.getAllServices(Formatter.class);
         for (Formatter formatter : formatterServices) {
@@ -537,7 +685,11 @@ PostConstruct, PreDestroy, LogEventBroadcaster, LoggingRuntime {
             public void run() {
                 while (!done.isSignalled()) {
                     try {
-                        log();
+                        if (ringBuffer != null) {
+                            logBatch();
+                        } else {
+                            log();
+                        }
                     } catch (Exception e) {
                         // GLASSFISH-19125
                         // Continue the loop without exiting
@@ -555,6 +707,35 @@ PostConstruct, PreDestroy, LogEventBroadcaster, LoggingRuntime {
             LogFacade.LOGGING_LOGGER.fine("Logger handler killed");            
         }
         done.tryReleaseShared(1);
+
+        if (ringBuffer != null) {
+            // Interrupting the pump could close the file channel in the
+            // middle of a write, so let it finish its current batch and
+            // then take over as the single consumer of the ring buffer.
+            LockSupport.unpark(pump);
+            try {
+                pump.join(PUMP_POLL_MILLIS * 10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!pump.isAlive()) {
+                writeBatch();
+            } else {
+                // still stuck in a write, the records it has not taken yet
+                // are lost
+                int pending = ringBuffer.size();
+                if (pending > 0) {
+                    droppedRecords.addAndGet(pending);
+                    reportError("Log handler closed with " + pending
+                            + " record(s) not written", null, ErrorManager.CLOSE_FAILURE);
+                }
+            }
+            synchronized (rotationLock) {
+                closeIndexWriter();
+            }
+            return;
+        }
+
         pump.interrupt();
 
         // drain and return
@@ -562,10 +743,15 @@ PostConstruct, PreDestroy, LogEventBroadcaster, LoggingRuntime {
         if (size > 0) {
             Collection<LogRecord> records = new ArrayList<LogRecord>(size);
             pendingRecords.drainTo(records, size);
-            for (LogRecord record : records) {
-                super.publish(record);
+            synchronized (rotationLock) {
+                for (LogRecord record : records) {
+                    publishAndIndex(record);
+                }
             }
         }
+        synchronized (rotationLock) {
+            closeIndexWriter();
+        }
 
     }
 
@@ -629,6 +815,7 @@ PostConstruct, PreDestroy, LogEventBroadcaster, LoggingRuntime {
         private volatile boolean isOpen = false;
 
         OutputStream out;
+        FileChannel channel;
         long written;
 
         MeteredStream(OutputStream out, long written) {
@@ -637,6 +824,17 @@ PostConstruct, PreDestroy, LogEventBroadcaster, LoggingRuntime {
             isOpen = true;
         }
 
+        MeteredStream(FileOutputStream out, long written) {
+            this((OutputStream) out, written);
+            this.channel = out.getChannel();
+        }
+
+        void write(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+        }
+
         public void write(int b) throws IOException {
             out.write(b);
             written++;
@@ -677,9 +875,16 @@ PostConstruct, PreDestroy, LogEventBroadcaster, LoggingRuntime {
             throw new IOException(LOCAL_STRINGS.getLocalString("parent.dir.create.failed", 
                     "Failed to create the parent dir {0}", parent.getAbsolutePath()));
         }
+        closeIndexWriter();
+        indexedLogFile = file;
         FileOutputStream fout = new FileOutputStream(file, true);
-        BufferedOutputStream bout = new BufferedOutputStream(fout);
-        meter = new MeteredStream(bout, file.length());
+        if (ringBuffer != null) {
+            // the batch writer does its own buffering
+            meter = new MeteredStream(fout, file.length());
+        } else {
+            BufferedOutputStream bout = new BufferedOutputStream(fout);
+            meter = new MeteredStream(bout, file.length());
+        }
         setOutputStream(meter);        
     }
 
@@ -709,7 +914,8 @@ PostConstruct, PreDestroy, LogEventBroadcaster, LoggingRuntime {
             ArrayList candidates = new ArrayList();
             for (int i = 0; fset != null && i < fset.length; i++) {
                 if (!LOG_FILE_NAME.equals(fset[i].getName()) && fset[i].isFile()
-                        && fset[i].getName().startsWith(LOG_FILE_NAME)) {
+                        && fset[i].getName().startsWith(LOG_FILE_NAME)
+                        && !LogIndex.isIndexFile(fset[i].getName())) {
                     candidates.add(fset[i].getAbsolutePath());
                 }
             }
@@ -725,6 +931,7 @@ PostConstruct, PreDestroy, LogEventBroadcaster, LoggingRuntime {
                         throw new IOException("Could not delete log file: "
                                 + logFile.getAbsolutePath());
                     }
+                    LogIndex.getIndexFile(logFile).delete();
                 }
             } catch (Exception e) {
                 new ErrorManager().error(
@@ -751,6 +958,7 @@ PostConstruct, PreDestroy, LogEventBroadcaster, LoggingRuntime {
                             }
                             thisInstance.flush();
                             thisInstance.close();
+                            thisInstance.closeIndexWriter();
                             try {
                                 if (!absoluteFile.exists()) {
                                     File creatingDeletedLogFile = new File(
@@ -786,6 +994,7 @@ PostConstruct, PreDestroy, LogEventBroadcaster, LoggingRuntime {
                                     FileOutputStream oldFileFO = new FileOutputStream(
                                             oldFile);
                                     oldFileFO.close();
+                                    LogIndexWriter.rotated(oldFile, rotatedFile);
                                     openFile(getLogFileName());
                                     absoluteFile = getLogFileName();
                                     // This will ensure that the log rotation timer
@@ -823,19 +1032,26 @@ PostConstruct, PreDestroy, LogEventBroadcaster, LoggingRuntime {
         // take is blocking so we take one record off the queue
         try {
             record = pendingRecords.take();
-            super.publish(record);
         } catch (InterruptedException e) {
             return;
         }
 
-        // now try to read more.  we end up blocking on the above take call if nothing is in the queue
-        Vector<LogRecord> v = new Vector<LogRecord>();
-        int msgs = pendingRecords.drainTo(v, flushFrequency);
-        for (int j = 0; j < msgs; j++) {
-            super.publish(v.get(j));
-        }
+        synchronized (rotationLock) {
+            ensureIndexWriter();
+            publishAndIndex(record);
+
+            // now try to read more.  we end up blocking on the above take call if nothing is in the queue
+            Vector<LogRecord> v = new Vector<LogRecord>();
+            int msgs = pendingRecords.drainTo(v, flushFrequency);
+            for (int j = 0; j < msgs; j++) {
+                publishAndIndex(v.get(j));
+            }
 
-        flush();
+            flush();
+            if (indexWriter != null) {
+                indexWriter.flushed(meter.written);
+            }
+        }
         if ((rotationRequested.get())
                 || ((limitForFileRotation > 0)
                 && (meter.written >= limitForFileRotation))) {
@@ -850,6 +1066,239 @@ PostConstruct, PreDestroy, LogEventBroadcaster, LoggingRuntime {
 
     }
 
+    // Caller must hold rotationLock, so that the record and the index end
+    // up in the same file.
+    private void publishAndIndex(LogRecord record) {
+        super.publish(record);
+        if (indexWriter != null && isLoggable(record)) {
+            indexWriter.recordWritten(record);
+        }
+    }
+
+    // Caller must hold rotationLock.
+    private void ensureIndexWriter() {
+        if (indexWriter != null || !logIndexEnabled || indexedLogFile == null || meter == null) {
+            return;
+        }
+        Formatter formatter = getFormatter();
+        if (!(formatter instanceof UniformLogFormatter)
+                && !(formatter instanceof ODLLogFormatter)) {
+            // the log viewer could not parse the file anyway
+            return;
+        }
+        Charset charset = LogIndex.getCharset(getEncoding());
+        if (!LogIndex.isIndexable(charset)) {
+            return;
+        }
+        boolean indexTime = excludeFields == null
+                || !Arrays.asList(excludeFields.split(",")).contains("timeMillis");
+        indexWriter = new LogIndexWriter(indexedLogFile, meter.written, indexTime, charset);
+    }
+
+    // Caller must hold rotationLock.
+    private void closeIndexWriter() {
+        if (indexWriter == null) {
+            return;
+        }
+        if (meter != null) {
+            indexWriter.flushed(meter.written);
+        }
+        indexWriter.close();
+        indexWriter = null;
+    }
+
+    /**
+     * Batch writer counterpart of log(). Formats every record available in
+     * the ring buffer into the batch buffer and writes it out with as few
+     * channel writes as possible, so that a burst of records costs a single
+     * flush and a single rotation check.
+     */
+    void logBatch() {
+
+        LogRecord record;
+        try {
+            record = ringBuffer.poll(PUMP_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            return;
+        }
+        if (record == null) {
+            return;
+        }
+
+        synchronized (rotationLock) {
+            ensureIndexWriter();
+            synchronized (this) {
+                int msgs = 0;
+                int maxMsgs = ringBuffer.capacity();
+                do {
+                    formatToBatch(record);
+                } while (++msgs < maxMsgs && (record = ringBuffer.poll()) != null);
+
+                if (ringBuffer.isEmpty()) {
+                    reportDroppedRecords();
+                }
+                flushBatchBuffer();
+                if (indexWriter != null) {
+                    indexWriter.flushed(meter.written);
+                }
+            }
+        }
+
+        if ((rotationRequested.get())
+                || ((limitForFileRotation > 0)
+                && (meter.written >= limitForFileRotation))) {
+            synchronized (rotationLock) {
+                rotate();
+                rotationRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * Writes out whatever is left in the ring buffer. Only safe once the pump
+     * has stopped.
+     */
+    private void writeBatch() {
+        synchronized (rotationLock) {
+            ensureIndexWriter();
+            synchronized (this) {
+                LogRecord record;
+                while ((record = ringBuffer.poll()) != null) {
+                    formatToBatch(record);
+                }
+                reportDroppedRecords();
+                flushBatchBuffer();
+                if (indexWriter != null) {
+                    indexWriter.flushed(meter.written);
+                }
+            }
+        }
+    }
+
+    /**
+     * Once the pump has caught up, leaves a trace in the log of the records
+     * the overflow policy has discarded since the last report.
+     */
+    private void reportDroppedRecords() {
+        long dropped = droppedRecords.get();
+        if (dropped == reportedDroppedRecords) {
+            return;
+        }
+        GFLogRecord lr = new GFLogRecord(Level.WARNING, LogFacade.LOG_RECORDS_DROPPED);
+        lr.setParameters(new Object[]{dropped - reportedDroppedRecords});
+        lr.setResourceBundle(ResourceBundle.getBundle(LogFacade.LOGGING_RB_NAME));
+        lr.setThreadID((int) Thread.currentThread().getId());
+        lr.setThreadName(Thread.currentThread().getName());
+        lr.setLoggerName(LogFacade.LOGGING_LOGGER_NAME);
+        reportedDroppedRecords = dropped;
+        formatToBatch(lr);
+    }
+
+    // Caller must hold the lock on this handler.
+    private void formatToBatch(LogRecord record) {
+        if (!isLoggable(record)) {
+            return;
+        }
+        String msg;
+        try {
+            msg = getFormatter().format(record);
+        } catch (Exception ex) {
+            reportError(null, ex, ErrorManager.FORMAT_FAILURE);
+            return;
+        }
+        CharsetEncoder encoder = getBatchEncoder();
+        CharBuffer chars = CharBuffer.wrap(msg);
+        CoderResult result;
+        do {
+            result = encoder.encode(chars, batchBuffer, true);
+            if (result.isOverflow()) {
+                flushBatchBuffer();
+            }
+        } while (result.isOverflow());
+        encoder.reset();
+        if (indexWriter != null) {
+            indexWriter.recordWritten(record);
+            if (meter != null && indexWriter.isSegmentFull(meter.written + batchBuffer.position())) {
+                flushBatchBuffer();
+                indexWriter.flushed(meter.written);
+            }
+        }
+    }
+
+    // Caller must hold the lock on this handler.
+    private void flushBatchBuffer() {
+        batchBuffer.flip();
+        try {
+            if (batchBuffer.hasRemaining() && meter != null && meter.isOpen) {
+                meter.write(batchBuffer);
+            }
+        } catch (IOException ex) {
+            reportError(null, ex, ErrorManager.WRITE_FAILURE);
+        } finally {
+            batchBuffer.clear();
+        }
+    }
+
+    private CharsetEncoder getBatchEncoder() {
+        String encoding = getEncoding();
+        if (batchEncoder == null || (encoding == null
+                ? batchEncoding != null : !encoding.equals(batchEncoding))) {
+            Charset charset = (encoding == null) ? Charset.defaultCharset() : Charset.forName(encoding);
+            batchEncoder = charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            batchEncoding = encoding;
+        }
+        return batchEncoder;
+    }
+
+    /**
+     * Hands the record to the pump through the ring buffer, applying the
+     * overflow policy when the buffer is full.
+     */
+    private void enqueue(LogRecord record) {
+        if (ringBuffer.offer(record)) {
+            return;
+        }
+
+        boolean belowLevel = record.getLevel().intValue() < overflowLevel.intValue();
+        if (belowLevel && overflowPolicy == OverflowPolicy.DROP) {
+            droppedRecords.incrementAndGet();
+            return;
+        }
+        if (belowLevel && overflowPolicy == OverflowPolicy.SAMPLE
+                && sampledRecords.incrementAndGet() % overflowSampleRate != 0) {
+            droppedRecords.incrementAndGet();
+            return;
+        }
+
+        // BLOCK, or a record the policy must keep
+        while (!ringBuffer.offer(record)) {
+            if (done.isSignalled() || Thread.currentThread().isInterrupted()) {
+                // too bad, record is lost...
+                droppedRecords.incrementAndGet();
+                return;
+            }
+            LockSupport.parkNanos(this, PRODUCER_BACKOFF_NANOS);
+        }
+    }
+
+    /**
+     * Number of records published and not yet written by the pump.
+     */
+    public int getPendingRecordCount() {
+        return (ringBuffer != null) ? ringBuffer.size() : pendingRecords.size();
+    }
+
+    /**
+     * Number of records discarded by the batch writer overflow policy, or
+     * lost because the publishing thread was interrupted or the handler shut
+     * down while waiting for room.
+     */
+    public long getDroppedRecordCount() {
+        return droppedRecords.get();
+    }
+
     /**
      * Publishes the logrecord storing it in our queue
      */
@@ -867,16 +1316,20 @@ PostConstruct, PreDestroy, LogEventBroadcaster, LoggingRuntime {
         GFLogRecord recordWrapper = new GFLogRecord(record);
         recordWrapper.setThreadName(Thread.currentThread().getName());
 
-        try {
-            // set the thread id to be the current thread that is logging the message
-//            record.setThreadID((int)Thread.currentThread().getId());
-            pendingRecords.add(recordWrapper);
-        } catch (IllegalStateException e) {
-            // queue is full, start waiting.
+        if (ringBuffer != null) {
+            enqueue(recordWrapper);
+        } else {
             try {
-                pendingRecords.put(recordWrapper);
-            } catch (InterruptedException e1) {
-                // too bad, record is lost...
+                // set the thread id to be the current thread that is logging the message
+//                record.setThreadID((int)Thread.currentThread().getId());
+                pendingRecords.add(recordWrapper);
+            } catch (IllegalStateException e) {
+                // queue is full, start waiting.
+                try {
+                    pendingRecords.put(recordWrapper);
+                } catch (InterruptedException e1) {
+                    // too bad, record is lost...
+                }
             }
         }
         
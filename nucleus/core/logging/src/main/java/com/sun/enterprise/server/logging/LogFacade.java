@@ -116,4 +116,10 @@ public class LogFacade {
     @LogMessageInfo(message = "The formatter class {0} could not be instantiated.", level="WARNING")
     public static final String INVALID_FORMATTER_CLASS_NAME = "NCLS-LOGGING-00013";    
 
+    @LogMessageInfo(message = "{0} log records were discarded because the log file writer could not keep up.", 
+            cause="The batch writer ring buffer was full and the configured overflow policy dropped the records.",
+            action="Increase batchWriterCapacity, lower the log levels or use the BLOCK overflow policy.",
+            level="WARNING")
+    public static final String LOG_RECORDS_DROPPED = "NCLS-LOGGING-00014";
+
 }
@@ -0,0 +1,232 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.server.logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.ErrorManager;
+import java.util.logging.LogRecord;
+
+import com.sun.enterprise.server.logging.logviewer.backend.LogIndex;
+
+/**
+ * Maintains the LogIndex of the file GFFileHandler writes to. The pump
+ * reports every record it writes and the file size after every flush, and
+ * a segment is appended to the index once it spans SEGMENT_BYTES of log.
+ * This keeps the index at a fraction of a percent of the log size.
+ */
+final class LogIndexWriter {
+
+    static final long SEGMENT_BYTES = 64 * 1024;
+
+    // A stale index, e.g. after a crash, is repaired by parsing the part of
+    // the log it does not cover. Beyond this size the log file is not
+    // indexed and the log viewer scans it as before.
+    private static final long MAX_RECOVERY_BYTES = 8 * 1024 * 1024;
+
+    private static final int RECOVERY_RECORDS_PER_SEGMENT = 100;
+
+    private final boolean indexTime;
+
+    private FileChannel channel;
+
+    private LogIndex.Segment current;
+
+    private long nextRecord;
+
+    private long flushedOffset;
+
+    /**
+     * Opens the index of the given log file.
+     *
+     * @param logLength the number of bytes written to the log file so far
+     * @param indexTime false if the formatter does not write the record
+     *                  millis the log viewer filters on
+     * @param charset the charset the log file is written in
+     */
+    LogIndexWriter(File logFile, long logLength, boolean indexTime, Charset charset) {
+        this.indexTime = indexTime;
+        RandomAccessFile raf = null;
+        try {
+            List<LogIndex.Segment> segments = LogIndex.read(logFile, logLength);
+            long indexedLength = 0;
+            if (!segments.isEmpty()) {
+                LogIndex.Segment last = segments.get(segments.size() - 1);
+                indexedLength = last.getEndOffset();
+                nextRecord = last.getLastRecord() + 1;
+            }
+
+            List<LogIndex.Segment> recovered = new ArrayList<LogIndex.Segment>();
+            if (indexedLength < logLength) {
+                if (logLength - indexedLength > MAX_RECOVERY_BYTES) {
+                    return;
+                }
+                LogIndex.scan(logFile, charset, indexedLength, nextRecord,
+                        RECOVERY_RECORDS_PER_SEGMENT, logLength, recovered);
+                long recoveredLength = recovered.isEmpty()
+                        ? indexedLength : recovered.get(recovered.size() - 1).getEndOffset();
+                if (recoveredLength != logLength) {
+                    // the file does not end with a complete record, the
+                    // offsets of the records appended to it would be wrong
+                    return;
+                }
+                if (!recovered.isEmpty()) {
+                    nextRecord = recovered.get(recovered.size() - 1).getLastRecord() + 1;
+                }
+            }
+
+            raf = new RandomAccessFile(LogIndex.getIndexFile(logFile), "rw");
+            channel = raf.getChannel();
+            LogIndex.reset(channel, segments.size());
+            for (LogIndex.Segment segment : recovered) {
+                LogIndex.append(channel, segment);
+            }
+            flushedOffset = logLength;
+        } catch (Exception e) {
+            channel = null;
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (IOException ex) {
+                    // ignore
+                }
+            }
+            new ErrorManager().error("Could not open the index of log file "
+                    + logFile, e, ErrorManager.OPEN_FAILURE);
+        }
+    }
+
+    boolean isOpen() {
+        return channel != null;
+    }
+
+    /**
+     * Accounts for a record written to the log since the last flush.
+     */
+    synchronized void recordWritten(LogRecord record) {
+        if (channel == null) {
+            return;
+        }
+        if (current == null) {
+            current = new LogIndex.Segment(flushedOffset, nextRecord);
+        }
+        current.add(indexTime ? record.getMillis() : 0L,
+                record.getLevel().intValue(), record.getLoggerName());
+        nextRecord++;
+    }
+
+    /**
+     * Whether the segment in progress spans at least a segment worth of
+     * bytes once the log reaches the given offset. Lets a buffering writer
+     * flush at a record boundary so that segments stay small.
+     */
+    synchronized boolean isSegmentFull(long offset) {
+        return channel != null && current != null
+                && offset - current.getOffset() >= SEGMENT_BYTES;
+    }
+
+    /**
+     * Called once the log has been flushed up to the given offset, i.e. when
+     * the records reported so far are all in the file.
+     */
+    synchronized void flushed(long offset) {
+        if (channel == null) {
+            return;
+        }
+        flushedOffset = offset;
+        if (current != null) {
+            current.setEndOffset(offset);
+            if (offset - current.getOffset() >= SEGMENT_BYTES) {
+                appendCurrent();
+            }
+        }
+    }
+
+    /**
+     * Writes out the segment in progress and closes the index.
+     */
+    synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        if (current != null && current.getEndOffset() > current.getOffset()) {
+            appendCurrent();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // ignore
+        }
+        channel = null;
+    }
+
+    private void appendCurrent() {
+        try {
+            LogIndex.append(channel, current);
+            current = null;
+        } catch (IOException e) {
+            new ErrorManager().error("Could not write the log file index", e,
+                    ErrorManager.WRITE_FAILURE);
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                // ignore
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * Moves the index along with a rotated log file. A fresh log file must
+     * not pick up the entries of the old one.
+     */
+    static void rotated(File logFile, File rotatedFile) {
+        File index = LogIndex.getIndexFile(logFile);
+        if (index.exists() && !index.renameTo(LogIndex.getIndexFile(rotatedFile))) {
+            index.delete();
+        }
+    }
+}
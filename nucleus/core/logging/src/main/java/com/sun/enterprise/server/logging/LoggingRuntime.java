@@ -58,5 +58,18 @@ public interface LoggingRuntime {
      * @return
      */
     public File getCurrentLogFile();
+
+    /**
+     * Gets the number of log records waiting to be written to the log file.
+     * @return
+     */
+    public int getPendingRecordCount();
+
+    /**
+     * Gets the number of log records discarded because the log file writer
+     * could not keep up.
+     * @return
+     */
+    public long getDroppedRecordCount();
     
 }
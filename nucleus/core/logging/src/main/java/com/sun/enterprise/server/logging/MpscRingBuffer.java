@@ -0,0 +1,194 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.server.logging;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded, lock-free queue for many producers and a single consumer.
+ * <p/>
+ * Producers claim a slot by a CAS on the tail counter and publish the element
+ * by advancing the per-slot sequence number, so a full buffer never blocks a
+ * producer inside the queue: <code>offer</code> simply returns false and the
+ * caller decides what to do with the element. The consumer is the only thread
+ * that advances the head and is parked while the buffer is empty; producers
+ * unpark it only when it has announced that it is waiting.
+ */
+final class MpscRingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    // only written by the consumer, volatile so that size() is safe from any thread
+    private volatile long head;
+
+    private volatile Thread consumer;
+    private volatile boolean consumerWaiting;
+
+    MpscRingBuffer(int requestedCapacity) {
+        if (requestedCapacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + requestedCapacity);
+        }
+        // a single slot cannot tell a published element from a free slot
+        int size = 2;
+        while (size < requestedCapacity) {
+            size <<= 1;
+        }
+        capacity = size;
+        mask = size - 1;
+        elements = new AtomicReferenceArray<E>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds the element if a slot is free.
+     *
+     * @return false if the buffer is full
+     */
+    boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        long pos = tail.get();
+        for (;;) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    elements.lazySet(index, e);
+                    sequences.set(index, pos + 1);
+                    if (consumerWaiting) {
+                        LockSupport.unpark(consumer);
+                    }
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                // the slot still holds an element from the previous lap
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Retrieves and removes the head element. Must only be called by the
+     * consumer thread.
+     *
+     * @return the head element or null if none has been published yet
+     */
+    E poll() {
+        long pos = head;
+        int index = (int) (pos & mask);
+        if (sequences.get(index) != pos + 1) {
+            return null;
+        }
+        E e = elements.get(index);
+        elements.lazySet(index, null);
+        sequences.lazySet(index, pos + capacity);
+        head = pos + 1;
+        return e;
+    }
+
+    /**
+     * Waits up to the given time for the next element, parking the calling
+     * (consumer) thread while the buffer is empty.
+     *
+     * @return the head element or null if the waiting time elapsed
+     * @throws InterruptedException if the consumer is interrupted while waiting
+     */
+    E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E e = poll();
+        if (e != null) {
+            return e;
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        consumer = Thread.currentThread();
+        consumerWaiting = true;
+        try {
+            while ((e = poll()) == null) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return null;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+        } finally {
+            consumerWaiting = false;
+        }
+        return e;
+    }
+
+    /**
+     * Number of elements claimed by producers and not yet consumed. This is
+     * an estimate while producers are active.
+     */
+    int size() {
+        long size = tail.get() - head;
+        if (size < 0) {
+            return 0;
+        }
+        return (int) Math.min(size, capacity);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+}
@@ -148,7 +148,13 @@ public class SetLogAttributes implements AdminCommand {
             "com.sun.enterprise.server.logging.GFFileHandler.rotationOnDateChange",
             "com.sun.enterprise.server.logging.GFFileHandler.logFormatDateFormat",
             "com.sun.enterprise.server.logging.GFFileHandler.excludeFields",
-            "com.sun.enterprise.server.logging.GFFileHandler.multiLineMode"};
+            "com.sun.enterprise.server.logging.GFFileHandler.multiLineMode",
+            "com.sun.enterprise.server.logging.GFFileHandler.batchWriter",
+            "com.sun.enterprise.server.logging.GFFileHandler.batchWriterCapacity",
+            "com.sun.enterprise.server.logging.GFFileHandler.batchWriterOverflowPolicy",
+            "com.sun.enterprise.server.logging.GFFileHandler.batchWriterOverflowLevel",
+            "com.sun.enterprise.server.logging.GFFileHandler.batchWriterSampleRate",
+            "com.sun.enterprise.server.logging.GFFileHandler.logIndex"};
 
     final private static LocalStringManagerImpl localStrings = new LocalStringManagerImpl(SetLogLevel.class);
 
@@ -46,6 +46,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -68,6 +70,11 @@ import com.sun.enterprise.server.logging.parser.ParsedLogRecord;
  * getIndexSize() returns the number of records between each index.
  * getLastIndexNumber returns the last index.</P>
  *
+ * <P>Records are located through a LogIndex: the on-disk index maintained
+ * by GFFileHandler if there is one, extended by parsing whatever part of
+ * the file it does not cover. Only the segments holding the requested
+ * records are read and parsed.</P>
+ *
  * @AUTHOR: Hemanth Puttaswamy and Ken Paulsen
  * <p/>
  * <P>This class also contains an inner class for storing LogEntry
@@ -84,8 +91,16 @@ public class LogFile implements java.io.Serializable {
      * Constructor
      */
     public LogFile(String name) {
+        this(name, null);
+    }
+
+    /**
+     * @param encoding the encoding the log file is written in, the default
+     *                 one if null
+     */
+    public LogFile(String name, String encoding) {
         _logFileName = name;
-        _recordIdx.add(Long.valueOf(0));
+        _encoding = encoding;
     }
 
     /**
@@ -105,17 +120,51 @@ public class LogFile implements java.io.Serializable {
      * @param    startingRecord    The starting point to search for LogEntries
      * @param    maxRecords    The maximum number of records to return
      */
-    public List getLogEntries(final long startingRecord, final long maxRecords) {
+    public List getLogEntries(long startingRecord, long maxRecords) {
+        if (startingRecord < 0) {
+            return null;
+        }
+        buildLogFileIndex();
+        return readLogEntries(startingRecord, maxRecords);
+    }
+
+    /**
+     * Same as getLogEntries(long, long) but against the index as of the
+     * last call to buildLogFileIndex(), so that a query reading several
+     * chunks of the file does not bring the index up to date for each one.
+     */
+    List readLogEntries(final long startingRecord, final long maxRecords) {
         if (startingRecord < 0) {
             return null;
         }
 
-        // Open the file at the desired starting Record
-        final long recordsToIgnore = (startingRecord % getIndexSize());
-        BufferedReader reader = getFilePosition(startingRecord - recordsToIgnore);
+        // Read the segments holding the requested records
         final List results = new ArrayList();
-        if (reader == null) {
-            return results;
+        final long recordsToIgnore;
+        LogIndex.LineReader reader = null;
+        synchronized (this) {
+            int first = getSegmentIndex(startingRecord);
+            if (first < 0) {
+                return results;
+            }
+            LogIndex.Segment segment = _segments.get(first);
+            recordsToIgnore = startingRecord - segment.getFirstRecord();
+            int last = first;
+            long available = segment.getRecordCount();
+            while (available < recordsToIgnore + maxRecords && last < _segments.size() - 1) {
+                last++;
+                available += _segments.get(last).getRecordCount();
+            }
+            try {
+                reader = LogIndex.openReader(new File(getLogFileName()),
+                        LogIndex.getCharset(_encoding), segment.getOffset(),
+                        _segments.get(last).getEndOffset());
+            } catch (IOException ex) {
+                if (LogFacade.LOGGING_LOGGER.isLoggable(Level.FINE)) { 
+                    LogFacade.LOGGING_LOGGER.log(Level.FINE, "Error reading from file: " + getLogFileName(), ex);
+                }
+                return results;
+            }
         }
         try {
             
@@ -171,71 +220,126 @@ public class LogFile implements java.io.Serializable {
 
 
     /**
-     * This method builds the file index in the beginning.  The index is for
-     * the beginning of every record after the size specified by '_indexSize'
-     * variable.
+     * This method builds the file index in the beginning and brings it up to
+     * date on later calls. Entries are taken from the on-disk index as long
+     * as it lines up with what is already indexed; the rest of the file is
+     * parsed, with a new segment after every '_indexSize' records.
      */
-    private synchronized void buildLogFileIndex() {
-        // Open the file and skip to the where we left off
-        final long startPos = (Long) _recordIdx.get(_recordIdx.size() - 1);
-        final long localIndexSize = getIndexSize();
-        BufferedReader reader = getLogFileReader(startPos);
+    synchronized void buildLogFileIndex() {
+        File logFile = new File(getLogFileName());
+        long length = logFile.length();
+        Object fileKey = getFileKey(logFile);
+        if (length < _indexedLength
+                || (fileKey != null && _fileKey != null && !fileKey.equals(_fileKey))) {
+            // The file has been rotated since it was indexed
+            _segments.clear();
+            _indexedLength = 0;
+            _diskIndexEntries = 0;
+        }
+        _fileKey = fileKey;
+
         try {
-            File logFile = new File(getLogFileName());
-            LogParser logParser = LogParserFactory.getInstance().createLogParser(logFile);
-            if (logParser != null) {
-                logParser.parseLog(reader, new LogParserListener() {
-                    
-                    long recordNumber = (_recordIdx.size() - 1) * localIndexSize;
-
-                    @Override
-                    public void outputSummary(BufferedWriter writer, Object... objects)
-                            throws IOException {
-                    }
-                    
-                    @Override
-                    public void foundLogRecord(long position, ParsedLogRecord object) {                    
-                        long modIndex = recordNumber % localIndexSize;
-                        if (modIndex == 0) {
-                            _recordIdx.add((Long)(startPos+position));
-                        }
-                        recordNumber++;
-                    }
-                    
-                    @Override
-                    public void close() throws IOException {                    
-                    }
-                });                
+            if (_diskIndexEntries >= 0) {
+                List<LogIndex.Segment> indexed = LogIndex.read(logFile, length,
+                        _diskIndexEntries, getLastSegment());
+                _segments.addAll(indexed);
+                _diskIndexEntries += indexed.size();
+                if (!indexed.isEmpty()) {
+                    _indexedLength = getLastSegment().getEndOffset();
+                }
+            }
+            if (_indexedLength < length) {
+                LogIndex.Segment last = getLastSegment();
+                List<LogIndex.Segment> scanned = new ArrayList<LogIndex.Segment>();
+                LogIndex.scan(logFile, LogIndex.getCharset(_encoding), _indexedLength,
+                        (last == null) ? 0 : last.getLastRecord() + 1,
+                        (int) getIndexSize(), length, scanned);
+                if (!scanned.isEmpty()) {
+                    _segments.addAll(scanned);
+                    _indexedLength = getLastSegment().getEndOffset();
+                    // our segments no longer line up with the on-disk ones
+                    _diskIndexEntries = -1;
+                }
             }
         } catch (Exception ex) {
             throw new RuntimeException(ex);
-        } finally {
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (IOException ex) {
-                }
+        }
+    }
+
+    private LogIndex.Segment getLastSegment() {
+        return _segments.isEmpty() ? null : _segments.get(_segments.size() - 1);
+    }
+
+    private static Object getFileKey(File logFile) {
+        try {
+            return Files.readAttributes(logFile.toPath(), BasicFileAttributes.class).fileKey();
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Binary search for the segment holding the given record.
+     *
+     * @return the position of the segment in _segments, -1 if the record
+     * is not in the file (yet)
+     */
+    private int getSegmentIndex(long recordNumber) {
+        int low = 0;
+        int high = _segments.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            LogIndex.Segment segment = _segments.get(mid);
+            if (recordNumber < segment.getFirstRecord()) {
+                high = mid - 1;
+            } else if (recordNumber > segment.getLastRecord()) {
+                low = mid + 1;
+            } else {
+                return mid;
             }
         }
+        return -1;
     }
 
     /**
-     * This method returns the file position given the record number.
+     * Finds the record closest to recordNumber, in the given direction, that
+     * lies in a segment whose bounds match the query. Records in between can
+     * be skipped without parsing them since none of them can match. The
+     * index is used as of the last call to buildLogFileIndex().
      *
-     * @return The file position.
-     * @param    recordNumber    The Record Number
+     * @return the record number, or -1 if no further record can match
      */
-    private BufferedReader getFilePosition(long recordNumber) {
-        // The index is stored from the second slot. i.e., if there
-        // are 100 records and the index will be on 20, 40, 60, 80, 100
-        // if the _indexSize is 20. We don't store '0' hence we subtract
-        // from 1 to get the right index
-        int index = (int) (recordNumber / getIndexSize());
-        if (index > _recordIdx.size()-1) {
-            return null;
+    public synchronized long findMatchingRecord(long recordNumber, boolean forward,
+            Date fromDate, Date toDate, String logLevel, List listOfModules) {
+        LogIndex.Segment last = getLastSegment();
+        if (last == null) {
+            return -1;
+        }
+        int minLevelValue = LogIndex.queryLevelValue(logLevel);
+        if (forward) {
+            int i = getSegmentIndex(Math.max(recordNumber, 0));
+            if (i < 0) {
+                return -1;
+            }
+            for (; i < _segments.size(); i++) {
+                LogIndex.Segment segment = _segments.get(i);
+                if (segment.mayMatch(fromDate, toDate, minLevelValue, listOfModules)) {
+                    return Math.max(recordNumber, segment.getFirstRecord());
+                }
+            }
+        } else {
+            if (recordNumber < 0) {
+                return -1;
+            }
+            long record = Math.min(recordNumber, last.getLastRecord());
+            for (int i = getSegmentIndex(record); i >= 0; i--) {
+                LogIndex.Segment segment = _segments.get(i);
+                if (segment.mayMatch(fromDate, toDate, minLevelValue, listOfModules)) {
+                    return Math.min(record, segment.getLastRecord());
+                }
+            }
         }
-        Long filePosition = (Long) _recordIdx.get(index);
-        return getLogFileReader(filePosition);
+        return -1;
     }
 
     /**
@@ -256,7 +360,8 @@ public class LogFile implements java.io.Serializable {
                 }
             }
             BufferedReader reader =
-                    new BufferedReader(new InputStreamReader(file));
+                    new BufferedReader(new InputStreamReader(file,
+                            LogIndex.getCharset(_encoding)));
             return reader;
         } catch (Exception ex) {
             if (LogFacade.LOGGING_LOGGER.isLoggable(Level.FINE)) { 
@@ -282,9 +387,11 @@ public class LogFile implements java.io.Serializable {
      * The log records are indexed, this method returns the last index.  It
      * will ensure that the indexes are up-to-date.
      */
-    public long getLastIndexNumber() {
+    public synchronized long getLastIndexNumber() {
         buildLogFileIndex();
-        return _recordIdx.size() - 1;
+        LogIndex.Segment last = getLastSegment();
+        long recordCount = (last == null) ? 0 : last.getLastRecord() + 1;
+        return recordCount / getIndexSize();
     }
 
     /**
@@ -445,6 +552,12 @@ public class LogFile implements java.io.Serializable {
     
     private long _indexSize = 10;
     private String _logFileName = null;
-    private List _recordIdx   = new ArrayList();
+    private String _encoding = null;
+    private List<LogIndex.Segment> _segments = new ArrayList<LogIndex.Segment>();
+    // bytes of the file covered by _segments
+    private long _indexedLength = 0;
+    // entries taken from the on-disk index, -1 once the rest had to be parsed
+    private int _diskIndexEntries = 0;
+    private transient Object _fileKey = null;
     
 }
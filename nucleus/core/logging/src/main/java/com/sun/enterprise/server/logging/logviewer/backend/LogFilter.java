@@ -70,6 +70,7 @@ import com.sun.enterprise.config.serverbeans.Cluster;
 import com.sun.enterprise.config.serverbeans.Domain;
 import com.sun.enterprise.config.serverbeans.Node;
 import com.sun.enterprise.config.serverbeans.Server;
+import com.sun.enterprise.server.logging.GFFileHandler;
 import com.sun.enterprise.server.logging.LogFacade;
 import com.sun.enterprise.util.StringUtils;
 import com.sun.enterprise.util.SystemPropertyConstants;
@@ -245,8 +246,7 @@ public class LogFilter {
             File allLogFileNames[] = logsDir.listFiles();
             for (File file : allLogFileNames) {
                 String fileName = file.getName();
-                if (file.isFile() && !fileName.equals(".") && !fileName.equals("..")
-                        && fileName.contains(".log") && !fileName.contains(".log.")) {
+                if (file.isFile() && isLogFileName(fileName)) {
                     allInstanceFileNames.add(fileName);
                 }
             }
@@ -263,6 +263,16 @@ public class LogFilter {
         return allInstanceFileNames;
     }
 
+    /**
+     * Whether the given file name is one of a current log file to list,
+     * i.e. neither a rotated log file nor the index of a log file.
+     */
+    static boolean isLogFileName(String fileName) {
+        return !fileName.equals(".") && !fileName.equals("..")
+                && fileName.contains(".log") && !fileName.contains(".log.")
+                && !LogIndex.isIndexFile(fileName);
+    }
+
     /*
         This function is used to get log file details from logging.properties file for given target.
      */
@@ -386,8 +396,7 @@ public class LogFilter {
                         File file = allLogFileNames[i];
                         String fileName = file.getName();
                         // code to remove . and .. file which is return
-                        if (file.isFile() && !fileName.equals(".") && !fileName.equals("..") && fileName.contains(".log")
-                                && !fileName.contains(".log.")) {
+                        if (file.isFile() && isLogFileName(fileName)) {
                             noFileFound = false;
                             break;
                         }
@@ -518,9 +527,35 @@ public class LogFilter {
         List results = new ArrayList();
         List records = null;
         LogFile.LogEntry entry = null;
+        // The index is brought up to date once for the whole query
+        logFile.buildLogFileIndex();
         while (results.size() < requestedCount) {
+            // Skip the parts of the file the index says cannot match
+            if (forward) {
+                long matchingRecord = logFile.findMatchingRecord(startingRecord, true,
+                        fromDate, toDate, logLevel, listOfModules);
+                if (matchingRecord < 0) {
+                    break;
+                }
+                startingRecord = matchingRecord;
+            } else {
+                long lastRecord = startingRecord + searchChunkIncrement - 1;
+                long matchingRecord = logFile.findMatchingRecord(lastRecord, false,
+                        fromDate, toDate, logLevel, listOfModules);
+                if (matchingRecord < 0) {
+                    break;
+                }
+                if (matchingRecord < lastRecord) {
+                    startingRecord = matchingRecord - searchChunkIncrement + 1;
+                    if (startingRecord < 0) {
+                        searchChunkIncrement += startingRecord;
+                        startingRecord = 0;
+                    }
+                }
+            }
+
             // The following will always return unfiltered forward records
-            records = logFile.getLogEntries(
+            records = logFile.readLogEntries(
                     startingRecord, searchChunkIncrement);
             if (records == null) {
                 break;
@@ -655,7 +690,7 @@ public class LogFilter {
                 // if yes, then we don't have to construct the parent element
                 // path with the parent.
                 if (new File(fileName).exists()) {
-                    logFile = new LogFile(fileName);
+                    logFile = new LogFile(fileName, getLogEncoding());
                     logFileCache.put(fileName, logFile);
                     return logFile;
                 }
@@ -678,7 +713,7 @@ public class LogFilter {
                 logFileName = StringUtils.makeFilePath(
                         logFileNameParts, false);
             }
-            logFile = new LogFile(logFileName);
+            logFile = new LogFile(logFileName, getLogEncoding());
             logFileCache.put(fileName, logFile);
         }
         return logFile;
@@ -838,6 +873,15 @@ public class LogFilter {
     }
 
 
+    /**
+     * @return the encoding the log files are written in, as configured for
+     * GFFileHandler
+     */
+    private String getLogEncoding() {
+        GFFileHandler gfFileHandler = habitat.getService(GFFileHandler.class);
+        return (gfFileHandler == null) ? null : gfFileHandler.getEncoding();
+    }
+
     static final String[] LOG_LEVELS = {"SEVERE", "WARNING",
             "INFO", "CONFIG", "FINE", "FINER", "FINEST"};
 
@@ -104,8 +104,7 @@ public class LogFilterForInstance {
                     SFTPv3DirectoryEntry file = (SFTPv3DirectoryEntry) instanceLogFileNames.get(i);
                     String fileName = file.filename;
                     // code to remove . and .. file which is return from sftpclient ls method
-                    if (!file.attributes.isDirectory() && !fileName.equals(".") && !fileName.equals("..")
-                            && fileName.contains(".log") && !fileName.contains(".log.")) {
+                    if (!file.attributes.isDirectory() && LogFilter.isLogFileName(fileName)) {
                         noFileFound = false;
                         break;
                     }
@@ -223,8 +222,7 @@ public class LogFilterForInstance {
                     SFTPv3DirectoryEntry file = (SFTPv3DirectoryEntry) instanceLogFileNames.get(i);
                     String fileName = file.filename;
                     // code to remove . and .. file which is return from sftpclient ls method
-                    if (!file.attributes.isDirectory() && !fileName.equals(".") && !fileName.equals("..")
-                            && fileName.contains(".log") && !fileName.contains(".log.")) {
+                    if (!file.attributes.isDirectory() && LogFilter.isLogFileName(fileName)) {
                         noFileFound = false;
                         break;
                     }
@@ -297,8 +295,7 @@ public class LogFilterForInstance {
                     File file = allLogFileNames[i];
                     String fileName = file.getName();
                     // code to remove . and .. file which is return
-                    if (file.isFile() && !fileName.equals(".") && !fileName.equals("..") && fileName.contains(".log")
-                            && !fileName.contains(".log.")) {
+                    if (file.isFile() && LogFilter.isLogFileName(fileName)) {
                         instanceLogFileNamesAsString.add(fileName);
                         noFileFound = false;
                     }
@@ -315,8 +312,7 @@ public class LogFilterForInstance {
                     File file = allLogFileNames[i];
                     String fileName = file.getName();
                     // code to remove . and .. file which is return
-                    if (file.isFile() && !fileName.equals(".") && !fileName.equals("..") && fileName.contains(".log")
-                            && !fileName.contains(".log.")) {
+                    if (file.isFile() && LogFilter.isLogFileName(fileName)) {
                         instanceLogFileNamesAsString.add(fileName);
                     }
                 }
@@ -337,8 +333,7 @@ public class LogFilterForInstance {
                     SFTPv3DirectoryEntry file = (SFTPv3DirectoryEntry) instanceLogFileNames.get(i);
                     String fileName = file.filename;
                     // code to remove . and .. file which is return from sftpclient ls method
-                    if (!file.attributes.isDirectory() && !fileName.equals(".") && !fileName.equals("..")
-                            && fileName.contains(".log") && !fileName.contains(".log.")) {
+                    if (!file.attributes.isDirectory() && LogFilter.isLogFileName(fileName)) {
                         instanceLogFileNamesAsString.add(fileName);
                         noFileFound = false;
                     }
@@ -358,8 +353,7 @@ public class LogFilterForInstance {
                     SFTPv3DirectoryEntry file = (SFTPv3DirectoryEntry) instanceLogFileNames.get(i);
                     String fileName = file.filename;
                     // code to remove . and .. file which is return from sftpclient ls method
-                    if (!file.attributes.isDirectory() && !fileName.equals(".") && !fileName.equals("..")
-                            && fileName.contains(".log") && !fileName.contains(".log.")) {
+                    if (!file.attributes.isDirectory() && LogFilter.isLogFileName(fileName)) {
                         instanceLogFileNamesAsString.add(fileName);
                     }
                 }
@@ -380,8 +374,7 @@ public class LogFilterForInstance {
                     File file = new File(allLogFileNames[i]);
                     String fileName = file.getName();
                     // code to remove . and .. file which is return
-                    if (!fileName.equals(".") && !fileName.equals("..") && fileName.contains(".log")
-                            && !fileName.contains(".log.")) {
+                    if (LogFilter.isLogFileName(fileName)) {
                         instanceLogFileNamesAsString.add(fileName);
                     }
                 }
@@ -0,0 +1,625 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.server.logging.logviewer.backend;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import com.sun.enterprise.server.logging.parser.LineSource;
+import com.sun.enterprise.server.logging.parser.LogParser;
+import com.sun.enterprise.server.logging.parser.LogParserException;
+import com.sun.enterprise.server.logging.parser.LogParserFactory;
+import com.sun.enterprise.server.logging.parser.LogParserListener;
+import com.sun.enterprise.server.logging.parser.ParsedLogRecord;
+import com.sun.enterprise.server.logging.parser.RawLogParser;
+
+/**
+ * <P>Sparse index of a log file. The log file is split into segments of
+ * consecutive records and, for every segment, the index keeps the byte
+ * range, the number of the first record, the time range, the highest level
+ * and a small bit set of the logger names found in it. Queries use it to
+ * position on a record without parsing the file from the beginning and to
+ * skip segments that cannot contain a match.</P>
+ *
+ * <P>GFFileHandler maintains the index of the file it writes in
+ * &lt;log file&gt;.idx and moves it along with the log file on rotation.
+ * The index file is a small header followed by fixed size entries, one per
+ * segment, in file order.</P>
+ */
+public final class LogIndex {
+
+    public static final String INDEX_FILE_SUFFIX = ".idx";
+
+    private static final int MAGIC = 0x47464c49;
+
+    private static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 8;
+
+    static final int ENTRY_SIZE = 56;
+
+    // Timestamps are compared against the record millis, but a formatter may
+    // print them with less precision than that. Widen the segment bounds so
+    // that pruning never hides a record the full scan would have matched.
+    private static final long TIME_SLACK_MILLIS = 60 * 1000L;
+
+    private LogIndex() {
+    }
+
+    public static File getIndexFile(File logFile) {
+        return new File(logFile.getPath() + INDEX_FILE_SUFFIX);
+    }
+
+    public static boolean isIndexFile(String fileName) {
+        return fileName.endsWith(INDEX_FILE_SUFFIX);
+    }
+
+    /**
+     * @return the charset of a log file written with the given handler
+     * encoding, the default charset if it is null or not supported
+     */
+    public static Charset getCharset(String encoding) {
+        if (encoding != null) {
+            try {
+                return Charset.forName(encoding);
+            } catch (IllegalArgumentException e) {
+                // the handler could not have used it either
+            }
+        }
+        return Charset.defaultCharset();
+    }
+
+    /**
+     * @return whether lines written in the given charset end with a '\n'
+     * byte, as the index and its reader expect
+     */
+    public static boolean isIndexable(Charset charset) {
+        return Arrays.equals("\n".getBytes(charset), new byte[] {'\n'});
+    }
+
+    /**
+     * Two bits out of 64 for the given logger name. A segment may contain
+     * records of a logger only if all of its bits are set in the segment.
+     */
+    public static long loggerBits(String loggerName) {
+        int h = (loggerName == null) ? 0 : loggerName.trim().hashCode();
+        h ^= (h >>> 16);
+        return (1L << (h & 63)) | (1L << ((h >>> 6) & 63));
+    }
+
+    /**
+     * Level value used for the level pruning of a query, or
+     * Integer.MIN_VALUE if the query level cannot be parsed and therefore
+     * matches every record.
+     */
+    public static int queryLevelValue(String queryLevel) {
+        if (queryLevel == null) {
+            return Integer.MIN_VALUE;
+        }
+        try {
+            return Level.parse(queryLevel.trim()).intValue();
+        } catch (Exception e) {
+            return Integer.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Truncates the index to its first keepEntries entries, rewriting the
+     * header if none are kept.
+     */
+    public static void reset(FileChannel channel, int keepEntries) throws IOException {
+        if (keepEntries > 0) {
+            channel.truncate(HEADER_SIZE + (long) keepEntries * ENTRY_SIZE);
+            return;
+        }
+        channel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+    }
+
+    /**
+     * Appends the entry for the given segment at the end of the index.
+     */
+    public static void append(FileChannel channel, Segment segment) throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+        entry.putLong(segment.offset)
+             .putLong(segment.endOffset)
+             .putLong(segment.firstRecord)
+             .putInt(segment.recordCount)
+             .putInt(segment.maxLevel)
+             .putLong(segment.minMillis)
+             .putLong(segment.maxMillis)
+             .putLong(segment.loggerBits);
+        entry.flip();
+        long position = channel.size();
+        while (entry.hasRemaining()) {
+            position += channel.write(entry, position);
+        }
+    }
+
+    /**
+     * Reads the index of the given log file.
+     *
+     * @param logLength only entries within this many bytes of the log are
+     *                  returned
+     * @return the consistent prefix of the index, possibly empty
+     */
+    public static List<Segment> read(File logFile, long logLength) throws IOException {
+        return read(logFile, logLength, 0, null);
+    }
+
+    /**
+     * Reads the index entries from entry number fromEntry onwards. Reading
+     * stops at the first entry that does not continue the previous one, so a
+     * stale or partially written index only loses its tail.
+     */
+    static List<Segment> read(File logFile, long logLength, int fromEntry,
+            Segment previous) throws IOException {
+        List<Segment> segments = new ArrayList<Segment>();
+        File indexFile = getIndexFile(logFile);
+        if (!indexFile.isFile()) {
+            return segments;
+        }
+        RandomAccessFile raf = new RandomAccessFile(indexFile, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                return segments;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                return segments;
+            }
+            long start = HEADER_SIZE + (long) fromEntry * ENTRY_SIZE;
+            long entries = (size - start) / ENTRY_SIZE;
+            if (entries <= 0) {
+                return segments;
+            }
+            // Read rather than mapped: a live mapping would keep the index
+            // from being renamed or deleted on rotation on some platforms
+            ByteBuffer buffer = ByteBuffer.allocate((int) (entries * ENTRY_SIZE));
+            readFully(channel, buffer, start);
+            buffer.flip();
+            entries = buffer.remaining() / ENTRY_SIZE;
+            long expectedOffset = (previous == null) ? 0 : previous.endOffset;
+            long expectedRecord = (previous == null) ? 0 : previous.getLastRecord() + 1;
+            for (long i = 0; i < entries; i++) {
+                Segment segment = new Segment(buffer.getLong(), 0);
+                segment.endOffset = buffer.getLong();
+                segment.firstRecord = buffer.getLong();
+                segment.recordCount = buffer.getInt();
+                segment.maxLevel = buffer.getInt();
+                segment.minMillis = buffer.getLong();
+                segment.maxMillis = buffer.getLong();
+                segment.loggerBits = buffer.getLong();
+                if (segment.firstRecord != expectedRecord
+                        || segment.recordCount <= 0
+                        || segment.endOffset > logLength
+                        || segment.endOffset <= segment.offset
+                        || (previous == null && segments.isEmpty()
+                            ? segment.offset < expectedOffset
+                            : segment.offset != expectedOffset)) {
+                    break;
+                }
+                segments.add(segment);
+                expectedOffset = segment.endOffset;
+                expectedRecord = segment.getLastRecord() + 1;
+            }
+        } finally {
+            raf.close();
+        }
+        return segments;
+    }
+
+    /**
+     * Parses the log file, written in the given charset, between fromOffset
+     * and logLength and adds a segment for every recordsPerSegment records,
+     * the first one numbered firstRecord. A record still being written at
+     * the end of the file is left for the next scan.
+     */
+    public static void scan(File logFile, Charset charset,
+            final long fromOffset, final long firstRecord,
+            final int recordsPerSegment, long logLength, final List<Segment> segments)
+            throws LogParserException, IOException {
+        if (logLength <= fromOffset) {
+            return;
+        }
+        LogParser logParser = LogParserFactory.getInstance().createLogParser(logFile);
+        if (logParser == null) {
+            return;
+        }
+        final boolean complete = endsWithNewLine(logFile, logLength);
+        // Raw logs have a record per line, reported once the line is read.
+        // The other parsers report a record once they have read the first
+        // line of the next one, or reached the end of the file.
+        final boolean recordPerLine = logParser instanceof RawLogParser;
+        final List<Segment> scanned = new ArrayList<Segment>();
+        final long[] lastRecordStart = new long[1];
+        final LineReader reader = openReader(logFile, charset, fromOffset, logLength);
+        try {
+            logParser.parseLog(reader, new LogParserListener() {
+
+                final Map<String, Integer> levels = new HashMap<String, Integer>();
+                long recordStart = fromOffset;
+                long nextRecord = firstRecord;
+                Segment current;
+
+                @Override
+                public void outputSummary(BufferedWriter writer, Object... objects)
+                        throws IOException {
+                }
+
+                @Override
+                public void foundLogRecord(long position, ParsedLogRecord logRecord) {
+                    // The offsets are those of the bytes read from the file,
+                    // not of the parsed record, whose line ends and encoding
+                    // may differ from what was written
+                    long start = recordStart;
+                    long end = (recordPerLine || reader.isExhausted())
+                            ? reader.getLineEnd() : reader.getLineStart();
+                    recordStart = end;
+
+                    if (current == null || current.recordCount >= recordsPerSegment) {
+                        current = new Segment(start, nextRecord);
+                        scanned.add(current);
+                    }
+                    current.add(timeMillis(logRecord), levelValue(logRecord.getLevel()),
+                            logRecord.getLogger());
+                    current.endOffset = end;
+                    lastRecordStart[0] = start;
+                    nextRecord++;
+                }
+
+                private int levelValue(String levelName) {
+                    if (levelName == null) {
+                        return Integer.MAX_VALUE;
+                    }
+                    Integer value = levels.get(levelName);
+                    if (value == null) {
+                        try {
+                            value = Level.parse(levelName.trim()).intValue();
+                        } catch (Exception e) {
+                            // LogFilter matches records with unknown levels
+                            value = Integer.MAX_VALUE;
+                        }
+                        levels.put(levelName, value);
+                    }
+                    return value;
+                }
+
+                @Override
+                public void close() throws IOException {
+                }
+            });
+        } finally {
+            reader.close();
+        }
+
+        if (!complete && !scanned.isEmpty()) {
+            // The last record is still being written, leave it for the next
+            // scan. The bounds of the segment stay a superset, which is all
+            // the pruning needs.
+            Segment last = scanned.get(scanned.size() - 1);
+            last.recordCount--;
+            last.endOffset = lastRecordStart[0];
+            if (last.recordCount == 0) {
+                scanned.remove(scanned.size() - 1);
+            }
+        }
+        segments.addAll(scanned);
+    }
+
+    private static long timeMillis(ParsedLogRecord logRecord) {
+        try {
+            return logRecord.getTimeMillis();
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    private static boolean endsWithNewLine(File logFile, long logLength) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(logFile, "r");
+        try {
+            raf.seek(logLength - 1);
+            return raf.read() == '\n';
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                break;
+            }
+            position += n;
+        }
+    }
+
+    /**
+     * Opens a reader on the lines of the log file between from and to. The
+     * file is read with positional reads, so that positioning costs nothing,
+     * and is not mapped, so that the log file can still be rotated while it
+     * is being read.
+     */
+    static LineReader openReader(File logFile, Charset charset, long from, long to)
+            throws IOException {
+        return new LineReader(new RandomAccessFile(logFile, "r"), charset, from, to);
+    }
+
+    /**
+     * Reader of the lines of a region of a log file that keeps track of the
+     * file offsets of the last line read.
+     */
+    static final class LineReader implements LineSource, Closeable {
+
+        private final RandomAccessFile file;
+
+        private final Charset charset;
+
+        private final ByteBuffer buffer = ByteBuffer.allocate(8192);
+
+        private final long end;
+
+        private long filePosition;
+
+        private long lineStart;
+
+        private long lineEnd;
+
+        private boolean exhausted;
+
+        private byte[] line = new byte[256];
+
+        LineReader(RandomAccessFile file, Charset charset, long from, long to) {
+            this.file = file;
+            this.charset = charset;
+            this.end = to;
+            this.filePosition = from;
+            this.lineStart = from;
+            this.lineEnd = from;
+            buffer.flip();
+        }
+
+        @Override
+        public String readLine() throws IOException {
+            if (exhausted) {
+                return null;
+            }
+            int length = 0;
+            long position = lineEnd;
+            int b;
+            while ((b = nextByte()) >= 0) {
+                position++;
+                if (b == '\n') {
+                    break;
+                }
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, length * 2);
+                }
+                line[length++] = (byte) b;
+            }
+            if (position == lineEnd) {
+                exhausted = true;
+                return null;
+            }
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
+            }
+            lineStart = lineEnd;
+            lineEnd = position;
+            return new String(line, 0, length, charset);
+        }
+
+        /**
+         * @return the offset of the first byte of the last line read
+         */
+        long getLineStart() {
+            return lineStart;
+        }
+
+        /**
+         * @return the offset following the line terminator of the last line
+         * read
+         */
+        long getLineEnd() {
+            return lineEnd;
+        }
+
+        /**
+         * @return whether readLine() has reported the end of the region
+         */
+        boolean isExhausted() {
+            return exhausted;
+        }
+
+        private int nextByte() throws IOException {
+            if (!buffer.hasRemaining()) {
+                long remaining = end - filePosition;
+                if (remaining <= 0) {
+                    return -1;
+                }
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), remaining));
+                readFully(file.getChannel(), buffer, filePosition);
+                buffer.flip();
+                if (!buffer.hasRemaining()) {
+                    return -1;
+                }
+                filePosition += buffer.remaining();
+            }
+            return buffer.get() & 0xff;
+        }
+
+        @Override
+        public void close() throws IOException {
+            file.close();
+        }
+    }
+
+    /**
+     * Index entry for a run of consecutive records of a log file.
+     */
+    public static final class Segment implements Serializable {
+
+        private static final long serialVersionUID = 4431520791398563411L;
+
+        private final long offset;
+        private long endOffset;
+        private long firstRecord;
+        private int recordCount;
+        private int maxLevel = Integer.MIN_VALUE;
+        private long minMillis = Long.MAX_VALUE;
+        private long maxMillis = Long.MIN_VALUE;
+        private long loggerBits;
+
+        public Segment(long offset, long firstRecord) {
+            this.offset = offset;
+            this.endOffset = offset;
+            this.firstRecord = firstRecord;
+        }
+
+        /**
+         * Accounts for one more record in the segment.
+         *
+         * @param millis the record time, 0 if unknown
+         */
+        public void add(long millis, int levelValue, String loggerName) {
+            recordCount++;
+            if (millis <= 0) {
+                minMillis = Long.MIN_VALUE;
+                maxMillis = Long.MAX_VALUE;
+            } else {
+                minMillis = Math.min(minMillis, millis);
+                maxMillis = Math.max(maxMillis, millis);
+            }
+            maxLevel = Math.max(maxLevel, levelValue);
+            loggerBits |= loggerBits(loggerName);
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getEndOffset() {
+            return endOffset;
+        }
+
+        public void setEndOffset(long endOffset) {
+            this.endOffset = endOffset;
+        }
+
+        public long getFirstRecord() {
+            return firstRecord;
+        }
+
+        public long getLastRecord() {
+            return firstRecord + recordCount - 1;
+        }
+
+        public int getRecordCount() {
+            return recordCount;
+        }
+
+        public boolean containsRecord(long recordNumber) {
+            return recordNumber >= firstRecord && recordNumber <= getLastRecord();
+        }
+
+        /**
+         * Checks the query conditions LogFilter applies to every record
+         * against the bounds of the segment.
+         *
+         * @return false only if no record of the segment can match
+         */
+        public boolean mayMatch(Date fromDate, Date toDate, int minLevelValue, List modules) {
+            if (fromDate != null && toDate != null) {
+                if (maxMillis < fromDate.getTime() - TIME_SLACK_MILLIS
+                        || minMillis > toDate.getTime() + TIME_SLACK_MILLIS) {
+                    return false;
+                }
+            }
+            if (maxLevel < minLevelValue) {
+                return false;
+            }
+            if (modules != null && !modules.isEmpty()) {
+                Iterator iterator = modules.iterator();
+                while (iterator.hasNext()) {
+                    long bits = loggerBits((String) iterator.next());
+                    if ((loggerBits & bits) == bits) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "Segment[" + offset + "-" + endOffset + ", records " + firstRecord
+                    + "-" + getLastRecord() + "]";
+        }
+    }
+}
@@ -56,5 +56,12 @@ public interface LogParser {
      */
     public void parseLog(BufferedReader reader, 
             LogParserListener listener) throws LogParserException;
+
+    /**
+     * Same as parseLog(BufferedReader, LogParserListener) except that the
+     * lines are not closed.
+     */
+    public void parseLog(LineSource lines,
+            LogParserListener listener) throws LogParserException;
     
 }
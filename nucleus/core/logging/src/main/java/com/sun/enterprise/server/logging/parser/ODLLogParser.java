@@ -84,14 +84,31 @@ final class ODLLogParser implements LogParser {
     
     @Override
     public void parseLog(BufferedReader reader, LogParserListener listener)
-            throws LogParserException 
+            throws LogParserException
+    {
+        try {
+            LineSource lines = reader::readLine;
+            parseLog(lines, listener);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    LogFacade.LOGGING_LOGGER.log(Level.FINE, "Got exception while clsoing reader "+ streamName, e); 
+                }
+            }
+        }
+    }
+
+    @Override
+    public void parseLog(LineSource lines, LogParserListener listener)
+            throws LogParserException
     {
-        
         try {
             String line = null;
             StringBuffer buffer = new StringBuffer();
             long position = 0L;
-            while ((line = reader.readLine()) != null) {
+            while ((line = lines.readLine()) != null) {
                 Matcher m = LogParserFactory.getInstance().getODLDateFormatPattern().matcher(line);
                 if (m.matches()) {
                     // Construct a parsed log record from the prior content
@@ -108,15 +125,7 @@ final class ODLLogParser implements LogParser {
             parseLogRecord(position, logRecord, listener);
         } catch(IOException e){
             throw new LogParserException(e);
-        } finally {
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (IOException e) {
-                    LogFacade.LOGGING_LOGGER.log(Level.FINE, "Got exception while clsoing reader "+ streamName, e); 
-                }
-            }
-        }                
+        }
     }
     
     private void parseLogRecord(long position, String logRecord, LogParserListener listener) {
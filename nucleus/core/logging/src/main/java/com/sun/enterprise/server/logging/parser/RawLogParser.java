@@ -62,16 +62,8 @@ public class RawLogParser implements LogParser {
     public void parseLog(BufferedReader reader, LogParserListener listener)
             throws LogParserException {
         try {
-            String line = null;
-            long position = 0L;
-            while ((line = reader.readLine()) != null) {
-                ParsedLogRecord record = new ParsedLogRecord(line);
-                record.setFieldValue(ParsedLogRecord.LOG_MESSAGE, line);
-                listener.foundLogRecord(position, record);
-                position++;
-            }
-        } catch(IOException e){
-            throw new LogParserException(e);
+            LineSource lines = reader::readLine;
+            parseLog(lines, listener);
         } finally {
             if (reader != null) {
                 try {
@@ -80,8 +72,24 @@ public class RawLogParser implements LogParser {
                     LogFacade.LOGGING_LOGGER.log(Level.FINE, "Got exception while clsoing reader "+ streamName, e); 
                 }
             }
-        }                
+        }
+    }
 
+    @Override
+    public void parseLog(LineSource lines, LogParserListener listener)
+            throws LogParserException {
+        try {
+            String line = null;
+            long position = 0L;
+            while ((line = lines.readLine()) != null) {
+                ParsedLogRecord record = new ParsedLogRecord(line);
+                record.setFieldValue(ParsedLogRecord.LOG_MESSAGE, line);
+                listener.foundLogRecord(position, record);
+                position++;
+            }
+        } catch(IOException e){
+            throw new LogParserException(e);
+        }
     }
 
 }
@@ -90,12 +90,29 @@ final class UniformLogParser implements LogParser {
     public void parseLog(BufferedReader reader, LogParserListener listener)
             throws LogParserException
     {
-        
+        try {
+            LineSource lines = reader::readLine;
+            parseLog(lines, listener);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    LogFacade.LOGGING_LOGGER.log(Level.FINE, "Got exception while clsoing reader "+ streamName, e); 
+                }
+            }
+        }
+    }
+
+    @Override
+    public void parseLog(LineSource lines, LogParserListener listener)
+            throws LogParserException
+    {
         try {
             String line = null;
             StringBuffer buffer = new StringBuffer();
             long position = 0L;
-            while ((line = reader.readLine()) != null) {
+            while ((line = lines.readLine()) != null) {
                 if (line.startsWith(LOG_RECORD_BEGIN_MARKER)) {
                     // Construct a parsed log record from the prior content
                     String logRecord = buffer.toString();
@@ -111,15 +128,7 @@ final class UniformLogParser implements LogParser {
             parseLogRecord(position, logRecord, listener);            
         } catch(IOException e){
             throw new LogParserException(e);
-        } finally {
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (IOException e) {
-                    LogFacade.LOGGING_LOGGER.log(Level.FINE, "Got exception while clsoing reader "+ streamName, e); 
-                }
-            }
-        }                
+        }
     }
     
     private void parseLogRecord(long position, String logRecord, LogParserListener listener) {
@@ -0,0 +1,174 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.server.logging;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test class to exercise the GFFileHandler batch writer.
+ */
+public class GFFileHandlerBatchWriterTest {
+
+    private static final String FILE_SEP = System.getProperty("file.separator");
+
+    private static final String USER_DIR = System.getProperty("user.dir");
+
+    private static final String BASE_PATH = USER_DIR + FILE_SEP + "target";
+
+    private static final String TEST_BATCH_LOG =  BASE_PATH + FILE_SEP + "test-batch-writer.log";
+
+    private static final String LOGGER_NAME = "javax.enterprise.test.logging.batch";
+
+    private static final Logger LOGGER = Logger.getLogger(LOGGER_NAME);
+
+    private static GFFileHandler gfFileHandler;
+
+    @BeforeClass
+    public static void initializeBatchWriterTest() throws Exception {
+        File basePath = new File(BASE_PATH);
+        basePath.mkdirs();
+        File testLog = new File(TEST_BATCH_LOG);
+        testLog.delete();
+
+        gfFileHandler = new GFFileHandler();
+        gfFileHandler.enableBatchWriter(256, GFFileHandler.OverflowPolicy.BLOCK, Level.WARNING, 10);
+        gfFileHandler.changeFileName(testLog);
+        gfFileHandler.setFormatter(new UniformLogFormatter());
+        gfFileHandler.initializePump();
+
+        LOGGER.addHandler(gfFileHandler);
+        LOGGER.setLevel(Level.ALL);
+        LOGGER.setUseParentHandlers(false);
+    }
+
+    @Test
+    public void testAllRecordsWritten() throws Exception {
+        final int threads = 4;
+        final int perThread = 2000;
+        Thread[] loggers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            loggers[t] = new Thread() {
+                public void run() {
+                    for (int i = 0; i < perThread; i++) {
+                        LOGGER.info("batch-writer-message " + id + "-" + i);
+                    }
+                }
+            };
+            loggers[t].start();
+        }
+        for (Thread t : loggers) {
+            t.join();
+        }
+
+        // the ring buffer empties before the pump has written the last batch,
+        // so wait for the messages to show up in the file
+        long deadline = System.currentTimeMillis() + 10000;
+        int written = countMessages(TEST_BATCH_LOG);
+        while (written < threads * perThread && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            written = countMessages(TEST_BATCH_LOG);
+        }
+
+        assertEquals(0, gfFileHandler.getDroppedRecordCount());
+        assertEquals(threads * perThread, written);
+    }
+
+    private static int countMessages(String file) throws Exception {
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        int count = 0;
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.contains("batch-writer-message ")) {
+                    count++;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return count;
+    }
+
+    @Test
+    public void testDropPolicyCountsDroppedRecords() throws Exception {
+        GFFileHandler handler = new GFFileHandler();
+        handler.enableBatchWriter(2, GFFileHandler.OverflowPolicy.DROP, Level.WARNING, 10);
+        // no pump started, so the ring buffer fills up after two records
+        for (int i = 0; i < 5; i++) {
+            handler.publish(new LogRecord(Level.INFO, "dropped " + i));
+        }
+        assertEquals(2, handler.getPendingRecordCount());
+        assertEquals(3, handler.getDroppedRecordCount());
+    }
+
+    @Test
+    public void testSamplePolicyKeepsEveryNthRecord() throws Exception {
+        GFFileHandler handler = new GFFileHandler();
+        handler.enableBatchWriter(2, GFFileHandler.OverflowPolicy.SAMPLE, Level.WARNING, 3);
+        handler.publish(new LogRecord(Level.INFO, "kept 1"));
+        handler.publish(new LogRecord(Level.INFO, "kept 2"));
+        // below the overflow level: 2 out of 3 are dropped, the third blocks
+        // since no pump is running, so only publish up to the sampled record
+        handler.publish(new LogRecord(Level.INFO, "sampled 1"));
+        handler.publish(new LogRecord(Level.INFO, "sampled 2"));
+        assertEquals(2, handler.getDroppedRecordCount());
+        assertEquals(2, handler.getPendingRecordCount());
+    }
+
+    @AfterClass
+    public static void cleanupBatchWriterTest() throws Exception {
+        LOGGER.removeHandler(gfFileHandler);
+        gfFileHandler.preDestroy();
+        gfFileHandler.close();
+    }
+}
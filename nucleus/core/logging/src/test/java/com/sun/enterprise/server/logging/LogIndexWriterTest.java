@@ -0,0 +1,215 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.server.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+import com.sun.enterprise.server.logging.logviewer.backend.LogFile;
+import com.sun.enterprise.server.logging.logviewer.backend.LogIndex;
+
+/**
+ * Test class for the log file index written by GFFileHandler and used by
+ * the log viewer.
+ */
+public class LogIndexWriterTest {
+
+    private static final String FILE_SEP = System.getProperty("file.separator");
+
+    private static final String USER_DIR = System.getProperty("user.dir");
+
+    private static final String BASE_PATH = USER_DIR + FILE_SEP + "target";
+
+    private static final int INFO_RECORDS = 3000;
+
+    private static final int WARNING_EVERY = 1000;
+
+    @Test
+    public void testIndexWrittenByPump() throws Exception {
+        File logFile = writeLog("test-index.log", false);
+        verifyIndex(logFile);
+    }
+
+    @Test
+    public void testIndexWrittenByBatchWriter() throws Exception {
+        File logFile = writeLog("test-index-batch.log", true);
+        verifyIndex(logFile);
+    }
+
+    /**
+     * The segments of a scanned log start and end at the byte offsets of
+     * its records, whatever their line ends and encoding, and the records
+     * are read in the encoding of the log.
+     */
+    @Test
+    public void testScanOffsetsFollowWrittenBytes() throws Exception {
+        new File(BASE_PATH).mkdirs();
+        File logFile = new File(BASE_PATH + FILE_SEP + "test-index-crlf.log");
+        // not the default charset, which the log must not be read in
+        Charset charset = Charset.forName(
+                "UTF-8".equals(Charset.defaultCharset().name()) ? "ISO-8859-1" : "UTF-8");
+        List<Long> starts = new ArrayList<Long>();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (int i = 0; i < 5; i++) {
+            starts.add(Long.valueOf(bytes.size()));
+            String record = "[#|2017-08-10T10:00:0" + i + ".000+0000|INFO|glassfish|test.logger|"
+                    + "_ThreadID=1;_ThreadName=main;_TimeMillis=150235920000" + i
+                    + ";_LevelValue=800;|\r\n  message \u00e9\u00e9 " + i + "|#]\r\n\r\n";
+            bytes.write(record.getBytes(charset));
+        }
+        FileOutputStream out = new FileOutputStream(logFile);
+        try {
+            out.write(bytes.toByteArray());
+        } finally {
+            out.close();
+        }
+
+        List<LogIndex.Segment> segments = new ArrayList<LogIndex.Segment>();
+        LogIndex.scan(logFile, charset, 0, 0, 2, logFile.length(), segments);
+        assertEquals(3, segments.size());
+        for (int i = 0; i < segments.size(); i++) {
+            assertEquals(starts.get(2 * i).longValue(), segments.get(i).getOffset());
+        }
+        assertEquals(logFile.length(), segments.get(2).getEndOffset());
+
+        // a scan from the middle of the file lines up with a full scan
+        segments.clear();
+        LogIndex.scan(logFile, charset, starts.get(2), 2, 2, logFile.length(), segments);
+        assertEquals(2, segments.size());
+        assertEquals(starts.get(4).longValue(), segments.get(1).getOffset());
+        assertEquals(logFile.length(), segments.get(1).getEndOffset());
+
+        List entries = new LogFile(logFile.getAbsolutePath(), charset.name())
+                .getLogEntries(3, 2);
+        assertEquals(2, entries.size());
+        for (int i = 0; i < 2; i++) {
+            String message = ((LogFile.LogEntry) entries.get(i)).getLoggedMessage();
+            assertTrue(message, message.contains("message \u00e9\u00e9 " + (3 + i)));
+        }
+    }
+
+    private void verifyIndex(File logFile) throws Exception {
+        List<LogIndex.Segment> segments = LogIndex.read(logFile, logFile.length());
+        assertTrue(segments.size() > 1);
+        LogIndex.Segment last = segments.get(segments.size() - 1);
+        assertEquals(logFile.length(), last.getEndOffset());
+        assertEquals(INFO_RECORDS + INFO_RECORDS / WARNING_EVERY - 1, last.getLastRecord());
+
+        LogFile indexed = new LogFile(logFile.getAbsolutePath());
+        List entries = indexed.getLogEntries(1234, 5);
+        assertEquals(5, entries.size());
+        LogFile.LogEntry entry = (LogFile.LogEntry) entries.get(0);
+        assertEquals(1234, entry.getRecordNumber());
+
+        // the same records must be found without the index
+        assertTrue(LogIndex.getIndexFile(logFile).delete());
+        LogFile scanned = new LogFile(logFile.getAbsolutePath());
+        List scannedEntries = scanned.getLogEntries(1234, 5);
+        assertEquals(5, scannedEntries.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(((LogFile.LogEntry) entries.get(i)).getLoggedMessage(),
+                    ((LogFile.LogEntry) scannedEntries.get(i)).getLoggedMessage());
+        }
+        assertEquals(indexed.getLastIndexNumber(), scanned.getLastIndexNumber());
+
+        // level and logger pruning skip straight to the segment of the warning
+        long record = indexed.findMatchingRecord(0, true, null, null, "WARNING",
+                Collections.singletonList("javax.enterprise.test.logging.index.warning"));
+        assertTrue(record > segments.get(0).getLastRecord());
+        // the first warning is logged after the first WARNING_EVERY infos
+        assertTrue(record <= WARNING_EVERY);
+        assertEquals(-1, indexed.findMatchingRecord(0, true, null, null, "SEVERE", null));
+    }
+
+    private File writeLog(String name, boolean batch) throws Exception {
+        new File(BASE_PATH).mkdirs();
+        File logFile = new File(BASE_PATH + FILE_SEP + name);
+        logFile.delete();
+        LogIndex.getIndexFile(logFile).delete();
+
+        GFFileHandler handler = new GFFileHandler();
+        if (batch) {
+            handler.enableBatchWriter(1024, GFFileHandler.OverflowPolicy.BLOCK, Level.WARNING, 10);
+        }
+        handler.changeFileName(logFile);
+        handler.setFormatter(new UniformLogFormatter());
+        handler.initializePump();
+
+        Logger infoLogger = Logger.getLogger("javax.enterprise.test.logging.index." + name);
+        Logger warningLogger = Logger.getLogger("javax.enterprise.test.logging.index.warning");
+        for (Logger logger : new Logger[]{infoLogger, warningLogger}) {
+            logger.addHandler(handler);
+            logger.setLevel(Level.ALL);
+            logger.setUseParentHandlers(false);
+        }
+        try {
+            for (int i = 0; i < INFO_RECORDS; i++) {
+                infoLogger.info("message " + i);
+                if (i % WARNING_EVERY == WARNING_EVERY - 1) {
+                    warningLogger.warning("warning " + i);
+                }
+            }
+            long deadline = System.currentTimeMillis() + 10000;
+            while (handler.getPendingRecordCount() > 0
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        } finally {
+            infoLogger.removeHandler(handler);
+            warningLogger.removeHandler(handler);
+            handler.preDestroy();
+            handler.close();
+        }
+        return logFile;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.server.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Test class for the ring buffer used by the GFFileHandler batch writer.
+ */
+public class MpscRingBufferTest {
+
+    @Test
+    public void testCapacityRoundedToPowerOfTwo() {
+        assertEquals(2, new MpscRingBuffer<String>(1).capacity());
+        assertEquals(8, new MpscRingBuffer<String>(5).capacity());
+        assertEquals(16, new MpscRingBuffer<String>(16).capacity());
+    }
+
+    @Test
+    public void testOfferFailsWhenFull() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<Integer>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+        assertEquals(4, buffer.size());
+
+        assertEquals(Integer.valueOf(0), buffer.poll());
+        assertTrue(buffer.offer(4));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(Integer.valueOf(i), buffer.poll());
+        }
+        assertNull(buffer.poll());
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void testTimedPollReturnsNullWhenEmpty() throws Exception {
+        MpscRingBuffer<String> buffer = new MpscRingBuffer<String>(4);
+        assertNull(buffer.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        final int producers = 4;
+        final int perProducer = 10000;
+        final MpscRingBuffer<Integer> buffer = new MpscRingBuffer<Integer>(64);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        for (int p = 0; p < producers; p++) {
+            final int base = p * perProducer;
+            Thread producer = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perProducer; i++) {
+                        while (!buffer.offer(base + i)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            };
+            producer.setDaemon(true);
+            producer.start();
+        }
+        start.countDown();
+
+        Set<Integer> received = new HashSet<Integer>();
+        while (received.size() < producers * perProducer) {
+            Integer value = buffer.poll(5, TimeUnit.SECONDS);
+            if (value == null) {
+                break;
+            }
+            assertTrue("duplicate " + value, received.add(value));
+        }
+        assertEquals(producers * perProducer, received.size());
+        assertTrue(buffer.isEmpty());
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.flashlight.impl.client;
+
+import com.sun.enterprise.config.serverbeans.MonitoringService;
+import org.glassfish.flashlight.FlashlightUtils;
+import org.glassfish.flashlight.client.ProbeClientInvoker;
+import org.glassfish.flashlight.provider.FlashlightProbe;
+import org.glassfish.flashlight.provider.ProbeRegistry;
+import org.glassfish.hk2.api.ServiceLocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the firing of a stateless probe <code>(String, int, long)</code>
+ * with a number of listeners, as done by a transformed probe provider method.
+ * <p>
+ * The <code>compiled</code> dispatch links to the call site of the probe the
+ * way the invokedynamic instruction of a transformed method does, with the
+ * listeners bound through MethodHandles. It is compared with
+ * <code>reflective</code>, the dispatch before the call sites: the arguments
+ * boxed into an array for ProbeRegistry.invokeProbe and each listener called
+ * by a ReflectiveClientInvoker.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProbeDispatchBenchmark {
+
+    private static final int PROBE_ID = 1;
+
+    // Stands in for the invokedynamic call site of a transformed method
+    private static final MutableCallSite CALL_SITE = new MutableCallSite(
+            MethodType.methodType(void.class, String.class, int.class, long.class));
+    private static final MethodHandle FIRE_PROBE = CALL_SITE.dynamicInvoker();
+
+    @Param({"compiled", "reflective"})
+    public String dispatch;
+
+    @Param({"0", "1", "4"})
+    public int listeners;
+
+    private boolean compiled;
+
+    private FlashlightProbe probe;
+
+    private String name = "request";
+
+    private int count;
+
+    private long size;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        initializeFlashlight();
+        compiled = "compiled".equals(dispatch);
+
+        probe = new FlashlightProbe(PROBE_ID, ProbeDispatchBenchmark.class, "benchmark", "benchmark",
+                "provider", "requestEvent", new String[] {"name", "count", "size"},
+                new Class[] {String.class, int.class, long.class}, false, false, false, false, false,
+                new String[0]);
+        ProbeRegistry.getInstance().registerProbe(probe);
+        CALL_SITE.setTarget(probe.getCallSite().dynamicInvoker());
+
+        Method method = Listener.class.getMethod("requestEvent", long.class, String.class);
+        String[] paramNames = {"size", "name"};
+        for (int i = 0; i < listeners; i++) {
+            ProbeClientInvoker invoker = compiled
+                    ? MethodHandleClientInvoker.createInvoker(i, new Listener(), method, paramNames, probe)
+                    : new ReflectiveClientInvoker(i, new Listener(), method, paramNames, probe);
+            probe.addInvoker(invoker);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ProbeRegistry.getInstance().unregisterProbe(probe);
+    }
+
+    @Benchmark
+    public void fireProbe() throws Throwable {
+        long size = ++this.size;
+        if (compiled) {
+            FIRE_PROBE.invokeExact(name, count, size);
+        } else {
+            ProbeRegistry.invokeProbe(PROBE_ID, new Object[] {name, count, size});
+        }
+    }
+
+    private static void initializeFlashlight() {
+        InvocationHandler config = new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getMonitoringEnabled".equals(method.getName()))
+                    return "true";
+                if ("getDtraceEnabled".equals(method.getName()))
+                    return "false";
+                return null;
+            }
+        };
+        ClassLoader cl = ProbeDispatchBenchmark.class.getClassLoader();
+        FlashlightUtils.initialize(
+                (ServiceLocator) Proxy.newProxyInstance(cl, new Class[] {ServiceLocator.class}, config),
+                (MonitoringService) Proxy.newProxyInstance(cl, new Class[] {MonitoringService.class}, config));
+    }
+
+    public static class Listener {
+
+        private long total;
+
+        public void requestEvent(long size, String name) {
+            total += size + name.length();
+        }
+    }
+}
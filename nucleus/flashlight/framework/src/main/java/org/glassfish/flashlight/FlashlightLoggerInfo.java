@@ -186,5 +186,10 @@ public class FlashlightLoggerInfo {
             level = "WARNING")
     public static final String DTRACE_UNEXPECTED_EXCEPTION = LOGMSG_PREFIX + "-00515";
 
+    @LogMessageInfo(
+            message = "Error invoking a probe listener method, further errors of this listener are not reported",
+            level = "WARNING")
+    public static final String PROBE_LISTENER_INVOCATION_ERROR = LOGMSG_PREFIX + "-00516";
+
 }
 
@@ -41,6 +41,7 @@
 package org.glassfish.flashlight.client;
 
 import org.glassfish.flashlight.FlashlightUtils;
+import org.glassfish.flashlight.impl.client.MethodHandleClientInvoker;
 import org.glassfish.flashlight.impl.client.ReflectiveClientInvoker;
 import org.glassfish.flashlight.provider.FlashlightProbe;
 import org.jvnet.hk2.annotations.Service;
@@ -58,6 +59,10 @@ public class ProbeClientInvokerFactory {
     private static AtomicInteger clientMethodIdCounter =
             new AtomicInteger();
 
+    // Set to false to call every listener through ReflectiveClientInvoker
+    private static final boolean USE_METHOD_HANDLES = Boolean.parseBoolean(
+            System.getProperty("org.glassfish.flashlight.methodHandleInvokers", "true"));
+
     protected static int getNextId() {
     	return clientMethodIdCounter.incrementAndGet();
     }
@@ -66,6 +71,12 @@ public class ProbeClientInvokerFactory {
                                                    FlashlightProbe probe, String[] paramNames) {
         int invokerId = clientMethodIdCounter.incrementAndGet();
 
+        if (USE_METHOD_HANDLES) {
+            ProbeClientInvoker invoker = MethodHandleClientInvoker.createInvoker(
+                    invokerId, target, method, paramNames, probe);
+            if (invoker != null)
+                return invoker;
+        }
         return new ReflectiveClientInvoker(invokerId, target, method, paramNames, probe);
     }
 
@@ -0,0 +1,223 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.flashlight.impl.client;
+
+import org.glassfish.flashlight.FlashlightLoggerInfo;
+import org.glassfish.flashlight.FlashlightUtils;
+import org.glassfish.flashlight.client.ProbeClientInvoker;
+import org.glassfish.flashlight.provider.FlashlightProbe;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A ProbeClientInvoker that calls the listener method through a MethodHandle
+ * bound to the listener and adapted to the parameter types of the probe.
+ * <p>
+ * The handle returned by {@link #getMethodHandle()} takes the probe arguments
+ * as they are, so a probe call site can link to it directly and primitive
+ * arguments are not boxed on the way to the listener.
+ * <p>
+ * Listener methods that use computed parameters or varargs, or whose
+ * parameters cannot be converted from the probe parameters, are left to the
+ * {@link ReflectiveClientInvoker}.
+ */
+public class MethodHandleClientInvoker
+        implements ProbeClientInvoker {
+
+    private static final Logger logger = FlashlightLoggerInfo.getLogger();
+    private static final MethodHandle MONITORING_ENABLED;
+    private static final MethodHandle REPORT;
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            MONITORING_ENABLED = lookup.findStatic(FlashlightUtils.class,
+                    "isMonitoringEnabled", MethodType.methodType(boolean.class));
+            REPORT = lookup.findVirtual(MethodHandleClientInvoker.class,
+                    "report", MethodType.methodType(void.class, Throwable.class));
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final int id;
+    private final Object target;
+    private final Method method;
+    private final String[] paramNames;
+    private final int[] probeIndices;
+    private final MethodHandle methodHandle;
+    private final MethodHandle spreader;
+    private volatile boolean emittedOneMessage = false;
+
+    private MethodHandleClientInvoker(int id, Object target, Method method,
+            String[] paramNames, int[] probeIndices, MethodHandle invoker) {
+        this.id = id;
+        this.target = target;
+        this.method = method;
+        this.paramNames = paramNames;
+        this.probeIndices = probeIndices;
+
+        MethodType type = invoker.type();
+        MethodHandle safe = MethodHandles.catchException(invoker, Throwable.class,
+                MethodHandles.dropArguments(REPORT.bindTo(this), 1, type.parameterList()));
+        spreader = safe.asSpreader(Object[].class, type.parameterCount());
+        methodHandle = MethodHandles.guardWithTest(
+                MethodHandles.dropArguments(MONITORING_ENABLED, 0, type.parameterList()),
+                safe,
+                MethodHandles.dropArguments(noop(), 0, type.parameterList()));
+    }
+
+    /**
+     * Binds the listener method to the probe.
+     *
+     * @return the invoker, or null if the listener method cannot be called
+     * through a MethodHandle
+     */
+    public static MethodHandleClientInvoker createInvoker(int id, Object target,
+            Method method, String[] clientParamNames, FlashlightProbe probe) {
+        if (method.isVarArgs())
+            return null;
+
+        String[] probeParamNames = probe.getProbeParamNames();
+        Class[] probeParamTypes = probe.getParamTypes();
+        HashMap<String, Integer> probeParamIndexMap = new HashMap<String, Integer>();
+        for (int index = 0; index < probeParamNames.length; index++) {
+            if (probeParamTypes[index] == null)
+                return null;
+            probeParamIndexMap.put(probeParamNames[index], index);
+        }
+
+        int size = clientParamNames.length;
+        int[] probeIndices = new int[size];
+        Class[] argTypes = new Class[size];
+        for (int index = 0; index < size; index++) {
+            Integer probeIndex = probeParamIndexMap.get(clientParamNames[index]);
+            if (probeIndex == null)
+                return null; // a computed parameter, or one the probe does not have
+            probeIndices[index] = probeIndex;
+            argTypes[index] = probeParamTypes[probeIndex];
+        }
+
+        try {
+            MethodHandle mh = MethodHandles.publicLookup().unreflect(method);
+            if (!Modifier.isStatic(method.getModifiers()))
+                mh = mh.bindTo(target);
+            mh = mh.asType(MethodType.methodType(void.class, argTypes));
+            mh = MethodHandles.permuteArguments(mh,
+                    MethodType.methodType(void.class, probeParamTypes), probeIndices);
+            return new MethodHandleClientInvoker(id, target, method, clientParamNames,
+                    probeIndices, mh);
+        }
+        catch (IllegalAccessException e) {
+            return null;
+        }
+        catch (WrongMethodTypeException e) {
+            return null;
+        }
+        catch (ClassCastException e) {
+            return null; // bindTo with a target of the wrong type
+        }
+        catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return a handle of the type <code>(probe parameter types)void</code>
+     * that calls the listener when monitoring is enabled
+     */
+    public MethodHandle getMethodHandle() {
+        return methodHandle;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void invoke(Object[] args) {
+        if (!FlashlightUtils.isMonitoringEnabled())
+            return;
+
+        try {
+            spreader.invokeExact(args);
+        }
+        catch (Throwable th) {
+            report(th);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("id=").append(id).append('\n');
+        sb.append("target=").append(target).append('\n');
+        sb.append("method=").append(method).append('\n');
+        sb.append("paramNames=").append(Arrays.toString(paramNames)).append('\n');
+        sb.append("probeIndices=").append(Arrays.toString(probeIndices)).append('\n');
+        return sb.toString();
+    }
+
+    private void report(Throwable th) {
+        if (!emittedOneMessage) {
+            // Only do this one time!
+            emittedOneMessage = true;
+            logger.log(Level.WARNING,
+                    FlashlightLoggerInfo.PROBE_LISTENER_INVOCATION_ERROR, th);
+            if (logger.isLoggable(Level.FINE)) {
+                logger.log(Level.FINE, "Probe listener invoker:\n{0}", this);
+            }
+        }
+    }
+
+    private static MethodHandle noop() {
+        return MethodHandles.constant(Object.class, null).asType(MethodType.methodType(void.class));
+    }
+}
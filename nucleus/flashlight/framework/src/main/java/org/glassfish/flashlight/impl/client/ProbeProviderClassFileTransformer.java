@@ -309,6 +309,8 @@ public class ProbeProviderClassFileTransformer implements ClassFileTransformer {
     private class ProbeProviderClassVisitor
             extends ClassVisitor {
 
+        private int version;
+
         ProbeProviderClassVisitor(ClassVisitor cv) {
             super(Opcodes.ASM6, cv);
             if (Log.getLogger().isLoggable(Level.FINER)) {
@@ -318,13 +320,21 @@ public class ProbeProviderClassFileTransformer implements ClassFileTransformer {
             }
         }
 
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            this.version = version;
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+
         @Override
         public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
             MethodVisitor mv = super.visitMethod(access, name, desc, signature, exceptions);
 
             FlashlightProbe probe = probes.get(makeKey(name, desc));
             if (probe != null) {
-                mv = new ProbeProviderMethodVisitor(mv, access, name, desc, probe);
+                // invokedynamic needs a class file version of at least 51 (Java 7)
+                boolean indy = (version & 0xFFFF) >= Opcodes.V1_7;
+                mv = new ProbeProviderMethodVisitor(mv, access, name, desc, probe, indy);
             }
 
             return mv;
@@ -334,13 +344,21 @@ public class ProbeProviderClassFileTransformer implements ClassFileTransformer {
     private static class ProbeProviderMethodVisitor
             extends AdviceAdapter {
 
+        private static final Handle BOOTSTRAP_PROBE = new Handle(Opcodes.H_INVOKESTATIC,
+                Type.getInternalName(ProbeRegistry.class), "bootstrapProbe",
+                "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;I)Ljava/lang/invoke/CallSite;",
+                false);
+
         private FlashlightProbe probe;
+        private boolean indy;
         private int stateLocal;
         private Label startFinally;
 
-        ProbeProviderMethodVisitor(MethodVisitor mv, int access, String name, String desc, FlashlightProbe probe) {
+        ProbeProviderMethodVisitor(MethodVisitor mv, int access, String name, String desc, FlashlightProbe probe,
+                boolean indy) {
             super(Opcodes.ASM6, mv, access, name, desc);
             this.probe = probe;
+            this.indy = indy;
         }
 
         @Override
@@ -459,12 +477,31 @@ public class ProbeProviderClassFileTransformer implements ClassFileTransformer {
         
         // This handles the stateless probe invocations
         private void insertCode() {
-            //Add the body
+            if (indy && !probe.hasSelf()) {
+                // Pass the arguments as they are to the call site of the probe:
+                //      invokedynamic fireProbe(args) [ProbeRegistry.bootstrapProbe, probeid]
+                loadArgs();
+                invokeDynamic("fireProbe",
+                        Type.getMethodDescriptor(Type.VOID_TYPE, Type.getArgumentTypes(this.methodDesc)),
+                        BOOTSTRAP_PROBE, probe.getId());
+                return;
+            }
+
+            // Older class files, and probes taking "self":
+            //      if (ProbeRegistry.isProbeEnabled(probeid))
+            //          ProbeRegistry.invokeProbe(probeid, args);
+            Label skip = new Label();
+            push(probe.getId());
+            invokeStatic(Type.getType(
+                    ProbeRegistry.class),
+                    org.objectweb.asm.commons.Method.getMethod("boolean isProbeEnabled(int)"));
+            visitJumpInsn(IFEQ, skip);
             push(probe.getId());
             loadArgArray();
             invokeStatic(Type.getType(
                     ProbeRegistry.class),
                     org.objectweb.asm.commons.Method.getMethod("void invokeProbe(int, Object[])"));
+            visitLabel(skip);
         }
 
     }
@@ -40,6 +40,11 @@
 
 package org.glassfish.flashlight.provider;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 
@@ -58,6 +63,7 @@ import java.util.concurrent.ConcurrentMap;
 import org.glassfish.api.monitoring.ProbeInfo;
 import com.sun.enterprise.util.LocalStringManagerImpl;
 import org.glassfish.flashlight.FlashlightLoggerInfo;
+import org.glassfish.flashlight.impl.client.MethodHandleClientInvoker;
 
 public class FlashlightProbe
         implements ProbeHandle, ProbeInfo{
@@ -255,6 +261,22 @@ public class FlashlightProbe
         return listenerEnabled.get();
     }
 
+    /**
+     * Returns the call site that the transformed probe provider method links
+     * to. Its target is the type <code>(parameter types)void</code> and is
+     * changed whenever a listener is added or removed: it does nothing while
+     * the probe has no listeners, calls the listeners directly when they are
+     * all bound with MethodHandles, and goes through
+     * {@link #fireProbe(Object[])} otherwise.
+     */
+    public synchronized CallSite getCallSite() {
+        if (callSite == null) {
+            callSite = new MutableCallSite(MethodType.methodType(void.class, paramTypes));
+            updateCallSite();
+        }
+        return callSite;
+    }
+
     public int getId() {
         return id;
     }
@@ -352,6 +374,7 @@ public class FlashlightProbe
         if (stateful != parent.getStateful())
             return;
         this.parent = parent;
+        updateCallSite();
     }
     
     public boolean getStateful() { return stateful; }
@@ -378,6 +401,41 @@ public class FlashlightProbe
         }
 
         invokerList = invList;
+        updateCallSite();
+    }
+
+    private synchronized void updateCallSite() {
+        if (callSite == null)
+            return;
+
+        MethodType type = callSite.type();
+        MethodHandle target = null;
+        if (!listenerEnabled.get() || (invokerList.isEmpty() && parent == null)) {
+            target = MethodHandles.dropArguments(NOOP, 0, type.parameterList());
+        }
+        else if (parent == null && !stateful) {
+            // Chain the listeners so that they are called in the list order
+            for (ProbeClientInvoker invoker : invokerList) {
+                if (!(invoker instanceof MethodHandleClientInvoker)) {
+                    target = null;
+                    break;
+                }
+                MethodHandle mh = ((MethodHandleClientInvoker) invoker).getMethodHandle();
+                if (!mh.type().equals(type)) {
+                    target = null;
+                    break;
+                }
+                target = (target == null) ? mh : MethodHandles.foldArguments(mh, target);
+            }
+        }
+        if (target == null) {
+            target = FIRE_PROBE.bindTo(this)
+                    .asCollector(Object[].class, type.parameterCount())
+                    .asType(type);
+        }
+
+        callSite.setTarget(target);
+        MutableCallSite.syncAll(new MutableCallSite[] { callSite });
     }
 
     private int findStateIndex(int invokerId, ArrayList <ProbeInvokeState> states) {
@@ -434,5 +492,19 @@ public class FlashlightProbe
     private boolean statefulReturn = false;
     private boolean statefulException = false;
     private String [] profileNames = null;
+    private MutableCallSite callSite = null;
+    private static final MethodHandle NOOP =
+            MethodHandles.constant(Object.class, null).asType(MethodType.methodType(void.class));
+    private static final MethodHandle FIRE_PROBE;
+
+    static {
+        try {
+            FIRE_PROBE = MethodHandles.lookup().findVirtual(FlashlightProbe.class,
+                    "fireProbe", MethodType.methodType(void.class, Object[].class));
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 }
 
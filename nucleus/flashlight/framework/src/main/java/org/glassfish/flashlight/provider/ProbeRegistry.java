@@ -40,6 +40,11 @@
 
 package org.glassfish.flashlight.provider;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.ConstantCallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.Collection;
 import java.util.ArrayList;
 
@@ -66,6 +71,18 @@ public class ProbeRegistry {
     private static ConcurrentHashMap<String, FlashlightProbe> probeDesc2ProbeMap =
                 new ConcurrentHashMap<String, FlashlightProbe>();
 
+    private static final MethodHandle INVOKE_PROBE;
+
+    static {
+        try {
+            INVOKE_PROBE = MethodHandles.lookup().findStatic(ProbeRegistry.class, "invokeProbe",
+                    MethodType.methodType(void.class, int.class, Object[].class));
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     public static ProbeRegistry getInstance() {
         return _me;
     }
@@ -135,6 +152,36 @@ public class ProbeRegistry {
     	}
     }
 
+   /**
+    * @return true if the probe has listeners, so that a transformed probe
+    * provider method can skip building the argument array otherwise
+    */
+   public static boolean isProbeEnabled(int id) {
+       FlashlightProbe probe = probeMap.get(id);
+       return probe != null && probe.isEnabled();
+   }
+
+   /**
+    * Bootstrap method for the invokedynamic instruction that a transformed
+    * probe provider method uses to fire a stateless probe with its arguments
+    * as they are. Links to the call site of the probe, or to
+    * {@link #invokeProbe(int, Object[])} if the probe does not match the
+    * call.
+    */
+   public static CallSite bootstrapProbe(MethodHandles.Lookup caller, String name,
+                        MethodType type, int id) {
+       FlashlightProbe probe = probeMap.get(id);
+       if (probe != null) {
+           CallSite callSite = probe.getCallSite();
+           if (callSite.type().equals(type)) {
+               return callSite;
+           }
+       }
+       return new ConstantCallSite(MethodHandles.insertArguments(INVOKE_PROBE, 0, id)
+               .asCollector(Object[].class, type.parameterCount())
+               .asType(type));
+   }
+
    public static Object invokeProbeBefore(int id, Object[] args) {
        FlashlightProbe probe = probeMap.get(id);
        if (probe != null) {
@@ -0,0 +1,182 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.flashlight.impl.client;
+
+import com.sun.enterprise.config.serverbeans.MonitoringService;
+import org.glassfish.flashlight.FlashlightUtils;
+import org.glassfish.flashlight.client.ProbeClientInvoker;
+import org.glassfish.flashlight.client.ProbeClientInvokerFactory;
+import org.glassfish.flashlight.provider.FlashlightProbe;
+import org.glassfish.hk2.api.ServiceLocator;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MethodHandleClientInvokerTest {
+
+    private static final String[] PROBE_PARAM_NAMES = {"name", "count", "size"};
+    private static final Class[] PROBE_PARAM_TYPES = {String.class, int.class, long.class};
+
+    @BeforeClass
+    public static void setUpClass() {
+        InvocationHandler handler = new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getMonitoringEnabled".equals(method.getName()))
+                    return "true";
+                if ("getDtraceEnabled".equals(method.getName()))
+                    return "false";
+                return null;
+            }
+        };
+        ClassLoader cl = MethodHandleClientInvokerTest.class.getClassLoader();
+        FlashlightUtils.initialize(
+                (ServiceLocator) Proxy.newProxyInstance(cl, new Class[] {ServiceLocator.class}, handler),
+                (MonitoringService) Proxy.newProxyInstance(cl, new Class[] {MonitoringService.class}, handler));
+    }
+
+    @After
+    public void tearDown() {
+        FlashlightUtils.setMonitoringEnabled(true);
+    }
+
+    @Test
+    public void callSiteCallsListenersInOrder() throws Throwable {
+        FlashlightProbe probe = newProbe(1);
+        MethodHandle fire = probe.getCallSite().dynamicInvoker();
+        Listener first = new Listener("first");
+        Listener second = new Listener("second");
+
+        // no listeners, nothing to call
+        fire.invokeExact("a", 1, 2L);
+
+        ProbeClientInvoker invoker1 = createInvoker(first, probe);
+        ProbeClientInvoker invoker2 = createInvoker(second, probe);
+        assertTrue(invoker1 instanceof MethodHandleClientInvoker);
+        probe.addInvoker(invoker1);
+        probe.addInvoker(invoker2);
+
+        fire.invokeExact("b", 3, 4L);
+        assertEquals("[first:4/b, second:4/b]", Listener.calls.toString());
+
+        probe.removeInvoker(invoker1);
+        probe.removeInvoker(invoker2);
+        Listener.calls.clear();
+        fire.invokeExact("c", 5, 6L);
+        assertTrue(Listener.calls.isEmpty());
+    }
+
+    @Test
+    public void invokeWithArgumentArray() {
+        FlashlightProbe probe = newProbe(2);
+        ProbeClientInvoker invoker = createInvoker(new Listener("array"), probe);
+
+        invoker.invoke(new Object[] {"d", 7, 8L});
+        assertEquals("[array:8/d]", Listener.calls.toString());
+
+        // a wrong argument is reported, not thrown
+        Listener.calls.clear();
+        invoker.invoke(new Object[] {"e", 9, "ten"});
+        assertTrue(Listener.calls.isEmpty());
+    }
+
+    @Test
+    public void nothingCalledWhenMonitoringIsDisabled() throws Throwable {
+        FlashlightProbe probe = newProbe(3);
+        probe.addInvoker(createInvoker(new Listener("disabled"), probe));
+        FlashlightUtils.setMonitoringEnabled(false);
+
+        probe.getCallSite().dynamicInvoker().invokeExact("f", 11, 12L);
+        assertTrue(Listener.calls.isEmpty());
+    }
+
+    @Test
+    public void computedParamsNeedReflection() throws Exception {
+        FlashlightProbe probe = newProbe(4);
+        Method method = Listener.class.getMethod("onProbe", long.class, String.class);
+
+        assertNull(MethodHandleClientInvoker.createInvoker(1, new Listener("computed"), method,
+                new String[] {"size", "$appname"}, probe));
+        assertTrue(ProbeClientInvokerFactory.createInvoker(new Listener("computed"), method, probe,
+                new String[] {"size", "$appname"}) instanceof ReflectiveClientInvoker);
+    }
+
+    private static FlashlightProbe newProbe(int id) {
+        Listener.calls.clear();
+        return new FlashlightProbe(id, MethodHandleClientInvokerTest.class, "test", "test", "provider",
+                "probe" + id, PROBE_PARAM_NAMES, PROBE_PARAM_TYPES, false, false, false, false, false,
+                new String[0]);
+    }
+
+    private static ProbeClientInvoker createInvoker(Listener listener, FlashlightProbe probe) {
+        try {
+            return ProbeClientInvokerFactory.createInvoker(listener,
+                    Listener.class.getMethod("onProbe", long.class, String.class), probe,
+                    new String[] {"size", "name"});
+        }
+        catch (NoSuchMethodException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    public static class Listener {
+
+        static final List<String> calls = new ArrayList<String>();
+
+        private final String name;
+
+        Listener(String name) {
+            this.name = name;
+        }
+
+        public void onProbe(long size, String probeName) {
+            calls.add(name + ":" + size + "/" + probeName);
+        }
+    }
+}